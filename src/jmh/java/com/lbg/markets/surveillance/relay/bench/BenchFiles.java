@@ -0,0 +1,52 @@
+package com.lbg.markets.surveillance.relay.bench;
+
+import java.io.IOException;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.Random;
+
+/**
+ * Synthetic source trees for benchmarks.
+ */
+public final class BenchFiles {
+
+    private BenchFiles() {
+    }
+
+    /**
+     * Create {@code files} files of {@code size} random bytes spread over {@code dirs} directories
+     * named {@code d000/}, {@code d001/}, ...; every tenth file is a {@code .tmp}, the rest {@code .csv}.
+     */
+    public static void createTree(Path root, int dirs, int files, int size) throws IOException {
+        Random random = new Random(42);
+        byte[] content = new byte[size];
+        for (int i = 0; i < files; i++) {
+            Path dir = root.resolve(String.format("d%03d", i % dirs));
+            Files.createDirectories(dir);
+            random.nextBytes(content);
+            Files.write(dir.resolve(String.format("file-%06d.%s", i, i % 10 == 0 ? "tmp" : "csv")), content);
+        }
+    }
+
+    public static void deleteRecursively(Path root) throws IOException {
+        if (root == null || !Files.exists(root)) {
+            return;
+        }
+        Files.walkFileTree(root, new SimpleFileVisitor<>() {
+            @Override
+            public FileVisitResult visitFile(Path file, BasicFileAttributes attrs) throws IOException {
+                Files.delete(file);
+                return FileVisitResult.CONTINUE;
+            }
+
+            @Override
+            public FileVisitResult postVisitDirectory(Path dir, IOException e) throws IOException {
+                Files.delete(dir);
+                return FileVisitResult.CONTINUE;
+            }
+        });
+    }
+}
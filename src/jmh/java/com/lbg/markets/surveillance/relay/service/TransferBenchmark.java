@@ -0,0 +1,122 @@
+package com.lbg.markets.surveillance.relay.service;
+
+import com.lbg.markets.surveillance.relay.bench.BenchFiles;
+import com.lbg.markets.surveillance.relay.domain.Feed;
+import com.lbg.markets.surveillance.relay.domain.Run;
+import com.lbg.markets.surveillance.relay.sink.LocalFsSink;
+import com.lbg.markets.surveillance.relay.source.LocalFsSource;
+import com.lbg.markets.surveillance.relay.tracker.CopiedIdentityIndex;
+import com.lbg.markets.surveillance.relay.tracker.H2Tracker;
+import com.lbg.markets.surveillance.relay.util.BufferPool;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.h2.jdbcx.JdbcConnectionPool;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Logger;
+
+/**
+ * End-to-end {@link TransferOrchestrationService#executeTransfer} of a generated feed:
+ * list, dedupe against an empty tracker, copy every file to a local sink and record it.
+ * Each measured run starts from an empty tracker and sink.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Fork(1)
+@Warmup(iterations = 2)
+@Measurement(iterations = 5)
+public class TransferBenchmark {
+
+    @Param({"2000"})
+    int files;
+
+    @Param({"65536"})
+    int fileSize;
+
+    @Param({"none", "md5"})
+    String checksum;
+
+    private Path sourceDir;
+    private Path sinkDir;
+    private JdbcConnectionPool pool;
+    private TransferOrchestrationService orchestrator;
+    private Feed feed;
+
+    @Setup(Level.Trial)
+    public void setup() throws IOException {
+        // Per-file INFO logging would otherwise dominate the measurement
+        Logger.getLogger("com.lbg.markets.surveillance.relay").setLevel(java.util.logging.Level.WARNING);
+
+        sourceDir = Files.createTempDirectory("bench-e2e-src-");
+        sinkDir = Files.createTempDirectory("bench-e2e-dst-");
+        BenchFiles.createTree(sourceDir, 20, files, fileSize);
+
+        pool = JdbcConnectionPool.create("jdbc:h2:mem:bench-e2e;MODE=PostgreSQL;DB_CLOSE_DELAY=-1", "sa", "");
+        H2Tracker tracker = new H2Tracker(pool);
+        tracker.createSchema();
+
+        orchestrator = new TransferOrchestrationService();
+        orchestrator.sourceProvider = new LocalFsSource();
+        orchestrator.sink = new LocalFsSink(sinkDir.toString(), 65536, 8 * 1024 * 1024);
+        orchestrator.tracker = tracker;
+        // Never warmed up, so every lookup goes to the tracker
+        orchestrator.copiedIndex = new CopiedIdentityIndex();
+        orchestrator.metrics = new TransferMetrics(new SimpleMeterRegistry());
+        orchestrator.limits = new TransferLimits();
+        orchestrator.limits.init();
+        orchestrator.compression = new TransferCompression();
+        orchestrator.compression.init();
+        orchestrator.buffers = new BufferPool(128 * 1024 * 1024, false);
+        orchestrator.parallelism = 8;
+        orchestrator.batchSize = 500;
+        orchestrator.checksum = checksum;
+        orchestrator.circuitOpenFor = Duration.ofSeconds(60);
+        orchestrator.init();
+
+        feed = new Feed("bench", sourceDir.toString(), List.of("**/*.csv"), List.of(), "out", true, Map.of());
+    }
+
+    @Setup(Level.Iteration)
+    public void reset() throws IOException, SQLException {
+        try (Connection conn = pool.getConnection(); Statement st = conn.createStatement()) {
+            st.execute("DELETE FROM files");
+            st.execute("DELETE FROM resumes");
+        }
+        BenchFiles.deleteRecursively(sinkDir);
+        Files.createDirectories(sinkDir);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        pool.dispose();
+        BenchFiles.deleteRecursively(sourceDir);
+        BenchFiles.deleteRecursively(sinkDir);
+    }
+
+    @Benchmark
+    public Run executeTransfer() {
+        return orchestrator.executeTransfer(feed);
+    }
+}
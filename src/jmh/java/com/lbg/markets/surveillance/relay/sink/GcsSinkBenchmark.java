@@ -0,0 +1,66 @@
+package com.lbg.markets.surveillance.relay.sink;
+
+import com.lbg.markets.surveillance.relay.domain.ResumeState;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.channels.Channels;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * One resumable upload through {@link GcsSink} to the in-process fake GCS server at different
+ * {@code transfer.chunkSizeBytes} values. Measures the upload pipeline and per-PUT overhead,
+ * not the network.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Fork(1)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+public class GcsSinkBenchmark {
+
+    @Param({"262144", "1048576", "8388608"})
+    int chunkSize;
+
+    @Param({"33554432"})
+    int fileSize;
+
+    private FakeGcsServer gcs;
+    private GcsSink sink;
+    private byte[] content;
+
+    @Setup(Level.Trial)
+    public void setup() throws IOException {
+        gcs = new FakeGcsServer();
+        sink = new GcsSink(gcs.endpoint(), "bench-bucket", "", false, "none", chunkSize, 1);
+        content = new byte[fileSize];
+        new Random(7).nextBytes(content);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        gcs.close();
+    }
+
+    @Benchmark
+    public long write() throws IOException {
+        return sink.write("bench/out.dat", Channels.newChannel(new ByteArrayInputStream(content)),
+                ResumeState.untracked(), fileSize, Map.of(), CommitListener.NONE);
+    }
+}
@@ -0,0 +1,85 @@
+package com.lbg.markets.surveillance.relay.sink;
+
+import com.lbg.markets.surveillance.relay.bench.BenchFiles;
+import com.lbg.markets.surveillance.relay.domain.ResumeState;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Writing one file through {@link LocalFsSink}, from a file channel (transferTo) and from a
+ * plain stream (buffered copy) at different {@code sink.buffer.size} values.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Fork(1)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+public class LocalFsSinkBenchmark {
+
+    @Param({"8192", "65536", "1048576"})
+    int bufferSize;
+
+    @Param({"file", "stream"})
+    String sourceKind;
+
+    @Param({"67108864"})
+    int fileSize;
+
+    private Path sourceDir;
+    private Path sinkDir;
+    private Path sourceFile;
+    private LocalFsSink sink;
+
+    @Setup(Level.Trial)
+    public void setup() throws IOException {
+        sourceDir = Files.createTempDirectory("bench-sink-src-");
+        sinkDir = Files.createTempDirectory("bench-sink-dst-");
+        byte[] content = new byte[fileSize];
+        new Random(7).nextBytes(content);
+        sourceFile = Files.write(sourceDir.resolve("source.dat"), content);
+        sink = new LocalFsSink(sinkDir.toString(), bufferSize, 8 * 1024 * 1024);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        BenchFiles.deleteRecursively(sourceDir);
+        BenchFiles.deleteRecursively(sinkDir);
+    }
+
+    @Benchmark
+    public long write() throws IOException {
+        try (ReadableByteChannel in = open()) {
+            return sink.write("bench/out.dat", in, ResumeState.untracked(), fileSize, Map.of(),
+                    CommitListener.NONE);
+        }
+    }
+
+    private ReadableByteChannel open() throws IOException {
+        return "file".equals(sourceKind)
+                ? FileChannel.open(sourceFile, StandardOpenOption.READ)
+                : Channels.newChannel(Files.newInputStream(sourceFile));
+    }
+}
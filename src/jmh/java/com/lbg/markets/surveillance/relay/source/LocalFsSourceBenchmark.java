@@ -0,0 +1,104 @@
+package com.lbg.markets.surveillance.relay.source;
+
+import com.lbg.markets.surveillance.relay.bench.BenchFiles;
+import com.lbg.markets.surveillance.relay.domain.Feed;
+import com.lbg.markets.surveillance.relay.domain.FileDescriptor;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+/**
+ * Listing a synthetic tree: full walk, walk with include pruning, and the
+ * unchanged-directory shortcut after a committed listing.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Fork(1)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+public class LocalFsSourceBenchmark {
+
+    @Param({"10000"})
+    int files;
+
+    @Param({"100"})
+    int dirs;
+
+    private Path root;
+    private LocalFsSource source;
+    private Feed all;
+    private Feed pruned;
+    private Feed unchanged;
+
+    @Setup(Level.Trial)
+    public void setup() throws IOException {
+        root = Files.createTempDirectory("bench-list-");
+        BenchFiles.createTree(root, dirs, files, 16);
+        // Past the walker's settle window, so unchanged directories can be trusted
+        FileTime past = FileTime.from(Instant.now().minus(1, ChronoUnit.HOURS));
+        try (Stream<Path> paths = Files.walk(root)) {
+            for (Path dir : paths.filter(Files::isDirectory).toList()) {
+                Files.setLastModifiedTime(dir, past);
+            }
+        }
+
+        source = new LocalFsSource();
+        all = feed("all", List.of("**/*.csv"), Map.of());
+        pruned = feed("pruned", List.of("d00*/*.csv"), Map.of());
+        unchanged = feed("unchanged", List.of("**/*.csv"), Map.of(LocalFsSource.SKIP_UNCHANGED_DIRS_KEY, "true"));
+        count(unchanged);
+        source.commitListing(unchanged);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        BenchFiles.deleteRecursively(root);
+    }
+
+    @Benchmark
+    public long listAll() throws IOException {
+        return count(all);
+    }
+
+    @Benchmark
+    public long listPruned() throws IOException {
+        return count(pruned);
+    }
+
+    @Benchmark
+    public long listUnchangedDirs() throws IOException {
+        return count(unchanged);
+    }
+
+    private long count(Feed feed) throws IOException {
+        try (Stream<FileDescriptor> listing = source.list(feed)) {
+            return listing.count();
+        }
+    }
+
+    private Feed feed(String id, List<String> includes, Map<String, Object> metadata) {
+        return new Feed(id, root.toString(), includes, List.of("**/tmp/**"), "bench", true, metadata);
+    }
+}
@@ -0,0 +1,126 @@
+package com.lbg.markets.surveillance.relay.tracker;
+
+import com.lbg.markets.surveillance.relay.domain.FileId;
+import com.lbg.markets.surveillance.relay.domain.FileRecord;
+import com.lbg.markets.surveillance.relay.domain.FileRecord.FileStatus;
+import com.lbg.markets.surveillance.relay.domain.StatusUpdate;
+import com.lbg.markets.surveillance.relay.util.FileIdentity;
+import org.h2.jdbcx.JdbcConnectionPool;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.ThreadParams;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Batched {@link H2Tracker} lookups and status updates from several threads against a
+ * pre-populated table. Run with {@code -p rows=10000000} for a production-sized tracker
+ * (needs a few GB of heap; population dominates the setup time).
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Fork(value = 1, jvmArgsAppend = "-Xmx4g")
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+public class H2TrackerBenchmark {
+
+    private static final int POPULATE_BATCH = 5_000;
+
+    @Param({"100000"})
+    int rows;
+
+    @Param({"500"})
+    int batchSize;
+
+    private JdbcConnectionPool pool;
+    private H2Tracker tracker;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        pool = JdbcConnectionPool.create("jdbc:h2:mem:bench-tracker;MODE=PostgreSQL;DB_CLOSE_DELAY=-1", "sa", "");
+        pool.setMaxConnections(32);
+        tracker = new H2Tracker(pool);
+        tracker.createSchema();
+
+        List<FileRecord> batch = new ArrayList<>(POPULATE_BATCH);
+        for (int i = 0; i < rows; i++) {
+            batch.add(new FileRecord(fileId(i), "bench", path(i), i, 0, null, FileStatus.DISCOVERED, null, null, 0));
+            if (batch.size() == POPULATE_BATCH) {
+                tracker.upsertFiles(batch);
+                batch.clear();
+            }
+        }
+        tracker.upsertFiles(batch);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        pool.dispose();
+    }
+
+    /**
+     * Each thread draws from its own slice of the table, as concurrent runs of different
+     * feeds never touch the same files.
+     */
+    @State(Scope.Thread)
+    public static class Ids {
+        private final SplittableRandom random = new SplittableRandom();
+        private int from;
+        private int to;
+
+        @Setup(Level.Trial)
+        public void setup(H2TrackerBenchmark benchmark, ThreadParams thread) {
+            int slice = benchmark.rows / thread.getThreadCount();
+            from = thread.getThreadIndex() * slice;
+            to = from + slice;
+        }
+
+        List<FileId> next(int count) {
+            List<FileId> ids = new ArrayList<>(count);
+            for (int i = 0; i < count; i++) {
+                ids.add(fileId(random.nextInt(from, to)));
+            }
+            return ids;
+        }
+    }
+
+    @Benchmark
+    @Threads(8)
+    public Map<FileId, FileRecord> findByIdentities(Ids ids) {
+        return tracker.findByIdentities(ids.next(batchSize));
+    }
+
+    @Benchmark
+    @Threads(8)
+    public void updateStatuses(Ids ids) {
+        tracker.updateStatuses(ids.next(batchSize).stream()
+                .map(id -> new StatusUpdate(id, FileStatus.COPYING, null))
+                .toList());
+    }
+
+    // Ids are re-derived rather than kept, so 10M rows do not need 10M strings on the heap
+    private static FileId fileId(int i) {
+        return FileIdentity.SHA256.of("bench", path(i), 0, i);
+    }
+
+    private static String path(int i) {
+        return "/data/bench/file-" + i + ".csv";
+    }
+}
@@ -0,0 +1,54 @@
+package com.lbg.markets.surveillance.relay.util;
+
+import com.lbg.markets.surveillance.relay.domain.FileDescriptor;
+import com.lbg.markets.surveillance.relay.domain.FileId;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cost of deriving a file identity with each hash, single-threaded and with all cores hashing.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Fork(1)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+public class FileIdentityBenchmark {
+
+    @Param({"sha256", "murmur3"})
+    String hash;
+
+    private FileIdentity identity;
+
+    private final FileDescriptor descriptor = new FileDescriptor(
+            "/data/feeds/daily_ops/2025/09/30/trades-eod-000123.csv", 123_456_789L, 1_727_654_400_000L);
+
+    @Setup
+    public void setUp() {
+        identity = FileIdentity.parse(hash);
+    }
+
+    @Benchmark
+    public FileId generateFileId() {
+        return identity.of("daily_ops", descriptor);
+    }
+
+    @Benchmark
+    @Threads(Threads.MAX)
+    public FileId generateFileIdAllCores() {
+        return identity.of("daily_ops", descriptor);
+    }
+}
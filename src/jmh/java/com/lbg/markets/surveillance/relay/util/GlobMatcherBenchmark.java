@@ -0,0 +1,96 @@
+package com.lbg.markets.surveillance.relay.util;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Per-path cost of include matching with a compiled {@link GlobMatcher}, against the
+ * per-call regex translation it replaced.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Fork(1)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+public class GlobMatcherBenchmark {
+
+    private static final int PATHS = 1024;
+
+    @Param({"1", "10", "50"})
+    int patternCount;
+
+    private List<String> patterns;
+    private GlobMatcher matcher;
+    private String[] paths;
+
+    @Setup
+    public void setup() {
+        patterns = new ArrayList<>();
+        patterns.add("**/*.csv");
+        for (int i = 1; i < patternCount; i++) {
+            patterns.add(switch (i % 4) {
+                case 0 -> "feed" + i + "/**/*.dat";
+                case 1 -> "*.txt" + i;
+                case 2 -> "archive" + i + "/**";
+                default -> "in/" + i + "/trades-?.json";
+            });
+        }
+        matcher = GlobMatcher.compile(patterns);
+
+        paths = new String[PATHS];
+        for (int i = 0; i < PATHS; i++) {
+            paths[i] = "feed" + (i % 60) + "/2025/" + (i % 12) + "/file-" + i + (i % 3 == 0 ? ".csv" : ".dat");
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(PATHS)
+    public int compiled() {
+        int matched = 0;
+        for (String path : paths) {
+            if (matcher.matches(path)) {
+                matched++;
+            }
+        }
+        return matched;
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(PATHS)
+    public int regexPerCall() {
+        int matched = 0;
+        for (String path : paths) {
+            for (String pattern : patterns) {
+                if (path.matches(legacyRegex(pattern))) {
+                    matched++;
+                    break;
+                }
+            }
+        }
+        return matched;
+    }
+
+    // The translation LocalFsSource used before patterns were compiled
+    private static String legacyRegex(String pattern) {
+        return pattern
+                .replace(".", "\\.")
+                .replace("**", "###DOUBLESTAR###")
+                .replace("*", "[^/]*")
+                .replace("###DOUBLESTAR###", ".*");
+    }
+}
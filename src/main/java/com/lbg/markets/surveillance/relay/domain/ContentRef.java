@@ -0,0 +1,22 @@
+package com.lbg.markets.surveillance.relay.domain;
+
+/**
+ * Content index entry: the sink object at {@code location} holds content with this checksum,
+ * stored with {@code codec} ({@code none} when uncompressed). {@code sampleHash} is the cheap
+ * hash of the content's size and a few sampled blocks, used to find candidates before the
+ * full checksum confirms them; {@code storedBytes} is the object's size when compressed.
+ */
+public record ContentRef(
+        String checksum,
+        String codec,
+        long sizeBytes,
+        String sampleHash,
+        String location,
+        Long storedBytes
+) {
+    public ContentRef {
+        if (checksum == null || codec == null || sampleHash == null || location == null) {
+            throw new IllegalArgumentException("checksum, codec, sampleHash and location are required");
+        }
+    }
+}
@@ -1,4 +1,39 @@
 package com.lbg.markets.surveillance.relay.domain;
 
-public class ExpectedFeed {
+/**
+ * A configured feed together with when it is expected to run.
+ * <p>
+ * The schedule is {@code every <duration>} (e.g. {@code every 5m}), a Quartz cron expression
+ * (e.g. {@code 0 0/15 * * * ?}), or blank / {@value #EXTERNAL} for feeds that are only run on
+ * demand or by watching their source.
+ */
+public record ExpectedFeed(Feed feed, String schedule) {
+
+    public static final String EXTERNAL = "external";
+
+    private static final String EVERY = "every ";
+
+    public ExpectedFeed {
+        if (feed == null) {
+            throw new IllegalArgumentException("feed cannot be null");
+        }
+        schedule = schedule != null ? schedule.trim() : "";
+    }
+
+    public String id() {
+        return feed.id();
+    }
+
+    public boolean isScheduled() {
+        return !schedule.isEmpty() && !EXTERNAL.equalsIgnoreCase(schedule);
+    }
+
+    /**
+     * The interval of an {@code every} schedule, or null for cron and unscheduled feeds.
+     */
+    public String interval() {
+        return schedule.regionMatches(true, 0, EVERY, 0, EVERY.length())
+                ? schedule.substring(EVERY.length()).trim()
+                : null;
+    }
 }
@@ -4,28 +4,48 @@ import java.time.Instant;
 
 /**
  * Database record for a discovered/copied file.
+ * The checksum is prefixed with its algorithm, e.g. {@code md5:9e10...}, and set once copied.
+ * Files copied into a bundle have the bundle as their {@code gcsUri} and their data's byte
+ * offset within it as {@code bundleOffset}; for files copied on their own it is null.
+ * Files copied from a compressing feed record the {@code codec} and the stored
+ * {@code compressedBytes}; {@code sizeBytes} and the checksum are always of the source bytes.
  */
 public record FileRecord(
-        String fileId,
+        FileId fileId,
         String feedId,
         String sourcePath,
         long sizeBytes,
         long mtimeEpochMs,
-        String checksumMd5,
+        String checksum,
         FileStatus status,
         String gcsUri,
         Instant copiedAt,
-        int attempts
+        int attempts,
+        Long bundleOffset,
+        String codec,
+        Long compressedBytes
 ) {
     public FileRecord {
-        if (fileId == null || fileId.isBlank()) {
-            throw new IllegalArgumentException("fileId cannot be blank");
+        if (fileId == null) {
+            throw new IllegalArgumentException("fileId cannot be null");
         }
         if (feedId == null || feedId.isBlank()) {
             throw new IllegalArgumentException("feedId cannot be blank");
         }
     }
 
+    public FileRecord(FileId fileId, String feedId, String sourcePath, long sizeBytes, long mtimeEpochMs,
+                      String checksum, FileStatus status, String gcsUri, Instant copiedAt, int attempts) {
+        this(fileId, feedId, sourcePath, sizeBytes, mtimeEpochMs, checksum, status, gcsUri, copiedAt, attempts, null);
+    }
+
+    public FileRecord(FileId fileId, String feedId, String sourcePath, long sizeBytes, long mtimeEpochMs,
+                      String checksum, FileStatus status, String gcsUri, Instant copiedAt, int attempts,
+                      Long bundleOffset) {
+        this(fileId, feedId, sourcePath, sizeBytes, mtimeEpochMs, checksum, status, gcsUri, copiedAt, attempts,
+                bundleOffset, null, null);
+    }
+
     public enum FileStatus {
         DISCOVERED,
         COPYING,
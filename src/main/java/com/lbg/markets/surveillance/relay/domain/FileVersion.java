@@ -0,0 +1,35 @@
+package com.lbg.markets.surveillance.relay.domain;
+
+/**
+ * Lineage entry for a copied version of a file from an append-only feed. {@code sampleHash}
+ * is the cheap hash of the version's size and a few sampled blocks, which a later, longer
+ * version must still match over the same bytes to be appended rather than copied.
+ * A version appended to an earlier one names it as {@code baseFileId}; only bytes from
+ * {@code baseBytes} on were sent, and {@code appendedChecksum} covers just those. Versions
+ * copied whole have no base.
+ */
+public record FileVersion(
+        FileId fileId,
+        String feedId,
+        String sourcePath,
+        long sizeBytes,
+        String sampleHash,
+        String location,
+        FileId baseFileId,
+        long baseBytes,
+        String appendedChecksum
+) {
+    public FileVersion {
+        if (fileId == null || feedId == null || sourcePath == null || sampleHash == null || location == null) {
+            throw new IllegalArgumentException("fileId, feedId, sourcePath, sampleHash and location are required");
+        }
+    }
+
+    /**
+     * A version copied whole.
+     */
+    public static FileVersion copied(FileId fileId, String feedId, String sourcePath, long sizeBytes,
+                                     String sampleHash, String location) {
+        return new FileVersion(fileId, feedId, sourcePath, sizeBytes, sampleHash, location, null, 0, null);
+    }
+}
@@ -0,0 +1,43 @@
+package com.lbg.markets.surveillance.relay.domain;
+
+import java.time.Instant;
+
+/**
+ * Journal entry for an interrupted transfer: how many bytes the sink has durably committed
+ * and the sink-specific session needed to continue (temp file, upload session URI, ...).
+ */
+public record ResumeState(
+        FileId fileId,
+        String sinkSessionId,
+        long bytesCommitted,
+        Instant updatedAt
+) {
+    private static final FileId UNTRACKED = new FileId(0, 0, 0, 0);
+
+    public ResumeState {
+        if (fileId == null) {
+            throw new IllegalArgumentException("fileId cannot be null");
+        }
+        if (bytesCommitted < 0) {
+            throw new IllegalArgumentException("bytesCommitted cannot be negative");
+        }
+    }
+
+    /**
+     * State for a transfer starting from byte 0 with no sink session yet.
+     */
+    public static ResumeState fresh(FileId fileId) {
+        return new ResumeState(fileId, null, 0, Instant.now());
+    }
+
+    /**
+     * Fresh state for a one-off sink write that is not journalled under any tracked file.
+     */
+    public static ResumeState untracked() {
+        return fresh(UNTRACKED);
+    }
+
+    public ResumeState withProgress(String sinkSessionId, long bytesCommitted) {
+        return new ResumeState(fileId, sinkSessionId, bytesCommitted, Instant.now());
+    }
+}
@@ -0,0 +1,47 @@
+package com.lbg.markets.surveillance.relay.domain;
+
+import java.time.Duration;
+import java.time.Instant;
+
+/**
+ * Summary of one transfer run over a feed, persisted in the tracker's {@code runs} table.
+ * Counts are aggregated as files complete, so a run over any number of files is one record.
+ */
+public record Run(
+        String runId,
+        String feedId,
+        Instant startedAt,
+        Instant endedAt,
+        RunStatus status,
+        long filesDiscovered,
+        long filesCopied,
+        long filesSkipped,
+        long filesFailed,
+        long bytesCopied
+) {
+    public Run {
+        if (runId == null || runId.isBlank()) {
+            throw new IllegalArgumentException("runId cannot be blank");
+        }
+        if (feedId == null || feedId.isBlank()) {
+            throw new IllegalArgumentException("feedId cannot be blank");
+        }
+    }
+
+    /**
+     * Wall-clock duration, up to now while the run is still going.
+     */
+    public Duration duration() {
+        return Duration.between(startedAt, endedAt != null ? endedAt : Instant.now());
+    }
+
+    public enum RunStatus {
+        RUNNING,
+        /** Every file was copied or skipped. */
+        SUCCEEDED,
+        /** Some files failed; they are retried by the next run. */
+        PARTIAL,
+        /** The run itself failed, e.g. while listing the source. */
+        FAILED
+    }
+}
@@ -0,0 +1,40 @@
+package com.lbg.markets.surveillance.relay.domain;
+
+import com.lbg.markets.surveillance.relay.domain.FileRecord.FileStatus;
+
+/**
+ * A pending status transition for a tracked file, applied in bulk by the tracker.
+ * A null checksum leaves the recorded one unchanged; {@code bundleOffset} is only set for
+ * files copied into a bundle, and {@code codec} and {@code compressedBytes} for files stored
+ * compressed.
+ */
+public record StatusUpdate(
+        FileId fileId,
+        FileStatus status,
+        String gcsUri,
+        String checksum,
+        Long bundleOffset,
+        String codec,
+        Long compressedBytes
+) {
+    public StatusUpdate {
+        if (fileId == null) {
+            throw new IllegalArgumentException("fileId cannot be null");
+        }
+        if (status == null) {
+            throw new IllegalArgumentException("status cannot be null");
+        }
+    }
+
+    public StatusUpdate(FileId fileId, FileStatus status, String gcsUri, String checksum, Long bundleOffset) {
+        this(fileId, status, gcsUri, checksum, bundleOffset, null, null);
+    }
+
+    public StatusUpdate(FileId fileId, FileStatus status, String gcsUri, String checksum) {
+        this(fileId, status, gcsUri, checksum, null);
+    }
+
+    public StatusUpdate(FileId fileId, FileStatus status, String gcsUri) {
+        this(fileId, status, gcsUri, null);
+    }
+}
@@ -4,7 +4,7 @@ package com.lbg.markets.surveillance.relay.domain;
  * Result of a single file transfer operation.
  */
 public record TransferResult(
-        String fileId,
+        FileId fileId,
         String sourcePath,
         String destPath,
         long bytesTransferred,
@@ -17,15 +17,15 @@ public record TransferResult(
         FAILED
     }
 
-    public static TransferResult success(String fileId, String sourcePath, String destPath, long bytes) {
+    public static TransferResult success(FileId fileId, String sourcePath, String destPath, long bytes) {
         return new TransferResult(fileId, sourcePath, destPath, bytes, Status.SUCCESS, null);
     }
 
-    public static TransferResult skipped(String fileId, String sourcePath, String reason) {
+    public static TransferResult skipped(FileId fileId, String sourcePath, String reason) {
         return new TransferResult(fileId, sourcePath, null, 0, Status.SKIPPED, reason);
     }
 
-    public static TransferResult failed(String fileId, String sourcePath, String error) {
+    public static TransferResult failed(FileId fileId, String sourcePath, String error) {
         return new TransferResult(fileId, sourcePath, null, 0, Status.FAILED, error);
     }
 }
\ No newline at end of file
@@ -1,4 +1,75 @@
 package com.lbg.markets.surveillance.relay.repository;
 
+import com.lbg.markets.surveillance.relay.domain.ExpectedFeed;
+import com.lbg.markets.surveillance.relay.domain.Feed;
+import io.smallrye.config.ConfigMapping;
+import io.smallrye.config.WithDefault;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.inject.Inject;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+/**
+ * Feeds configured under {@code sources.feeds}, in configuration order.
+ */
+@ApplicationScoped
 public class ExpectedFeedRepository {
+
+    @Inject
+    SourcesConfig config;
+
+    public List<ExpectedFeed> findAll() {
+        return config.feeds().stream().map(ExpectedFeedRepository::toExpectedFeed).toList();
+    }
+
+    public List<ExpectedFeed> findActive() {
+        return findAll().stream().filter(expected -> expected.feed().active()).toList();
+    }
+
+    public Optional<ExpectedFeed> findById(String feedId) {
+        return findAll().stream().filter(expected -> expected.id().equals(feedId)).findFirst();
+    }
+
+    private static ExpectedFeed toExpectedFeed(SourcesConfig.FeedConfig feed) {
+        return new ExpectedFeed(
+                new Feed(
+                        feed.id(),
+                        feed.uri(),
+                        feed.include().orElse(List.of()),
+                        feed.exclude().orElse(List.of()),
+                        feed.destinationPrefix().orElse(null),
+                        feed.active(),
+                        Map.<String, Object>copyOf(feed.metadata())
+                ),
+                feed.schedule().orElse(null)
+        );
+    }
+
+    @ConfigMapping(prefix = "sources")
+    public interface SourcesConfig {
+
+        List<FeedConfig> feeds();
+
+        interface FeedConfig {
+            String id();
+
+            String uri();
+
+            Optional<List<String>> include();
+
+            Optional<List<String>> exclude();
+
+            Optional<String> destinationPrefix();
+
+            /** {@code every <duration>}, a Quartz cron expression, or {@code external}. */
+            Optional<String> schedule();
+
+            @WithDefault("true")
+            boolean active();
+
+            Map<String, String> metadata();
+        }
+    }
 }
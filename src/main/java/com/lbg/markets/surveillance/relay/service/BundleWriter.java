@@ -0,0 +1,198 @@
+package com.lbg.markets.surveillance.relay.service;
+
+import com.lbg.markets.surveillance.relay.domain.FileDescriptor;
+import com.lbg.markets.surveillance.relay.domain.FileId;
+import com.lbg.markets.surveillance.relay.domain.ResumeState;
+import com.lbg.markets.surveillance.relay.sink.CommitListener;
+import com.lbg.markets.surveillance.relay.sink.Sink;
+import com.lbg.markets.surveillance.relay.util.TarFormat;
+import jakarta.json.Json;
+import jakarta.json.JsonArrayBuilder;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Packs the small files of one run into tar bundles, so each bundle costs one sink object
+ * instead of one per file.
+ * <p>
+ * Workers read members into memory and append them to a local spool file; appends are
+ * serialised. A bundle is cut once it holds {@code maxFiles} members or {@code maxBytes}, or
+ * when a member arrives after it has been open for {@code maxAge}, and whatever is left is
+ * cut when the run ends. A cut bundle is uploaded as {@code <prefix>/bundles/<runId>-<n>.tar}
+ * followed by a {@code .manifest.json} beside it listing each member's source, data offset,
+ * size and checksum; a bundle is only complete once its manifest exists.
+ */
+final class BundleWriter {
+
+    static final String MANIFEST_SUFFIX = ".manifest.json";
+
+    private final String feedId;
+    private final String runId;
+    private final String prefix;
+    private final int maxFiles;
+    private final long maxBytes;
+    private final Duration maxAge;
+
+    private Open current;
+    private int sequence;
+
+    BundleWriter(String feedId, String runId, String destinationPrefix, int maxFiles, long maxBytes, Duration maxAge) {
+        this.feedId = feedId;
+        this.runId = runId;
+        this.prefix = destinationPrefix != null && !destinationPrefix.isBlank() ? destinationPrefix + "/" : "";
+        this.maxFiles = Math.max(1, maxFiles);
+        this.maxBytes = maxBytes;
+        this.maxAge = maxAge;
+    }
+
+    /**
+     * Append a member whose whole content is in {@code data}.
+     *
+     * @return the bundle this member completed, for the caller to upload, or null
+     */
+    synchronized Bundle add(FileId fileId, FileDescriptor descriptor, String name, ByteBuffer data, String checksum,
+                            long startedNanos) throws IOException {
+        if (current == null) {
+            sequence++;
+            current = new Open(prefix + "bundles/" + runId + "-" + String.format("%05d", sequence) + ".tar");
+        }
+        current.append(new Member(fileId, descriptor.sourcePath(), name, 0, data.remaining(),
+                descriptor.mtimeEpochMs(), checksum, startedNanos), data);
+
+        boolean full = current.members.size() >= maxFiles || current.size >= maxBytes
+                || Duration.between(current.openedAt, Instant.now()).compareTo(maxAge) >= 0;
+        return full ? cut() : null;
+    }
+
+    /**
+     * Cut the open bundle, if any, e.g. at the end of a run.
+     */
+    synchronized Bundle flush() throws IOException {
+        return current != null ? cut() : null;
+    }
+
+    private Bundle cut() throws IOException {
+        Open open = current;
+        current = null;
+        open.writeFully(ByteBuffer.wrap(TarFormat.endOfArchive()));
+        open.channel.close();
+        return new Bundle(feedId, open.destPath, open.spool, List.copyOf(open.members));
+    }
+
+    /**
+     * One member of a bundle; {@code offset} is where its data starts within the tar.
+     * {@code startedNanos} is when its copy began, for metrics only.
+     */
+    record Member(FileId fileId, String sourcePath, String name, long offset, long size, long mtimeEpochMs,
+                  String checksum, long startedNanos) {
+    }
+
+    /**
+     * A finished tar in the local spool, ready to upload.
+     */
+    record Bundle(String feedId, String destPath, Path spool, List<Member> members) {
+
+        String manifestPath() {
+            return destPath + MANIFEST_SUFFIX;
+        }
+
+        /**
+         * Upload the tar, then its manifest, and remove the spool file.
+         */
+        void upload(Sink sink) throws IOException {
+            try (FileChannel in = FileChannel.open(spool, StandardOpenOption.READ)) {
+                sink.write(destPath, in, ResumeState.untracked(), in.size(),
+                        Map.of("feed", feedId, "members", String.valueOf(members.size())), CommitListener.NONE);
+                byte[] manifest = manifest(in.size()).getBytes(StandardCharsets.UTF_8);
+                sink.write(manifestPath(), new ByteArrayInputStream(manifest), 0, manifest.length,
+                        Map.of("feed", feedId, "bundle", destPath));
+            } finally {
+                discard();
+            }
+        }
+
+        void discard() {
+            try {
+                Files.deleteIfExists(spool);
+            } catch (IOException ignored) {
+                // Left in the temp directory; nothing refers to it
+            }
+        }
+
+        private String manifest(long bundleSize) {
+            JsonArrayBuilder entries = Json.createArrayBuilder();
+            for (Member member : members) {
+                var entry = Json.createObjectBuilder()
+                        .add("fileId", member.fileId().toString())
+                        .add("sourcePath", member.sourcePath())
+                        .add("name", member.name())
+                        .add("offset", member.offset())
+                        .add("size", member.size())
+                        .add("mtimeEpochMs", member.mtimeEpochMs());
+                if (member.checksum() != null) {
+                    entry.add("checksum", member.checksum());
+                }
+                entries.add(entry);
+            }
+            return Json.createObjectBuilder()
+                    .add("bundle", destPath)
+                    .add("feedId", feedId)
+                    .add("format", "tar")
+                    .add("size", bundleSize)
+                    .add("members", entries)
+                    .build()
+                    .toString();
+        }
+    }
+
+    private static final class Open {
+        final String destPath;
+        final Path spool;
+        final FileChannel channel;
+        final Instant openedAt = Instant.now();
+        final List<Member> members = new ArrayList<>();
+        long size;
+
+        Open(String destPath) throws IOException {
+            this.destPath = destPath;
+            this.spool = Files.createTempFile("relay-bundle-", ".tar");
+            this.channel = FileChannel.open(spool, StandardOpenOption.WRITE);
+        }
+
+        void append(Member member, ByteBuffer data) throws IOException {
+            byte[] header = TarFormat.fileHeader(member.name(), member.size(), member.mtimeEpochMs());
+            long dataOffset = size + header.length;
+            try {
+                writeFully(ByteBuffer.wrap(header));
+                writeFully(data);
+                writeFully(ByteBuffer.allocate(TarFormat.padding(member.size())));
+            } catch (IOException e) {
+                // Drop the partial entry so the bundle stays a valid archive
+                channel.truncate(size);
+                channel.position(size);
+                throw e;
+            }
+            size = dataOffset + member.size() + TarFormat.padding(member.size());
+            members.add(new Member(member.fileId(), member.sourcePath(), member.name(), dataOffset, member.size(),
+                    member.mtimeEpochMs(), member.checksum(), member.startedNanos()));
+        }
+
+        private void writeFully(ByteBuffer buffer) throws IOException {
+            while (buffer.hasRemaining()) {
+                channel.write(buffer);
+            }
+        }
+    }
+}
@@ -0,0 +1,13 @@
+package com.lbg.markets.surveillance.relay.service;
+
+import java.io.IOException;
+
+/**
+ * The sink holds different bytes from the source, so the copy has to start again from byte 0.
+ */
+final class ChecksumMismatchException extends IOException {
+
+    ChecksumMismatchException(String message) {
+        super(message);
+    }
+}
@@ -0,0 +1,41 @@
+package com.lbg.markets.surveillance.relay.service;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.ReadableByteChannel;
+import java.util.function.Consumer;
+
+/**
+ * Tee between source and sink: every byte the sink reads is also fed to the checksum,
+ * so the source is read only once.
+ */
+final class ChecksummingChannel implements ReadableByteChannel {
+
+    private final ReadableByteChannel in;
+    private final Consumer<ByteBuffer> checksum;
+
+    ChecksummingChannel(ReadableByteChannel in, Consumer<ByteBuffer> checksum) {
+        this.in = in;
+        this.checksum = checksum;
+    }
+
+    @Override
+    public int read(ByteBuffer dst) throws IOException {
+        int start = dst.position();
+        int read = in.read(dst);
+        if (read > 0) {
+            checksum.accept(dst.duplicate().limit(dst.position()).position(start));
+        }
+        return read;
+    }
+
+    @Override
+    public boolean isOpen() {
+        return in.isOpen();
+    }
+
+    @Override
+    public void close() throws IOException {
+        in.close();
+    }
+}
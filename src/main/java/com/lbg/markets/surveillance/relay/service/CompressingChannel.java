@@ -0,0 +1,129 @@
+package com.lbg.markets.surveillance.relay.service;
+
+import com.lbg.markets.surveillance.relay.util.CompressionCodec;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.ReadableByteChannel;
+import java.util.ArrayDeque;
+import java.util.Queue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+
+/**
+ * Compressed view of a source channel. Blocks are read from the source on the caller's
+ * thread and compressed on the pool, up to {@code blocksInFlight} ahead of the reader, so
+ * one large file keeps several cores busy while its output stays in source order. Each block
+ * becomes an independent gzip member or zstd frame.
+ * <p>
+ * The output depends only on the source bytes, codec, level and block size, so reading the
+ * same source again produces the same bytes. The source must hold exactly the listed length.
+ */
+final class CompressingChannel implements ReadableByteChannel {
+
+    private final ReadableByteChannel source;
+    private final long length;
+    private final CompressionCodec codec;
+    private final int level;
+    private final int blockBytes;
+    private final int blocksInFlight;
+    private final ExecutorService pool;
+    private final Queue<Future<byte[]>> blocks = new ArrayDeque<>();
+    private ByteBuffer current;
+    private long read;
+    private boolean sourceDone;
+    private long compressedBytes;
+    private boolean open = true;
+
+    CompressingChannel(ReadableByteChannel source, long length, CompressionCodec codec, int level, int blockBytes,
+                       int blocksInFlight, ExecutorService pool) {
+        this.source = source;
+        this.length = length;
+        this.codec = codec;
+        this.level = level;
+        this.blockBytes = blockBytes;
+        this.blocksInFlight = blocksInFlight;
+        this.pool = pool;
+    }
+
+    @Override
+    public int read(ByteBuffer dst) throws IOException {
+        if (!open) {
+            throw new ClosedChannelException();
+        }
+        while (current == null || !current.hasRemaining()) {
+            readAhead();
+            Future<byte[]> next = blocks.poll();
+            if (next == null) {
+                return -1;
+            }
+            current = ByteBuffer.wrap(await(next));
+        }
+        int n = Math.min(dst.remaining(), current.remaining());
+        dst.put(current.slice(current.position(), n));
+        current.position(current.position() + n);
+        compressedBytes += n;
+        return n;
+    }
+
+    /**
+     * Compressed bytes read so far.
+     */
+    long compressedBytes() {
+        return compressedBytes;
+    }
+
+    /**
+     * Read and submit source blocks until the window is full or the source is exhausted.
+     * An empty source still yields one (empty) member, so the output is a valid stream.
+     */
+    private void readAhead() throws IOException {
+        while (!sourceDone && blocks.size() < blocksInFlight) {
+            int size = (int) Math.min(blockBytes, length - read);
+            byte[] block = new byte[size];
+            ByteBuffer buffer = ByteBuffer.wrap(block);
+            while (buffer.hasRemaining()) {
+                if (source.read(buffer) < 0) {
+                    throw new EOFException("Source ended at " + (read + buffer.position()) + " of its listed "
+                            + length + " bytes");
+                }
+            }
+            read += size;
+            if (read == length) {
+                sourceDone = true;
+                if (source.read(ByteBuffer.allocate(1)) > 0) {
+                    throw new IOException("Source grew past its listed size " + length);
+                }
+            }
+            blocks.add(pool.submit(() -> codec.compress(block, size, level)));
+        }
+    }
+
+    private static byte[] await(Future<byte[]> block) throws IOException {
+        try {
+            return block.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted waiting for a compressed block");
+        } catch (ExecutionException e) {
+            throw new IOException("Failed to compress a block", e.getCause());
+        }
+    }
+
+    @Override
+    public boolean isOpen() {
+        return open;
+    }
+
+    @Override
+    public void close() throws IOException {
+        open = false;
+        blocks.forEach(block -> block.cancel(false));
+        blocks.clear();
+        source.close();
+    }
+}
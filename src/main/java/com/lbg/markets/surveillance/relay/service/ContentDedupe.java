@@ -0,0 +1,92 @@
+package com.lbg.markets.surveillance.relay.service;
+
+import com.lbg.markets.surveillance.relay.domain.ContentRef;
+import com.lbg.markets.surveillance.relay.service.RangedTransfer.RangeSource;
+import com.lbg.markets.surveillance.relay.tracker.Tracker;
+import com.lbg.markets.surveillance.relay.util.BufferPool;
+import com.lbg.markets.surveillance.relay.util.ChecksumAlgorithm;
+import com.lbg.markets.surveillance.relay.util.StreamingChecksum;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.ReadableByteChannel;
+import java.util.List;
+
+/**
+ * Content-level dedupe against the tracker's content index.
+ * <p>
+ * A file is first reduced to a sample hash: SHA-256 of its size and of {@code sampleBytes}
+ * at its start, middle and end, costing three small reads however large the file is. Only
+ * when the index has content with the same size and sample is the whole file read, to
+ * compute its checksum in the form the candidates were recorded with and confirm a match.
+ */
+final class ContentDedupe {
+
+    private static final int READ_BUFFER = 64 * 1024;
+
+    private final Tracker tracker;
+    private final int sampleBytes;
+    private final BufferPool buffers;
+
+    ContentDedupe(Tracker tracker, int sampleBytes, BufferPool buffers) {
+        this.tracker = tracker;
+        this.sampleBytes = Math.max(1, sampleBytes);
+        this.buffers = buffers;
+    }
+
+    /**
+     * The sample hash of a file of the given size.
+     */
+    String sample(long size, RangeSource source) throws IOException {
+        StreamingChecksum sample = StreamingChecksum.of(ChecksumAlgorithm.SHA256);
+        sample.update(ByteBuffer.allocate(Long.BYTES).putLong(size).flip());
+        if (size <= 3L * sampleBytes) {
+            hash(source, 0, size, sample);
+        } else {
+            hash(source, 0, sampleBytes, sample);
+            hash(source, size / 2 - sampleBytes / 2, sampleBytes, sample);
+            hash(source, size - sampleBytes, sampleBytes, sample);
+        }
+        return sample.finish();
+    }
+
+    /**
+     * An index entry for the same content stored with codec, confirmed by its full checksum,
+     * or null when there is none.
+     */
+    ContentRef find(long size, String sample, String codec, RangeSource source) throws IOException {
+        List<ContentRef> candidates = tracker.findContent(size, sample).stream()
+                .filter(ref -> ref.codec().equals(codec))
+                .toList();
+        if (candidates.isEmpty()) {
+            return null;
+        }
+        // Candidates recorded in another form (e.g. before a config change) simply won't match
+        StreamingChecksum checksum = StreamingChecksum.like(candidates.getFirst().checksum());
+        hash(source, 0, size, checksum);
+        String full = checksum.finish();
+        return candidates.stream()
+                .filter(ref -> ref.checksum().equals(full))
+                .findFirst()
+                .orElse(null);
+    }
+
+    private void hash(RangeSource source, long offset, long length, StreamingChecksum checksum)
+            throws IOException {
+        ByteBuffer buffer = buffers.acquire(READ_BUFFER);
+        try (ReadableByteChannel in = source.open(offset)) {
+            long remaining = length;
+            while (remaining > 0) {
+                buffer.clear().limit((int) Math.min(buffer.capacity(), remaining));
+                if (in.read(buffer) < 0) {
+                    throw new EOFException("Source ended " + remaining + " bytes short of " + (offset + length));
+                }
+                remaining -= buffer.flip().remaining();
+                checksum.update(buffer);
+            }
+        } finally {
+            buffers.release(buffer);
+        }
+    }
+}
@@ -0,0 +1,139 @@
+package com.lbg.markets.surveillance.relay.service;
+
+import com.lbg.markets.surveillance.relay.domain.ExpectedFeed;
+import com.lbg.markets.surveillance.relay.domain.Feed;
+import com.lbg.markets.surveillance.relay.repository.ExpectedFeedRepository;
+import io.quarkus.runtime.ShutdownEvent;
+import io.quarkus.runtime.StartupEvent;
+import io.quarkus.scheduler.Scheduler;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.enterprise.event.Observes;
+import jakarta.inject.Inject;
+import org.jboss.logging.Logger;
+
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Runs every active configured feed on its own schedule.
+ * <p>
+ * Each run gets its own virtual thread, so any number of feeds can run at once; the copies
+ * themselves share the orchestrator's global pool, which is split between feeds by their
+ * {@value TransferOrchestrationService#PRIORITY_KEY} and {@value TransferOrchestrationService#WEIGHT_KEY}
+ * metadata. A feed never runs twice at once: a trigger that fires while its previous run
+ * is still going is skipped. Watched feeds are handed to {@link WatchDiscoveryService}, which
+ * runs their reconcile listings itself.
+ */
+@ApplicationScoped
+public class FeedScheduler {
+
+    private static final Logger LOG = Logger.getLogger(FeedScheduler.class);
+
+    private static final String JOB_PREFIX = "feed-";
+
+    @Inject
+    Scheduler scheduler;
+
+    @Inject
+    ExpectedFeedRepository feeds;
+
+    @Inject
+    TransferOrchestrationService orchestrator;
+
+    @Inject
+    WatchDiscoveryService watchDiscovery;
+
+    private final Map<String, ExpectedFeed> scheduled = new ConcurrentHashMap<>();
+    private final Set<String> running = ConcurrentHashMap.newKeySet();
+
+    void onStart(@Observes StartupEvent event) {
+        for (ExpectedFeed expected : feeds.findActive()) {
+            try {
+                schedule(expected);
+            } catch (RuntimeException e) {
+                LOG.errorf(e, "Failed to schedule feed %s (%s)", expected.id(), expected.schedule());
+            }
+        }
+    }
+
+    void onStop(@Observes ShutdownEvent event) {
+        scheduled.keySet().forEach(this::unschedule);
+    }
+
+    /**
+     * Start running the feed on its schedule, replacing any earlier schedule for it.
+     * Feeds without a schedule are only run by {@link #runNow} (or their watch).
+     */
+    public void schedule(ExpectedFeed expected) {
+        unschedule(expected.id());
+        Feed feed = expected.feed();
+        scheduled.put(feed.id(), expected);
+
+        if (WatchDiscoveryService.isWatchFeed(feed)) {
+            watchDiscovery.watch(feed);
+            return;
+        }
+        if (!expected.isScheduled()) {
+            LOG.infof("Feed %s has no schedule; it runs on demand only", feed.id());
+            return;
+        }
+
+        var job = scheduler.newJob(JOB_PREFIX + feed.id()).setTask(execution -> trigger(feed));
+        String interval = expected.interval();
+        if (interval != null) {
+            job.setInterval(interval);
+        } else {
+            job.setCron(expected.schedule());
+        }
+        job.schedule();
+        LOG.infof("Scheduled feed %s: %s", feed.id(), expected.schedule());
+    }
+
+    public void unschedule(String feedId) {
+        ExpectedFeed expected = scheduled.remove(feedId);
+        if (expected == null) {
+            return;
+        }
+        if (WatchDiscoveryService.isWatchFeed(expected.feed())) {
+            watchDiscovery.unwatch(feedId);
+        } else if (expected.isScheduled()) {
+            scheduler.unscheduleJob(JOB_PREFIX + feedId);
+        }
+    }
+
+    /**
+     * Run a configured feed now, unless it is already running.
+     *
+     * @return true if a run was started
+     */
+    public boolean runNow(String feedId) {
+        ExpectedFeed expected = scheduled.get(feedId);
+        if (expected == null) {
+            expected = feeds.findById(feedId)
+                    .orElseThrow(() -> new IllegalArgumentException("Unknown feed: " + feedId));
+        }
+        return trigger(expected.feed());
+    }
+
+    public boolean isRunning(String feedId) {
+        return running.contains(feedId);
+    }
+
+    private boolean trigger(Feed feed) {
+        if (!running.add(feed.id())) {
+            LOG.infof("Feed %s is still running; skipping this trigger", feed.id());
+            return false;
+        }
+        Thread.ofVirtual().name("run-" + feed.id()).start(() -> {
+            try {
+                orchestrator.executeTransfer(feed);
+            } catch (RuntimeException e) {
+                LOG.errorf(e, "Scheduled transfer failed for feed %s", feed.id());
+            } finally {
+                running.remove(feed.id());
+            }
+        });
+        return true;
+    }
+}
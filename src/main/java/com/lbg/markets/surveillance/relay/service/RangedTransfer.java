@@ -0,0 +1,239 @@
+package com.lbg.markets.surveillance.relay.service;
+
+import com.lbg.markets.surveillance.relay.domain.FileId;
+import com.lbg.markets.surveillance.relay.domain.ResumeState;
+import com.lbg.markets.surveillance.relay.sink.CommitListener;
+import com.lbg.markets.surveillance.relay.sink.Sink;
+import com.lbg.markets.surveillance.relay.util.BufferPool;
+import com.lbg.markets.surveillance.relay.util.ChecksumAlgorithm;
+import com.lbg.markets.surveillance.relay.util.StreamingChecksum;
+import org.jboss.logging.Logger;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.ReadableByteChannel;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.HashSet;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Copies one large file as fixed-size ranges, each read from the source at its own offset and
+ * written with {@link Sink#writeRange}, up to {@code streams} ranges at once.
+ * <p>
+ * A failed range is retried on its own, up to {@code attempts} times. Finished ranges are
+ * journalled in the file's resume entry as {@code ranges:<rangeBytes>:<hex bitmap>}, so a later
+ * attempt only copies the ranges that are missing (and that the sink still holds the rest).
+ * With checksums on, every range hashes its own leaves and the file gets the tree checksum
+ * with {@code leafBytes} leaves; ranges copied earlier are re-read from the source to hash them.
+ */
+final class RangedTransfer {
+
+    private static final Logger LOG = Logger.getLogger(RangedTransfer.class);
+
+    private static final String JOURNAL_PREFIX = "ranges:";
+    private static final int HASH_BUFFER = 64 * 1024;
+
+    private final Sink sink;
+    private final long rangeBytes;
+    private final int streams;
+    private final int attempts;
+    private final ChecksumAlgorithm algorithm;
+    private final int leafBytes;
+    private final BufferPool buffers;
+
+    /**
+     * @param rangeBytes size of every range but the last; a multiple of leafBytes when hashing
+     */
+    RangedTransfer(Sink sink, long rangeBytes, int streams, int attempts, ChecksumAlgorithm algorithm, int leafBytes,
+                   BufferPool buffers) {
+        this.sink = sink;
+        this.rangeBytes = rangeBytes;
+        this.streams = Math.max(1, streams);
+        this.attempts = Math.max(1, attempts);
+        this.algorithm = algorithm;
+        this.leafBytes = leafBytes;
+        this.buffers = buffers;
+    }
+
+    static boolean isRangeJournal(ResumeState journal) {
+        return journal != null && journal.sinkSessionId() != null && journal.sinkSessionId().startsWith(JOURNAL_PREFIX);
+    }
+
+    @FunctionalInterface
+    interface RangeSource {
+        /** A channel over the source positioned at offset. */
+        ReadableByteChannel open(long offset) throws IOException;
+    }
+
+    /**
+     * Bytes written by this attempt, bytes kept from earlier ones, and the source checksum (or null).
+     */
+    record Result(long bytesWritten, long bytesResumed, String checksum) {
+    }
+
+    Result copy(FileId fileId, String destPath, long length, ResumeState journal, RangeSource source,
+                Map<String, String> metadata, CommitListener listener) throws IOException {
+        int count = (int) ((length + rangeBytes - 1) / rangeBytes);
+        BitSet done = heldRanges(destPath, length, journal, count);
+        Progress progress = new Progress(fileId, length, done, listener);
+        long resumed = progress.committed;
+
+        @SuppressWarnings("unchecked")
+        List<byte[]>[] leaves = new List[count];
+        Queue<Integer> pending = new ConcurrentLinkedQueue<>();
+        for (int i = 0; i < count; i++) {
+            pending.add(i);
+        }
+        LongAdder written = new LongAdder();
+        List<IOException> failures = new ArrayList<>();
+
+        try (ExecutorService workers = Executors.newVirtualThreadPerTaskExecutor()) {
+            for (int s = 0; s < Math.min(streams, count); s++) {
+                workers.execute(() -> {
+                    Integer index;
+                    while ((index = pending.poll()) != null) {
+                        try {
+                            leaves[index] = copyRange(destPath, length, index, source, progress, written);
+                        } catch (IOException | RuntimeException e) {
+                            synchronized (failures) {
+                                failures.add(e instanceof IOException io ? io : new IOException(e));
+                            }
+                        }
+                    }
+                });
+            }
+        }
+
+        if (!failures.isEmpty()) {
+            IOException failure = new IOException(failures.size() + " of " + count + " ranges of " + destPath
+                    + " failed; copied ranges are kept for the next attempt", failures.getFirst());
+            failures.stream().skip(1).forEach(failure::addSuppressed);
+            throw failure;
+        }
+
+        List<Long> offsets = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            offsets.add(i * rangeBytes);
+        }
+        sink.completeRanges(destPath, length, offsets, metadata);
+
+        String checksum = null;
+        if (algorithm != ChecksumAlgorithm.NONE) {
+            List<byte[]> all = new ArrayList<>();
+            for (List<byte[]> rangeLeaves : leaves) {
+                all.addAll(rangeLeaves);
+            }
+            checksum = StreamingChecksum.tree(algorithm, leafBytes, all);
+        }
+        return new Result(written.sum(), resumed, checksum);
+    }
+
+    /**
+     * Copy one range unless an earlier attempt did, retrying it on its own. Returns the range's
+     * leaf digests, or null when not hashing.
+     */
+    private List<byte[]> copyRange(String destPath, long length, int index, RangeSource source, Progress progress,
+                                   LongAdder written) throws IOException {
+        long offset = index * rangeBytes;
+        long size = Math.min(rangeBytes, length - offset);
+        boolean hashing = algorithm != ChecksumAlgorithm.NONE;
+        if (progress.isDone(index)) {
+            return hashing ? hashOnly(source, offset, size) : null;
+        }
+
+        IOException last = null;
+        for (int attempt = 1; attempt <= attempts; attempt++) {
+            StreamingChecksum.Leaves hasher = hashing ? new StreamingChecksum.Leaves(algorithm, leafBytes) : null;
+            try (ReadableByteChannel in = source.open(offset)) {
+                ReadableByteChannel range = hasher != null ? new ChecksummingChannel(in, hasher::update) : in;
+                sink.writeRange(destPath, length, offset, size, range);
+                written.add(size);
+                progress.done(index, size);
+                return hasher != null ? hasher.finish() : null;
+            } catch (IOException e) {
+                last = e;
+                LOG.debugf(e, "Range %d-%d of %s failed (attempt %d of %d)", offset, offset + size, destPath,
+                        attempt, attempts);
+            }
+        }
+        throw last;
+    }
+
+    private List<byte[]> hashOnly(RangeSource source, long offset, long size) throws IOException {
+        StreamingChecksum.Leaves hasher = new StreamingChecksum.Leaves(algorithm, leafBytes);
+        ByteBuffer buffer = buffers.acquire(HASH_BUFFER);
+        long remaining = size;
+        try (ReadableByteChannel in = source.open(offset)) {
+            while (remaining > 0) {
+                buffer.clear().limit((int) Math.min(buffer.capacity(), remaining));
+                if (in.read(buffer) < 0) {
+                    throw new IOException("Source ended inside range at " + offset);
+                }
+                remaining -= buffer.flip().remaining();
+                hasher.update(buffer);
+            }
+        } finally {
+            buffers.release(buffer);
+        }
+        return hasher.finish();
+    }
+
+    /**
+     * Ranges journalled for this range size that the sink still holds.
+     */
+    private BitSet heldRanges(String destPath, long length, ResumeState journal, int count) throws IOException {
+        if (!isRangeJournal(journal)) {
+            return new BitSet(count);
+        }
+        String[] parts = journal.sinkSessionId().split(":");
+        if (parts.length != 3 || Long.parseLong(parts[1]) != rangeBytes) {
+            return new BitSet(count);
+        }
+        BitSet journalled = BitSet.valueOf(HexFormat.of().parseHex(parts[2]));
+        Set<Long> offsets = new HashSet<>();
+        journalled.stream().filter(i -> i < count).forEach(i -> offsets.add(i * rangeBytes));
+
+        BitSet held = new BitSet(count);
+        for (long offset : sink.heldRanges(destPath, length, offsets)) {
+            held.set((int) (offset / rangeBytes));
+        }
+        return held;
+    }
+
+    /**
+     * Finished ranges of the file, journalled as each one completes.
+     */
+    private final class Progress {
+        private final ResumeState base;
+        private final BitSet done;
+        private final CommitListener listener;
+        private long committed;
+
+        Progress(FileId fileId, long length, BitSet done, CommitListener listener) {
+            this.base = ResumeState.fresh(fileId);
+            this.done = done;
+            this.listener = listener;
+            done.stream().forEach(i -> committed += Math.min(rangeBytes, length - i * rangeBytes));
+        }
+
+        synchronized boolean isDone(int index) {
+            return done.get(index);
+        }
+
+        synchronized void done(int index, long size) {
+            done.set(index);
+            committed += size;
+            String journal = JOURNAL_PREFIX + rangeBytes + ":" + HexFormat.of().formatHex(done.toByteArray());
+            listener.committed(base.withProgress(journal, committed));
+        }
+    }
+}
@@ -0,0 +1,47 @@
+package com.lbg.markets.surveillance.relay.service;
+
+import com.lbg.markets.surveillance.relay.domain.TransferResult;
+
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+/**
+ * Receives the result of each file as a run produces it, so runs need not hold their results.
+ * A copy is reported once its COPIED status is saved. Called concurrently from transfer workers.
+ */
+@FunctionalInterface
+public interface RunListener {
+
+    RunListener NONE = result -> {
+    };
+
+    void onResult(TransferResult result);
+
+    /**
+     * A listener that keeps every result, for tests and small ad-hoc runs. Its memory grows with
+     * the number of files in the run.
+     */
+    static Collecting collecting() {
+        return new Collecting();
+    }
+
+    final class Collecting implements RunListener {
+        private final Queue<TransferResult> results = new ConcurrentLinkedQueue<>();
+
+        private Collecting() {
+        }
+
+        @Override
+        public void onResult(TransferResult result) {
+            results.add(result);
+        }
+
+        /**
+         * Results so far, in completion order.
+         */
+        public List<TransferResult> results() {
+            return List.copyOf(results);
+        }
+    }
+}
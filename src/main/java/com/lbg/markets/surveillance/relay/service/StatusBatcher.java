@@ -0,0 +1,186 @@
+package com.lbg.markets.surveillance.relay.service;
+
+import com.lbg.markets.surveillance.relay.domain.FileRecord.FileStatus;
+import com.lbg.markets.surveillance.relay.domain.StatusUpdate;
+import com.lbg.markets.surveillance.relay.domain.TransferResult;
+import com.lbg.markets.surveillance.relay.service.TransferMetrics.FeedMetrics;
+import com.lbg.markets.surveillance.relay.service.TransferMetrics.Stage;
+import com.lbg.markets.surveillance.relay.tracker.CopiedIdentityIndex;
+import com.lbg.markets.surveillance.relay.tracker.Tracker;
+import com.lbg.markets.surveillance.relay.util.Backoff;
+import org.jboss.logging.Logger;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Consumer;
+
+/**
+ * Collects status transitions from transfer workers and writes them to the
+ * tracker in batches. Flushes are serialised so transitions for the same file
+ * always reach the tracker in the order they were recorded. A COPIED transition
+ * is added to the {@link CopiedIdentityIndex} just before it is written, so the
+ * index never misses a file the tracker holds as COPIED.
+ * <p>
+ * A flush runs on the worker whose transition fills the batch, and the feed's
+ * other workers block in {@link #add} until the tracker has answered. A batch the
+ * tracker rejects stays queued and is written again with the next flush.
+ * <p>
+ * A transition can carry the result it completes, and a callback that counts it,
+ * both run once the transition is saved and after the batcher's lock is released.
+ * A copy whose COPIED status never reaches the tracker is copied again by the next
+ * run, so it is counted and reported as failed instead.
+ */
+final class StatusBatcher {
+
+    private static final Logger LOG = Logger.getLogger(StatusBatcher.class);
+
+    /** Attempts at the last batch of a run before it is saved one transition at a time. */
+    private static final int FINAL_ATTEMPTS = 3;
+
+    private final Tracker tracker;
+    private final CopiedIdentityIndex copiedIndex;
+    private final int batchSize;
+    private final FeedMetrics meters;
+    private final Backoff backoff;
+    private final Consumer<TransferResult> results;
+    private List<Pending> pending;
+    /** Queue size that triggers the next flush, pushed back a batch after a failed one. */
+    private int flushAt;
+
+    StatusBatcher(Tracker tracker, CopiedIdentityIndex copiedIndex, int batchSize, FeedMetrics meters,
+                  Backoff backoff, Consumer<TransferResult> results) {
+        this.tracker = tracker;
+        this.copiedIndex = copiedIndex;
+        this.meters = meters;
+        this.backoff = backoff;
+        this.results = results;
+        this.batchSize = Math.max(1, batchSize);
+        this.pending = new ArrayList<>(this.batchSize);
+        this.flushAt = this.batchSize;
+    }
+
+    void add(StatusUpdate update) {
+        add(update, null, null);
+    }
+
+    /**
+     * Queue a transition together with the result it completes and a callback that counts it,
+     * both run once the transition is saved.
+     */
+    void add(StatusUpdate update, TransferResult result, Runnable saved) {
+        List<Runnable> completions = List.of();
+        synchronized (this) {
+            pending.add(new Pending(update, result, saved));
+            if (pending.size() >= flushAt) {
+                try {
+                    completions = write();
+                } catch (RuntimeException e) {
+                    flushAt = pending.size() + batchSize;
+                    LOG.warnf(e, "Failed to save %d status updates; keeping them for the next flush", pending.size());
+                }
+            }
+        }
+        completions.forEach(Runnable::run);
+    }
+
+    /**
+     * Flush what is left at the end of a run, retrying with backoff. A batch that still fails is
+     * written one transition at a time, so a bad row holds back only its own file; results whose
+     * transition cannot be saved are reported as failed.
+     */
+    void finish() {
+        List<Runnable> completions = new ArrayList<>();
+        synchronized (this) {
+            for (int attempt = 1; ; attempt++) {
+                try {
+                    completions.addAll(write());
+                    break;
+                } catch (RuntimeException e) {
+                    if (attempt == FINAL_ATTEMPTS) {
+                        LOG.errorf(e, "Failed to save %d status updates; saving them one at a time", pending.size());
+                        completions.addAll(writeEach());
+                        break;
+                    }
+                    LOG.warnf(e, "Failed to save %d status updates, attempt %d of %d",
+                            pending.size(), attempt, FINAL_ATTEMPTS);
+                }
+                try {
+                    backoff.sleep(attempt);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    completions.addAll(writeEach());
+                    break;
+                }
+            }
+        }
+        completions.forEach(Runnable::run);
+    }
+
+    /**
+     * Write everything queued in one tracker batch, returning what to run once the lock is
+     * released. On failure the batch stays queued and the exception is rethrown.
+     */
+    private List<Runnable> write() {
+        if (pending.isEmpty()) {
+            return List.of();
+        }
+        List<Pending> batch = pending;
+        batch.forEach(this::index);
+        long start = System.nanoTime();
+        tracker.updateStatuses(batch.stream().map(Pending::update).toList());
+        meters.record(Stage.TRACKER, System.nanoTime() - start);
+        pending = new ArrayList<>(batchSize);
+        flushAt = batchSize;
+        return batch.stream().map(this::saved).toList();
+    }
+
+    private List<Runnable> writeEach() {
+        List<Pending> remaining = pending;
+        pending = new ArrayList<>(batchSize);
+        flushAt = batchSize;
+        List<Runnable> completions = new ArrayList<>(remaining.size());
+        for (Pending entry : remaining) {
+            try {
+                index(entry);
+                tracker.updateStatuses(List.of(entry.update()));
+                completions.add(saved(entry));
+            } catch (RuntimeException e) {
+                LOG.errorf(e, "Failed to save status %s of file %s", entry.update().status(), entry.update().fileId());
+                completions.add(lost(entry, e));
+            }
+        }
+        return completions;
+    }
+
+    private void index(Pending entry) {
+        if (entry.update().status() == FileStatus.COPIED) {
+            copiedIndex.markCopied(entry.update().fileId());
+        }
+    }
+
+    private Runnable saved(Pending entry) {
+        return () -> {
+            if (entry.saved() != null) {
+                entry.saved().run();
+            }
+            if (entry.result() != null) {
+                results.accept(entry.result());
+            }
+        };
+    }
+
+    private Runnable lost(Pending entry, RuntimeException cause) {
+        TransferResult result = entry.result();
+        return () -> {
+            if (result != null) {
+                meters.fileFailed(cause);
+                results.accept(TransferResult.failed(result.fileId(), result.sourcePath(),
+                        "Copied to " + result.destPath() + ", but its status could not be saved: "
+                                + cause.getMessage()));
+            }
+        };
+    }
+
+    private record Pending(StatusUpdate update, TransferResult result, Runnable saved) {
+    }
+}
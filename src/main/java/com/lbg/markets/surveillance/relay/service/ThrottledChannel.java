@@ -0,0 +1,50 @@
+package com.lbg.markets.surveillance.relay.service;
+
+import com.lbg.markets.surveillance.relay.util.TokenBucket;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.ReadableByteChannel;
+import java.util.List;
+
+/**
+ * Source channel that pays for the bytes of each read from the rate buckets.
+ */
+final class ThrottledChannel implements ReadableByteChannel {
+
+    private final ReadableByteChannel in;
+    private final List<TokenBucket> buckets;
+
+    ThrottledChannel(ReadableByteChannel in, List<TokenBucket> buckets) {
+        this.in = in;
+        this.buckets = buckets;
+    }
+
+    @Override
+    public int read(ByteBuffer dst) throws IOException {
+        int read = in.read(dst);
+        if (read <= 0) {
+            return read;
+        }
+        try {
+            for (TokenBucket bucket : buckets) {
+                bucket.acquire(read);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while rate limited");
+        }
+        return read;
+    }
+
+    @Override
+    public boolean isOpen() {
+        return in.isOpen();
+    }
+
+    @Override
+    public void close() throws IOException {
+        in.close();
+    }
+}
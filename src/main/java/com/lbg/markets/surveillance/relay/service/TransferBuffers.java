@@ -0,0 +1,54 @@
+package com.lbg.markets.surveillance.relay.service;
+
+import com.lbg.markets.surveillance.relay.util.BufferPool;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.enterprise.inject.Produces;
+import jakarta.inject.Singleton;
+import org.eclipse.microprofile.config.inject.ConfigProperty;
+
+/**
+ * The one {@link BufferPool} that sinks and transfers take their I/O buffers from, so the
+ * memory held by in-flight bytes stays within {@code transfer.buffers.budgetBytes} however
+ * many files are moving. Once the budget is used up, further transfers wait for buffers
+ * rather than allocate. {@code transfer.buffers.requests} counts buffers reused ({@code hit})
+ * and allocated ({@code miss}), and {@code transfer.buffers.waits} the requests that had to wait.
+ */
+@ApplicationScoped
+public class TransferBuffers {
+
+    @ConfigProperty(name = "transfer.buffers.budgetBytes", defaultValue = "134217728")
+    long budgetBytes;
+
+    @ConfigProperty(name = "transfer.buffers.direct", defaultValue = "false")
+    boolean direct;
+
+    @Produces
+    @Singleton
+    BufferPool bufferPool(MeterRegistry registry) {
+        BufferPool pool = new BufferPool(budgetBytes, direct);
+        FunctionCounter.builder("transfer.buffers.requests", pool, BufferPool::hits)
+                .description("Pooled buffers handed out, by whether one was reused")
+                .tag("result", "hit")
+                .register(registry);
+        FunctionCounter.builder("transfer.buffers.requests", pool, BufferPool::misses)
+                .description("Pooled buffers handed out, by whether one was reused")
+                .tag("result", "miss")
+                .register(registry);
+        FunctionCounter.builder("transfer.buffers.waits", pool, BufferPool::waits)
+                .description("Buffer requests that waited for the memory budget")
+                .register(registry);
+        Gauge.builder("transfer.buffers.leased.bytes", pool, BufferPool::leasedBytes)
+                .description("Bytes of buffers held by transfers")
+                .register(registry);
+        Gauge.builder("transfer.buffers.idle.bytes", pool, BufferPool::idleBytes)
+                .description("Bytes of buffers kept for reuse")
+                .register(registry);
+        Gauge.builder("transfer.buffers.budget.bytes", pool, BufferPool::budgetBytes)
+                .description("Most bytes of buffers allowed at once")
+                .register(registry);
+        return pool;
+    }
+}
@@ -0,0 +1,78 @@
+package com.lbg.markets.surveillance.relay.service;
+
+import com.lbg.markets.surveillance.relay.domain.Feed;
+import com.lbg.markets.surveillance.relay.util.CompressionCodec;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import jakarta.enterprise.context.ApplicationScoped;
+import org.eclipse.microprofile.config.inject.ConfigProperty;
+
+import java.nio.channels.ReadableByteChannel;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Optional compression stage between source and sink.
+ * <p>
+ * A feed opts in with {@value #CODEC_KEY}{@code =gzip} or {@code zstd} in its metadata, and
+ * may set {@value #LEVEL_KEY}. Each file is cut into {@code transfer.compression.blockBytes}
+ * blocks that are compressed on a shared pool of {@code transfer.compression.threads} platform
+ * threads (all cores by default), up to {@code transfer.compression.blocksInFlight} blocks of
+ * one file at a time, and written out in order, pigz-style (see {@link CompressingChannel}).
+ */
+@ApplicationScoped
+public class TransferCompression {
+
+    /** Feed metadata key selecting the codec: {@code gzip}, {@code zstd} or {@code none}. */
+    public static final String CODEC_KEY = "compression";
+
+    /** Feed metadata key overriding the codec's default level. */
+    public static final String LEVEL_KEY = "compressionLevel";
+
+    @ConfigProperty(name = "transfer.compression.blockBytes", defaultValue = "4194304")
+    int blockBytes;
+
+    @ConfigProperty(name = "transfer.compression.threads", defaultValue = "0")
+    int threads;
+
+    @ConfigProperty(name = "transfer.compression.blocksInFlight", defaultValue = "4")
+    int blocksInFlight;
+
+    private ExecutorService pool;
+
+    @PostConstruct
+    void init() {
+        int size = threads > 0 ? threads : Runtime.getRuntime().availableProcessors();
+        AtomicInteger counter = new AtomicInteger();
+        // Compression is CPU-bound, so it gets platform threads rather than the copies' virtual ones
+        pool = Executors.newFixedThreadPool(size, task -> {
+            Thread thread = new Thread(task, "compress-" + counter.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    @PreDestroy
+    void shutdown() {
+        pool.shutdownNow();
+    }
+
+    /**
+     * The codec configured for the feed, {@link CompressionCodec#NONE} when it has none.
+     */
+    CompressionCodec codecFor(Feed feed) {
+        Object configured = feed.metadata().get(CODEC_KEY);
+        return CompressionCodec.parse(configured != null ? configured.toString() : null);
+    }
+
+    /**
+     * The compressed form of exactly {@code length} bytes of source, which must hold that many.
+     */
+    CompressingChannel compress(ReadableByteChannel source, long length, Feed feed, CompressionCodec codec) {
+        Object level = feed.metadata().get(LEVEL_KEY);
+        return new CompressingChannel(source, length, codec,
+                level != null ? Integer.parseInt(level.toString().trim()) : codec.defaultLevel(),
+                Math.max(1, blockBytes), Math.max(1, blocksInFlight), pool);
+    }
+}
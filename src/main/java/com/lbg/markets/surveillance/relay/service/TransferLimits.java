@@ -0,0 +1,123 @@
+package com.lbg.markets.surveillance.relay.service;
+
+import com.lbg.markets.surveillance.relay.domain.Feed;
+import com.lbg.markets.surveillance.relay.source.SourceProvider;
+import com.lbg.markets.surveillance.relay.util.AdaptiveLimiter;
+import com.lbg.markets.surveillance.relay.util.TokenBucket;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.inject.Inject;
+import org.eclipse.microprofile.config.inject.ConfigProperty;
+import org.jboss.logging.Logger;
+
+import java.nio.channels.ReadableByteChannel;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Guardrails that keep transfers from overwhelming their sources.
+ * <p>
+ * With {@code transfer.limits.adaptive.enabled}, every source root (see
+ * {@link SourceProvider#sourceRoot}) gets an {@link AdaptiveLimiter} on the number of files
+ * read from it at once, between 1 and {@code transfer.parallelism}. A slot is taken before a
+ * copy starts. The limit follows how long opening files on that root takes, and is cut by every
+ * transient failure of a copy attempt, whether an open fails or a read drops part way. Only opens
+ * are timed: timing reads would cost local copies their zero-copy path, so a share that opens
+ * quickly but serves reads slowly is not throttled until its reads start failing. Independently, reads are held to the feed's {@value #BYTES_PER_SECOND_KEY}
+ * metadata value and to {@code transfer.limits.bytesPerSecond} across all feeds. Reads are
+ * only wrapped when a byte rate applies, so other copies keep the sinks' zero-copy path.
+ */
+@ApplicationScoped
+public class TransferLimits {
+
+    private static final Logger LOG = Logger.getLogger(TransferLimits.class);
+
+    /** Feed metadata key capping the feed's read rate in bytes per second. */
+    public static final String BYTES_PER_SECOND_KEY = "maxBytesPerSecond";
+
+    @Inject
+    SourceProvider sourceProvider;
+
+    @Inject
+    MeterRegistry registry;
+
+    @ConfigProperty(name = "transfer.parallelism", defaultValue = "4")
+    int parallelism;
+
+    @ConfigProperty(name = "transfer.limits.adaptive.enabled", defaultValue = "false")
+    boolean adaptive;
+
+    @ConfigProperty(name = "transfer.limits.adaptive.initial", defaultValue = "2")
+    int adaptiveInitial;
+
+    @ConfigProperty(name = "transfer.limits.adaptive.tolerance", defaultValue = "2.0")
+    double adaptiveTolerance;
+
+    @ConfigProperty(name = "transfer.limits.bytesPerSecond", defaultValue = "0")
+    long globalBytesPerSecond;
+
+    private TokenBucket global;
+    private final Map<String, AdaptiveLimiter> roots = new ConcurrentHashMap<>();
+    private final Map<String, FeedBucket> feeds = new ConcurrentHashMap<>();
+
+    @PostConstruct
+    void init() {
+        global = globalBytesPerSecond > 0 ? new TokenBucket(globalBytesPerSecond) : null;
+    }
+
+    /**
+     * The limiter for the feed's source root, or null when adaptive limiting is off.
+     */
+    AdaptiveLimiter limiterFor(Feed feed) {
+        if (!adaptive) {
+            return null;
+        }
+        return roots.computeIfAbsent(sourceProvider.sourceRoot(feed), root -> {
+            int max = Math.max(1, parallelism);
+            AdaptiveLimiter limiter = new AdaptiveLimiter(adaptiveInitial, 1, max, adaptiveTolerance);
+            Gauge.builder("transfer.source.limit", limiter, AdaptiveLimiter::limit)
+                    .description("Current adaptive limit on concurrent reads from a source root")
+                    .tag("root", root)
+                    .register(registry);
+            LOG.infof("Adaptive read limit for source root %s (1..%d)", root, max);
+            return limiter;
+        });
+    }
+
+    /**
+     * Wrap a source channel so its reads respect the byte-rate caps. Returns the channel
+     * unchanged when none apply.
+     */
+    ReadableByteChannel throttle(Feed feed, ReadableByteChannel source) {
+        List<TokenBucket> buckets = new ArrayList<>(2);
+        TokenBucket feedBucket = feedBucket(feed);
+        if (feedBucket != null) {
+            buckets.add(feedBucket);
+        }
+        if (global != null) {
+            buckets.add(global);
+        }
+        return buckets.isEmpty() ? source : new ThrottledChannel(source, buckets);
+    }
+
+    private TokenBucket feedBucket(Feed feed) {
+        Object configured = feed.metadata().get(BYTES_PER_SECOND_KEY);
+        if (configured == null) {
+            return null;
+        }
+        long rate = Long.parseLong(configured.toString());
+        if (rate <= 0) {
+            return null;
+        }
+        // Keep the bucket across runs so back-to-back runs share one budget
+        return feeds.compute(feed.id(), (id, existing) ->
+                existing != null && existing.rate() == rate ? existing : new FeedBucket(rate, new TokenBucket(rate))).bucket();
+    }
+
+    private record FeedBucket(long rate, TokenBucket bucket) {
+    }
+}
@@ -0,0 +1,206 @@
+package com.lbg.markets.surveillance.relay.service;
+
+import com.lbg.markets.surveillance.relay.util.CircuitBreaker;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.inject.Inject;
+
+import java.util.EnumMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Micrometer meters for transfer runs, exported on {@code /q/metrics}.
+ * <p>
+ * Meters are created once per feed and cached, so recording on the hot path is a map lookup
+ * and an atomic add. Stage timers cover where a run spends its time: {@code list} is time
+ * spent waiting on the source listing, {@code dedupe} the per-page tracker lookup and insert and
+ * any content sampling and matching, {@code open} opening the source, {@code write} streaming to
+ * the sink and {@code tracker} the status and journal writes.
+ * <p>
+ * {@code transfer.circuit.open} is 1 while the feed's circuit breaker is refusing work (open
+ * or probing), which is the signal to alert on for a dead source.
+ */
+@ApplicationScoped
+public class TransferMetrics {
+
+    public enum Stage {
+        LIST, DEDUPE, OPEN, WRITE, TRACKER;
+
+        final String tag = name().toLowerCase(Locale.ROOT);
+    }
+
+    private final MeterRegistry registry;
+    private final Map<String, FeedMetrics> feeds = new ConcurrentHashMap<>();
+
+    @Inject
+    public TransferMetrics(MeterRegistry registry) {
+        this.registry = registry;
+    }
+
+    public FeedMetrics feed(String feedId) {
+        return feeds.computeIfAbsent(feedId, FeedMetrics::new);
+    }
+
+    public final class FeedMetrics {
+
+        private final String feedId;
+        private final Map<Stage, Timer> stages = new EnumMap<>(Stage.class);
+        private final Timer fileDuration;
+        private final Counter copied;
+        private final Counter skipped;
+        private final Counter failed;
+        private final Counter rejected;
+        private final Counter retries;
+        private final Counter bytes;
+        private final Counter resumes;
+        private final Counter deduplicated;
+        private final Map<String, Counter> errors = new ConcurrentHashMap<>();
+        private final AtomicInteger inFlight = new AtomicInteger();
+        private final LongAdder runBytes = new LongAdder();
+        private volatile long runStartNanos;
+        private volatile long runEndNanos;
+        private volatile CircuitBreaker circuit;
+
+        private FeedMetrics(String feedId) {
+            this.feedId = feedId;
+            for (Stage stage : Stage.values()) {
+                stages.put(stage, Timer.builder("transfer.stage.duration")
+                        .description("Time spent in each transfer stage")
+                        .tags("feed", feedId, "stage", stage.tag)
+                        .register(registry));
+            }
+            fileDuration = Timer.builder("transfer.duration")
+                    .description("Time to copy one file, from open to verified")
+                    .tag("feed", feedId)
+                    .register(registry);
+            copied = files("copied");
+            skipped = files("skipped");
+            failed = files("failed");
+            rejected = files("rejected");
+            retries = Counter.builder("transfer.retries")
+                    .description("Copies retried within a run after a transient failure")
+                    .tag("feed", feedId)
+                    .register(registry);
+            bytes = Counter.builder("transfer.bytes")
+                    .description("Bytes written to the sink")
+                    .baseUnit("bytes")
+                    .tag("feed", feedId)
+                    .register(registry);
+            resumes = Counter.builder("resume.events")
+                    .description("Copies continued from a committed offset")
+                    .tag("feed", feedId)
+                    .register(registry);
+            deduplicated = Counter.builder("transfer.dedupe.bytes")
+                    .description("Bytes not sent because the sink already held the same content")
+                    .baseUnit("bytes")
+                    .tag("feed", feedId)
+                    .register(registry);
+            Gauge.builder("transfer.inflight", inFlight, AtomicInteger::get)
+                    .description("Files currently being copied")
+                    .tag("feed", feedId)
+                    .register(registry);
+            Gauge.builder("transfer.throughput", this, FeedMetrics::throughput)
+                    .description("Bytes per second of the current run, or of the last one once it has finished")
+                    .baseUnit("bytes")
+                    .tag("feed", feedId)
+                    .register(registry);
+            Gauge.builder("transfer.circuit.open", this, FeedMetrics::circuitOpen)
+                    .description("1 while the feed's circuit breaker is refusing work")
+                    .tag("feed", feedId)
+                    .register(registry);
+        }
+
+        /**
+         * Report the state of this breaker as the feed's circuit gauge.
+         */
+        public void watch(CircuitBreaker breaker) {
+            circuit = breaker;
+        }
+
+        public void record(Stage stage, long nanos) {
+            stages.get(stage).record(nanos, TimeUnit.NANOSECONDS);
+        }
+
+        public void runStarted() {
+            runBytes.reset();
+            runEndNanos = 0;
+            runStartNanos = System.nanoTime();
+        }
+
+        public void runFinished() {
+            runEndNanos = System.nanoTime();
+        }
+
+        public void fileStarted() {
+            inFlight.incrementAndGet();
+        }
+
+        public void fileCopied(long bytesWritten, long nanos, boolean resumed) {
+            inFlight.decrementAndGet();
+            copied.increment();
+            bytes.increment(bytesWritten);
+            runBytes.add(bytesWritten);
+            fileDuration.record(nanos, TimeUnit.NANOSECONDS);
+            if (resumed) {
+                resumes.increment();
+            }
+        }
+
+        /** A file stored as a reference to content the sink already held. */
+        public void fileReferenced(long bytesSaved, long nanos) {
+            fileCopied(0, nanos, false);
+            deduplicated.increment(bytesSaved);
+        }
+
+        public void fileFailed(Throwable cause) {
+            inFlight.decrementAndGet();
+            failed.increment();
+            errors.computeIfAbsent(cause.getClass().getSimpleName(), name -> Counter.builder("transfer.errors")
+                    .description("Failed copies by exception type")
+                    .tags("feed", feedId, "cause", name)
+                    .register(registry)).increment();
+        }
+
+        public void fileRetried() {
+            retries.increment();
+        }
+
+        /** A file not attempted because the feed's circuit was open. */
+        public void fileRejected() {
+            rejected.increment();
+        }
+
+        public void filesSkipped(int count) {
+            skipped.increment(count);
+        }
+
+        private double throughput() {
+            long start = runStartNanos;
+            if (start == 0) {
+                return 0;
+            }
+            long end = runEndNanos != 0 ? runEndNanos : System.nanoTime();
+            return end > start ? runBytes.sum() * 1e9 / (end - start) : 0;
+        }
+
+        private double circuitOpen() {
+            CircuitBreaker breaker = circuit;
+            return breaker != null && breaker.state() != CircuitBreaker.State.CLOSED ? 1 : 0;
+        }
+
+        private Counter files(String status) {
+            return Counter.builder("transfer.files")
+                    .description("Files processed, by outcome")
+                    .tags("feed", feedId, "status", status)
+                    .register(registry);
+        }
+    }
+}
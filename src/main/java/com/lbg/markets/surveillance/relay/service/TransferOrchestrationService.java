@@ -2,29 +2,132 @@ package com.lbg.markets.surveillance.relay.service;
 
 import com.lbg.markets.surveillance.relay.domain.*;
 import com.lbg.markets.surveillance.relay.domain.FileRecord.FileStatus;
+import com.lbg.markets.surveillance.relay.domain.Run.RunStatus;
+import com.lbg.markets.surveillance.relay.service.BundleWriter.Bundle;
+import com.lbg.markets.surveillance.relay.service.TransferMetrics.FeedMetrics;
+import com.lbg.markets.surveillance.relay.service.TransferMetrics.Stage;
+import com.lbg.markets.surveillance.relay.sink.CommitListener;
 import com.lbg.markets.surveillance.relay.sink.Sink;
 import com.lbg.markets.surveillance.relay.source.SourceProvider;
+import com.lbg.markets.surveillance.relay.tracker.CopiedIdentityIndex;
 import com.lbg.markets.surveillance.relay.tracker.Tracker;
+import com.lbg.markets.surveillance.relay.util.AdaptiveLimiter;
+import com.lbg.markets.surveillance.relay.util.Backoff;
+import com.lbg.markets.surveillance.relay.util.BufferPool;
+import com.lbg.markets.surveillance.relay.util.ChecksumAlgorithm;
+import com.lbg.markets.surveillance.relay.util.CircuitBreaker;
+import com.lbg.markets.surveillance.relay.util.CompressionCodec;
+import com.lbg.markets.surveillance.relay.util.FairPermits;
 import com.lbg.markets.surveillance.relay.util.FileIdentity;
+import com.lbg.markets.surveillance.relay.util.StreamingChecksum;
+import jakarta.annotation.PostConstruct;
 import jakarta.enterprise.context.ApplicationScoped;
 import jakarta.inject.Inject;
+import org.eclipse.microprofile.config.inject.ConfigProperty;
 import org.jboss.logging.Logger;
 
+import java.io.FileNotFoundException;
 import java.io.IOException;
-import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.file.AccessDeniedException;
+import java.nio.file.NoSuchFileException;
+import java.time.Duration;
+import java.time.Instant;
 import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Consumer;
+import java.util.function.Function;
 
 /**
  * Orchestrates file transfers from source to sink with tracking.
  * Handles the main flow: list → filter → dedupe → copy → track.
+ * <p>
+ * Listings are processed in pages of {@code transfer.batchSize}: each page is deduplicated
+ * with one tracker lookup and new files are registered with one bulk upsert. Status
+ * transitions from the workers are buffered and written in batches of the same size.
+ * <p>
+ * Files are copied concurrently on virtual threads. The listing thread blocks
+ * once the per-feed or global permit count is exhausted, so listing never runs
+ * further ahead of the copies than {@code transfer.parallelism} files. Reads from a
+ * source are further bounded by {@link TransferLimits}. The global permits are shared by all
+ * feeds running at once and handed out by feed priority, then by weighted fair share (see
+ * {@link FairPermits}), so a feed with a long backlog cannot starve small ones.
+ * <p>
+ * Each stage is timed per feed in {@link TransferMetrics}. Per-file results go to a
+ * {@link RunListener} as they complete and are otherwise only counted into the {@link Run}
+ * summary, so memory use does not grow with the size of a feed.
+ * <p>
+ * Feeds with {@value #BUNDLE_KEY}{@code =true} in their metadata copy files of up to
+ * {@code transfer.bundle.maxFileBytes} into tar bundles (see {@link BundleWriter}) rather than
+ * one sink object each; their records point at the bundle and the member's offset in it.
+ * <p>
+ * Files over {@code transfer.ranged.thresholdBytes} (when the sink supports it) are copied as
+ * ranges read and written concurrently by {@link RangedTransfer}, and get the tree checksum
+ * of their ranges.
+ * <p>
+ * Transient IO failures are retried within the run, up to {@code transfer.maxRetries} times
+ * with jittered exponential backoff. A retry continues from the offset the sink last
+ * committed, so a failure late in a large file only costs the remaining bytes. Each feed has
+ * a {@link CircuitBreaker}: after {@code transfer.circuitBreaker.failureThreshold} transient
+ * failures in a row its remaining files are not attempted until a probe copy succeeds.
+ * <p>
+ * Feeds with a {@value TransferCompression#CODEC_KEY} codec in their metadata are compressed on
+ * the way to the sink by {@link TransferCompression} and stored with the codec's extension
+ * appended to the name. Their records keep the source size and checksum and add the codec and
+ * compressed size; bundled small files are stored uncompressed.
+ * <p>
+ * Feeds with {@value #CONTENT_DEDUPE_KEY}{@code =true} also dedupe by content: a file of at
+ * least {@code transfer.contentDedupe.minBytes} whose content the tracker's content index
+ * already has in the sink (under any name, see {@link ContentDedupe}) is stored as a
+ * reference to that object rather than copied. This needs {@code transfer.checksum}.
+ * <p>
+ * Feeds with {@value #APPEND_ONLY_KEY}{@code =true} hold files that only ever grow. A new,
+ * longer version of a file whose last copied version still matches over the same bytes (by
+ * the sample hash of {@link ContentDedupe}) only has its new bytes read and appended at the
+ * sink; the tracker links each version to the one it extends. Such feeds are neither
+ * compressed nor deduped by content, since their objects change in place.
  */
 @ApplicationScoped
 public class TransferOrchestrationService {
 
     private static final Logger LOG = Logger.getLogger(TransferOrchestrationService.class);
 
+    /** Permits held by the task running on the current worker, given back while it waits to retry. */
+    private static final ThreadLocal<Slot> SLOT = new ThreadLocal<>();
+
+    /** Feed metadata key overriding the concurrency limit for a single feed. */
+    public static final String PARALLELISM_KEY = "parallelism";
+
+    /** Feed metadata key for the feed's priority on the global permits; higher goes first, default 0. */
+    public static final String PRIORITY_KEY = "priority";
+
+    /** Feed metadata key for the feed's share of the global permits among its priority, default 1. */
+    public static final String WEIGHT_KEY = "weight";
+
+    /** Feed metadata key enabling small-file bundling when {@code true}. */
+    public static final String BUNDLE_KEY = "bundle";
+
+    /** Feed metadata key enabling content-level dedupe when {@code true}. */
+    public static final String CONTENT_DEDUPE_KEY = "contentDedupe";
+
+    /** Feed metadata key marking a feed's files as append-only when {@code true}. */
+    public static final String APPEND_ONLY_KEY = "appendOnly";
+
+    private static final int PREFIX_HASH_BUFFER = 64 * 1024;
+
     @Inject
     SourceProvider sourceProvider;
 
@@ -34,92 +137,1012 @@ public class TransferOrchestrationService {
     @Inject
     Tracker tracker;
 
+    @Inject
+    CopiedIdentityIndex copiedIndex;
+
+    @Inject
+    TransferMetrics metrics;
+
+    @Inject
+    TransferLimits limits;
+
+    @Inject
+    TransferCompression compression;
+
+    @Inject
+    BufferPool buffers;
+
+    @ConfigProperty(name = "transfer.parallelism", defaultValue = "4")
+    int parallelism;
+
+    @ConfigProperty(name = "transfer.batchSize", defaultValue = "500")
+    int batchSize;
+
+    @ConfigProperty(name = "transfer.checksum", defaultValue = "none")
+    String checksum;
+
+    @ConfigProperty(name = "transfer.checksumTreeLeafBytes", defaultValue = "0")
+    int checksumTreeLeafBytes;
+
+    @ConfigProperty(name = "transfer.ranged.thresholdBytes", defaultValue = "0")
+    long rangedThresholdBytes;
+
+    @ConfigProperty(name = "transfer.ranged.rangeBytes", defaultValue = "67108864")
+    int rangeBytes;
+
+    @ConfigProperty(name = "transfer.ranged.streams", defaultValue = "4")
+    int rangedStreams;
+
+    @ConfigProperty(name = "transfer.ranged.rangeAttempts", defaultValue = "3")
+    int rangeAttempts;
+
+    @ConfigProperty(name = "transfer.maxRetries", defaultValue = "5")
+    int maxRetries;
+
+    @ConfigProperty(name = "transfer.backoff.initialMs", defaultValue = "500")
+    long backoffInitialMs;
+
+    @ConfigProperty(name = "transfer.backoff.maxMs", defaultValue = "30000")
+    long backoffMaxMs;
+
+    @ConfigProperty(name = "transfer.circuitBreaker.failureThreshold", defaultValue = "10")
+    int circuitFailureThreshold;
+
+    @ConfigProperty(name = "transfer.circuitBreaker.openFor", defaultValue = "60s")
+    Duration circuitOpenFor;
+
+    @ConfigProperty(name = "transfer.bundle.maxFileBytes", defaultValue = "1048576")
+    int bundleMaxFileBytes;
+
+    @ConfigProperty(name = "transfer.bundle.maxFiles", defaultValue = "1000")
+    int bundleMaxFiles;
+
+    @ConfigProperty(name = "transfer.bundle.maxBytes", defaultValue = "67108864")
+    long bundleMaxBytes;
+
+    @ConfigProperty(name = "transfer.bundle.maxAge", defaultValue = "60s")
+    Duration bundleMaxAge;
+
+    @ConfigProperty(name = "transfer.contentDedupe.minBytes", defaultValue = "1048576")
+    long contentDedupeMinBytes;
+
+    @ConfigProperty(name = "transfer.contentDedupe.sampleBytes", defaultValue = "65536")
+    int contentSampleBytes;
+
+    private ChecksumAlgorithm checksumAlgorithm;
+    private FileIdentity identity;
+    private RangedTransfer rangedTransfer;
+    private ContentDedupe contentDedupe;
+    private Backoff backoff;
+
+    private FairPermits globalPermits;
+    private final Map<String, FeedPermits> feedPermits = new ConcurrentHashMap<>();
+    private final Map<String, CircuitBreaker> breakers = new ConcurrentHashMap<>();
+
+    @PostConstruct
+    void init() {
+        globalPermits = new FairPermits(Math.max(1, parallelism));
+        checksumAlgorithm = ChecksumAlgorithm.parse(checksum);
+        identity = tracker.identity();
+        backoff = new Backoff(Duration.ofMillis(backoffInitialMs), Duration.ofMillis(Math.max(backoffInitialMs, backoffMaxMs)));
+
+        // Ranges hash their own leaves, so they are whole leaves long; without a configured leaf each range is one
+        int leafBytes = checksumTreeLeafBytes > 0 ? checksumTreeLeafBytes : Math.max(1, rangeBytes);
+        long alignedRange = (Math.max(1, rangeBytes) + leafBytes - 1L) / leafBytes * leafBytes;
+        rangedTransfer = new RangedTransfer(sink, alignedRange, rangedStreams, rangeAttempts, checksumAlgorithm, leafBytes,
+                buffers);
+        contentDedupe = new ContentDedupe(tracker, contentSampleBytes, buffers);
+    }
+
     /**
-     * Execute a transfer run for the given feed.
-     * Returns a list of results for each file processed.
+     * Execute a transfer run for the given feed and return its summary, which is also saved
+     * in the tracker.
      */
-    public List<TransferResult> executeTransfer(Feed feed) {
-        LOG.infof("Starting transfer for feed: %s", feed.id());
-        List<TransferResult> results = new ArrayList<>();
+    public Run executeTransfer(Feed feed) {
+        return executeTransfer(feed, RunListener.NONE);
+    }
 
+    /**
+     * Execute a transfer run for the given feed, passing each file's result to the listener
+     * as it completes. Nothing per file is kept once its result has been delivered.
+     */
+    public Run executeTransfer(Feed feed, RunListener listener) {
+        LOG.infof("Starting transfer for feed: %s (parallelism: %d)", feed.id(), parallelism);
+        RunContext run = startRun(feed, listener);
         try (var fileStream = sourceProvider.list(feed)) {
-            fileStream.forEach(descriptor -> {
-                TransferResult result = processFile(feed, descriptor);
-                results.add(result);
-            });
+            run(run, fileStream.iterator());
         } catch (IOException e) {
+            finishRun(run, RunStatus.FAILED);
             LOG.errorf(e, "Failed to list files for feed: %s", feed.id());
             throw new RuntimeException("Transfer failed during file listing", e);
+        } catch (RuntimeException e) {
+            finishRun(run, RunStatus.FAILED);
+            throw e;
+        }
+
+        Run summary = finishRun(run, null);
+        if (summary.filesFailed() == 0) {
+            sourceProvider.commitListing(feed);
         }
+        return summary;
+    }
 
-        LOG.infof("Transfer complete for feed %s: %d files processed", feed.id(), results.size());
-        return results;
+    /**
+     * Transfer files a source has already discovered (e.g. pushed by a watch) without listing.
+     * They go through the same dedupe, copy and tracking steps as a listed run.
+     */
+    public Run transferDiscovered(Feed feed, List<FileDescriptor> files) {
+        LOG.debugf("Transferring %d discovered files for feed: %s", files.size(), feed.id());
+        RunContext run = startRun(feed, RunListener.NONE);
+        try {
+            run(run, files.iterator());
+        } catch (RuntimeException e) {
+            finishRun(run, RunStatus.FAILED);
+            throw e;
+        }
+        return finishRun(run, null);
     }
 
-    private TransferResult processFile(Feed feed, FileDescriptor descriptor) {
-        String fileId = FileIdentity.generateFileId(feed.id(), descriptor);
+    private RunContext startRun(Feed feed, RunListener listener) {
+        FeedMetrics meters = metrics.feed(feed.id());
+        meters.runStarted();
+        long start = System.nanoTime();
+        Map<FileId, ResumeState> resumes = tracker.loadResumes(feed.id());
+        String runId = UUID.randomUUID().toString();
+        BundleWriter bundles = Boolean.parseBoolean(String.valueOf(feed.metadata().get(BUNDLE_KEY)))
+                ? new BundleWriter(feed.id(), runId, feed.destinationPrefix(), bundleMaxFiles, bundleMaxBytes, bundleMaxAge)
+                : null;
+        CircuitBreaker breaker = breakers.computeIfAbsent(feed.id(),
+                id -> new CircuitBreaker(circuitFailureThreshold, circuitOpenFor));
+        meters.watch(breaker);
+        CompressionCodec codec = compression.codecFor(feed);
+        boolean appendOnly = Boolean.parseBoolean(String.valueOf(feed.metadata().get(APPEND_ONLY_KEY)));
+        if (appendOnly && codec != CompressionCodec.NONE) {
+            LOG.warnf("Feed %s is append-only and compressed; copying every version whole", feed.id());
+            appendOnly = false;
+        }
+        boolean dedupeContent = Boolean.parseBoolean(String.valueOf(feed.metadata().get(CONTENT_DEDUPE_KEY)));
+        if (dedupeContent && checksumAlgorithm == ChecksumAlgorithm.NONE) {
+            LOG.warnf("Feed %s asks for content dedupe, which needs transfer.checksum; copying every file", feed.id());
+            dedupeContent = false;
+        }
+        if (dedupeContent && appendOnly) {
+            LOG.warnf("Feed %s is append-only, so its objects change in place and are not deduped by content", feed.id());
+            dedupeContent = false;
+        }
+        RunContext run = new RunContext(runId, feed, resumes,
+                results -> new StatusBatcher(tracker, copiedIndex, batchSize, meters, backoff, results), meters,
+                limits.limiterFor(feed), breaker, bundles, codec, dedupeContent, appendOnly, listener);
+        tracker.saveRun(run.summary(RunStatus.RUNNING, null));
+        meters.record(Stage.TRACKER, System.nanoTime() - start);
+        return run;
+    }
 
-        LOG.debugf("Processing file: %s (id: %s)", descriptor.sourcePath(), fileId);
+    /**
+     * Save the final summary. A null status is worked out from the file counts.
+     */
+    private Run finishRun(RunContext run, RunStatus status) {
+        run.meters.runFinished();
+        if (status == null) {
+            status = run.failed.sum() > 0 ? RunStatus.PARTIAL : RunStatus.SUCCEEDED;
+        }
+        Run summary = run.summary(status, Instant.now());
+        try {
+            tracker.saveRun(summary);
+        } catch (RuntimeException e) {
+            LOG.errorf(e, "Failed to save summary of run %s", summary.runId());
+        }
+        LOG.infof("Transfer %s for feed %s in %d ms: %d listed, %d copied (%d bytes), %d skipped, %d failed",
+                status, summary.feedId(), summary.duration().toMillis(), summary.filesDiscovered(),
+                summary.filesCopied(), summary.bytesCopied(), summary.filesSkipped(), summary.filesFailed());
+        return summary;
+    }
 
-        // Check if already copied
-        if (tracker.shouldSkip(feed.id(), descriptor.sourcePath(),
-                descriptor.mtimeEpochMs(), descriptor.sizeBytes())) {
-            LOG.debugf("Skipping already copied file: %s", descriptor.sourcePath());
-            return TransferResult.skipped(fileId, descriptor.sourcePath(), "Already copied");
+    private void run(RunContext run, Iterator<FileDescriptor> files) {
+        Feed feed = run.feed;
+        FeedMetrics meters = run.meters;
+        int permits = feedParallelism(feed);
+        // Rebuilt when the feed's limit changes, so new metadata applies from the next run
+        Semaphore feedLimit = feedPermits.compute(feed.id(), (id, existing) ->
+                existing != null && existing.permits() == permits
+                        ? existing : new FeedPermits(permits, new Semaphore(permits))).semaphore();
+
+        // Executor is closed first, which waits for in-flight copies before the listing is released
+        try (ExecutorService workers = Executors.newVirtualThreadPerTaskExecutor()) {
+            forEachPage(run, files, page -> {
+                long dedupeStart = System.nanoTime();
+                List<PendingFile> pending = dedupe(run, page);
+                meters.record(Stage.DEDUPE, System.nanoTime() - dedupeStart);
+                for (PendingFile file : pending) {
+                    Runnable task = run.bundles != null && file.descriptor().sizeBytes() <= bundleMaxFileBytes
+                            ? () -> bundleFile(run, file)
+                            : () -> processFile(run, file);
+                    submit(workers, feed, feedLimit, run.sourceLimit, () -> {
+                        if (run.breaker.tryAcquire()) {
+                            task.run();
+                        } else {
+                            reject(run, file);
+                        }
+                    });
+                }
+            });
+        } finally {
+            if (run.bundles != null) {
+                flushBundles(run);
+            }
+            run.statuses.finish();
+        }
+    }
+
+    /**
+     * Hand the listing to the handler in pages. Time blocked on the source is recorded as the
+     * list stage, once per run.
+     */
+    private void forEachPage(RunContext run, Iterator<FileDescriptor> files, Consumer<List<FileDescriptor>> handler) {
+        List<FileDescriptor> page = new ArrayList<>(batchSize);
+        long listNanos = 0;
+        try {
+            while (true) {
+                long start = System.nanoTime();
+                boolean more = files.hasNext();
+                FileDescriptor next = more ? files.next() : null;
+                listNanos += System.nanoTime() - start;
+                if (!more) {
+                    break;
+                }
+                page.add(next);
+                if (page.size() >= batchSize) {
+                    handler.accept(page);
+                    page = new ArrayList<>(batchSize);
+                }
+            }
+            if (!page.isEmpty()) {
+                handler.accept(page);
+            }
+        } finally {
+            run.meters.record(Stage.LIST, listNanos);
+        }
+    }
+
+    /**
+     * Resolve a listing page against the tracker in one lookup. Already copied files are
+     * recorded as skipped; unseen files are registered as DISCOVERED in one bulk upsert.
+     * Files the copied-identity index rules out are never looked up.
+     * Returns the files that still need copying.
+     */
+    private List<PendingFile> dedupe(RunContext run, List<FileDescriptor> page) {
+        Map<FileId, FileDescriptor> byId = new LinkedHashMap<>();
+        List<FileId> maybeCopied = new ArrayList<>();
+        run.discovered.add(page.size());
+        for (FileDescriptor descriptor : page) {
+            FileId fileId = identity.of(run.feed.id(), descriptor);
+            byId.put(fileId, descriptor);
+            if (copiedIndex.mightBeCopied(fileId)) {
+                maybeCopied.add(fileId);
+            }
+        }
+
+        Map<FileId, FileRecord> known = maybeCopied.isEmpty() ? Map.of() : tracker.findByIdentities(maybeCopied);
+        List<FileRecord> discovered = new ArrayList<>();
+        List<PendingFile> pending = new ArrayList<>(byId.size());
+
+        byId.forEach((fileId, descriptor) -> {
+            FileRecord existing = known.get(fileId);
+            if (existing != null && existing.status() == FileStatus.COPIED) {
+                LOG.debugf("Skipping already copied file: %s", descriptor.sourcePath());
+                run.meters.filesSkipped(1);
+                run.record(TransferResult.skipped(fileId, descriptor.sourcePath(), "Already copied"));
+                return;
+            }
+            // Keep the record (and attempts) of an earlier failed or interrupted copy
+            if (existing == null) {
+                discovered.add(discoveredRecord(run.feed, fileId, descriptor));
+            }
+            pending.add(new PendingFile(fileId, descriptor));
+        });
+
+        // Files skipped by the index may still have a record, so only insert the missing ones
+        tracker.insertMissing(discovered);
+        return pending;
+    }
+
+    /**
+     * Blocks the caller until a feed permit, a slot under the source root's adaptive limit
+     * (if any) and a global permit are all free, then hands the task to a worker. Permits
+     * are released when the task finishes; the source and global ones are also given back
+     * while the task waits to retry (see {@link #withRetries}).
+     */
+    private void submit(ExecutorService workers, Feed feed, Semaphore feedLimit, AdaptiveLimiter sourceLimit,
+                        Runnable task) {
+        int priority = metadataValue(feed, PRIORITY_KEY, 0);
+        int weight = Math.max(1, metadataValue(feed, WEIGHT_KEY, 1));
+        Slot slot = new Slot(feed.id(), priority, weight, sourceLimit);
+        acquire(feedLimit::acquire);
+        try {
+            acquire(slot::acquire);
+        } catch (RuntimeException e) {
+            feedLimit.release();
+            throw e;
+        }
+
+        workers.execute(() -> {
+            SLOT.set(slot);
+            try {
+                task.run();
+            } finally {
+                SLOT.remove();
+                slot.release();
+                feedLimit.release();
+            }
+        });
+    }
+
+    private void acquire(Permit permit) {
+        try {
+            permit.acquire();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException("Interrupted while waiting for a transfer slot", e);
+        }
+    }
+
+    @FunctionalInterface
+    private interface Permit {
+        void acquire() throws InterruptedException;
+    }
+
+    /**
+     * The source slot and global permit held by a worker. The feed permit is not part of it, since
+     * it only ever holds back the worker's own feed.
+     */
+    private final class Slot {
+        private final String feedId;
+        private final int priority;
+        private final int weight;
+        private final AdaptiveLimiter sourceLimit;
+        private boolean held;
+
+        Slot(String feedId, int priority, int weight, AdaptiveLimiter sourceLimit) {
+            this.feedId = feedId;
+            this.priority = priority;
+            this.weight = weight;
+            this.sourceLimit = sourceLimit;
+        }
+
+        void acquire() throws InterruptedException {
+            if (sourceLimit != null) {
+                sourceLimit.acquire();
+            }
+            try {
+                globalPermits.acquire(feedId, priority, weight);
+            } catch (InterruptedException | RuntimeException e) {
+                if (sourceLimit != null) {
+                    sourceLimit.release();
+                }
+                throw e;
+            }
+            held = true;
+        }
+
+        void release() {
+            if (!held) {
+                return;
+            }
+            held = false;
+            globalPermits.release();
+            if (sourceLimit != null) {
+                sourceLimit.release();
+            }
+        }
+    }
+
+    private int feedParallelism(Feed feed) {
+        Object configured = feed.metadata().get(PARALLELISM_KEY);
+        if (configured == null) {
+            return Math.max(1, parallelism);
         }
+        int value = Integer.parseInt(configured.toString());
+        return Math.max(1, Math.min(value, parallelism));
+    }
+
+    private static int metadataValue(Feed feed, String key, int defaultValue) {
+        Object configured = feed.metadata().get(key);
+        return configured != null ? Integer.parseInt(configured.toString().trim()) : defaultValue;
+    }
 
-        // Create file record as DISCOVERED
-        FileRecord record = new FileRecord(
+    private FileRecord discoveredRecord(Feed feed, FileId fileId, FileDescriptor descriptor) {
+        return new FileRecord(
                 fileId,
                 feed.id(),
                 descriptor.sourcePath(),
                 descriptor.sizeBytes(),
                 descriptor.mtimeEpochMs(),
-                null, // checksum - will add later
+                null, // checksum, set once copied
                 FileStatus.DISCOVERED,
                 null, // gcsUri
                 null, // copiedAt
                 0    // attempts
         );
-        tracker.upsertFile(record);
+    }
+
+    /**
+     * Copy one file. A success is recorded once its COPIED status is saved, a failure straight away.
+     */
+    private void processFile(RunContext run, PendingFile pending) {
+        FileId fileId = pending.fileId();
+        FileDescriptor descriptor = pending.descriptor();
+
+        LOG.debugf("Processing file: %s (id: %s)", descriptor.sourcePath(), fileId);
+        long start = System.nanoTime();
+        run.meters.fileStarted();
 
         try {
             // Update to COPYING
-            tracker.updateStatus(fileId, FileStatus.COPYING, null);
+            run.statuses.add(new StatusUpdate(fileId, FileStatus.COPYING, null));
 
-            // Perform the transfer
-            String destPath = buildDestPath(feed, descriptor);
-            long bytesWritten = transferFile(descriptor, destPath);
+            // Perform the transfer, continuing an interrupted one where possible
+            boolean compressed = run.codec != CompressionCodec.NONE;
+            String destPath = buildDestPath(run.feed, descriptor) + run.codec.extension();
+            ResumeState journal = run.resumes.get(fileId);
+            AtomicBoolean journalled = new AtomicBoolean(journal != null);
+            // Progress journalled so far, where a retry picks up. Compressed output is only known to
+            // come out the same within a run, so an earlier run's partial copy starts over.
+            AtomicReference<ResumeState> latest = new AtomicReference<>(compressed ? null : journal);
+            CommitListener listener = state -> {
+                journalled.set(true);
+                latest.set(state);
+                long saveStart = System.nanoTime();
+                tracker.saveResume(state);
+                run.meters.record(Stage.TRACKER, System.nanoTime() - saveStart);
+            };
 
-            // Update to COPIED
-            tracker.updateStatus(fileId, FileStatus.COPIED, destPath);
+            // A longer version of the object the sink holds, the same up to its end, only needs the new bytes
+            RangedTransfer.RangeSource source = offset -> openSource(run, descriptor, offset);
+            FileVersion base = run.appendOnly ? appendBase(run, fileId, descriptor, destPath, source) : null;
+            Copy copy = base != null ? withRetries(run, descriptor, () -> append(run, descriptor, destPath, base)) : null;
+            boolean appended = copy != null;
 
-            LOG.infof("Successfully copied %s → %s (%d bytes)",
-                    descriptor.sourcePath(), destPath, bytesWritten);
+            // Content the sink already holds, under any name, is referenced rather than copied again
+            String sample = null;
+            if (!appended && run.dedupeContent && descriptor.sizeBytes() >= contentDedupeMinBytes) {
+                long sampleStart = System.nanoTime();
+                String contentSample = withRetries(run, descriptor, () -> contentDedupe.sample(descriptor.sizeBytes(), source));
+                run.meters.record(Stage.DEDUPE, System.nanoTime() - sampleStart);
+                sample = contentSample;
+                copy = withRetries(run, descriptor, () -> reference(run, descriptor, destPath, contentSample, source));
+            }
+            boolean referenced = !appended && copy != null;
+            if (copy == null) {
+                copy = withRetries(run, descriptor, () -> {
+                    try {
+                        if (compressed) {
+                            return copyCompressed(run, fileId, descriptor, destPath, latest.get(), listener);
+                        }
+                        return isRanged(descriptor)
+                                ? copyRanges(run, fileId, descriptor, destPath, latest.get(), listener)
+                                : copyWhole(run, fileId, descriptor, destPath, latest.get(), listener);
+                    } catch (ChecksumMismatchException e) {
+                        // What the sink holds is wrong, so the next attempt starts from byte 0
+                        latest.set(null);
+                        throw e;
+                    }
+                });
+            }
 
-            return TransferResult.success(fileId, descriptor.sourcePath(), destPath, bytesWritten);
+            // Update to COPIED; small files that never checkpointed have no journal entry to clear
+            if (journalled.get()) {
+                long clearStart = System.nanoTime();
+                tracker.clearResume(fileId);
+                run.meters.record(Stage.TRACKER, System.nanoTime() - clearStart);
+            }
+            // The version is saved before COPIED is queued, so a copy without its lineage fails as a whole
+            if (run.appendOnly) {
+                saveVersion(run, fileId, descriptor, destPath, appended ? base : null, copy.checksum(), source);
+            }
+            if (sample != null && copy.checksum() != null) {
+                saveContent(run, new ContentRef(copy.checksum(), run.codec.label(), descriptor.sizeBytes(), sample,
+                        destPath, copy.compressedBytes()));
+            }
+            // Counted, like the result, once the COPIED status is saved
+            long nanos = System.nanoTime() - start;
+            Copy done = copy;
+            Runnable counted = appended ? () -> run.meters.fileCopied(done.bytesWritten(), nanos, false)
+                    : referenced ? () -> run.meters.fileReferenced(descriptor.sizeBytes(), nanos)
+                    : () -> run.meters.fileCopied(done.bytesWritten(), nanos, done.bytesResumed() > 0);
+            // The checksum of an appended version covers only the appended bytes, so it goes with its lineage
+            run.statuses.add(new StatusUpdate(fileId, FileStatus.COPIED, destPath, appended ? null : copy.checksum(),
+                    null, compressed ? run.codec.label() : null, copy.compressedBytes()),
+                    TransferResult.success(fileId, descriptor.sourcePath(), destPath, copy.bytesWritten()), counted);
+            if (appended) {
+                LOG.infof("Appended %d bytes of %s to %s (%d bytes not sent)",
+                        copy.bytesWritten(), descriptor.sourcePath(), destPath, base.sizeBytes());
+            } else if (referenced) {
+                LOG.infof("Referenced existing content for %s → %s (%d bytes not sent)",
+                        descriptor.sourcePath(), destPath, descriptor.sizeBytes());
+            } else {
+                LOG.infof("Successfully copied %s → %s (%d bytes, resumed %d)",
+                        descriptor.sourcePath(), destPath, copy.bytesWritten(), copy.bytesResumed());
+            }
 
         } catch (Exception e) {
             LOG.errorf(e, "Failed to transfer file: %s", descriptor.sourcePath());
-            tracker.updateStatus(fileId, FileStatus.FAILED, null);
-            return TransferResult.failed(fileId, descriptor.sourcePath(), e.getMessage());
+            run.meters.fileFailed(e);
+            run.statuses.add(new StatusUpdate(fileId, FileStatus.FAILED, null));
+            run.record(TransferResult.failed(fileId, descriptor.sourcePath(), e.getMessage()));
+        }
+    }
+
+    /**
+     * Store the file as a reference to identical content the sink already holds. Returns null
+     * when there is none, or it has gone from the sink since, and the file has to be copied.
+     */
+    private Copy reference(RunContext run, FileDescriptor descriptor, String destPath, String sample,
+                           RangedTransfer.RangeSource source) throws IOException {
+        long start = System.nanoTime();
+        ContentRef match = contentDedupe.find(descriptor.sizeBytes(), sample, run.codec.label(), source);
+        long found = System.nanoTime();
+        run.meters.record(Stage.DEDUPE, found - start);
+        if (match == null) {
+            return null;
+        }
+        boolean referenced = sink.reference(match.location(), destPath, sinkMetadata(descriptor, run.codec));
+        run.meters.record(Stage.WRITE, System.nanoTime() - found);
+        if (!referenced) {
+            LOG.debugf("Indexed content for %s at %s is gone, copying it", descriptor.sourcePath(), match.location());
+            return null;
+        }
+        return new Copy(0, 0, match.checksum(), match.storedBytes());
+    }
+
+    /**
+     * The version of the file the sink holds, if this one extends it: it is longer and has the
+     * same sample hash over the length of that version. Null when the file is copied whole.
+     */
+    private FileVersion appendBase(RunContext run, FileId fileId, FileDescriptor descriptor, String destPath,
+                                   RangedTransfer.RangeSource source) throws IOException {
+        long start = System.nanoTime();
+        Optional<FileVersion> latest = tracker.latestVersion(run.feed.id(), descriptor.sourcePath());
+        run.meters.record(Stage.TRACKER, System.nanoTime() - start);
+        if (latest.isEmpty()) {
+            return null;
+        }
+        FileVersion previous = latest.get();
+        if (previous.fileId().equals(fileId) || previous.sizeBytes() >= descriptor.sizeBytes()
+                || !previous.location().equals(destPath)) {
+            return null;
+        }
+
+        long sampleStart = System.nanoTime();
+        String prefix = withRetries(run, descriptor, () -> contentDedupe.sample(previous.sizeBytes(), source));
+        run.meters.record(Stage.DEDUPE, System.nanoTime() - sampleStart);
+        if (!prefix.equals(previous.sampleHash())) {
+            LOG.debugf("%s changed within its first %d bytes, copying it whole",
+                    descriptor.sourcePath(), previous.sizeBytes());
+            return null;
+        }
+        return previous;
+    }
+
+    /**
+     * Read only the bytes past base and append them to the object the sink holds. Returns null
+     * when the sink no longer holds base, and the file has to be copied whole.
+     */
+    private Copy append(RunContext run, FileDescriptor descriptor, String destPath, FileVersion base)
+            throws IOException {
+        long length = descriptor.sizeBytes() - base.sizeBytes();
+        StreamingChecksum checksum = checksumAlgorithm != ChecksumAlgorithm.NONE
+                ? StreamingChecksum.of(checksumAlgorithm)
+                : null;
+        long start = System.nanoTime();
+        try (ReadableByteChannel source = openSource(run, descriptor, base.sizeBytes())) {
+            long opened = System.nanoTime();
+            run.meters.record(Stage.OPEN, opened - start);
+            ReadableByteChannel in = checksum != null ? new ChecksummingChannel(source, checksum::update) : source;
+            boolean appended = sink.append(destPath, base.sizeBytes(), length, in, sinkMetadata(descriptor));
+            run.meters.record(Stage.WRITE, System.nanoTime() - opened);
+            if (!appended) {
+                LOG.debugf("Sink no longer holds the %d bytes of %s to append to, copying it whole",
+                        base.sizeBytes(), destPath);
+                return null;
+            }
+        }
+        return new Copy(length, 0, checksum != null ? checksum.finish() : null, null);
+    }
+
+    /**
+     * Record the version just copied, with the sample hash a later version is matched against.
+     * base is the version it was appended to, or null when it was copied whole.
+     */
+    private void saveVersion(RunContext run, FileId fileId, FileDescriptor descriptor, String destPath,
+                             FileVersion base, String appendedChecksum, RangedTransfer.RangeSource source)
+            throws IOException {
+        long sampleStart = System.nanoTime();
+        String sample = withRetries(run, descriptor, () -> contentDedupe.sample(descriptor.sizeBytes(), source));
+        long sampled = System.nanoTime();
+        run.meters.record(Stage.DEDUPE, sampled - sampleStart);
+        tracker.saveVersion(base != null
+                ? new FileVersion(fileId, run.feed.id(), descriptor.sourcePath(), descriptor.sizeBytes(), sample,
+                destPath, base.fileId(), base.sizeBytes(), appendedChecksum)
+                : FileVersion.copied(fileId, run.feed.id(), descriptor.sourcePath(), descriptor.sizeBytes(), sample,
+                destPath));
+        run.meters.record(Stage.TRACKER, System.nanoTime() - sampled);
+    }
+
+    /**
+     * Index the newest copy of some content, which is also the one least likely to have been
+     * overwritten. The index only saves later copies, so failing to update it does not fail this one.
+     */
+    private void saveContent(RunContext run, ContentRef ref) {
+        long start = System.nanoTime();
+        try {
+            tracker.saveContent(ref);
+        } catch (RuntimeException e) {
+            LOG.warnf(e, "Failed to index content of %s; identical files will be copied again", ref.location());
+        }
+        run.meters.record(Stage.TRACKER, System.nanoTime() - start);
+    }
+
+    /**
+     * Run one attempt at a file and retry it after transient failures, with backoff, until it
+     * succeeds, {@code transfer.maxRetries} retries have failed or the feed's circuit opens.
+     * Every outcome is reported to the circuit breaker; a missing or unreadable file still
+     * shows the source is answering. The worker gives up its global permit and source slot
+     * while it waits, so a flaky file does not hold back other feeds.
+     */
+    private <T> T withRetries(RunContext run, FileDescriptor descriptor, Attempt<T> attempt) throws IOException {
+        for (int retry = 1; ; retry++) {
+            try {
+                T result = attempt.run();
+                run.breaker.onSuccess();
+                return result;
+            } catch (IOException e) {
+                if (!isTransient(e)) {
+                    run.breaker.onSuccess();
+                    throw e;
+                }
+                // Opens that fail and reads that drop part way both count against the source root
+                if (run.sourceLimit != null) {
+                    run.sourceLimit.onError();
+                }
+                if (run.breaker.onFailure()) {
+                    LOG.warnf("Circuit opened for feed %s after %d consecutive failures; pausing it for %s",
+                            run.feed.id(), run.breaker.failures(), circuitOpenFor);
+                }
+                if (retry > maxRetries || run.breaker.state() != CircuitBreaker.State.CLOSED) {
+                    throw e;
+                }
+                long delay = backoff.delayMillis(retry);
+                LOG.warnf("Attempt %d of %d at %s failed, retrying in %d ms: %s",
+                        retry, maxRetries + 1, descriptor.sourcePath(), delay, e.getMessage());
+                run.meters.fileRetried();
+                // Other feeds get the global permit and source slot while this file waits
+                Slot slot = SLOT.get();
+                try {
+                    if (slot != null) {
+                        slot.release();
+                    }
+                    Thread.sleep(delay);
+                    if (slot != null) {
+                        slot.acquire();
+                    }
+                } catch (InterruptedException interrupted) {
+                    Thread.currentThread().interrupt();
+                    e.addSuppressed(interrupted);
+                    throw e;
+                }
+            }
+        }
+    }
+
+    @FunctionalInterface
+    private interface Attempt<T> {
+        T run() throws IOException;
+    }
+
+    /**
+     * Failures worth retrying: anything but a file that is gone or cannot be read.
+     */
+    private static boolean isTransient(IOException e) {
+        return !(e instanceof NoSuchFileException || e instanceof AccessDeniedException
+                || e instanceof FileNotFoundException);
+    }
+
+    /**
+     * Record a file the run did not attempt because its feed's circuit is open. Its tracker
+     * record is left as it was, so the next run picks it up.
+     */
+    private void reject(RunContext run, PendingFile pending) {
+        LOG.debugf("Circuit open for feed %s, not attempting %s", run.feed.id(), pending.descriptor().sourcePath());
+        run.meters.fileRejected();
+        run.record(TransferResult.failed(pending.fileId(), pending.descriptor().sourcePath(),
+                "Not attempted: circuit open for feed " + run.feed.id()));
+    }
+
+    /**
+     * Copy the file as one stream, continuing from the sink's committed offset.
+     */
+    private Copy copyWhole(RunContext run, FileId fileId, FileDescriptor descriptor, String destPath,
+                           ResumeState journal, CommitListener listener) throws IOException {
+        ResumeState resume = resumePoint(fileId, journal, destPath);
+        StreamingChecksum checksum = newChecksum(run, descriptor, resume);
+        long bytesWritten = transferFile(run, descriptor, destPath, resume, checksum, listener);
+        String sourceChecksum = checksum != null ? verify(destPath, checksum) : null;
+        return new Copy(bytesWritten, resume.bytesCommitted(), sourceChecksum, null);
+    }
+
+    /**
+     * Copy the file through the feed's codec. The source is compressed again from byte 0 on
+     * every attempt and the part of the output the sink already holds is skipped, so the
+     * source checksum (of the uncompressed bytes) and the checksum compared with the sink's (of
+     * the stored bytes) both cover the whole file.
+     */
+    private Copy copyCompressed(RunContext run, FileId fileId, FileDescriptor descriptor, String destPath,
+                                ResumeState journal, CommitListener listener) throws IOException {
+        ResumeState resume = resumePoint(fileId, journal, destPath);
+        StreamingChecksum checksum = newChecksum(run, descriptor, ResumeState.fresh(fileId));
+        StreamingChecksum stored = checksum != null ? StreamingChecksum.of(checksumAlgorithm) : null;
+        long start = System.nanoTime();
+        try (ReadableByteChannel source = openSource(run, descriptor, 0);
+             CompressingChannel out = compression.compress(
+                     checksum != null ? new ChecksummingChannel(source, checksum::update) : source,
+                     descriptor.sizeBytes(), run.feed, run.codec)) {
+            long opened = System.nanoTime();
+            run.meters.record(Stage.OPEN, opened - start);
+            ReadableByteChannel in = stored != null ? new ChecksummingChannel(out, stored::update) : out;
+            skip(in, resume.bytesCommitted());
+            long bytesWritten = sink.write(destPath, in, resume, -1, sinkMetadata(descriptor, run.codec), listener);
+            run.meters.record(Stage.WRITE, System.nanoTime() - opened);
+            if (stored != null) {
+                verify(destPath, stored);
+            }
+            return new Copy(bytesWritten, resume.bytesCommitted(), checksum != null ? checksum.finish() : null,
+                    out.compressedBytes());
+        }
+    }
+
+    /**
+     * Read and discard bytes the sink already holds.
+     */
+    private void skip(ReadableByteChannel in, long bytes) throws IOException {
+        ByteBuffer buffer = buffers.acquire(PREFIX_HASH_BUFFER);
+        try {
+            while (bytes > 0) {
+                buffer.clear().limit((int) Math.min(buffer.capacity(), bytes));
+                if (in.read(buffer) < 0) {
+                    throw new IOException("Output ended before the " + bytes + " bytes the sink already holds");
+                }
+                bytes -= buffer.position();
+            }
+        } finally {
+            buffers.release(buffer);
+        }
+    }
+
+    /**
+     * Copy the file as concurrent ranges, keeping the ranges an earlier attempt finished.
+     */
+    private Copy copyRanges(RunContext run, FileId fileId, FileDescriptor descriptor, String destPath,
+                            ResumeState journal, CommitListener listener) throws IOException {
+        long start = System.nanoTime();
+        RangedTransfer.Result result = rangedTransfer.copy(fileId, destPath, descriptor.sizeBytes(), journal,
+                offset -> openSource(run, descriptor, offset), sinkMetadata(descriptor), listener);
+        run.meters.record(Stage.WRITE, System.nanoTime() - start);
+        return new Copy(result.bytesWritten(), result.bytesResumed(), result.checksum(), null);
+    }
+
+    private boolean isRanged(FileDescriptor descriptor) {
+        return rangedThresholdBytes > 0 && descriptor.sizeBytes() > rangedThresholdBytes && sink.supportsRanges();
+    }
+
+    /**
+     * Read a small file whole and append it to the run's open bundle, uploading the bundle if
+     * this member completed it. Members are only marked copied once their bundle is uploaded.
+     */
+    private void bundleFile(RunContext run, PendingFile pending) {
+        FileDescriptor descriptor = pending.descriptor();
+        long start = System.nanoTime();
+        run.meters.fileStarted();
+
+        Bundle completed;
+        try {
+            ByteBuffer data = withRetries(run, descriptor, () -> readWhole(run, descriptor));
+            String checksum = null;
+            if (checksumAlgorithm != ChecksumAlgorithm.NONE) {
+                StreamingChecksum digest = StreamingChecksum.of(checksumAlgorithm);
+                digest.update(data.duplicate());
+                checksum = digest.finish();
+            }
+            completed = run.bundles.add(pending.fileId(), descriptor, extractFilename(descriptor.sourcePath()), data,
+                    checksum, start);
+        } catch (Exception e) {
+            LOG.errorf(e, "Failed to bundle file: %s", descriptor.sourcePath());
+            run.meters.fileFailed(e);
+            run.statuses.add(new StatusUpdate(pending.fileId(), FileStatus.FAILED, null));
+            run.record(TransferResult.failed(pending.fileId(), descriptor.sourcePath(), e.getMessage()));
+            return;
+        }
+        if (completed != null) {
+            uploadBundle(run, completed);
+        }
+    }
+
+    private void flushBundles(RunContext run) {
+        try {
+            Bundle last = run.bundles.flush();
+            if (last != null) {
+                uploadBundle(run, last);
+            }
+        } catch (IOException e) {
+            LOG.errorf(e, "Failed to finish the last bundle for feed %s", run.feed.id());
+        }
+    }
+
+    private void uploadBundle(RunContext run, Bundle bundle) {
+        long start = System.nanoTime();
+        try {
+            bundle.upload(sink);
+        } catch (Exception e) {
+            LOG.errorf(e, "Failed to upload bundle %s (%d files)", bundle.destPath(), bundle.members().size());
+            for (BundleWriter.Member member : bundle.members()) {
+                run.meters.fileFailed(e);
+                run.statuses.add(new StatusUpdate(member.fileId(), FileStatus.FAILED, null));
+                run.record(TransferResult.failed(member.fileId(), member.sourcePath(), e.getMessage()));
+            }
+            return;
+        }
+        long uploaded = System.nanoTime();
+        run.meters.record(Stage.WRITE, uploaded - start);
+
+        for (BundleWriter.Member member : bundle.members()) {
+            run.statuses.add(new StatusUpdate(member.fileId(), FileStatus.COPIED, bundle.destPath(), member.checksum(),
+                    member.offset()),
+                    TransferResult.success(member.fileId(), member.sourcePath(), bundle.destPath(), member.size()),
+                    () -> run.meters.fileCopied(member.size(), uploaded - member.startedNanos(), false));
+        }
+        LOG.infof("Copied bundle %s (%d files)", bundle.destPath(), bundle.members().size());
+    }
+
+    /**
+     * Read a whole source file, which must still be the size it was listed with.
+     */
+    private ByteBuffer readWhole(RunContext run, FileDescriptor descriptor) throws IOException {
+        long start = System.nanoTime();
+        ByteBuffer data = ByteBuffer.allocate((int) descriptor.sizeBytes());
+        try (ReadableByteChannel in = openSource(run, descriptor, 0)) {
+            run.meters.record(Stage.OPEN, System.nanoTime() - start);
+            while (data.hasRemaining()) {
+                if (in.read(data) < 0) {
+                    throw new IOException("Source shorter than its listed size " + descriptor.sizeBytes());
+                }
+            }
+            if (in.read(ByteBuffer.allocate(1)) > 0) {
+                throw new IOException("Source grew past its listed size " + descriptor.sizeBytes());
+            }
+        }
+        return data.flip();
+    }
+
+    /**
+     * Work out where to start copying. A file with a journal entry (left by a crash or an
+     * error mid-copy) continues from the journalled offset, capped by what the sink still holds.
+     */
+    private ResumeState resumePoint(FileId fileId, ResumeState journal, String destPath) throws IOException {
+        if (journal == null || RangedTransfer.isRangeJournal(journal)) {
+            return ResumeState.fresh(fileId);
+        }
+
+        long committed = sink.committedBytes(destPath, journal);
+        return committed > 0
+                ? journal.withProgress(journal.sinkSessionId(), committed)
+                : ResumeState.fresh(fileId);
+    }
+
+    /**
+     * Start the checksum for a copy, or null when checksums are off. A resumed copy first
+     * hashes the already committed prefix from the source, the only bytes read twice.
+     */
+    private StreamingChecksum newChecksum(RunContext run, FileDescriptor descriptor, ResumeState resume) throws IOException {
+        if (checksumAlgorithm == ChecksumAlgorithm.NONE) {
+            return null;
+        }
+        StreamingChecksum checksum = checksumTreeLeafBytes > 0 && descriptor.sizeBytes() > checksumTreeLeafBytes
+                ? StreamingChecksum.tree(checksumAlgorithm, checksumTreeLeafBytes)
+                : StreamingChecksum.of(checksumAlgorithm);
+
+        long remaining = resume.bytesCommitted();
+        if (remaining > 0) {
+            try (ReadableByteChannel in = openSource(run, descriptor, 0)) {
+                ByteBuffer buffer = buffers.acquire(PREFIX_HASH_BUFFER);
+                try {
+                    while (remaining > 0) {
+                        buffer.clear().limit((int) Math.min(buffer.capacity(), remaining));
+                        if (in.read(buffer) < 0) {
+                            throw new IOException("Source shorter than committed offset " + resume.bytesCommitted());
+                        }
+                        remaining -= buffer.flip().remaining();
+                        checksum.update(buffer);
+                    }
+                } finally {
+                    buffers.release(buffer);
+                }
+            }
+        }
+        return checksum;
+    }
+
+    /**
+     * Finish the source checksum and compare it with the one the sink reports, if any.
+     */
+    private String verify(String destPath, StreamingChecksum checksum) throws IOException {
+        String sourceChecksum = checksum.finish();
+        if (checksum.isPlain()) {
+            Optional<String> reported = sink.reportedChecksum(destPath, checksumAlgorithm);
+            if (reported.isPresent() && !reported.get().equals(sourceChecksum)) {
+                throw new ChecksumMismatchException("Checksum mismatch for " + destPath + ": source " + sourceChecksum
+                        + ", sink " + reported.get());
+            }
         }
+        return sourceChecksum;
     }
 
-    private long transferFile(FileDescriptor descriptor, String destPath) throws IOException {
-        try (InputStream in = sourceProvider.open(descriptor, 0)) {
-            return sink.write(
+    /**
+     * Open the source through the feed's limits. The time taken to open feeds the source
+     * root's adaptive limit, and failures other than a missing or unreadable file count as
+     * congestion on it.
+     */
+    private ReadableByteChannel openSource(RunContext run, FileDescriptor descriptor, long offset) throws IOException {
+        long start = System.nanoTime();
+        // Failures are reported to the source limit by withRetries, with those of the reads
+        ReadableByteChannel channel = sourceProvider.openChannel(descriptor, offset);
+        if (run.sourceLimit != null) {
+            run.sourceLimit.onSample(System.nanoTime() - start);
+        }
+        return limits.throttle(run.feed, channel);
+    }
+
+    private long transferFile(RunContext run, FileDescriptor descriptor, String destPath, ResumeState resume,
+                              StreamingChecksum checksum, CommitListener listener) throws IOException {
+        FeedMetrics meters = run.meters;
+        long start = System.nanoTime();
+        try (ReadableByteChannel source = openSource(run, descriptor, resume.bytesCommitted())) {
+            long opened = System.nanoTime();
+            meters.record(Stage.OPEN, opened - start);
+            // Teeing through the checksum costs the sink its zero-copy path for file sources
+            ReadableByteChannel in = checksum != null ? new ChecksummingChannel(source, checksum::update) : source;
+            long written = sink.write(
                     destPath,
                     in,
-                    0,
+                    resume,
                     descriptor.sizeBytes(),
-                    Map.of(
-                            "source", descriptor.sourcePath(),
-                            "size", String.valueOf(descriptor.sizeBytes()),
-                            "mtime", String.valueOf(descriptor.mtimeEpochMs())
-                    )
+                    sinkMetadata(descriptor),
+                    listener
             );
+            meters.record(Stage.WRITE, System.nanoTime() - opened);
+            return written;
+        }
+    }
+
+    private static Map<String, String> sinkMetadata(FileDescriptor descriptor) {
+        return Map.of(
+                "source", descriptor.sourcePath(),
+                "size", String.valueOf(descriptor.sizeBytes()),
+                "mtime", String.valueOf(descriptor.mtimeEpochMs())
+        );
+    }
+
+    /**
+     * Metadata of an object stored with codec; {@code size} stays the uncompressed size.
+     */
+    private static Map<String, String> sinkMetadata(FileDescriptor descriptor, CompressionCodec codec) {
+        if (codec == CompressionCodec.NONE) {
+            return sinkMetadata(descriptor);
         }
+        return Map.of(
+                "source", descriptor.sourcePath(),
+                "size", String.valueOf(descriptor.sizeBytes()),
+                "mtime", String.valueOf(descriptor.mtimeEpochMs()),
+                "codec", codec.label()
+        );
     }
 
     private String buildDestPath(Feed feed, FileDescriptor descriptor) {
@@ -138,4 +1161,83 @@ public class TransferOrchestrationService {
         int lastSep = Math.max(path.lastIndexOf('/'), path.lastIndexOf('\\'));
         return lastSep >= 0 ? path.substring(lastSep + 1) : path;
     }
-}
\ No newline at end of file
+
+    private record PendingFile(FileId fileId, FileDescriptor descriptor) {
+    }
+
+    private record FeedPermits(int permits, Semaphore semaphore) {
+    }
+
+    /**
+     * Outcome of copying one file: bytes written now, bytes kept from an earlier attempt, the
+     * source checksum (or null) and the size of the stored object when it was compressed.
+     */
+    private record Copy(long bytesWritten, long bytesResumed, String checksum, Long compressedBytes) {
+    }
+
+    /**
+     * State shared by the workers of a single run.
+     */
+    private static final class RunContext {
+        final String runId;
+        final Instant startedAt = Instant.now();
+        final Feed feed;
+        final Map<FileId, ResumeState> resumes;
+        final StatusBatcher statuses;
+        final FeedMetrics meters;
+        /** Adaptive limit of the feed's source root, or null when adaptive limiting is off. */
+        final AdaptiveLimiter sourceLimit;
+        final CircuitBreaker breaker;
+        /** Bundles small files, or null when the feed does not bundle. */
+        final BundleWriter bundles;
+        final CompressionCodec codec;
+        final boolean dedupeContent;
+        final boolean appendOnly;
+        final RunListener listener;
+        final LongAdder discovered = new LongAdder();
+        final LongAdder copied = new LongAdder();
+        final LongAdder skipped = new LongAdder();
+        final LongAdder failed = new LongAdder();
+        final LongAdder bytes = new LongAdder();
+
+        RunContext(String runId, Feed feed, Map<FileId, ResumeState> resumes,
+                   Function<Consumer<TransferResult>, StatusBatcher> statuses, FeedMetrics meters,
+                   AdaptiveLimiter sourceLimit, CircuitBreaker breaker, BundleWriter bundles, CompressionCodec codec,
+                   boolean dedupeContent, boolean appendOnly, RunListener listener) {
+            this.runId = runId;
+            this.feed = feed;
+            this.resumes = resumes;
+            this.meters = meters;
+            this.sourceLimit = sourceLimit;
+            this.breaker = breaker;
+            this.bundles = bundles;
+            this.codec = codec;
+            this.dedupeContent = dedupeContent;
+            this.appendOnly = appendOnly;
+            this.listener = listener;
+            // Results of copies are reported by the batcher, once their status is saved
+            this.statuses = statuses.apply(this::record);
+        }
+
+        void record(TransferResult result) {
+            switch (result.status()) {
+                case SUCCESS -> {
+                    copied.increment();
+                    bytes.add(result.bytesTransferred());
+                }
+                case SKIPPED -> skipped.increment();
+                case FAILED -> failed.increment();
+            }
+            try {
+                listener.onResult(result);
+            } catch (RuntimeException e) {
+                LOG.warnf(e, "Run listener failed for %s", result.sourcePath());
+            }
+        }
+
+        Run summary(RunStatus status, Instant endedAt) {
+            return new Run(runId, feed.id(), startedAt, endedAt, status, discovered.sum(), copied.sum(),
+                    skipped.sum(), failed.sum(), bytes.sum());
+        }
+    }
+}
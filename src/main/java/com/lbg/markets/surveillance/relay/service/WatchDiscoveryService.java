@@ -0,0 +1,167 @@
+package com.lbg.markets.surveillance.relay.service;
+
+import com.lbg.markets.surveillance.relay.domain.Feed;
+import com.lbg.markets.surveillance.relay.domain.FileDescriptor;
+import com.lbg.markets.surveillance.relay.source.DiscoveryListener;
+import com.lbg.markets.surveillance.relay.source.SourceProvider;
+import io.quarkus.runtime.ShutdownEvent;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.enterprise.event.Observes;
+import jakarta.inject.Inject;
+import org.eclipse.microprofile.config.inject.ConfigProperty;
+import org.jboss.logging.Logger;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Event-driven discovery: files pushed by {@link SourceProvider#watch} are transferred as soon
+ * as they settle, instead of waiting for the next full listing.
+ * <p>
+ * Each watched feed has one virtual thread that drains pushed files in batches and, every
+ * {@code transfer.watch.reconcileInterval} (and immediately after lost events), runs a full
+ * {@link TransferOrchestrationService#executeTransfer} to catch anything the watch missed.
+ * The first reconcile runs at start-up, covering files that landed before the watch.
+ * Pushed files and reconciles never run concurrently for the same feed.
+ */
+@ApplicationScoped
+public class WatchDiscoveryService {
+
+    private static final Logger LOG = Logger.getLogger(WatchDiscoveryService.class);
+
+    /** Feed metadata key selecting the discovery mode; {@value #DISCOVERY_WATCH} enables watching. */
+    public static final String DISCOVERY_KEY = "discovery";
+    public static final String DISCOVERY_WATCH = "watch";
+
+    @Inject
+    SourceProvider sourceProvider;
+
+    @Inject
+    TransferOrchestrationService orchestrator;
+
+    @ConfigProperty(name = "transfer.watch.quietPeriod", defaultValue = "5s")
+    Duration quietPeriod;
+
+    @ConfigProperty(name = "transfer.watch.reconcileInterval", defaultValue = "15m")
+    Duration reconcileInterval;
+
+    @ConfigProperty(name = "transfer.batchSize", defaultValue = "500")
+    int batchSize;
+
+    private final Map<String, FeedWatch> watches = new ConcurrentHashMap<>();
+
+    public static boolean isWatchFeed(Feed feed) {
+        return DISCOVERY_WATCH.equals(String.valueOf(feed.metadata().get(DISCOVERY_KEY)));
+    }
+
+    /**
+     * Start watching the feed. Sources that cannot watch fall back to the periodic reconcile alone.
+     */
+    public void watch(Feed feed) {
+        watches.computeIfAbsent(feed.id(), id -> {
+            FeedWatch watch = new FeedWatch(feed);
+            watch.start();
+            return watch;
+        });
+    }
+
+    public void unwatch(String feedId) {
+        FeedWatch watch = watches.remove(feedId);
+        if (watch != null) {
+            watch.stop();
+        }
+    }
+
+    public boolean isWatching(String feedId) {
+        return watches.containsKey(feedId);
+    }
+
+    void onStop(@Observes ShutdownEvent event) {
+        watches.keySet().forEach(this::unwatch);
+    }
+
+    private final class FeedWatch implements DiscoveryListener {
+
+        private final Feed feed;
+        private final BlockingQueue<FileDescriptor> pushed = new LinkedBlockingQueue<>();
+        private volatile boolean reconcileRequested = true;
+        private volatile boolean stopped;
+        private Optional<Closeable> handle = Optional.empty();
+        private Thread thread;
+
+        FeedWatch(Feed feed) {
+            this.feed = feed;
+        }
+
+        void start() {
+            try {
+                handle = sourceProvider.watch(feed, quietPeriod, this);
+                if (handle.isEmpty()) {
+                    LOG.infof("Source for feed %s cannot watch; listing every %s", feed.id(), reconcileInterval);
+                }
+            } catch (IOException e) {
+                LOG.errorf(e, "Failed to watch feed %s; listing every %s", feed.id(), reconcileInterval);
+            }
+            thread = Thread.ofVirtual().name("watch-" + feed.id()).start(this::loop);
+        }
+
+        void stop() {
+            stopped = true;
+            handle.ifPresent(h -> {
+                try {
+                    h.close();
+                } catch (IOException e) {
+                    LOG.warnf(e, "Failed to close watch for feed %s", feed.id());
+                }
+            });
+            thread.interrupt();
+        }
+
+        @Override
+        public void discovered(List<FileDescriptor> files) {
+            pushed.addAll(files);
+        }
+
+        @Override
+        public void eventsLost() {
+            reconcileRequested = true;
+        }
+
+        private void loop() {
+            long nextReconcile = System.nanoTime();
+            while (!stopped) {
+                try {
+                    if (reconcileRequested || System.nanoTime() - nextReconcile >= 0) {
+                        reconcileRequested = false;
+                        nextReconcile = System.nanoTime() + reconcileInterval.toNanos();
+                        orchestrator.executeTransfer(feed);
+                    }
+
+                    long waitNanos = Math.max(0, nextReconcile - System.nanoTime());
+                    FileDescriptor first = pushed.poll(Math.min(waitNanos, TimeUnit.SECONDS.toNanos(1)), TimeUnit.NANOSECONDS);
+                    if (first != null) {
+                        List<FileDescriptor> batch = new ArrayList<>(List.of(first));
+                        pushed.drainTo(batch, batchSize - 1);
+                        orchestrator.transferDiscovered(feed, batch);
+                    }
+                } catch (InterruptedException e) {
+                    return;
+                } catch (RuntimeException e) {
+                    if (stopped) {
+                        return;
+                    }
+                    LOG.errorf(e, "Watch transfer failed for feed %s", feed.id());
+                }
+            }
+        }
+    }
+}
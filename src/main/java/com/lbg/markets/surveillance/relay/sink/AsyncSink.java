@@ -0,0 +1,75 @@
+package com.lbg.markets.surveillance.relay.sink;
+
+import com.lbg.markets.surveillance.relay.domain.ResumeState;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.ReadableByteChannel;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Flow;
+
+/**
+ * Non-blocking counterpart of
+ * {@link Sink#write(String, ReadableByteChannel, ResumeState, long, Map, CommitListener)} for
+ * network-bound destinations.
+ * <p>
+ * The body is a reactive stream of chunks pulled with demand-based back-pressure (e.g. a
+ * {@link ChannelPublisher}), so an upload in flight holds no thread while it waits on the
+ * network or the source, only the memory for the chunks it has asked for. {@link #of(Sink)}
+ * adapts a blocking sink, and {@link #await} turns an async write back into a blocking one,
+ * which is how native async sinks implement {@link Sink}.
+ */
+public interface AsyncSink {
+
+    /**
+     * Write the {@code length} byte object destPath, continuing from
+     * {@code resume.bytesCommitted()}; body carries the bytes from that offset on. Progress is
+     * reported to listener as in the blocking write. A negative length means the body's size is
+     * not known until it completes.
+     *
+     * @return completes with the bytes written by this call, or with the IOException that failed it
+     */
+    CompletionStage<Long> writeAsync(String destPath, Flow.Publisher<ByteBuffer> body, ResumeState resume,
+                                     long length, Map<String, String> metadata, CommitListener listener);
+
+    /**
+     * The sink itself if it is natively async; otherwise an adapter running each blocking write
+     * on its own virtual thread.
+     */
+    static AsyncSink of(Sink sink) {
+        if (sink instanceof AsyncSink async) {
+            return async;
+        }
+        return (destPath, body, resume, length, metadata, listener) -> {
+            CompletableFuture<Long> result = new CompletableFuture<>();
+            Thread.ofVirtual().name("sink-write").start(() -> {
+                try (PublisherChannel in = new PublisherChannel(body)) {
+                    result.complete(sink.write(destPath, in, resume, length, metadata, listener));
+                } catch (IOException | RuntimeException e) {
+                    result.completeExceptionally(e);
+                }
+            });
+            return result;
+        };
+    }
+
+    /**
+     * Block until an async write finishes. Interrupting the caller cancels the returned stage.
+     */
+    static long await(CompletionStage<Long> write) throws IOException {
+        CompletableFuture<Long> future = write.toCompletableFuture();
+        try {
+            return future.get();
+        } catch (InterruptedException e) {
+            future.cancel(true);
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted waiting for a sink write");
+        } catch (ExecutionException e) {
+            throw PublisherChannel.ioException(e.getCause());
+        }
+    }
+}
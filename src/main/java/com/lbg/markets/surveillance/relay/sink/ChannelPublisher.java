@@ -0,0 +1,150 @@
+package com.lbg.markets.surveillance.relay.sink;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.ReadableByteChannel;
+import java.util.concurrent.Flow;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Publishes the next {@code length} bytes of a channel (or, for a negative length, the rest of
+ * it) as chunks of up to {@code chunkBytes}, reading only as far ahead as the subscriber has
+ * asked for.
+ * <p>
+ * Reads run on a virtual thread that exists only while there is outstanding demand, so a
+ * subscriber waiting on the network holds no thread on this side. A channel that ends early
+ * fails the stream with an {@link EOFException}. Each chunk is a fresh buffer the subscriber
+ * may keep. One subscriber only; the caller still owns and closes the channel.
+ */
+public final class ChannelPublisher implements Flow.Publisher<ByteBuffer> {
+
+    public static final int DEFAULT_CHUNK_BYTES = 64 * 1024;
+
+    private final ReadableByteChannel in;
+    private final long length;
+    private final int chunkBytes;
+    private final AtomicBoolean subscribed = new AtomicBoolean();
+
+    public ChannelPublisher(ReadableByteChannel in, long length) {
+        this(in, length, DEFAULT_CHUNK_BYTES);
+    }
+
+    public ChannelPublisher(ReadableByteChannel in, long length, int chunkBytes) {
+        this.in = in;
+        this.length = length;
+        this.chunkBytes = Math.max(1, chunkBytes);
+    }
+
+    @Override
+    public void subscribe(Flow.Subscriber<? super ByteBuffer> subscriber) {
+        ChannelSubscription subscription = new ChannelSubscription(subscriber);
+        subscriber.onSubscribe(subscription);
+        if (!subscribed.compareAndSet(false, true)) {
+            subscription.fail(new IllegalStateException("A channel can only be published to one subscriber"));
+        } else if (length == 0) {
+            subscription.complete();
+        }
+    }
+
+    private final class ChannelSubscription implements Flow.Subscription {
+        private final Flow.Subscriber<? super ByteBuffer> subscriber;
+        private final AtomicLong demand = new AtomicLong();
+        /** Requests not yet seen by the drain loop; the loop runs while this is non-zero. */
+        private final AtomicInteger pending = new AtomicInteger();
+        private volatile boolean done;
+        private long published;
+
+        ChannelSubscription(Flow.Subscriber<? super ByteBuffer> subscriber) {
+            this.subscriber = subscriber;
+        }
+
+        @Override
+        public void request(long n) {
+            if (n <= 0) {
+                fail(new IllegalArgumentException("Demand must be positive, got " + n));
+                return;
+            }
+            demand.accumulateAndGet(n, (current, more) -> current + more < 0 ? Long.MAX_VALUE : current + more);
+            if (pending.getAndIncrement() == 0) {
+                Thread.ofVirtual().name("channel-publisher").start(this::drain);
+            }
+        }
+
+        @Override
+        public void cancel() {
+            done = true;
+        }
+
+        private void drain() {
+            int missed = 1;
+            do {
+                while (!done && demand.get() > 0) {
+                    ByteBuffer chunk;
+                    try {
+                        chunk = read();
+                    } catch (IOException e) {
+                        fail(e);
+                        break;
+                    }
+                    if (chunk == null) {
+                        complete();
+                        break;
+                    }
+                    published += chunk.remaining();
+                    demand.decrementAndGet();
+                    try {
+                        subscriber.onNext(chunk);
+                    } catch (RuntimeException e) {
+                        // A subscriber that throws has cancelled
+                        done = true;
+                        break;
+                    }
+                    if (published == length) {
+                        complete();
+                    }
+                }
+                missed = pending.addAndGet(-missed);
+            } while (missed != 0);
+        }
+
+        /**
+         * The next chunk, or null once a channel of unknown length has ended.
+         */
+        private ByteBuffer read() throws IOException {
+            if (length < 0) {
+                ByteBuffer chunk = ByteBuffer.allocate(chunkBytes);
+                while (chunk.hasRemaining()) {
+                    if (in.read(chunk) < 0) {
+                        break;
+                    }
+                }
+                return chunk.position() > 0 ? chunk.flip() : null;
+            }
+            ByteBuffer chunk = ByteBuffer.allocate((int) Math.min(chunkBytes, length - published));
+            while (chunk.hasRemaining()) {
+                if (in.read(chunk) < 0) {
+                    throw new EOFException("Source ended at " + (published + chunk.position()) + " of "
+                            + length + " bytes");
+                }
+            }
+            return chunk.flip();
+        }
+
+        void complete() {
+            if (!done) {
+                done = true;
+                subscriber.onComplete();
+            }
+        }
+
+        void fail(Throwable failure) {
+            if (!done) {
+                done = true;
+                subscriber.onError(failure);
+            }
+        }
+    }
+}
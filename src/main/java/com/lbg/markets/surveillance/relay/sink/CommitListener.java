@@ -0,0 +1,16 @@
+package com.lbg.markets.surveillance.relay.sink;
+
+import com.lbg.markets.surveillance.relay.domain.ResumeState;
+
+/**
+ * Callback invoked by a sink each time a further range of bytes is durable,
+ * so the caller can journal the committed offset for resume.
+ */
+@FunctionalInterface
+public interface CommitListener {
+
+    CommitListener NONE = state -> {
+    };
+
+    void committed(ResumeState state);
+}
@@ -0,0 +1,75 @@
+package com.lbg.markets.surveillance.relay.sink;
+
+import jakarta.json.Json;
+import jakarta.json.JsonObject;
+import jakarta.json.JsonReader;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Optional;
+
+/**
+ * OAuth access token for GCS, fetched from the GCE/GKE metadata server (Workload Identity)
+ * and cached until shortly before it expires. Disabled for emulators and tests.
+ */
+final class GcsAccessToken {
+
+    private static final URI METADATA_TOKEN_URI = URI.create(
+            "http://metadata.google.internal/computeMetadata/v1/instance/service-accounts/default/token");
+    private static final Duration REFRESH_MARGIN = Duration.ofMinutes(1);
+
+    private final HttpClient http;
+    private final boolean enabled;
+    private String token;
+    private Instant expiresAt = Instant.EPOCH;
+
+    private GcsAccessToken(HttpClient http, boolean enabled) {
+        this.http = http;
+        this.enabled = enabled;
+    }
+
+    static GcsAccessToken fromMetadataServer(HttpClient http) {
+        return new GcsAccessToken(http, true);
+    }
+
+    static GcsAccessToken none() {
+        return new GcsAccessToken(null, false);
+    }
+
+    /**
+     * Current bearer token, or empty when authentication is disabled.
+     */
+    synchronized Optional<String> get() throws IOException {
+        if (!enabled) {
+            return Optional.empty();
+        }
+        if (token == null || Instant.now().isAfter(expiresAt.minus(REFRESH_MARGIN))) {
+            refresh();
+        }
+        return Optional.of(token);
+    }
+
+    private void refresh() throws IOException {
+        HttpRequest request = HttpRequest.newBuilder(METADATA_TOKEN_URI)
+                .header("Metadata-Flavor", "Google")
+                .GET()
+                .build();
+
+        HttpResponse<String> response = GcsSink.send(http, request, HttpResponse.BodyHandlers.ofString());
+        if (response.statusCode() != 200) {
+            throw new IOException("Metadata server returned " + response.statusCode() + " for access token");
+        }
+
+        try (JsonReader reader = Json.createReader(new StringReader(response.body()))) {
+            JsonObject json = reader.readObject();
+            token = json.getString("access_token");
+            expiresAt = Instant.now().plusSeconds(json.getJsonNumber("expires_in").longValue());
+        }
+    }
+}
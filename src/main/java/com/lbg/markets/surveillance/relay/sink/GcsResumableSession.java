@@ -0,0 +1,157 @@
+package com.lbg.markets.surveillance.relay.sink;
+
+import jakarta.json.Json;
+import jakarta.json.JsonObjectBuilder;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.net.URI;
+import java.net.URLEncoder;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * One GCS resumable upload session (JSON API).
+ * The session URI is all that is needed to continue the upload from another process.
+ * Starting a session and sending chunks are asynchronous; nothing waits on a thread for GCS.
+ */
+final class GcsResumableSession {
+
+    /** Returned by {@link #queryCommitted()} when the session has expired or never existed. */
+    static final long SESSION_GONE = -1;
+
+    private static final int RESUME_INCOMPLETE = 308;
+
+    private final HttpClient http;
+    private final GcsAccessToken accessToken;
+    private final URI sessionUri;
+
+    GcsResumableSession(HttpClient http, GcsAccessToken accessToken, URI sessionUri) {
+        this.http = http;
+        this.accessToken = accessToken;
+        this.sessionUri = sessionUri;
+    }
+
+    /**
+     * Initiate a new session for bucket/objectName; a negative length leaves the size to the final chunk.
+     */
+    static CompletableFuture<GcsResumableSession> start(HttpClient http, GcsAccessToken accessToken, URI endpoint,
+                                                        String bucket, String objectName, Map<String, String> metadata,
+                                                        long length, boolean ifGenerationMatch) {
+        String query = "uploadType=resumable&name=" + URLEncoder.encode(objectName, StandardCharsets.UTF_8)
+                + (ifGenerationMatch ? "&ifGenerationMatch=0" : "");
+        URI uri = endpoint.resolve("/upload/storage/v1/b/" + bucket + "/o?" + query);
+
+        JsonObjectBuilder customMetadata = Json.createObjectBuilder();
+        metadata.forEach(customMetadata::add);
+        String body = Json.createObjectBuilder()
+                .add("name", objectName)
+                .add("metadata", customMetadata)
+                .build()
+                .toString();
+
+        HttpRequest.Builder request = HttpRequest.newBuilder(uri)
+                .header("Content-Type", "application/json; charset=UTF-8")
+                .POST(HttpRequest.BodyPublishers.ofString(body));
+        if (length >= 0) {
+            request.header("X-Upload-Content-Length", String.valueOf(length));
+        }
+        try {
+            authorize(request, accessToken);
+        } catch (IOException e) {
+            return CompletableFuture.failedFuture(e);
+        }
+
+        return http.sendAsync(request.build(), HttpResponse.BodyHandlers.ofString()).thenApply(response -> {
+            Optional<String> location = response.headers().firstValue("Location");
+            if (response.statusCode() != 200 || location.isEmpty()) {
+                throw new UncheckedIOException(new IOException("Failed to start upload session for " + objectName
+                        + ": HTTP " + response.statusCode() + " " + response.body()));
+            }
+            return new GcsResumableSession(http, accessToken, URI.create(location.get()));
+        });
+    }
+
+    URI uri() {
+        return sessionUri;
+    }
+
+    /**
+     * Upload the remaining bytes of chunk starting at object offset start.
+     * Non-final chunks must be a multiple of 256 KiB; pass totalLength only with the final chunk.
+     *
+     * The chunk's bytes are sent from its backing array, which must not change until this completes.
+     *
+     * @return completes with the bytes committed by GCS for the whole object after this request
+     */
+    CompletableFuture<Long> put(ByteBuffer chunk, long start, long totalLength) {
+        int length = chunk.remaining();
+        String total = totalLength >= 0 ? String.valueOf(totalLength) : "*";
+        String range = length == 0
+                ? "bytes */" + total
+                : "bytes " + start + "-" + (start + length - 1) + "/" + total;
+
+        HttpRequest.Builder request = HttpRequest.newBuilder(sessionUri)
+                .header("Content-Range", range)
+                .PUT(HttpRequest.BodyPublishers.ofByteArray(
+                        chunk.array(), chunk.arrayOffset() + chunk.position(), length));
+        try {
+            authorize(request, accessToken);
+        } catch (IOException e) {
+            return CompletableFuture.failedFuture(e);
+        }
+
+        return http.sendAsync(request.build(), HttpResponse.BodyHandlers.ofString()).thenApply(response -> {
+            if (isComplete(response.statusCode())) {
+                return start + length;
+            }
+            if (response.statusCode() == RESUME_INCOMPLETE) {
+                return committedFrom(response);
+            }
+            throw new UncheckedIOException(new IOException("Chunk upload failed at offset " + start + ": HTTP "
+                    + response.statusCode() + " " + response.body()));
+        });
+    }
+
+    /**
+     * Ask GCS how many bytes it has persisted for this session.
+     *
+     * @return committed bytes, or {@link #SESSION_GONE} if the session can no longer be used
+     */
+    long queryCommitted() throws IOException {
+        HttpRequest.Builder request = HttpRequest.newBuilder(sessionUri)
+                .header("Content-Range", "bytes */*")
+                .PUT(HttpRequest.BodyPublishers.noBody());
+        authorize(request, accessToken);
+
+        HttpResponse<String> response = GcsSink.send(http, request.build(), HttpResponse.BodyHandlers.ofString());
+        if (response.statusCode() == RESUME_INCOMPLETE) {
+            return committedFrom(response);
+        }
+        if (response.statusCode() == 404 || response.statusCode() == 410) {
+            return SESSION_GONE;
+        }
+        throw new IOException("Upload status query failed: HTTP " + response.statusCode() + " " + response.body());
+    }
+
+    private static long committedFrom(HttpResponse<?> response) {
+        // "Range: bytes=0-N" means N+1 bytes are persisted; no header means none are
+        return response.headers().firstValue("Range")
+                .map(range -> Long.parseLong(range.substring(range.indexOf('-') + 1)) + 1)
+                .orElse(0L);
+    }
+
+    private static boolean isComplete(int status) {
+        return status == 200 || status == 201;
+    }
+
+    private static void authorize(HttpRequest.Builder request, GcsAccessToken accessToken) throws IOException {
+        accessToken.get().ifPresent(token -> request.header("Authorization", "Bearer " + token));
+    }
+}
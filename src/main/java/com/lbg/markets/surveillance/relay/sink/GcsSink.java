@@ -1,17 +1,648 @@
 package com.lbg.markets.surveillance.relay.sink;
 
+import com.lbg.markets.surveillance.relay.domain.ResumeState;
+import com.lbg.markets.surveillance.relay.util.BufferPool;
+import com.lbg.markets.surveillance.relay.util.ChecksumAlgorithm;
 import io.quarkus.arc.profile.IfBuildProfile;
 import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.inject.Inject;
+import jakarta.json.Json;
+import jakarta.json.JsonArrayBuilder;
+import jakarta.json.JsonObject;
+import jakarta.json.JsonObjectBuilder;
+import jakarta.json.JsonReader;
+import org.eclipse.microprofile.config.inject.ConfigProperty;
+import org.jboss.logging.Logger;
 
+import java.io.EOFException;
 import java.io.IOException;
 import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.io.StringReader;
+import java.net.URI;
+import java.net.URLEncoder;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.HashSet;
+import java.util.List;
 import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Flow;
 
+/**
+ * GCS sink using resumable upload sessions.
+ * <p>
+ * The object is sent in {@code transfer.chunkSizeBytes} chunks (rounded to the 256 KiB multiple
+ * GCS requires). Uploads are asynchronous ({@link AsyncSink}): the body is pulled from its
+ * publisher into one pooled buffer while the previous one is in flight, and the blocking
+ * writes just wait for the result, so no thread is held per upload while GCS responds. After
+ * every chunk the session URI and committed offset are reported to the {@link CommitListener}
+ * so an interrupted upload can continue. Bodies of unknown length (e.g. compressed on the fly)
+ * are sent the same way and the object's size is stated with the last chunk.
+ * <p>
+ * Each upload takes its two chunk buffers from the shared {@link BufferPool} at once and only
+ * then starts reading its body, so uploads beyond the memory budget queue without holding any.
+ * <p>
+ * Ranged writes upload each range as its own {@code <object>.part-<offset>} object and compose
+ * them into the destination (in rounds of at most 32, the compose limit), then delete the parts.
+ * Composite objects carry a CRC32C but no MD5.
+ * <p>
+ * References to existing objects are server-side rewrites, so the bytes never leave GCS.
+ * Appends upload the new bytes as an {@code <object>.append-<offset>} object and compose the
+ * destination from itself and it, on condition the destination is still the generation whose
+ * size was checked. An object holds at most 1024 components, after which it is copied whole.
+ */
 @ApplicationScoped
 @IfBuildProfile("prod")
-public class GcsSink implements Sink {
+public class GcsSink implements Sink, AsyncSink {
+
+    private static final Logger LOG = Logger.getLogger(GcsSink.class);
+
+    static final int CHUNK_ALIGNMENT = 256 * 1024;
+    private static final int BUFFERS_PER_UPLOAD = 2;
+    private static final int COMPOSE_LIMIT = 32;
+    private static final int COMPONENT_LIMIT = 1024;
+    /** Body of the final PUT of an object whose last bytes went out before its length was known. */
+    private static final ByteBuffer EMPTY = ByteBuffer.allocate(0);
+
+    private final HttpClient http;
+    private final GcsAccessToken accessToken;
+    private final URI endpoint;
+    private final String bucket;
+    private final String basePath;
+    private final boolean ifGenerationMatch;
+    private final int chunkSize;
+    private final BufferPool bufferPool;
+
+    @Inject
+    public GcsSink(
+            @ConfigProperty(name = "sink.gcs.endpoint", defaultValue = "https://storage.googleapis.com") String endpoint,
+            @ConfigProperty(name = "sink.gcs.bucket") String bucket,
+            @ConfigProperty(name = "sink.gcs.basePath", defaultValue = "") String basePath,
+            @ConfigProperty(name = "sink.gcs.preconditionIfGenerationMatch", defaultValue = "false") boolean ifGenerationMatch,
+            @ConfigProperty(name = "sink.gcs.auth", defaultValue = "metadata") String auth,
+            @ConfigProperty(name = "transfer.chunkSizeBytes", defaultValue = "8388608") long chunkSizeBytes,
+            BufferPool bufferPool
+    ) {
+        // Responses complete on virtual threads, so a commit listener that blocks costs no platform thread
+        this.http = HttpClient.newBuilder()
+                .connectTimeout(Duration.ofSeconds(30))
+                .executor(Executors.newVirtualThreadPerTaskExecutor())
+                .build();
+        this.accessToken = "none".equals(auth) ? GcsAccessToken.none() : GcsAccessToken.fromMetadataServer(http);
+        this.endpoint = URI.create(endpoint);
+        this.bucket = bucket;
+        this.basePath = trimSlashes(basePath);
+        this.ifGenerationMatch = ifGenerationMatch;
+        this.chunkSize = alignChunkSize(chunkSizeBytes);
+        if ((long) BUFFERS_PER_UPLOAD * chunkSize > bufferPool.budgetBytes()) {
+            throw new IllegalArgumentException("transfer.buffers.budgetBytes (" + bufferPool.budgetBytes()
+                    + ") cannot hold the " + BUFFERS_PER_UPLOAD + " chunk buffers of one upload");
+        }
+        this.bufferPool = bufferPool;
+    }
+
+    /**
+     * A sink with buffers of its own, enough for parallelism uploads at once.
+     */
+    public GcsSink(String endpoint, String bucket, String basePath, boolean ifGenerationMatch, String auth,
+                   long chunkSizeBytes, int parallelism) {
+        this(endpoint, bucket, basePath, ifGenerationMatch, auth, chunkSizeBytes,
+                new BufferPool((long) Math.max(1, parallelism) * BUFFERS_PER_UPLOAD * alignChunkSize(chunkSizeBytes),
+                        false));
+    }
+
+    @Override
+    public long write(String destPath, InputStream in, long offset, long length, Map<String, String> metadata)
+            throws IOException {
+        if (offset > 0) {
+            throw new IOException("Resuming a GCS upload requires its session URI; use the channel write");
+        }
+        return write(destPath, Channels.newChannel(in), ResumeState.untracked(), length, metadata,
+                CommitListener.NONE);
+    }
+
+    @Override
+    public long write(String destPath, ReadableByteChannel in, ResumeState resume, long length,
+                      Map<String, String> metadata, CommitListener listener) throws IOException {
+        long remaining = length < 0 ? -1 : length - resume.bytesCommitted();
+        return AsyncSink.await(writeAsync(destPath, new ChannelPublisher(in, remaining),
+                resume, length, metadata, listener));
+    }
+
+    @Override
+    public CompletionStage<Long> writeAsync(String destPath, Flow.Publisher<ByteBuffer> body, ResumeState resume,
+                                            long length, Map<String, String> metadata, CommitListener listener) {
+        CompletableFuture<GcsResumableSession> session = resume.sinkSessionId() != null && resume.bytesCommitted() > 0
+                ? CompletableFuture.completedFuture(
+                        new GcsResumableSession(http, accessToken, URI.create(resume.sinkSessionId())))
+                : GcsResumableSession.start(http, accessToken, endpoint, bucket, objectName(destPath),
+                metadata, length, ifGenerationMatch);
+
+        CompletableFuture<Long> result = new CompletableFuture<>();
+        session.thenCompose(started -> {
+            // Journal the session straight away so a crash before the first chunk can still reuse it
+            ResumeState state = resume.withProgress(started.uri().toString(), resume.bytesCommitted());
+            listener.committed(state);
+            return bufferPool.acquireHeap(BUFFERS_PER_UPLOAD, chunkSize).thenAccept(buffers -> {
+                Upload upload = new Upload(started, buffers, state, length, listener, result);
+                if (result.isDone()) {
+                    upload.release();
+                } else {
+                    body.subscribe(upload);
+                }
+            });
+        }).whenComplete((ignored, failure) -> {
+            if (failure != null) {
+                result.completeExceptionally(failure);
+            }
+        });
+
+        result.thenAccept(written -> LOG.debugf("Uploaded gs://%s/%s (%d bytes, from offset %d)",
+                bucket, objectName(destPath), resume.bytesCommitted() + written, resume.bytesCommitted()));
+        // The caller's stage itself, so cancelling it stops the upload
+        return result;
+    }
+
+    @Override
+    public long committedBytes(String destPath, ResumeState resume) throws IOException {
+        if (resume.sinkSessionId() == null) {
+            return 0;
+        }
+        long committed = new GcsResumableSession(http, accessToken, URI.create(resume.sinkSessionId()))
+                .queryCommitted();
+        return committed == GcsResumableSession.SESSION_GONE ? 0 : committed;
+    }
+
+    /**
+     * GCS keeps MD5 (for non-composite objects) and CRC32C for every object; other algorithms
+     * are not reported.
+     */
     @Override
-    public long write(String destPath, InputStream in, long offset, long length, Map<String, String> metadata) throws IOException {
-        return 0;
+    public Optional<String> reportedChecksum(String destPath, ChecksumAlgorithm algorithm) throws IOException {
+        String field = switch (algorithm) {
+            case MD5 -> "md5Hash";
+            case CRC32C -> "crc32c";
+            default -> null;
+        };
+        if (field == null) {
+            return Optional.empty();
+        }
+
+        HttpRequest.Builder request = HttpRequest.newBuilder(objectUri(objectName(destPath), "?fields=" + field))
+                .GET();
+        accessToken.get().ifPresent(token -> request.header("Authorization", "Bearer " + token));
+
+        HttpResponse<String> response = send(http, request.build(), HttpResponse.BodyHandlers.ofString());
+        if (response.statusCode() != 200) {
+            throw new IOException("Failed to read metadata of " + objectName(destPath) + ": HTTP "
+                    + response.statusCode() + " " + response.body());
+        }
+        try (JsonReader reader = Json.createReader(new StringReader(response.body()))) {
+            JsonObject resource = reader.readObject();
+            return resource.containsKey(field)
+                    ? Optional.of(algorithm.format(Base64.getDecoder().decode(resource.getString(field))))
+                    : Optional.empty();
+        }
+    }
+
+    @Override
+    public boolean supportsRanges() {
+        return true;
+    }
+
+    @Override
+    public void writeRange(String destPath, long totalLength, long offset, long length, ReadableByteChannel in)
+            throws IOException {
+        write(partPath(destPath, offset), in, ResumeState.untracked(), length, Map.of(), CommitListener.NONE);
+    }
+
+    @Override
+    public Set<Long> heldRanges(String destPath, long totalLength, Set<Long> journalled) throws IOException {
+        Set<Long> held = new HashSet<>();
+        for (long offset : journalled) {
+            if (exists(objectName(partPath(destPath, offset)))) {
+                held.add(offset);
+            }
+        }
+        return held;
+    }
+
+    @Override
+    public boolean reference(String existingPath, String destPath, Map<String, String> metadata) throws IOException {
+        String source = objectName(existingPath);
+        String destination = objectName(destPath);
+        if (source.equals(destination)) {
+            return exists(source);
+        }
+
+        JsonObjectBuilder customMetadata = Json.createObjectBuilder();
+        metadata.forEach(customMetadata::add);
+        String body = Json.createObjectBuilder().add("metadata", customMetadata).build().toString();
+        String rewriteToken = null;
+        do {
+            // Large objects may take several calls, each continuing from the previous token
+            String query = (ifGenerationMatch ? "&ifGenerationMatch=0" : "")
+                    + (rewriteToken != null ? "&rewriteToken=" + encode(rewriteToken) : "");
+            HttpRequest.Builder request = HttpRequest.newBuilder(objectUri(source, "/rewriteTo/b/" + bucket + "/o/"
+                            + encode(destination) + (query.isEmpty() ? "" : "?" + query.substring(1))))
+                    .header("Content-Type", "application/json; charset=UTF-8")
+                    .POST(HttpRequest.BodyPublishers.ofString(body));
+            accessToken.get().ifPresent(token -> request.header("Authorization", "Bearer " + token));
+
+            HttpResponse<String> response = send(http, request.build(), HttpResponse.BodyHandlers.ofString());
+            if (response.statusCode() == 404) {
+                return false;
+            }
+            if (response.statusCode() != 200) {
+                throw new IOException("Failed to rewrite " + source + " to " + destination + ": HTTP "
+                        + response.statusCode() + " " + response.body());
+            }
+            try (JsonReader reader = Json.createReader(new StringReader(response.body()))) {
+                JsonObject progress = reader.readObject();
+                rewriteToken = progress.getBoolean("done", false) ? null : progress.getString("rewriteToken");
+            }
+        } while (rewriteToken != null);
+        LOG.debugf("Referenced gs://%s/%s as %s", bucket, source, destination);
+        return true;
+    }
+
+    @Override
+    public boolean append(String destPath, long baseLength, long length, ReadableByteChannel in,
+                          Map<String, String> metadata) throws IOException {
+        String destination = objectName(destPath);
+        JsonObject held = resource(destination, "size,generation,componentCount");
+        if (held == null || Long.parseLong(held.getString("size")) != baseLength
+                || held.getInt("componentCount", 1) >= COMPONENT_LIMIT) {
+            return false;
+        }
+
+        String tail = destPath + ".append-" + baseLength;
+        write(tail, in, ResumeState.untracked(), length, Map.of(), CommitListener.NONE);
+        compose(List.of(destination, objectName(tail)), destination, metadata,
+                Long.parseLong(held.getString("generation")));
+        delete(objectName(tail));
+        LOG.debugf("Appended %d bytes to gs://%s/%s at %d", length, bucket, destination, baseLength);
+        return true;
+    }
+
+    private boolean exists(String objectName) throws IOException {
+        return resource(objectName, "size") != null;
+    }
+
+    /**
+     * The object's resource with just the given fields, or null when there is no such object.
+     */
+    private JsonObject resource(String objectName, String fields) throws IOException {
+        HttpRequest.Builder request = HttpRequest.newBuilder(objectUri(objectName, "?fields=" + encode(fields))).GET();
+        accessToken.get().ifPresent(token -> request.header("Authorization", "Bearer " + token));
+        HttpResponse<String> response = send(http, request.build(), HttpResponse.BodyHandlers.ofString());
+        if (response.statusCode() == 404) {
+            return null;
+        }
+        if (response.statusCode() != 200) {
+            throw new IOException("Failed to look up " + objectName + ": HTTP " + response.statusCode());
+        }
+        try (JsonReader reader = Json.createReader(new StringReader(response.body()))) {
+            return reader.readObject();
+        }
+    }
+
+    @Override
+    public void completeRanges(String destPath, long totalLength, List<Long> offsets, Map<String, String> metadata)
+            throws IOException {
+        String destination = objectName(destPath);
+        List<String> sources = offsets.stream().map(offset -> objectName(partPath(destPath, offset))).toList();
+        List<String> temporary = new ArrayList<>(sources);
+
+        for (int round = 0; sources.size() > COMPOSE_LIMIT; round++) {
+            List<String> next = new ArrayList<>();
+            for (int i = 0; i < sources.size(); i += COMPOSE_LIMIT) {
+                String intermediate = destination + ".compose-" + round + "-" + i / COMPOSE_LIMIT;
+                compose(sources.subList(i, Math.min(sources.size(), i + COMPOSE_LIMIT)), intermediate, Map.of(), null);
+                next.add(intermediate);
+            }
+            temporary.addAll(next);
+            sources = next;
+        }
+        compose(sources, destination, metadata, ifGenerationMatch ? 0L : null);
+
+        for (String object : temporary) {
+            delete(object);
+        }
+        LOG.debugf("Composed gs://%s/%s from %d ranges (%d bytes)", bucket, destination, offsets.size(), totalLength);
+    }
+
+    /**
+     * Compose destination from sources in order. With a generation it only succeeds if the
+     * destination is still that generation, 0 meaning it must not exist yet.
+     */
+    private void compose(List<String> sources, String destination, Map<String, String> metadata,
+                         Long generation) throws IOException {
+        JsonArrayBuilder sourceObjects = Json.createArrayBuilder();
+        sources.forEach(name -> sourceObjects.add(Json.createObjectBuilder().add("name", name)));
+        JsonObjectBuilder customMetadata = Json.createObjectBuilder();
+        metadata.forEach(customMetadata::add);
+        String body = Json.createObjectBuilder()
+                .add("sourceObjects", sourceObjects)
+                .add("destination", Json.createObjectBuilder().add("metadata", customMetadata))
+                .build()
+                .toString();
+
+        HttpRequest.Builder request = HttpRequest.newBuilder(
+                        objectUri(destination, "/compose" + (generation != null ? "?ifGenerationMatch=" + generation : "")))
+                .header("Content-Type", "application/json; charset=UTF-8")
+                .POST(HttpRequest.BodyPublishers.ofString(body));
+        accessToken.get().ifPresent(token -> request.header("Authorization", "Bearer " + token));
+
+        HttpResponse<String> response = send(http, request.build(), HttpResponse.BodyHandlers.ofString());
+        if (response.statusCode() != 200) {
+            throw new IOException("Failed to compose " + destination + " from " + sources.size() + " objects: HTTP "
+                    + response.statusCode() + " " + response.body());
+        }
+    }
+
+    /**
+     * Best-effort delete of a temporary object; leftovers only cost storage.
+     */
+    private void delete(String objectName) {
+        try {
+            HttpRequest.Builder request = HttpRequest.newBuilder(objectUri(objectName, "")).DELETE();
+            accessToken.get().ifPresent(token -> request.header("Authorization", "Bearer " + token));
+            int status = send(http, request.build(), HttpResponse.BodyHandlers.discarding()).statusCode();
+            if (status != 204 && status != 200 && status != 404) {
+                LOG.warnf("Failed to delete temporary object %s: HTTP %d", objectName, status);
+            }
+        } catch (IOException e) {
+            LOG.warnf(e, "Failed to delete temporary object %s", objectName);
+        }
+    }
+
+    private URI objectUri(String objectName, String suffix) {
+        return endpoint.resolve("/storage/v1/b/" + bucket + "/o/" + encode(objectName) + suffix);
+    }
+
+    private static String encode(String value) {
+        return URLEncoder.encode(value, StandardCharsets.UTF_8).replace("+", "%20");
+    }
+
+    private static String partPath(String destPath, long offset) {
+        return destPath + ".part-" + offset;
+    }
+
+    static <T> HttpResponse<T> send(HttpClient http, HttpRequest request, HttpResponse.BodyHandler<T> handler)
+            throws IOException {
+        try {
+            return http.send(request, handler);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted during " + request.method() + " " + request.uri());
+        }
+    }
+
+    private String objectName(String destPath) {
+        String path = trimSlashes(destPath);
+        return basePath.isEmpty() ? path : basePath + "/" + path;
+    }
+
+    private static String trimSlashes(String path) {
+        int start = 0;
+        int end = path.length();
+        while (start < end && path.charAt(start) == '/') {
+            start++;
+        }
+        while (end > start && path.charAt(end - 1) == '/') {
+            end--;
+        }
+        return path.substring(start, end);
+    }
+
+    static int alignChunkSize(long chunkSizeBytes) {
+        long aligned = Math.max(CHUNK_ALIGNMENT, chunkSizeBytes / CHUNK_ALIGNMENT * CHUNK_ALIGNMENT);
+        return (int) Math.min(aligned, Integer.MAX_VALUE / CHUNK_ALIGNMENT * CHUNK_ALIGNMENT);
+    }
+
+    /**
+     * One upload, driven by its body: received bytes are copied into whichever pooled buffer is
+     * filling, full buffers are sent one PUT at a time, and more of the body is requested only
+     * while a buffer has room. Callbacks arrive from the publisher and the HTTP client, so all
+     * state is guarded by the upload's monitor. A body of unknown length (-1) learns its length
+     * when it completes; until then a part-filled buffer is kept back, since only the final
+     * chunk may be shorter than the chunk size.
+     */
+    private final class Upload implements Flow.Subscriber<ByteBuffer> {
+        private final GcsResumableSession session;
+        private final ByteBuffer[] buffers;
+        private long length;
+        private final long start;
+        private final CommitListener listener;
+        private final CompletableFuture<Long> result;
+        private final ArrayDeque<ByteBuffer> free = new ArrayDeque<>();
+        private final ArrayDeque<ByteBuffer> full = new ArrayDeque<>();
+        private ResumeState state;
+        private Flow.Subscription subscription;
+        private ByteBuffer filling;
+        /** Bytes received that did not fit in a buffer yet. */
+        private ByteBuffer pending;
+        private long received;
+        private long sent;
+        private boolean requested;
+        private boolean sending;
+        /** Whether the PUT in flight states the object's length, which completes the object. */
+        private boolean finalPut;
+        private boolean released;
+
+        Upload(GcsResumableSession session, ByteBuffer[] buffers, ResumeState state, long length,
+               CommitListener listener, CompletableFuture<Long> result) {
+            this.session = session;
+            this.buffers = buffers;
+            this.state = state;
+            this.length = length;
+            this.start = state.bytesCommitted();
+            this.listener = listener;
+            this.result = result;
+            this.received = start;
+            this.sent = start;
+            for (ByteBuffer buffer : buffers) {
+                free.add(buffer.clear());
+            }
+        }
+
+        @Override
+        public synchronized void onSubscribe(Flow.Subscription s) {
+            subscription = s;
+            if (received == length) {
+                // Nothing left to read: the final PUT is empty and only states the length
+                full.add(free.poll().flip());
+            }
+            pump();
+        }
+
+        @Override
+        public synchronized void onNext(ByteBuffer data) {
+            requested = false;
+            if (result.isDone()) {
+                cleanUp();
+                return;
+            }
+            if (length >= 0 && received + data.remaining() > length) {
+                fail(new IOException("Source has more than the expected " + length + " bytes"));
+                return;
+            }
+            received += data.remaining();
+            pending = data;
+            pump();
+        }
+
+        @Override
+        public synchronized void onError(Throwable failure) {
+            fail(failure);
+        }
+
+        @Override
+        public synchronized void onComplete() {
+            if (length >= 0) {
+                if (received < length) {
+                    fail(new EOFException("Source ended at " + received + " of " + length + " bytes"));
+                }
+                return;
+            }
+            length = received;
+            // Bytes still waiting for a free buffer are queued by pump now the length is known
+            if (pending == null) {
+                if (filling != null) {
+                    full.add(filling.flip());
+                    filling = null;
+                } else if (full.isEmpty() || sending && full.size() == 1) {
+                    // Everything received already went out as non-final chunks: close with an empty one
+                    full.add(EMPTY);
+                }
+            }
+            pump();
+        }
+
+        /**
+         * Move pending bytes into buffers, start the next PUT and ask for more body if there is room.
+         */
+        private void pump() {
+            if (result.isDone()) {
+                cleanUp();
+                return;
+            }
+            while (pending != null && (filling != null || !free.isEmpty())) {
+                if (filling == null) {
+                    filling = free.poll().clear();
+                }
+                int n = Math.min(filling.remaining(), pending.remaining());
+                filling.put(pending.slice(pending.position(), n));
+                pending.position(pending.position() + n);
+                if (!pending.hasRemaining()) {
+                    pending = null;
+                }
+                if (!filling.hasRemaining() || received == length && pending == null) {
+                    full.add(filling.flip());
+                    filling = null;
+                }
+            }
+            sendNext();
+            if (pending == null && (length < 0 || received < length) && !requested) {
+                requested = true;
+                subscription.request(1);
+            }
+        }
+
+        private void sendNext() {
+            if (sending || full.isEmpty()) {
+                return;
+            }
+            sending = true;
+            ByteBuffer chunk = full.peek();
+            boolean last = sent + chunk.remaining() == length;
+            finalPut = last;
+            session.put(chunk, sent, last ? length : -1)
+                    .whenComplete((committed, failure) -> onPut(chunk, committed, failure));
+        }
+
+        private synchronized void onPut(ByteBuffer chunk, Long committed, Throwable failure) {
+            sending = false;
+            if (result.isDone()) {
+                cleanUp();
+                return;
+            }
+            if (failure != null) {
+                fail(failure);
+                return;
+            }
+            long end = sent + chunk.remaining();
+            if (committed < sent) {
+                fail(new IOException("GCS committed offset went backwards: " + committed + " < " + sent));
+                return;
+            }
+            if (committed < end) {
+                // Re-send the tail GCS did not persist
+                chunk.position(chunk.position() + (int) (committed - sent));
+                sent = committed;
+                sendNext();
+                return;
+            }
+
+            sent = end;
+            state = state.withProgress(session.uri().toString(), sent);
+            try {
+                listener.committed(state);
+            } catch (RuntimeException e) {
+                fail(e);
+                return;
+            }
+            full.poll();
+            if (chunk != EMPTY) {
+                free.add(chunk);
+            }
+            if (finalPut) {
+                result.complete(length - start);
+                cleanUp();
+                return;
+            }
+            pump();
+        }
+
+        private void fail(Throwable failure) {
+            result.completeExceptionally(failure instanceof CompletionException && failure.getCause() != null
+                    ? failure.getCause() : failure);
+            cleanUp();
+        }
+
+        /**
+         * Stop the body and return the buffers, unless a PUT still reads from one.
+         */
+        private void cleanUp() {
+            if (subscription != null) {
+                subscription.cancel();
+            }
+            if (!sending) {
+                release();
+            }
+        }
+
+        synchronized void release() {
+            if (!released) {
+                released = true;
+                bufferPool.release(buffers);
+            }
+        }
     }
 }
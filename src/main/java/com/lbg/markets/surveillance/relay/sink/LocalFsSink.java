@@ -1,21 +1,52 @@
 package com.lbg.markets.surveillance.relay.sink;
 
+import com.lbg.markets.surveillance.relay.domain.ResumeState;
+import com.lbg.markets.surveillance.relay.util.BufferPool;
 import io.quarkus.arc.profile.IfBuildProfile;
 import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.inject.Inject;
 import org.eclipse.microprofile.config.inject.ConfigProperty;
 
+import java.io.EOFException;
 import java.io.IOException;
 import java.io.InputStream;
-import java.io.OutputStream;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.file.FileSystemException;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
 import java.nio.file.StandardOpenOption;
+import java.util.List;
 import java.util.Map;
+import java.util.Set;
 
 /**
  * Simple local filesystem sink for development.
  * Writes files to a configured directory.
+ * <p>
+ * When the source is a {@link FileChannel} the copy is done with
+ * {@link FileChannel#transferTo}, letting the kernel move the bytes.
+ * Data goes to a {@code .tmp} sibling that is forced to disk every
+ * {@code transfer.chunkSizeBytes}; the temp file is kept on failure so a
+ * later attempt can continue from the last committed offset.
+ * <p>
+ * Ranged writes go to a {@code .ranges.tmp} sibling preallocated to the full length, each
+ * range with positional writes through its own channel, and it is renamed into place once
+ * all ranges are in.
+ * <p>
+ * References to existing files are hard links, or copies where the filesystem has none. Since
+ * every write replaces its target by rename, a linked file is never changed through another name.
+ * <p>
+ * Appends copy the base to an {@code .append.tmp} sibling, extend it and rename it into place,
+ * so readers never see a partly appended file and a failed append leaves the old version.
+ * <p>
+ * Copies that cannot use {@code transferTo} go through a {@code sink.buffer.size} buffer
+ * borrowed from the shared {@link BufferPool} for the length of the copy.
  */
 @ApplicationScoped
 @IfBuildProfile(anyOf = {"dev", "test"})
@@ -23,55 +54,293 @@ public class LocalFsSink implements Sink {
 
     private final Path basePath;
     private final int bufferSize;
+    private final long checkpointBytes;
+    private final BufferPool buffers;
 
+    @Inject
     public LocalFsSink(
             @ConfigProperty(name = "sink.local.path", defaultValue = "/tmp/relay-sink") String path,
-            @ConfigProperty(name = "sink.buffer.size", defaultValue = "8192") int bufferSize
+            @ConfigProperty(name = "sink.buffer.size", defaultValue = "8192") int bufferSize,
+            @ConfigProperty(name = "transfer.chunkSizeBytes", defaultValue = "8388608") long checkpointBytes,
+            BufferPool buffers
     ) {
         this.basePath = Paths.get(path);
         this.bufferSize = bufferSize;
+        this.checkpointBytes = Math.max(bufferSize, checkpointBytes);
+        this.buffers = buffers;
+    }
+
+    /**
+     * A sink with unbounded buffers of its own.
+     */
+    public LocalFsSink(String path, int bufferSize, long checkpointBytes) {
+        this(path, bufferSize, checkpointBytes, new BufferPool(Long.MAX_VALUE, false));
     }
 
     @Override
     public long write(String destPath, InputStream in, long offset, long length, Map<String, String> metadata)
             throws IOException {
+        return write(destPath, Channels.newChannel(in), ResumeState.untracked().withProgress(null, offset),
+                length, metadata, CommitListener.NONE);
+    }
+
+    @Override
+    public long write(String destPath, ReadableByteChannel in, ResumeState resume, long length,
+                      Map<String, String> metadata, CommitListener listener) throws IOException {
 
         Path target = basePath.resolve(destPath);
         Files.createDirectories(target.getParent());
 
         // Use temp file then atomic rename for safety
-        Path temp = target.resolveSibling(target.getFileName() + ".tmp");
+        Path temp = tempFor(target);
+        long written = writeToFile(temp, in, resume, listener);
+        Files.move(temp, target, StandardCopyOption.ATOMIC_MOVE);
+        return written;
+    }
+
+    @Override
+    public long committedBytes(String destPath, ResumeState resume) throws IOException {
+        Path temp = tempFor(basePath.resolve(destPath));
+        if (!Files.exists(temp)) {
+            return 0;
+        }
+        return Math.min(Files.size(temp), resume.bytesCommitted());
+    }
 
+    @Override
+    public boolean supportsRanges() {
+        return true;
+    }
+
+    @Override
+    public void writeRange(String destPath, long totalLength, long offset, long length, ReadableByteChannel in)
+            throws IOException {
+        Path part = rangesFor(basePath.resolve(destPath));
+        preallocate(part, totalLength);
+
+        try (FileChannel out = FileChannel.open(part, StandardOpenOption.WRITE)) {
+            writeAt(in, out, offset, length);
+            out.force(false);
+        }
+    }
+
+    @Override
+    public Set<Long> heldRanges(String destPath, long totalLength, Set<Long> journalled) throws IOException {
+        Path part = rangesFor(basePath.resolve(destPath));
+        return Files.exists(part) && Files.size(part) == totalLength ? journalled : Set.of();
+    }
+
+    @Override
+    public void completeRanges(String destPath, long totalLength, List<Long> offsets, Map<String, String> metadata)
+            throws IOException {
+        Path target = basePath.resolve(destPath);
+        Path part = rangesFor(target);
+        if (Files.size(part) != totalLength) {
+            throw new IOException("Ranged write of " + target + " is " + Files.size(part) + " bytes, expected "
+                    + totalLength);
+        }
+        Files.move(part, target, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    @Override
+    public boolean reference(String existingPath, String destPath, Map<String, String> metadata) throws IOException {
+        Path existing = basePath.resolve(existingPath);
+        Path target = basePath.resolve(destPath);
+        if (!Files.isRegularFile(existing)) {
+            return false;
+        }
+        if (existing.equals(target)) {
+            return true;
+        }
+        Files.createDirectories(target.getParent());
+        Path link = target.resolveSibling(target.getFileName() + ".link.tmp");
+        Files.deleteIfExists(link);
         try {
-            long written = writeToFile(temp, in, offset);
-            Files.move(temp, target, java.nio.file.StandardCopyOption.ATOMIC_MOVE);
-            return written;
-        } catch (IOException e) {
-            Files.deleteIfExists(temp);
+            Files.createLink(link, existing);
+        } catch (UnsupportedOperationException | FileSystemException e) {
+            Files.copy(existing, link);
+        }
+        Files.move(link, target, StandardCopyOption.ATOMIC_MOVE);
+        return true;
+    }
+
+    @Override
+    public boolean append(String destPath, long baseLength, long length, ReadableByteChannel in,
+                          Map<String, String> metadata) throws IOException {
+        Path target = basePath.resolve(destPath);
+        if (!Files.isRegularFile(target) || Files.size(target) < baseLength) {
+            return false;
+        }
+        // Readers of the object, under this or a linked name, see the old version until the
+        // extended copy is renamed into place, and a failed append leaves it as it was
+        Path copy = target.resolveSibling(target.getFileName() + ".append.tmp");
+        try {
+            try (FileChannel base = FileChannel.open(target, StandardOpenOption.READ);
+                 FileChannel out = FileChannel.open(copy, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                         StandardOpenOption.TRUNCATE_EXISTING)) {
+                writeAt(base, out, 0, baseLength);
+                writeAt(in, out, baseLength, length);
+                out.force(true);
+            }
+            Files.move(copy, target, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException | RuntimeException e) {
+            Files.deleteIfExists(copy);
             throw e;
         }
+        return true;
+    }
+
+    /**
+     * Write exactly length bytes from in to out at offset, with {@link FileChannel#transferTo}
+     * when in is a file.
+     */
+    private void writeAt(ReadableByteChannel in, FileChannel out, long offset, long length) throws IOException {
+        long end = offset + length;
+        long position = offset;
+        if (in instanceof FileChannel source) {
+            long from = source.position();
+            while (position < end) {
+                out.position(position);
+                long transferred = source.transferTo(from + position - offset, end - position, out);
+                if (transferred <= 0) {
+                    break;
+                }
+                position += transferred;
+            }
+        } else {
+            ByteBuffer buffer = buffers.acquire(bufferSize);
+            try {
+                while (position < end) {
+                    buffer.clear().limit((int) Math.min(buffer.capacity(), end - position));
+                    if (in.read(buffer) < 0) {
+                        break;
+                    }
+                    buffer.flip();
+                    while (buffer.hasRemaining()) {
+                        position += out.write(buffer, position);
+                    }
+                }
+            } finally {
+                buffers.release(buffer);
+            }
+        }
+        if (position < end) {
+            throw new EOFException("Source ended at " + position + " in range " + offset + "-" + end);
+        }
+    }
+
+    /**
+     * Create the ranges file at its full length, leaving any ranges already in it untouched.
+     */
+    private static synchronized void preallocate(Path part, long totalLength) throws IOException {
+        if (Files.exists(part) && Files.size(part) == totalLength) {
+            return;
+        }
+        Files.createDirectories(part.getParent());
+        try (RandomAccessFile file = new RandomAccessFile(part.toFile(), "rw")) {
+            file.setLength(totalLength);
+        }
+    }
+
+    private long writeToFile(Path temp, ReadableByteChannel in, ResumeState resume, CommitListener listener)
+            throws IOException {
+        long offset = resume.bytesCommitted();
+
+        try (FileChannel out = FileChannel.open(temp, StandardOpenOption.CREATE, StandardOpenOption.WRITE)) {
+            if (out.size() < offset) {
+                throw new IOException("Cannot resume " + temp + " at " + offset + ": only "
+                        + out.size() + " bytes present");
+            }
+            // Anything past the committed offset was never acknowledged, so discard it
+            out.truncate(offset);
+            out.position(offset);
+
+            Checkpointer checkpointer = new Checkpointer(out, resume, temp.toString(), listener);
+            long written = in instanceof FileChannel source
+                    ? transferFromFile(source, out, checkpointer)
+                    : copyBuffered(in, out, checkpointer);
+
+            out.force(true);
+            return written;
+        }
     }
 
-    private long writeToFile(Path target, InputStream in, long offset) throws IOException {
-        StandardOpenOption[] options = offset > 0
-                ? new StandardOpenOption[]{StandardOpenOption.CREATE, StandardOpenOption.WRITE}
-                : new StandardOpenOption[]{StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING};
+    private long transferFromFile(FileChannel source, FileChannel out, Checkpointer checkpointer)
+            throws IOException {
+        long start = source.position();
+        long position = start;
+        long end = source.size();
 
-        try (OutputStream out = Files.newOutputStream(target, options)) {
-            if (offset > 0) {
-                out.write(new byte[(int) offset]); // Skip to offset (simplified)
+        // transferTo may move fewer bytes than asked (e.g. 2 GB per call on Linux)
+        while (position < end) {
+            long transferred = source.transferTo(position, Math.min(checkpointBytes, end - position), out);
+            if (transferred <= 0) {
+                break;
             }
+            position += transferred;
+            checkpointer.advance(transferred);
+        }
 
-            byte[] buffer = new byte[bufferSize];
-            long totalWritten = 0;
-            int bytesRead;
+        source.position(position);
+        return position - start;
+    }
 
-            while ((bytesRead = in.read(buffer)) != -1) {
-                out.write(buffer, 0, bytesRead);
-                totalWritten += bytesRead;
+    private long copyBuffered(ReadableByteChannel in, FileChannel out, Checkpointer checkpointer)
+            throws IOException {
+        ByteBuffer buffer = buffers.acquire(bufferSize);
+        long totalWritten = 0;
+        try {
+            while (in.read(buffer) != -1) {
+                buffer.flip();
+                int chunk = buffer.remaining();
+                while (buffer.hasRemaining()) {
+                    out.write(buffer);
+                }
+                totalWritten += chunk;
+                checkpointer.advance(chunk);
+                buffer.clear();
             }
+        } finally {
+            buffers.release(buffer);
+        }
 
-            return totalWritten;
+        return totalWritten;
+    }
+
+    private static Path tempFor(Path target) {
+        return target.resolveSibling(target.getFileName() + ".tmp");
+    }
+
+    private static Path rangesFor(Path target) {
+        return target.resolveSibling(target.getFileName() + ".ranges.tmp");
+    }
+
+    /**
+     * Forces the temp file to disk and reports the committed offset each time
+     * another checkpoint's worth of bytes has been written.
+     */
+    private final class Checkpointer {
+        private final FileChannel out;
+        private final String sessionId;
+        private final CommitListener listener;
+        private ResumeState state;
+        private long sinceCheckpoint;
+
+        Checkpointer(FileChannel out, ResumeState state, String sessionId, CommitListener listener) {
+            this.out = out;
+            this.state = state;
+            this.sessionId = sessionId;
+            this.listener = listener;
+        }
+
+        void advance(long bytes) throws IOException {
+            sinceCheckpoint += bytes;
+            if (sinceCheckpoint >= checkpointBytes) {
+                out.force(false);
+                state = state.withProgress(sessionId, out.position());
+                listener.committed(state);
+                sinceCheckpoint = 0;
+            }
         }
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,131 @@
+package com.lbg.markets.surveillance.relay.sink;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.ReadableByteChannel;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Flow;
+import java.util.concurrent.LinkedBlockingQueue;
+
+/**
+ * Blocking channel over a chunk publisher, for handing an async body to a blocking sink.
+ * A chunk is requested only once the previous one has been read, so at most one is buffered.
+ */
+final class PublisherChannel implements ReadableByteChannel, Flow.Subscriber<ByteBuffer> {
+
+    private static final Object COMPLETE = new Object();
+
+    private final CompletableFuture<Flow.Subscription> subscription = new CompletableFuture<>();
+    private final BlockingQueue<Object> signals = new LinkedBlockingQueue<>();
+    private ByteBuffer current;
+    private boolean ended;
+    private volatile boolean open = true;
+
+    PublisherChannel(Flow.Publisher<ByteBuffer> body) {
+        body.subscribe(this);
+    }
+
+    @Override
+    public int read(ByteBuffer dst) throws IOException {
+        if (!open) {
+            throw new ClosedChannelException();
+        }
+        if (!dst.hasRemaining()) {
+            return 0;
+        }
+        while (current == null || !current.hasRemaining()) {
+            if (ended) {
+                return -1;
+            }
+            Object signal = next();
+            if (signal == COMPLETE) {
+                ended = true;
+            } else if (signal instanceof Throwable failure) {
+                ended = true;
+                throw ioException(failure);
+            } else {
+                current = (ByteBuffer) signal;
+            }
+        }
+        int n = Math.min(dst.remaining(), current.remaining());
+        dst.put(current.slice(current.position(), n));
+        current.position(current.position() + n);
+        return n;
+    }
+
+    private Object next() throws IOException {
+        try {
+            if (signals.isEmpty()) {
+                subscription.get().request(1);
+            }
+            return signals.take();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted waiting for the next chunk");
+        } catch (ExecutionException e) {
+            throw ioException(e.getCause());
+        }
+    }
+
+    @Override
+    public boolean isOpen() {
+        return open;
+    }
+
+    @Override
+    public void close() {
+        open = false;
+        if (!ended) {
+            subscription.thenAccept(Flow.Subscription::cancel);
+        }
+    }
+
+    @Override
+    public void onSubscribe(Flow.Subscription s) {
+        subscription.complete(s);
+    }
+
+    @Override
+    public void onNext(ByteBuffer item) {
+        signals.add(item);
+    }
+
+    @Override
+    public void onError(Throwable failure) {
+        signals.add(failure);
+    }
+
+    @Override
+    public void onComplete() {
+        signals.add(COMPLETE);
+    }
+
+    /**
+     * The IOException behind an async failure; unchecked failures are rethrown as they are.
+     */
+    static IOException ioException(Throwable failure) {
+        while ((failure instanceof CompletionException || failure instanceof ExecutionException)
+                && failure.getCause() != null) {
+            failure = failure.getCause();
+        }
+        if (failure instanceof UncheckedIOException unchecked) {
+            return unchecked.getCause();
+        }
+        if (failure instanceof IOException io) {
+            return io;
+        }
+        if (failure instanceof RuntimeException runtime) {
+            throw runtime;
+        }
+        if (failure instanceof Error error) {
+            throw error;
+        }
+        return new IOException(failure);
+    }
+}
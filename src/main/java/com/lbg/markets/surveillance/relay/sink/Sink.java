@@ -1,10 +1,109 @@
 package com.lbg.markets.surveillance.relay.sink;
 
+import com.lbg.markets.surveillance.relay.domain.ResumeState;
+import com.lbg.markets.surveillance.relay.util.ChecksumAlgorithm;
+
 import java.io.IOException;
 import java.io.InputStream;
+import java.nio.channels.Channels;
+import java.nio.channels.ReadableByteChannel;
+import java.util.List;
 import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
 
 public interface Sink {
     long write(String destPath, InputStream in, long offset, long length, Map<String, String> metadata)
             throws IOException;
+
+    /**
+     * Channel variant of {@link #write(String, InputStream, long, long, Map)} that continues from
+     * {@code resume.bytesCommitted()} and reports progress to {@code listener} as bytes become durable.
+     * The channel must already be positioned at the resume offset. A negative length means the
+     * size is not known up front (e.g. compressed on the fly) and the write runs to the end of the channel.
+     * Sinks that can move bytes without copying through user space (e.g. file to file) or resume
+     * a partial write override this; the default falls back to the stream path.
+     *
+     * @return bytes written by this call
+     */
+    default long write(String destPath, ReadableByteChannel in, ResumeState resume, long length,
+                       Map<String, String> metadata, CommitListener listener) throws IOException {
+        return write(destPath, Channels.newInputStream(in), resume.bytesCommitted(), length, metadata);
+    }
+
+    /**
+     * How many bytes of an earlier interrupted write to destPath are still usable, given the
+     * journalled state. Returns 0 when the write has to start over.
+     */
+    default long committedBytes(String destPath, ResumeState resume) throws IOException {
+        return 0;
+    }
+
+    /**
+     * Whether this sink can take a file as independently written ranges
+     * ({@link #writeRange}, {@link #completeRanges}).
+     */
+    default boolean supportsRanges() {
+        return false;
+    }
+
+    /**
+     * Write bytes {@code [offset, offset + length)} of the {@code totalLength} byte file bound for
+     * destPath, reading exactly length bytes from in. Ranges of one file may be written
+     * concurrently and in any order, and writing a range again replaces it. The range is
+     * durable once this returns.
+     */
+    default void writeRange(String destPath, long totalLength, long offset, long length, ReadableByteChannel in)
+            throws IOException {
+        throw new UnsupportedOperationException(getClass().getSimpleName() + " does not support ranged writes");
+    }
+
+    /**
+     * Of the ranges (by offset) an earlier attempt journalled as written, those the sink still holds.
+     */
+    default Set<Long> heldRanges(String destPath, long totalLength, Set<Long> journalled) throws IOException {
+        return Set.of();
+    }
+
+    /**
+     * Assemble destPath from its ranges once every one is written; offsets are in file order.
+     */
+    default void completeRanges(String destPath, long totalLength, List<Long> offsets, Map<String, String> metadata)
+            throws IOException {
+        throw new UnsupportedOperationException(getClass().getSimpleName() + " does not support ranged writes");
+    }
+
+    /**
+     * Make destPath hold the same bytes as the existing object existingPath without sending them
+     * again, e.g. as a hard link or a server-side copy. When the two paths are the same this only
+     * checks the object is still there.
+     *
+     * @return false when existingPath is gone or this sink cannot reference objects, so the
+     *         bytes have to be copied
+     */
+    default boolean reference(String existingPath, String destPath, Map<String, String> metadata) throws IOException {
+        return false;
+    }
+
+    /**
+     * Extend destPath, which holds the first {@code baseLength} bytes of a file, with the next
+     * length bytes read from in, without sending the first baseLength again. The result is
+     * durable once this returns and replaces the object in one step, so readers see either
+     * version; a failed append leaves the object as it was and may be repeated.
+     *
+     * @return false when destPath no longer holds baseLength bytes of the file or this sink
+     *         cannot append, so the whole file has to be copied
+     */
+    default boolean append(String destPath, long baseLength, long length, ReadableByteChannel in,
+                           Map<String, String> metadata) throws IOException {
+        return false;
+    }
+
+    /**
+     * The checksum the destination system holds for destPath, formatted like
+     * {@link ChecksumAlgorithm#format}, or empty if this sink cannot report one for the algorithm.
+     */
+    default Optional<String> reportedChecksum(String destPath, ChecksumAlgorithm algorithm) throws IOException {
+        return Optional.empty();
+    }
 }
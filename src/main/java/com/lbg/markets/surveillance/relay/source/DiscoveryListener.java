@@ -0,0 +1,19 @@
+package com.lbg.markets.surveillance.relay.source;
+
+import com.lbg.markets.surveillance.relay.domain.FileDescriptor;
+
+import java.util.List;
+
+/**
+ * Receives files from a watching source once they have stopped changing.
+ */
+public interface DiscoveryListener {
+
+    void discovered(List<FileDescriptor> files);
+
+    /**
+     * Events were dropped (e.g. the OS queue overflowed); a full listing is needed to catch up.
+     */
+    default void eventsLost() {
+    }
+}
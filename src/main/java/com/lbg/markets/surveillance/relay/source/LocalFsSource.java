@@ -2,22 +2,47 @@ package com.lbg.markets.surveillance.relay.source;
 
 import com.lbg.markets.surveillance.relay.domain.Feed;
 import com.lbg.markets.surveillance.relay.domain.FileDescriptor;
+import com.lbg.markets.surveillance.relay.util.GlobMatcher;
 import jakarta.enterprise.context.ApplicationScoped;
 
+import java.io.Closeable;
 import java.io.IOException;
 import java.io.InputStream;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.stream.Stream;
 
 /**
  * Source provider for local filesystem.
  * Handles file:// URIs or absolute paths.
+ * <p>
+ * Listing reads each entry's attributes once and skips directories no include pattern
+ * can match. With the {@value #SKIP_UNCHANGED_DIRS_KEY} feed flag set, directories whose
+ * mtime has not changed since the last successful run are not re-listed; this relies on
+ * files arriving by create or rename rather than being rewritten in place.
+ * <p>
+ * {@link #watch} is backed by a {@link LocalFsWatcher} per feed. The {@link #sourceRoot} of a
+ * feed is the mount it lives on, so feeds on the same NFS export or SMB share are limited together.
  */
 @ApplicationScoped
 public class LocalFsSource implements SourceProvider {
 
+    /** Feed metadata flag enabling the unchanged-directory shortcut. */
+    public static final String SKIP_UNCHANGED_DIRS_KEY = "skipUnchangedDirs";
+
+    private final Map<String, Listing> lastSuccessful = new ConcurrentHashMap<>();
+    private final Map<String, Listing> pending = new ConcurrentHashMap<>();
+    private final Map<List<String>, GlobMatcher> matchers = new ConcurrentHashMap<>();
+
     @Override
     public Stream<FileDescriptor> list(Feed feed) throws IOException {
         Path basePath = extractPath(feed.sourceUri());
@@ -26,79 +51,115 @@ public class LocalFsSource implements SourceProvider {
             throw new IOException("Source path does not exist: " + basePath);
         }
 
-        return Files.walk(basePath)
-                .filter(Files::isRegularFile)
-                .filter(p -> matchesPatterns(basePath, p, feed))
-                .map(p -> toDescriptor(basePath, p));
+        GlobMatcher includes = matcher(feed.includePatterns());
+        GlobMatcher excludes = matcher(feed.excludePatterns());
+        LocalFsWalker walker = new LocalFsWalker(
+                basePath,
+                dir -> mayContainMatches(separatorsToSlash(dir), includes, excludes),
+                (file, attrs) -> matchesPatterns(separatorsToSlash(file), includes, excludes),
+                previousSnapshot(feed)
+        );
+        pending.put(feed.id(), new Listing(feed, walker.snapshot()));
+        return walker.stream();
     }
 
     @Override
-    public InputStream open(FileDescriptor file, long offset) throws IOException {
-        Path path = Paths.get(file.sourcePath());
-        InputStream in = Files.newInputStream(path);
-
-        if (offset > 0) {
-            long skipped = in.skip(offset);
-            if (skipped != offset) {
-                throw new IOException("Could not skip to offset " + offset);
-            }
+    public Optional<Closeable> watch(Feed feed, Duration quietPeriod, DiscoveryListener listener) throws IOException {
+        Path basePath = extractPath(feed.sourceUri());
+        GlobMatcher includes = matcher(feed.includePatterns());
+        GlobMatcher excludes = matcher(feed.excludePatterns());
+        return Optional.of(new LocalFsWatcher(
+                basePath,
+                dir -> mayContainMatches(separatorsToSlash(dir), includes, excludes),
+                file -> matchesPatterns(separatorsToSlash(file), includes, excludes),
+                quietPeriod,
+                listener
+        ).start());
+    }
+
+    @Override
+    public void commitListing(Feed feed) {
+        Listing listing = pending.remove(feed.id());
+        if (listing != null && Boolean.parseBoolean(String.valueOf(feed.metadata().get(SKIP_UNCHANGED_DIRS_KEY)))) {
+            lastSuccessful.put(feed.id(), listing);
         }
+    }
 
-        return in;
+    private LocalFsWalker.DirSnapshot previousSnapshot(Feed feed) {
+        if (!Boolean.parseBoolean(String.valueOf(feed.metadata().get(SKIP_UNCHANGED_DIRS_KEY)))) {
+            return null;
+        }
+        // A snapshot taken with different patterns may have pruned directories we now want
+        Listing listing = lastSuccessful.get(feed.id());
+        return listing != null && listing.feed().equals(feed) ? listing.snapshot() : null;
     }
 
-    private Path extractPath(String uri) {
-        if (uri.startsWith("file://")) {
-            return Paths.get(uri.substring(7));
+    @Override
+    public String sourceRoot(Feed feed) {
+        Path path = extractPath(feed.sourceUri());
+        try {
+            // Mount point and device, e.g. "/mnt/trades (fileserver:/export/trades)"
+            return Files.getFileStore(path).toString();
+        } catch (IOException e) {
+            // Not mounted yet; fall back to the top-level directory
+            Path absolute = path.toAbsolutePath();
+            return absolute.getNameCount() > 0 ? absolute.getRoot().resolve(absolute.getName(0)).toString() : absolute.toString();
         }
-        return Paths.get(uri);
     }
 
-    private boolean matchesPatterns(Path base, Path file, Feed feed) {
-        String relativePath = base.relativize(file).toString();
+    @Override
+    public InputStream open(FileDescriptor file, long offset) throws IOException {
+        return Channels.newInputStream(openChannel(file, offset));
+    }
+
+    @Override
+    public FileChannel openChannel(FileDescriptor file, long offset) throws IOException {
+        FileChannel channel = FileChannel.open(Paths.get(file.sourcePath()), StandardOpenOption.READ);
 
-        // Check excludes first
-        for (String exclude : feed.excludePatterns()) {
-            if (matchesGlob(relativePath, exclude)) {
-                return false;
-            }
+        if (offset > channel.size()) {
+            long size = channel.size();
+            channel.close();
+            throw new IOException("Offset " + offset + " is beyond end of file (" + size + " bytes)");
         }
 
-        // If no includes specified, accept all (that aren't excluded)
-        if (feed.includePatterns().isEmpty()) {
-            return true;
-        }
+        return channel.position(offset);
+    }
 
-        // Check includes
-        for (String include : feed.includePatterns()) {
-            if (matchesGlob(relativePath, include)) {
-                return true;
-            }
-        }
+    private static String separatorsToSlash(Path relative) {
+        String path = relative.toString();
+        return relative.getFileSystem().getSeparator().equals("/") ? path : path.replace('\\', '/');
+    }
 
-        return false;
+    private Path extractPath(String uri) {
+        if (uri.startsWith("file://")) {
+            return Paths.get(uri.substring(7));
+        }
+        return Paths.get(uri);
     }
 
-    private boolean matchesGlob(String path, String pattern) {
-        // Simple glob matching - converts ** to .* and * to [^/]*
-        String regex = pattern
-                .replace(".", "\\.")
-                .replace("**", "###DOUBLESTAR###")
-                .replace("*", "[^/]*")
-                .replace("###DOUBLESTAR###", ".*");
+    private GlobMatcher matcher(List<String> patterns) {
+        return matchers.computeIfAbsent(patterns, GlobMatcher::compile);
+    }
 
-        return path.matches(regex);
+    /**
+     * Whether any file below the relative directory could be included, so e.g. {@code *.csv}
+     * never descends and {@code 2025/*.csv} only enters {@code 2025}.
+     */
+    private static boolean mayContainMatches(String relativeDir, GlobMatcher includes, GlobMatcher excludes) {
+        if (excludes.matchesAllBelow(relativeDir)) {
+            return false;
+        }
+        return includes.isEmpty() || includes.mayMatchBelow(relativeDir);
     }
 
-    private FileDescriptor toDescriptor(Path base, Path file) {
-        try {
-            return new FileDescriptor(
-                    file.toString(),
-                    Files.size(file),
-                    Files.getLastModifiedTime(file).toMillis()
-            );
-        } catch (IOException e) {
-            throw new RuntimeException("Failed to read file attributes: " + file, e);
+    private static boolean matchesPatterns(String relativePath, GlobMatcher includes, GlobMatcher excludes) {
+        // Excludes win; no includes means everything that isn't excluded
+        if (excludes.matches(relativePath)) {
+            return false;
         }
+        return includes.isEmpty() || includes.matches(relativePath);
+    }
+
+    private record Listing(Feed feed, LocalFsWalker.DirSnapshot snapshot) {
     }
 }
\ No newline at end of file
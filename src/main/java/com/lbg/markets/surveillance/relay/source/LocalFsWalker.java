@@ -0,0 +1,259 @@
+package com.lbg.markets.surveillance.relay.source;
+
+import com.lbg.markets.surveillance.relay.domain.FileDescriptor;
+import org.jboss.logging.Logger;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.FileVisitResult;
+import java.nio.file.FileVisitor;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BiPredicate;
+import java.util.function.Predicate;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+/**
+ * Walks a source tree with a {@link FileVisitor}, so every entry is stat'ed exactly once
+ * (the attributes handed to the visitor are reused for the descriptor).
+ * <p>
+ * The walk runs on a virtual thread and feeds a bounded queue, so the returned stream is
+ * lazy and the walker never gets more than {@link #QUEUE_CAPACITY} files ahead of the consumer.
+ * Directories rejected by {@code descend} are pruned without being listed. When a previous
+ * {@link DirSnapshot} is supplied, directories whose mtime is unchanged are not listed either:
+ * their files are assumed unchanged and only their known subdirectories are checked.
+ */
+final class LocalFsWalker {
+
+    private static final Logger LOG = Logger.getLogger(LocalFsWalker.class);
+
+    static final int QUEUE_CAPACITY = 1024;
+
+    /** Directory mtimes newer than this are not trusted, since entries may still be landing. */
+    private static final long MTIME_SETTLE_MS = 2_000;
+
+    private static final Object END = new Object();
+
+    private final Path base;
+    private final Predicate<Path> descend;
+    private final BiPredicate<Path, BasicFileAttributes> include;
+    private final DirSnapshot previous;
+    private final DirSnapshot current;
+    private final long walkStartedMs = System.currentTimeMillis();
+
+    private final BlockingQueue<Object> queue = new ArrayBlockingQueue<>(QUEUE_CAPACITY);
+    private volatile boolean cancelled;
+
+    /**
+     * @param descend  whether a directory (relative to base) can contain wanted files
+     * @param include  whether a regular file (relative to base) is wanted
+     * @param previous snapshot from the last successful run, or null to list everything
+     */
+    LocalFsWalker(Path base, Predicate<Path> descend, BiPredicate<Path, BasicFileAttributes> include,
+                  DirSnapshot previous) {
+        this.base = base;
+        this.descend = descend;
+        this.include = include;
+        this.previous = previous;
+        this.current = new DirSnapshot();
+    }
+
+    /**
+     * Directory state recorded by this walk; valid once the stream has been fully consumed.
+     */
+    DirSnapshot snapshot() {
+        return current;
+    }
+
+    Stream<FileDescriptor> stream() {
+        Thread walker = Thread.ofVirtual().name("fs-walk-" + base.getFileName()).start(this::walk);
+
+        Iterator<FileDescriptor> iterator = new Iterator<>() {
+            private Object next;
+
+            @Override
+            public boolean hasNext() {
+                if (next == null) {
+                    next = take();
+                }
+                return next != END;
+            }
+
+            @Override
+            public FileDescriptor next() {
+                if (!hasNext()) {
+                    throw new NoSuchElementException();
+                }
+                Object item = next;
+                next = null;
+                if (item instanceof Throwable failure) {
+                    throw rethrow(failure);
+                }
+                return (FileDescriptor) item;
+            }
+        };
+
+        return StreamSupport.stream(Spliterators.spliteratorUnknownSize(iterator, Spliterator.NONNULL), false)
+                .onClose(() -> {
+                    cancelled = true;
+                    walker.interrupt();
+                    queue.clear();
+                });
+    }
+
+    /**
+     * Walk the tree onto the queue. Whatever stops the walk is queued as its failure, and END
+     * always follows, so the consumer never waits on a walker that has gone.
+     */
+    private void walk() {
+        try {
+            Files.walkFileTree(base, new Visitor());
+        } catch (Throwable e) {
+            put(e);
+        } finally {
+            put(END);
+        }
+    }
+
+    private RuntimeException rethrow(Throwable failure) {
+        if (failure instanceof IOException e) {
+            throw new UncheckedIOException("Failed to walk " + base, e);
+        }
+        if (failure instanceof RuntimeException e) {
+            throw e;
+        }
+        if (failure instanceof Error e) {
+            throw e;
+        }
+        throw new IllegalStateException("Failed to walk " + base, failure);
+    }
+
+    private Object take() {
+        try {
+            return queue.take();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while listing " + base, e);
+        }
+    }
+
+    private void put(Object item) {
+        try {
+            while (!cancelled) {
+                if (queue.offer(item, 100, TimeUnit.MILLISECONDS)) {
+                    return;
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            cancelled = true;
+        }
+    }
+
+    private final class Visitor implements FileVisitor<Path> {
+
+        @Override
+        public FileVisitResult preVisitDirectory(Path dir, BasicFileAttributes attrs) throws IOException {
+            if (cancelled) {
+                return FileVisitResult.TERMINATE;
+            }
+            if (!dir.equals(base) && !descend.test(base.relativize(dir))) {
+                return FileVisitResult.SKIP_SUBTREE;
+            }
+
+            current.addChild(dir);
+            DirSnapshot.DirState before = previous != null ? previous.get(dir) : null;
+            long mtime = attrs.lastModifiedTime().toMillis();
+            if (before != null && before.mtimeMs() == mtime) {
+                // Same entries as last time: reuse the known subdirectories instead of listing
+                current.put(dir, before);
+                for (Path subdir : before.subdirs()) {
+                    Files.walkFileTree(subdir, this);
+                }
+                return FileVisitResult.SKIP_SUBTREE;
+            }
+
+            boolean settled = mtime < walkStartedMs - MTIME_SETTLE_MS;
+            current.put(dir, new DirSnapshot.DirState(settled ? mtime : -1, new ArrayList<>()));
+            return FileVisitResult.CONTINUE;
+        }
+
+        @Override
+        public FileVisitResult visitFile(Path file, BasicFileAttributes attrs) {
+            if (cancelled) {
+                return FileVisitResult.TERMINATE;
+            }
+            if (attrs.isRegularFile() && include.test(base.relativize(file), attrs)) {
+                put(new FileDescriptor(file.toString(), attrs.size(), attrs.lastModifiedTime().toMillis()));
+            }
+            return FileVisitResult.CONTINUE;
+        }
+
+        @Override
+        public FileVisitResult visitFileFailed(Path file, IOException e) throws IOException {
+            if (file.equals(base)) {
+                throw e;
+            }
+            LOG.warnf("Skipping unreadable entry %s: %s", file, e.getMessage());
+            current.invalidate(file.getParent());
+            return FileVisitResult.CONTINUE;
+        }
+
+        @Override
+        public FileVisitResult postVisitDirectory(Path dir, IOException e) {
+            if (e != null) {
+                LOG.warnf("Error listing %s: %s", dir, e.getMessage());
+                current.invalidate(dir);
+            }
+            return cancelled ? FileVisitResult.TERMINATE : FileVisitResult.CONTINUE;
+        }
+    }
+
+    /**
+     * Per-directory mtime and subdirectory list from one walk of a tree.
+     */
+    static final class DirSnapshot {
+
+        record DirState(long mtimeMs, List<Path> subdirs) {
+        }
+
+        private final Map<Path, DirState> dirs = new ConcurrentHashMap<>();
+
+        DirState get(Path dir) {
+            return dirs.get(dir);
+        }
+
+        void put(Path dir, DirState state) {
+            dirs.put(dir, state);
+        }
+
+        void addChild(Path dir) {
+            DirState parent = dir.getParent() != null ? dirs.get(dir.getParent()) : null;
+            if (parent != null && !parent.subdirs().contains(dir)) {
+                parent.subdirs().add(dir);
+            }
+        }
+
+        /** Force a directory to be listed again next time. */
+        void invalidate(Path dir) {
+            DirState state = dir != null ? dirs.get(dir) : null;
+            if (state != null) {
+                dirs.put(dir, new DirState(-1, state.subdirs()));
+            }
+        }
+
+    }
+}
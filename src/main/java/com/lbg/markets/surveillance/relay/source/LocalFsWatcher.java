@@ -0,0 +1,216 @@
+package com.lbg.markets.surveillance.relay.source;
+
+import com.lbg.markets.surveillance.relay.domain.FileDescriptor;
+import org.jboss.logging.Logger;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Predicate;
+
+/**
+ * Watches a source tree with a {@link WatchService} and reports files once they settle.
+ * <p>
+ * Every directory that may contain wanted files is registered, including ones created later
+ * (whose existing contents are picked up on registration, since they may predate it). Events
+ * for the same file are coalesced into one candidate; a candidate is reported once its size and
+ * mtime are unchanged after a full quiet period, so files still being written are left alone.
+ * Settled files found in one sweep are reported as a single batch.
+ */
+final class LocalFsWatcher implements Closeable {
+
+    private static final Logger LOG = Logger.getLogger(LocalFsWatcher.class);
+
+    private static final long MAX_SWEEP_INTERVAL_MS = 1_000;
+
+    private final Path base;
+    private final Predicate<Path> descend;
+    private final Predicate<Path> include;
+    private final long quietNanos;
+    private final DiscoveryListener listener;
+
+    private final WatchService watchService;
+    private final Map<WatchKey, Path> watchedDirs = new HashMap<>();
+    private final Map<Path, Candidate> candidates = new HashMap<>();
+    private Thread thread;
+    private volatile boolean closed;
+
+    /**
+     * @param descend whether a directory (relative to base) can contain wanted files
+     * @param include whether a regular file (relative to base) is wanted
+     */
+    LocalFsWatcher(Path base, Predicate<Path> descend, Predicate<Path> include, Duration quietPeriod,
+                   DiscoveryListener listener) throws IOException {
+        this.base = base;
+        this.descend = descend;
+        this.include = include;
+        this.quietNanos = quietPeriod.toNanos();
+        this.listener = listener;
+        this.watchService = base.getFileSystem().newWatchService();
+    }
+
+    /**
+     * Register the tree and start watching. Files already present are not reported.
+     */
+    LocalFsWatcher start() throws IOException {
+        registerTree(base, false);
+        thread = Thread.ofVirtual().name("fs-watch-" + base.getFileName()).start(this::loop);
+        LOG.infof("Watching %s (%d directories)", base, watchedDirs.size());
+        return this;
+    }
+
+    @Override
+    public void close() throws IOException {
+        closed = true;
+        watchService.close();
+        if (thread != null) {
+            thread.interrupt();
+        }
+    }
+
+    private void loop() {
+        long sweepIntervalMs = Math.max(10, Math.min(MAX_SWEEP_INTERVAL_MS, TimeUnit.NANOSECONDS.toMillis(quietNanos) / 2));
+        try {
+            while (!closed) {
+                WatchKey key = watchService.poll(sweepIntervalMs, TimeUnit.MILLISECONDS);
+                while (key != null) {
+                    handle(key);
+                    key = watchService.poll();
+                }
+                sweep();
+            }
+        } catch (ClosedWatchServiceException | InterruptedException e) {
+            // Closed
+        } catch (RuntimeException e) {
+            LOG.errorf(e, "Watch on %s failed; relying on periodic listing", base);
+            listener.eventsLost();
+        }
+    }
+
+    private void handle(WatchKey key) {
+        Path dir = watchedDirs.get(key);
+        for (WatchEvent<?> event : key.pollEvents()) {
+            if (event.kind() == StandardWatchEventKinds.OVERFLOW) {
+                LOG.warnf("Watch events overflowed for %s", base);
+                listener.eventsLost();
+                continue;
+            }
+            if (dir == null) {
+                continue;
+            }
+            Path path = dir.resolve((Path) event.context());
+            if (event.kind() == StandardWatchEventKinds.ENTRY_DELETE) {
+                candidates.remove(path);
+            } else {
+                observe(path);
+            }
+        }
+        if (!key.reset()) {
+            watchedDirs.remove(key);
+        }
+    }
+
+    private void observe(Path path) {
+        BasicFileAttributes attrs;
+        try {
+            attrs = Files.readAttributes(path, BasicFileAttributes.class);
+        } catch (IOException e) {
+            candidates.remove(path);
+            return;
+        }
+        if (attrs.isDirectory()) {
+            try {
+                registerTree(path, true);
+            } catch (IOException e) {
+                LOG.warnf("Could not watch new directory %s: %s", path, e.getMessage());
+                listener.eventsLost();
+            }
+        } else if (attrs.isRegularFile() && include.test(base.relativize(path))) {
+            candidates.put(path, new Candidate(attrs.size(), attrs.lastModifiedTime().toMillis(), System.nanoTime()));
+        }
+    }
+
+    private void registerTree(Path root, boolean collectFiles) throws IOException {
+        Files.walkFileTree(root, new SimpleFileVisitor<>() {
+            @Override
+            public FileVisitResult preVisitDirectory(Path dir, BasicFileAttributes attrs) throws IOException {
+                if (!dir.equals(base) && !descend.test(base.relativize(dir))) {
+                    return FileVisitResult.SKIP_SUBTREE;
+                }
+                watchedDirs.put(dir.register(watchService,
+                        StandardWatchEventKinds.ENTRY_CREATE,
+                        StandardWatchEventKinds.ENTRY_MODIFY,
+                        StandardWatchEventKinds.ENTRY_DELETE), dir);
+                return FileVisitResult.CONTINUE;
+            }
+
+            @Override
+            public FileVisitResult visitFile(Path file, BasicFileAttributes attrs) {
+                if (collectFiles && attrs.isRegularFile() && include.test(base.relativize(file))) {
+                    candidates.put(file, new Candidate(attrs.size(), attrs.lastModifiedTime().toMillis(), System.nanoTime()));
+                }
+                return FileVisitResult.CONTINUE;
+            }
+
+            @Override
+            public FileVisitResult visitFileFailed(Path file, IOException e) {
+                LOG.warnf("Skipping unreadable entry %s: %s", file, e.getMessage());
+                return FileVisitResult.CONTINUE;
+            }
+        });
+    }
+
+    private void sweep() {
+        if (candidates.isEmpty()) {
+            return;
+        }
+        long now = System.nanoTime();
+        List<FileDescriptor> settled = new ArrayList<>();
+        for (Iterator<Map.Entry<Path, Candidate>> it = candidates.entrySet().iterator(); it.hasNext(); ) {
+            Map.Entry<Path, Candidate> entry = it.next();
+            Candidate candidate = entry.getValue();
+            if (now - candidate.observedAtNanos() < quietNanos) {
+                continue;
+            }
+            try {
+                BasicFileAttributes attrs = Files.readAttributes(entry.getKey(), BasicFileAttributes.class);
+                long mtime = attrs.lastModifiedTime().toMillis();
+                if (attrs.size() == candidate.size() && mtime == candidate.mtimeMs()) {
+                    settled.add(new FileDescriptor(entry.getKey().toString(), attrs.size(), mtime));
+                    it.remove();
+                } else {
+                    // Still growing without raising events (e.g. appends on some filesystems)
+                    entry.setValue(new Candidate(attrs.size(), mtime, now));
+                }
+            } catch (NoSuchFileException e) {
+                it.remove();
+            } catch (IOException e) {
+                LOG.warnf("Dropping watch candidate %s: %s", entry.getKey(), e.getMessage());
+                it.remove();
+            }
+        }
+        if (!settled.isEmpty()) {
+            listener.discovered(settled);
+        }
+    }
+
+    private record Candidate(long size, long mtimeMs, long observedAtNanos) {
+    }
+}
@@ -3,12 +3,62 @@ package com.lbg.markets.surveillance.relay.source;
 import com.lbg.markets.surveillance.relay.domain.Feed;
 import com.lbg.markets.surveillance.relay.domain.FileDescriptor;
 
+import java.io.Closeable;
 import java.io.IOException;
 import java.io.InputStream;
+import java.net.URI;
+import java.nio.channels.Channels;
+import java.nio.channels.ReadableByteChannel;
+import java.time.Duration;
+import java.util.Optional;
 import java.util.stream.Stream;
 
 public interface SourceProvider {
     Stream<FileDescriptor> list(Feed feed) throws IOException;
 
     InputStream open(FileDescriptor file, long offset) throws IOException;
+
+    /**
+     * Open the file as a channel positioned at offset.
+     * Sources backed by real files should return a {@link java.nio.channels.FileChannel}
+     * so sinks can use kernel-level transfers; the default wraps {@link #open}.
+     */
+    default ReadableByteChannel openChannel(FileDescriptor file, long offset) throws IOException {
+        return Channels.newChannel(open(file, offset));
+    }
+
+    /**
+     * The shared resource (host, share, mount) the feed's files are read from. Feeds with the
+     * same root share one adaptive concurrency limit. The default is the URI's scheme and
+     * authority, or the URI itself when it has neither.
+     */
+    default String sourceRoot(Feed feed) {
+        try {
+            URI uri = URI.create(feed.sourceUri());
+            if (uri.getScheme() != null && uri.getAuthority() != null) {
+                return uri.getScheme() + "://" + uri.getAuthority();
+            }
+        } catch (IllegalArgumentException e) {
+            // Not a URI, e.g. a Windows path
+        }
+        return feed.sourceUri();
+    }
+
+    /**
+     * Called after a run in which the whole listing was consumed and every file was handled
+     * successfully. Sources may use it to avoid re-listing unchanged parts of the tree next time.
+     */
+    default void commitListing(Feed feed) {
+    }
+
+    /**
+     * Start pushing the feed's files to the listener as they arrive and settle, instead of
+     * waiting for the next listing. A file counts as settled once its size and mtime have not
+     * changed for quietPeriod. Events can be missed, so callers should still list periodically.
+     *
+     * @return handle that stops the watch, or empty if this source cannot watch
+     */
+    default Optional<Closeable> watch(Feed feed, Duration quietPeriod, DiscoveryListener listener) throws IOException {
+        return Optional.empty();
+    }
 }
@@ -1,10 +1,18 @@
 package com.lbg.markets.surveillance.relay.tracker;
 
+import com.lbg.markets.surveillance.relay.domain.FileId;
 import com.lbg.markets.surveillance.relay.domain.FileRecord;
+import com.lbg.markets.surveillance.relay.domain.ResumeState;
+import com.lbg.markets.surveillance.relay.domain.Run;
 import io.quarkus.arc.profile.IfBuildProfile;
 import jakarta.enterprise.context.ApplicationScoped;
 
+import java.time.Instant;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.function.Consumer;
 
 @ApplicationScoped
 @IfBuildProfile("prod")
@@ -20,8 +28,58 @@ public class BigQueryTracker implements Tracker {
     }
 
     @Override
-    public void updateStatus(String fileId, FileRecord.FileStatus status, String gcsUri) {
+    public Map<FileId, FileRecord> findByIdentities(Collection<FileId> fileIds) {
+        return Map.of();
+    }
+
+    @Override
+    public void updateStatus(FileId fileId, FileRecord.FileStatus status, String gcsUri) {
+
+    }
+
+    @Override
+    public long countByStatus(FileRecord.FileStatus status) {
+        return 0;
+    }
+
+    @Override
+    public Optional<Instant> lastCopiedAt() {
+        return Optional.empty();
+    }
+
+    @Override
+    public void forEachFileId(FileRecord.FileStatus status, Consumer<FileId> action) {
+
+    }
+
+    @Override
+    public Optional<ResumeState> loadResume(FileId fileId) {
+        return Optional.empty();
+    }
+
+    @Override
+    public void saveResume(ResumeState state) {
+
+    }
+
+    @Override
+    public Map<FileId, ResumeState> loadResumes(String feedId) {
+        return Map.of();
+    }
 
+    @Override
+    public void clearResume(FileId fileId) {
+
+    }
+
+    @Override
+    public void saveRun(Run run) {
+
+    }
+
+    @Override
+    public List<Run> recentRuns(String feedId, int limit) {
+        return List.of();
     }
 
     @Override
@@ -0,0 +1,184 @@
+package com.lbg.markets.surveillance.relay.tracker;
+
+import com.lbg.markets.surveillance.relay.domain.FileId;
+import com.lbg.markets.surveillance.relay.domain.FileRecord.FileStatus;
+import com.lbg.markets.surveillance.relay.util.BloomFilter;
+import io.quarkus.runtime.ShutdownEvent;
+import io.quarkus.runtime.StartupEvent;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.enterprise.event.Observes;
+import jakarta.inject.Inject;
+import org.eclipse.microprofile.config.inject.ConfigProperty;
+import org.jboss.logging.Logger;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.time.Instant;
+import java.util.Optional;
+
+/**
+ * In-memory Bloom filter over the ids of COPIED files, consulted before the tracker.
+ * <p>
+ * A negative answer means the file has never been copied, so the tracker lookup can be
+ * skipped; a positive answer still has to be confirmed by the tracker. The filter is warmed
+ * from a snapshot written at shutdown when the tracker's COPIED files still stand where they
+ * did then (see {@link Watermark}), and rebuilt from a tracker scan otherwise. Until warm-up finishes every answer is
+ * positive, so correctness never depends on the filter.
+ */
+@ApplicationScoped
+public class CopiedIdentityIndex {
+
+    private static final Logger LOG = Logger.getLogger(CopiedIdentityIndex.class);
+
+    /** Leads the snapshot file, so one in an older layout is ignored rather than misread. */
+    private static final int SNAPSHOT_VERSION = 2;
+
+    @Inject
+    Tracker tracker;
+
+    @ConfigProperty(name = "tracker.filter.enabled", defaultValue = "true")
+    boolean enabled;
+
+    @ConfigProperty(name = "tracker.filter.expectedFiles", defaultValue = "10000000")
+    long expectedFiles;
+
+    @ConfigProperty(name = "tracker.filter.falsePositiveRate", defaultValue = "0.01")
+    double falsePositiveRate;
+
+    @ConfigProperty(name = "tracker.filter.snapshotPath")
+    Optional<String> snapshotPath;
+
+    private BloomFilter filter;
+    private volatile boolean ready;
+
+    void onStart(@Observes StartupEvent event) {
+        if (!enabled) {
+            return;
+        }
+        filter = BloomFilter.create(expectedFiles, falsePositiveRate);
+        Thread.ofVirtual().name("copied-index-warmup").start(this::warmUp);
+    }
+
+    void onStop(@Observes ShutdownEvent event) {
+        if (ready && snapshotPath.isPresent()) {
+            writeSnapshot(Paths.get(snapshotPath.get()));
+        }
+    }
+
+    /**
+     * False only if the file is definitely not COPIED.
+     */
+    public boolean mightBeCopied(FileId fileId) {
+        return !ready || filter.mightContain(fileId.w0(), fileId.w1());
+    }
+
+    /**
+     * Record a COPIED transition, before it is saved: a file in the filter whose status never
+     * gets saved only costs a tracker lookup. Safe to call before warm-up has finished.
+     */
+    public void markCopied(FileId fileId) {
+        // File ids are hash outputs, so their first 128 bits are already uniformly mixed
+        if (filter != null) {
+            filter.put(fileId.w0(), fileId.w1());
+        }
+    }
+
+    public boolean isReady() {
+        return ready;
+    }
+
+    private void warmUp() {
+        long start = System.nanoTime();
+        try {
+            Watermark current = watermark();
+            boolean fromSnapshot = snapshotPath.isPresent() && loadSnapshot(Paths.get(snapshotPath.get()), current);
+            if (!fromSnapshot) {
+                tracker.forEachFileId(FileStatus.COPIED, this::markCopied);
+            }
+            ready = true;
+            LOG.infof("Copied-identity index ready: %d files from %s in %d ms", current.copied(),
+                    fromSnapshot ? "snapshot" : "tracker scan", (System.nanoTime() - start) / 1_000_000);
+        } catch (RuntimeException e) {
+            LOG.errorf(e, "Failed to warm up copied-identity index; all lookups will go to the tracker");
+        }
+    }
+
+    /**
+     * Where the tracker's COPIED files stand: their count, when the last one was copied and how
+     * their ids are hashed. A snapshot is only trusted when the tracker is still where it was.
+     */
+    private record Watermark(long copied, Instant lastCopiedAt, String identity) {
+
+        void writeTo(DataOutputStream out) throws IOException {
+            out.writeLong(copied);
+            out.writeLong(lastCopiedAt.getEpochSecond());
+            out.writeInt(lastCopiedAt.getNano());
+            out.writeUTF(identity);
+        }
+
+        static Watermark readFrom(DataInputStream in) throws IOException {
+            return new Watermark(in.readLong(), Instant.ofEpochSecond(in.readLong(), in.readInt()), in.readUTF());
+        }
+    }
+
+    private Watermark watermark() {
+        return new Watermark(tracker.countByStatus(FileStatus.COPIED), tracker.lastCopiedAt().orElse(Instant.EPOCH),
+                tracker.identity().label());
+    }
+
+    boolean loadSnapshot(Path path) {
+        return loadSnapshot(path, watermark());
+    }
+
+    private boolean loadSnapshot(Path path, Watermark expected) {
+        if (!Files.exists(path)) {
+            return false;
+        }
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(path)))) {
+            if (in.readInt() != SNAPSHOT_VERSION) {
+                LOG.infof("Ignoring index snapshot %s written by another version", path);
+                return false;
+            }
+            Watermark snapshot = Watermark.readFrom(in);
+            if (!snapshot.equals(expected)) {
+                LOG.infof("Ignoring stale index snapshot (%s, tracker has %s)", snapshot, expected);
+                return false;
+            }
+            return filter.mergeFrom(in);
+        } catch (IOException e) {
+            LOG.warnf(e, "Could not read index snapshot %s", path);
+            return false;
+        }
+    }
+
+    /**
+     * The watermark is read before the filter is written. Ids are added to the filter before
+     * their COPIED status is saved, so every file the watermark covers is in the filter, even
+     * while runs are still saving statuses; files copied later move the watermark on.
+     */
+    void writeSnapshot(Path path) {
+        try {
+            if (path.getParent() != null) {
+                Files.createDirectories(path.getParent());
+            }
+            Watermark watermark = watermark();
+            Path temp = path.resolveSibling(path.getFileName() + ".tmp");
+            try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(temp)))) {
+                out.writeInt(SNAPSHOT_VERSION);
+                watermark.writeTo(out);
+                filter.writeTo(out);
+            }
+            Files.move(temp, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            LOG.infof("Wrote copied-identity index snapshot to %s", path);
+        } catch (IOException | RuntimeException e) {
+            LOG.warnf(e, "Could not write index snapshot %s", path);
+        }
+    }
+}
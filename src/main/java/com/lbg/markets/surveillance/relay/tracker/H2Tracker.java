@@ -1,79 +1,656 @@
 package com.lbg.markets.surveillance.relay.tracker;
 
+import com.lbg.markets.surveillance.relay.domain.ContentRef;
+import com.lbg.markets.surveillance.relay.domain.FileId;
 import com.lbg.markets.surveillance.relay.domain.FileRecord;
 import com.lbg.markets.surveillance.relay.domain.FileRecord.FileStatus;
+import com.lbg.markets.surveillance.relay.domain.FileVersion;
+import com.lbg.markets.surveillance.relay.domain.ResumeState;
+import com.lbg.markets.surveillance.relay.domain.Run;
+import com.lbg.markets.surveillance.relay.domain.Run.RunStatus;
+import com.lbg.markets.surveillance.relay.domain.StatusUpdate;
+import com.lbg.markets.surveillance.relay.util.FileIdentity;
 import io.quarkus.arc.profile.IfBuildProfile;
+import jakarta.annotation.PostConstruct;
 import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.inject.Inject;
+import org.eclipse.microprofile.config.inject.ConfigProperty;
 import org.jboss.logging.Logger;
 
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.sql.Types;
+import java.time.Instant;
+import java.time.OffsetDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.Optional;
-import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Consumer;
 
 /**
- * H2-based tracker for dev/test environments.
- * For now using in-memory implementation, will add JDBC later.
+ * JDBC tracker for dev/test environments, backed by H2 through the Quarkus datasource pool.
+ * <p>
+ * {@code file_id} is the binary {@link FileId} (hashed as set by {@code tracker.identityHash}),
+ * so identity lookups are primary key lookups. Bulk operations use prepared-statement batches; lookups are chunked IN queries.
  */
 @ApplicationScoped
-@IfBuildProfile(anyOf = {"dev", "test"})  // Fixed profile
+@IfBuildProfile(anyOf = {"dev", "test"})
 public class H2Tracker implements Tracker {
 
     private static final Logger LOG = Logger.getLogger(H2Tracker.class);
 
-    // Temporary in-memory implementation until we add H2 JDBC
-    private final Map<String, FileRecord> filesById = new ConcurrentHashMap<>();
-    private final Map<String, String> identityToFileId = new ConcurrentHashMap<>();
+    /** Upper bound on IN-list size for bulk lookups. */
+    private static final int LOOKUP_CHUNK = 500;
+
+    private static final String[] SCHEMA = {
+            """
+            CREATE TABLE IF NOT EXISTS files (
+                file_id BINARY(32) PRIMARY KEY,
+                feed_id VARCHAR(255) NOT NULL,
+                source_path VARCHAR(4096) NOT NULL,
+                size_bytes BIGINT NOT NULL,
+                mtime_epoch_ms BIGINT NOT NULL,
+                checksum VARCHAR(160),
+                status VARCHAR(16) NOT NULL,
+                gcs_uri VARCHAR(4096),
+                copied_at TIMESTAMP WITH TIME ZONE,
+                attempts INT NOT NULL DEFAULT 0,
+                bundle_offset BIGINT,
+                codec VARCHAR(16),
+                compressed_bytes BIGINT
+            )""",
+            "ALTER TABLE files ADD COLUMN IF NOT EXISTS bundle_offset BIGINT",
+            "ALTER TABLE files ADD COLUMN IF NOT EXISTS codec VARCHAR(16)",
+            "ALTER TABLE files ADD COLUMN IF NOT EXISTS compressed_bytes BIGINT",
+            // Databases created before checksums were algorithm-prefixed
+            "ALTER TABLE files ALTER COLUMN IF EXISTS checksum_md5 RENAME TO checksum",
+            "CREATE INDEX IF NOT EXISTS files_feed_status ON files (feed_id, status)",
+            """
+            CREATE TABLE IF NOT EXISTS resumes (
+                file_id BINARY(32) PRIMARY KEY,
+                sink_session_id VARCHAR(4096),
+                bytes_committed BIGINT NOT NULL,
+                updated_at TIMESTAMP WITH TIME ZONE NOT NULL
+            )""",
+            """
+            CREATE TABLE IF NOT EXISTS runs (
+                run_id VARCHAR(36) PRIMARY KEY,
+                feed_id VARCHAR(255) NOT NULL,
+                started_at TIMESTAMP WITH TIME ZONE NOT NULL,
+                ended_at TIMESTAMP WITH TIME ZONE,
+                status VARCHAR(16) NOT NULL,
+                files_discovered BIGINT NOT NULL,
+                files_copied BIGINT NOT NULL,
+                files_skipped BIGINT NOT NULL,
+                files_failed BIGINT NOT NULL,
+                bytes_copied BIGINT NOT NULL
+            )""",
+            "CREATE INDEX IF NOT EXISTS runs_feed_started ON runs (feed_id, started_at)",
+            """
+            CREATE TABLE IF NOT EXISTS contents (
+                checksum VARCHAR(160) NOT NULL,
+                codec VARCHAR(16) NOT NULL,
+                size_bytes BIGINT NOT NULL,
+                sample_hash VARCHAR(80) NOT NULL,
+                location VARCHAR(4096) NOT NULL,
+                stored_bytes BIGINT,
+                updated_at TIMESTAMP WITH TIME ZONE NOT NULL,
+                PRIMARY KEY (checksum, codec)
+            )""",
+            "CREATE INDEX IF NOT EXISTS contents_sample ON contents (size_bytes, sample_hash)",
+            "CREATE INDEX IF NOT EXISTS contents_location ON contents (location)",
+            """
+            CREATE TABLE IF NOT EXISTS versions (
+                file_id BINARY(32) PRIMARY KEY,
+                feed_id VARCHAR(255) NOT NULL,
+                source_path VARCHAR(4096) NOT NULL,
+                size_bytes BIGINT NOT NULL,
+                sample_hash VARCHAR(80) NOT NULL,
+                location VARCHAR(4096) NOT NULL,
+                base_file_id BINARY(32),
+                base_bytes BIGINT NOT NULL,
+                appended_checksum VARCHAR(160),
+                updated_at TIMESTAMP WITH TIME ZONE NOT NULL
+            )""",
+            "CREATE INDEX IF NOT EXISTS versions_path ON versions (feed_id, source_path, updated_at)"
+    };
+
+    private static final String FILE_COLUMNS = "file_id, feed_id, source_path, size_bytes, mtime_epoch_ms, "
+            + "checksum, status, gcs_uri, copied_at, attempts, bundle_offset, codec, compressed_bytes";
+
+    private static final String MERGE_FILE_SOURCE = """
+            MERGE INTO files t
+            USING (VALUES (CAST(? AS BINARY(32)), ?, ?, CAST(? AS BIGINT), CAST(? AS BIGINT), ?, ?, ?,
+                           CAST(? AS TIMESTAMP WITH TIME ZONE), CAST(? AS INT), CAST(? AS BIGINT), ?, CAST(? AS BIGINT)))
+                AS s (file_id, feed_id, source_path, size_bytes, mtime_epoch_ms, checksum, status, gcs_uri,
+                      copied_at, attempts, bundle_offset, codec, compressed_bytes)
+            ON t.file_id = s.file_id
+            """;
+
+    private static final String INSERT_WHEN_NOT_MATCHED = "WHEN NOT MATCHED THEN INSERT (" + FILE_COLUMNS + """
+            )
+                VALUES (s.file_id, s.feed_id, s.source_path, s.size_bytes, s.mtime_epoch_ms, s.checksum,
+                        s.status, s.gcs_uri, s.copied_at, s.attempts, s.bundle_offset, s.codec, s.compressed_bytes)""";
+
+    private static final String UPSERT_FILE = MERGE_FILE_SOURCE + """
+            WHEN MATCHED THEN UPDATE SET
+                feed_id = s.feed_id, source_path = s.source_path, size_bytes = s.size_bytes,
+                mtime_epoch_ms = s.mtime_epoch_ms, checksum = s.checksum, status = s.status,
+                gcs_uri = s.gcs_uri, copied_at = s.copied_at, attempts = s.attempts, bundle_offset = s.bundle_offset,
+                codec = s.codec, compressed_bytes = s.compressed_bytes
+            """ + INSERT_WHEN_NOT_MATCHED;
+
+    private static final String INSERT_MISSING = MERGE_FILE_SOURCE + INSERT_WHEN_NOT_MATCHED;
+
+    private static final String UPDATE_STATUS = """
+            UPDATE files SET
+                status = ?,
+                gcs_uri = ?,
+                bundle_offset = ?,
+                codec = ?,
+                compressed_bytes = ?,
+                checksum = COALESCE(?, checksum),
+                copied_at = CASE WHEN ? THEN CURRENT_TIMESTAMP ELSE copied_at END,
+                attempts = attempts + CASE WHEN ? THEN 1 ELSE 0 END
+            WHERE file_id = ?""";
+
+    private static final String UPSERT_RESUME = """
+            MERGE INTO resumes t
+            USING (VALUES (CAST(? AS BINARY(32)), ?, CAST(? AS BIGINT), CAST(? AS TIMESTAMP WITH TIME ZONE)))
+                AS s (file_id, sink_session_id, bytes_committed, updated_at)
+            ON t.file_id = s.file_id
+            WHEN MATCHED THEN UPDATE SET
+                sink_session_id = s.sink_session_id, bytes_committed = s.bytes_committed, updated_at = s.updated_at
+            WHEN NOT MATCHED THEN INSERT (file_id, sink_session_id, bytes_committed, updated_at)
+                VALUES (s.file_id, s.sink_session_id, s.bytes_committed, s.updated_at)""";
+
+    private static final String UPSERT_CONTENT = "MERGE INTO contents "
+            + "(checksum, codec, size_bytes, sample_hash, location, stored_bytes, updated_at) KEY (checksum, codec) "
+            + "VALUES (?, ?, ?, ?, ?, ?, ?)";
+
+    private static final String VERSION_COLUMNS = "file_id, feed_id, source_path, size_bytes, sample_hash, location, "
+            + "base_file_id, base_bytes, appended_checksum";
+
+    private static final String UPSERT_VERSION = "MERGE INTO versions (" + VERSION_COLUMNS + ", updated_at) "
+            + "KEY (file_id) VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?)";
+
+    private static final String RUN_COLUMNS = "run_id, feed_id, started_at, ended_at, status, files_discovered, "
+            + "files_copied, files_skipped, files_failed, bytes_copied";
+
+    private static final String UPSERT_RUN = "MERGE INTO runs (" + RUN_COLUMNS + ") KEY (run_id) "
+            + "VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?)";
+
+    private final DataSource dataSource;
+    private final FileIdentity identity;
+
+    @Inject
+    public H2Tracker(DataSource dataSource,
+                     @ConfigProperty(name = "tracker.identityHash", defaultValue = "sha256") String identityHash) {
+        this.dataSource = dataSource;
+        this.identity = FileIdentity.parse(identityHash);
+    }
+
+    public H2Tracker(DataSource dataSource) {
+        this(dataSource, FileIdentity.SHA256.label());
+    }
 
     @Override
-    public void upsertFile(FileRecord record) {
-        String identityKey = buildIdentityKey(
-                record.feedId(),
-                record.sourcePath(),
-                record.mtimeEpochMs(),
-                record.sizeBytes()
-        );
+    public FileIdentity identity() {
+        return identity;
+    }
 
-        filesById.put(record.fileId(), record);
-        identityToFileId.put(identityKey, record.fileId());
+    /**
+     * Create the schema if it does not exist yet.
+     */
+    @PostConstruct
+    public void createSchema() {
+        try (Connection conn = dataSource.getConnection(); Statement stmt = conn.createStatement()) {
+            for (String ddl : SCHEMA) {
+                stmt.execute(ddl);
+            }
+        } catch (SQLException e) {
+            throw new RuntimeException("Failed to create tracker schema", e);
+        }
+    }
 
+    @Override
+    public void upsertFile(FileRecord record) {
+        upsertFiles(List.of(record));
         LOG.debugf("Upserted file: %s (status: %s)", record.fileId(), record.status());
     }
 
+    @Override
+    public void upsertFiles(List<FileRecord> records) {
+        if (records.isEmpty()) {
+            return;
+        }
+        try (Connection conn = dataSource.getConnection(); PreparedStatement ps = conn.prepareStatement(UPSERT_FILE)) {
+            for (FileRecord record : records) {
+                bindRecord(ps, record);
+                ps.addBatch();
+            }
+            ps.executeBatch();
+        } catch (SQLException e) {
+            throw new RuntimeException("Failed to upsert " + records.size() + " file records", e);
+        }
+    }
+
+    @Override
+    public void insertMissing(List<FileRecord> records) {
+        if (records.isEmpty()) {
+            return;
+        }
+        try (Connection conn = dataSource.getConnection(); PreparedStatement ps = conn.prepareStatement(INSERT_MISSING)) {
+            for (FileRecord record : records) {
+                bindRecord(ps, record);
+                ps.addBatch();
+            }
+            ps.executeBatch();
+        } catch (SQLException e) {
+            throw new RuntimeException("Failed to insert " + records.size() + " file records", e);
+        }
+    }
+
     @Override
     public Optional<FileRecord> findByIdentity(String feedId, String sourcePath, long mtimeEpochMs, long sizeBytes) {
-        String identityKey = buildIdentityKey(feedId, sourcePath, mtimeEpochMs, sizeBytes);
-        String fileId = identityToFileId.get(identityKey);
+        FileId fileId = identity.of(feedId, sourcePath, mtimeEpochMs, sizeBytes);
+        return Optional.ofNullable(findByIdentities(List.of(fileId)).get(fileId));
+    }
 
-        return fileId != null
-                ? Optional.ofNullable(filesById.get(fileId))
-                : Optional.empty();
+    @Override
+    public Map<FileId, FileRecord> findByIdentities(Collection<FileId> fileIds) {
+        Map<FileId, FileRecord> found = new HashMap<>();
+        List<FileId> ids = List.copyOf(fileIds);
+
+        try (Connection conn = dataSource.getConnection()) {
+            for (int from = 0; from < ids.size(); from += LOOKUP_CHUNK) {
+                List<FileId> chunk = ids.subList(from, Math.min(ids.size(), from + LOOKUP_CHUNK));
+                findChunk(conn, chunk, found);
+            }
+        } catch (SQLException e) {
+            throw new RuntimeException("Failed to look up " + ids.size() + " file identities", e);
+        }
+        return found;
+    }
+
+    private void findChunk(Connection conn, List<FileId> fileIds, Map<FileId, FileRecord> found) throws SQLException {
+        String sql = "SELECT " + FILE_COLUMNS + " FROM files WHERE file_id IN ("
+                + "?,".repeat(fileIds.size() - 1) + "?)";
+
+        try (PreparedStatement ps = conn.prepareStatement(sql)) {
+            for (int i = 0; i < fileIds.size(); i++) {
+                ps.setBytes(i + 1, key(fileIds.get(i)));
+            }
+            try (ResultSet rs = ps.executeQuery()) {
+                while (rs.next()) {
+                    FileRecord record = toRecord(rs);
+                    found.put(record.fileId(), record);
+                }
+            }
+        }
     }
 
     @Override
-    public void updateStatus(String fileId, FileStatus status, String gcsUri) {
-        FileRecord existing = filesById.get(fileId);
-        if (existing == null) {
-            throw new IllegalArgumentException("File not found: " + fileId);
+    public void updateStatus(FileId fileId, FileStatus status, String gcsUri) {
+        updateStatuses(List.of(new StatusUpdate(fileId, status, gcsUri)));
+        LOG.debugf("Updated file %s status to %s", fileId, status);
+    }
+
+    @Override
+    public void updateStatuses(List<StatusUpdate> updates) {
+        if (updates.isEmpty()) {
+            return;
+        }
+        try (Connection conn = dataSource.getConnection()) {
+            // One transaction, so a batch that fails part way leaves no transition applied
+            conn.setAutoCommit(false);
+            try (PreparedStatement ps = conn.prepareStatement(UPDATE_STATUS)) {
+                applyStatuses(ps, updates);
+                conn.commit();
+            } catch (SQLException | RuntimeException e) {
+                conn.rollback();
+                throw e;
+            } finally {
+                conn.setAutoCommit(true);
+            }
+        } catch (SQLException e) {
+            throw new RuntimeException("Failed to apply " + updates.size() + " status updates", e);
+        }
+    }
+
+    private static void applyStatuses(PreparedStatement ps, List<StatusUpdate> updates) throws SQLException {
+        for (StatusUpdate update : updates) {
+            ps.setString(1, update.status().name());
+            ps.setString(2, update.gcsUri());
+            ps.setObject(3, update.bundleOffset(), Types.BIGINT);
+            ps.setString(4, update.codec());
+            ps.setObject(5, update.compressedBytes(), Types.BIGINT);
+            ps.setString(6, update.checksum());
+            ps.setBoolean(7, update.status() == FileStatus.COPIED);
+            ps.setBoolean(8, update.status() == FileStatus.FAILED);
+            ps.setBytes(9, key(update.fileId()));
+            ps.addBatch();
         }
+        int[] counts = ps.executeBatch();
+        for (int i = 0; i < counts.length; i++) {
+            if (counts[i] == 0) {
+                throw new IllegalArgumentException("File not found: " + updates.get(i).fileId());
+            }
+        }
+    }
 
-        FileRecord updated = new FileRecord(
-                existing.fileId(),
-                existing.feedId(),
-                existing.sourcePath(),
-                existing.sizeBytes(),
-                existing.mtimeEpochMs(),
-                existing.checksumMd5(),
-                status,
-                gcsUri,
-                status == FileStatus.COPIED ? java.time.Instant.now() : existing.copiedAt(),
-                existing.attempts() + (status == FileStatus.FAILED ? 1 : 0)
+    @Override
+    public long countByStatus(FileStatus status) {
+        try (Connection conn = dataSource.getConnection();
+             PreparedStatement ps = conn.prepareStatement("SELECT COUNT(*) FROM files WHERE status = ?")) {
+            ps.setString(1, status.name());
+            try (ResultSet rs = ps.executeQuery()) {
+                rs.next();
+                return rs.getLong(1);
+            }
+        } catch (SQLException e) {
+            throw new RuntimeException("Failed to count " + status + " files", e);
+        }
+    }
+
+    @Override
+    public Optional<Instant> lastCopiedAt() {
+        try (Connection conn = dataSource.getConnection();
+             PreparedStatement ps = conn.prepareStatement("SELECT MAX(copied_at) FROM files WHERE status = ?")) {
+            ps.setString(1, FileStatus.COPIED.name());
+            try (ResultSet rs = ps.executeQuery()) {
+                rs.next();
+                return Optional.ofNullable(toInstant(rs.getObject(1, OffsetDateTime.class)));
+            }
+        } catch (SQLException e) {
+            throw new RuntimeException("Failed to read the last copy time", e);
+        }
+    }
+
+    @Override
+    public void forEachFileId(FileStatus status, Consumer<FileId> action) {
+        try (Connection conn = dataSource.getConnection();
+             PreparedStatement ps = conn.prepareStatement("SELECT file_id FROM files WHERE status = ?")) {
+            ps.setFetchSize(10_000);
+            ps.setString(1, status.name());
+            try (ResultSet rs = ps.executeQuery()) {
+                while (rs.next()) {
+                    action.accept(FileId.fromBytes(rs.getBytes(1)));
+                }
+            }
+        } catch (SQLException e) {
+            throw new RuntimeException("Failed to scan " + status + " files", e);
+        }
+    }
+
+    @Override
+    public Optional<ResumeState> loadResume(FileId fileId) {
+        String sql = "SELECT file_id, sink_session_id, bytes_committed, updated_at FROM resumes WHERE file_id = ?";
+        try (Connection conn = dataSource.getConnection(); PreparedStatement ps = conn.prepareStatement(sql)) {
+            ps.setBytes(1, key(fileId));
+            try (ResultSet rs = ps.executeQuery()) {
+                return rs.next() ? Optional.of(toResume(rs)) : Optional.empty();
+            }
+        } catch (SQLException e) {
+            throw new RuntimeException("Failed to load resume state for " + fileId, e);
+        }
+    }
+
+    @Override
+    public void saveResume(ResumeState state) {
+        try (Connection conn = dataSource.getConnection(); PreparedStatement ps = conn.prepareStatement(UPSERT_RESUME)) {
+            ps.setBytes(1, key(state.fileId()));
+            ps.setString(2, state.sinkSessionId());
+            ps.setLong(3, state.bytesCommitted());
+            ps.setObject(4, toTimestamp(state.updatedAt() != null ? state.updatedAt() : Instant.now()));
+            ps.executeUpdate();
+        } catch (SQLException e) {
+            throw new RuntimeException("Failed to save resume state for " + state.fileId(), e);
+        }
+        LOG.debugf("Saved resume point for %s at %d bytes", state.fileId(), state.bytesCommitted());
+    }
+
+    @Override
+    public Map<FileId, ResumeState> loadResumes(String feedId) {
+        String sql = """
+                SELECT r.file_id, r.sink_session_id, r.bytes_committed, r.updated_at
+                FROM resumes r JOIN files f ON f.file_id = r.file_id
+                WHERE f.feed_id = ?""";
+        Map<FileId, ResumeState> resumes = new HashMap<>();
+
+        try (Connection conn = dataSource.getConnection(); PreparedStatement ps = conn.prepareStatement(sql)) {
+            ps.setString(1, feedId);
+            try (ResultSet rs = ps.executeQuery()) {
+                while (rs.next()) {
+                    ResumeState state = toResume(rs);
+                    resumes.put(state.fileId(), state);
+                }
+            }
+        } catch (SQLException e) {
+            throw new RuntimeException("Failed to load resume states for feed " + feedId, e);
+        }
+        return resumes;
+    }
+
+    @Override
+    public void clearResume(FileId fileId) {
+        try (Connection conn = dataSource.getConnection();
+             PreparedStatement ps = conn.prepareStatement("DELETE FROM resumes WHERE file_id = ?")) {
+            ps.setBytes(1, key(fileId));
+            ps.executeUpdate();
+        } catch (SQLException e) {
+            throw new RuntimeException("Failed to clear resume state for " + fileId, e);
+        }
+    }
+
+    @Override
+    public List<ContentRef> findContent(long sizeBytes, String sampleHash) {
+        String sql = "SELECT checksum, codec, size_bytes, sample_hash, location, stored_bytes FROM contents "
+                + "WHERE size_bytes = ? AND sample_hash = ?";
+        List<ContentRef> found = new ArrayList<>();
+        try (Connection conn = dataSource.getConnection(); PreparedStatement ps = conn.prepareStatement(sql)) {
+            ps.setLong(1, sizeBytes);
+            ps.setString(2, sampleHash);
+            try (ResultSet rs = ps.executeQuery()) {
+                while (rs.next()) {
+                    found.add(new ContentRef(
+                            rs.getString("checksum"),
+                            rs.getString("codec"),
+                            rs.getLong("size_bytes"),
+                            rs.getString("sample_hash"),
+                            rs.getString("location"),
+                            rs.getObject("stored_bytes", Long.class)));
+                }
+            }
+        } catch (SQLException e) {
+            throw new RuntimeException("Failed to look up content of " + sizeBytes + " bytes", e);
+        }
+        return found;
+    }
+
+    @Override
+    public void saveContent(ContentRef ref) {
+        try (Connection conn = dataSource.getConnection()) {
+            conn.setAutoCommit(false);
+            try (PreparedStatement delete = conn.prepareStatement("DELETE FROM contents WHERE location = ?");
+                 PreparedStatement upsert = conn.prepareStatement(UPSERT_CONTENT)) {
+                delete.setString(1, ref.location());
+                delete.executeUpdate();
+                upsert.setString(1, ref.checksum());
+                upsert.setString(2, ref.codec());
+                upsert.setLong(3, ref.sizeBytes());
+                upsert.setString(4, ref.sampleHash());
+                upsert.setString(5, ref.location());
+                upsert.setObject(6, ref.storedBytes(), Types.BIGINT);
+                upsert.setObject(7, toTimestamp(Instant.now()));
+                upsert.executeUpdate();
+                conn.commit();
+            } catch (SQLException e) {
+                conn.rollback();
+                throw e;
+            } finally {
+                conn.setAutoCommit(true);
+            }
+        } catch (SQLException e) {
+            throw new RuntimeException("Failed to save content entry for " + ref.location(), e);
+        }
+    }
+
+    @Override
+    public Optional<FileVersion> latestVersion(String feedId, String sourcePath) {
+        String sql = "SELECT " + VERSION_COLUMNS + " FROM versions WHERE feed_id = ? AND source_path = ? "
+                + "ORDER BY updated_at DESC, size_bytes DESC LIMIT 1";
+        try (Connection conn = dataSource.getConnection(); PreparedStatement ps = conn.prepareStatement(sql)) {
+            ps.setString(1, feedId);
+            ps.setString(2, sourcePath);
+            try (ResultSet rs = ps.executeQuery()) {
+                if (!rs.next()) {
+                    return Optional.empty();
+                }
+                byte[] base = rs.getBytes("base_file_id");
+                return Optional.of(new FileVersion(
+                        FileId.fromBytes(rs.getBytes("file_id")),
+                        rs.getString("feed_id"),
+                        rs.getString("source_path"),
+                        rs.getLong("size_bytes"),
+                        rs.getString("sample_hash"),
+                        rs.getString("location"),
+                        base != null ? FileId.fromBytes(base) : null,
+                        rs.getLong("base_bytes"),
+                        rs.getString("appended_checksum")));
+            }
+        } catch (SQLException e) {
+            throw new RuntimeException("Failed to load the latest version of " + sourcePath, e);
+        }
+    }
+
+    @Override
+    public void saveVersion(FileVersion version) {
+        try (Connection conn = dataSource.getConnection(); PreparedStatement ps = conn.prepareStatement(UPSERT_VERSION)) {
+            ps.setBytes(1, key(version.fileId()));
+            ps.setString(2, version.feedId());
+            ps.setString(3, version.sourcePath());
+            ps.setLong(4, version.sizeBytes());
+            ps.setString(5, version.sampleHash());
+            ps.setString(6, version.location());
+            ps.setBytes(7, version.baseFileId() != null ? key(version.baseFileId()) : null);
+            ps.setLong(8, version.baseBytes());
+            ps.setString(9, version.appendedChecksum());
+            ps.setObject(10, toTimestamp(Instant.now()));
+            ps.executeUpdate();
+        } catch (SQLException e) {
+            throw new RuntimeException("Failed to save version " + version.fileId() + " of " + version.sourcePath(), e);
+        }
+    }
+
+    @Override
+    public void saveRun(Run run) {
+        try (Connection conn = dataSource.getConnection(); PreparedStatement ps = conn.prepareStatement(UPSERT_RUN)) {
+            ps.setString(1, run.runId());
+            ps.setString(2, run.feedId());
+            ps.setObject(3, toTimestamp(run.startedAt()));
+            ps.setObject(4, toTimestamp(run.endedAt()));
+            ps.setString(5, run.status().name());
+            ps.setLong(6, run.filesDiscovered());
+            ps.setLong(7, run.filesCopied());
+            ps.setLong(8, run.filesSkipped());
+            ps.setLong(9, run.filesFailed());
+            ps.setLong(10, run.bytesCopied());
+            ps.executeUpdate();
+        } catch (SQLException e) {
+            throw new RuntimeException("Failed to save run " + run.runId(), e);
+        }
+    }
+
+    @Override
+    public List<Run> recentRuns(String feedId, int limit) {
+        String sql = "SELECT " + RUN_COLUMNS + " FROM runs WHERE feed_id = ? ORDER BY started_at DESC LIMIT ?";
+        List<Run> runs = new ArrayList<>();
+        try (Connection conn = dataSource.getConnection(); PreparedStatement ps = conn.prepareStatement(sql)) {
+            ps.setString(1, feedId);
+            ps.setInt(2, limit);
+            try (ResultSet rs = ps.executeQuery()) {
+                while (rs.next()) {
+                    runs.add(new Run(
+                            rs.getString("run_id"),
+                            rs.getString("feed_id"),
+                            toInstant(rs.getObject("started_at", OffsetDateTime.class)),
+                            toInstant(rs.getObject("ended_at", OffsetDateTime.class)),
+                            RunStatus.valueOf(rs.getString("status")),
+                            rs.getLong("files_discovered"),
+                            rs.getLong("files_copied"),
+                            rs.getLong("files_skipped"),
+                            rs.getLong("files_failed"),
+                            rs.getLong("bytes_copied")
+                    ));
+                }
+            }
+        } catch (SQLException e) {
+            throw new RuntimeException("Failed to load runs for feed " + feedId, e);
+        }
+        return runs;
+    }
+
+    private static void bindRecord(PreparedStatement ps, FileRecord record) throws SQLException {
+        ps.setBytes(1, key(record.fileId()));
+        ps.setString(2, record.feedId());
+        ps.setString(3, record.sourcePath());
+        ps.setLong(4, record.sizeBytes());
+        ps.setLong(5, record.mtimeEpochMs());
+        ps.setString(6, record.checksum());
+        ps.setString(7, record.status().name());
+        ps.setString(8, record.gcsUri());
+        ps.setObject(9, toTimestamp(record.copiedAt()));
+        ps.setInt(10, record.attempts());
+        ps.setObject(11, record.bundleOffset(), Types.BIGINT);
+        ps.setString(12, record.codec());
+        ps.setObject(13, record.compressedBytes(), Types.BIGINT);
+    }
+
+    private static FileRecord toRecord(ResultSet rs) throws SQLException {
+        return new FileRecord(
+                FileId.fromBytes(rs.getBytes("file_id")),
+                rs.getString("feed_id"),
+                rs.getString("source_path"),
+                rs.getLong("size_bytes"),
+                rs.getLong("mtime_epoch_ms"),
+                rs.getString("checksum"),
+                FileStatus.valueOf(rs.getString("status")),
+                rs.getString("gcs_uri"),
+                toInstant(rs.getObject("copied_at", OffsetDateTime.class)),
+                rs.getInt("attempts"),
+                rs.getObject("bundle_offset", Long.class),
+                rs.getString("codec"),
+                rs.getObject("compressed_bytes", Long.class)
         );
+    }
 
-        filesById.put(fileId, updated);
-        LOG.debugf("Updated file %s status to %s", fileId, status);
+    private static ResumeState toResume(ResultSet rs) throws SQLException {
+        return new ResumeState(
+                FileId.fromBytes(rs.getBytes("file_id")),
+                rs.getString("sink_session_id"),
+                rs.getLong("bytes_committed"),
+                toInstant(rs.getObject("updated_at", OffsetDateTime.class))
+        );
+    }
+
+    private static byte[] key(FileId fileId) {
+        return fileId.toBytes();
+    }
+
+    private static OffsetDateTime toTimestamp(Instant instant) {
+        return instant != null ? instant.atOffset(ZoneOffset.UTC) : null;
     }
 
-    private String buildIdentityKey(String feedId, String sourcePath, long mtimeEpochMs, long sizeBytes) {
-        return feedId + "|" + sourcePath + "|" + mtimeEpochMs + "|" + sizeBytes;
+    private static Instant toInstant(OffsetDateTime timestamp) {
+        return timestamp != null ? timestamp.toInstant() : null;
     }
-}
\ No newline at end of file
+}
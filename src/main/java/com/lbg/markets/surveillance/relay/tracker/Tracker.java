@@ -1,9 +1,21 @@
 package com.lbg.markets.surveillance.relay.tracker;
 
+import com.lbg.markets.surveillance.relay.domain.ContentRef;
+import com.lbg.markets.surveillance.relay.domain.FileId;
 import com.lbg.markets.surveillance.relay.domain.FileRecord;
 import com.lbg.markets.surveillance.relay.domain.FileRecord.FileStatus;
+import com.lbg.markets.surveillance.relay.domain.FileVersion;
+import com.lbg.markets.surveillance.relay.domain.ResumeState;
+import com.lbg.markets.surveillance.relay.domain.Run;
+import com.lbg.markets.surveillance.relay.domain.StatusUpdate;
+import com.lbg.markets.surveillance.relay.util.FileIdentity;
 
+import java.time.Instant;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.function.Consumer;
 
 /**
  * Interface for tracking file transfer state.
@@ -11,6 +23,14 @@ import java.util.Optional;
  */
 public interface Tracker {
 
+    /**
+     * How this tracker derives file ids. Fixed for the lifetime of the store, since changing it
+     * changes every id.
+     */
+    default FileIdentity identity() {
+        return FileIdentity.SHA256;
+    }
+
     /**
      * Create or update a file record.
      */
@@ -24,7 +44,112 @@ public interface Tracker {
     /**
      * Update file status and optionally set destination URI.
      */
-    void updateStatus(String fileId, FileStatus status, String gcsUri);
+    void updateStatus(FileId fileId, FileStatus status, String gcsUri);
+
+    /**
+     * Find many files at once by their identity hash ({@link #identity()}).
+     * Ids with no record are absent from the result.
+     */
+    Map<FileId, FileRecord> findByIdentities(Collection<FileId> fileIds);
+
+    /**
+     * Create or update many file records in one round trip.
+     */
+    default void upsertFiles(List<FileRecord> records) {
+        records.forEach(this::upsertFile);
+    }
+
+    /**
+     * Insert records whose fileId is not tracked yet, leaving existing records (and their
+     * attempts) untouched. Used to register discovered files without a prior lookup.
+     */
+    default void insertMissing(List<FileRecord> records) {
+        Map<FileId, FileRecord> existing = findByIdentities(records.stream().map(FileRecord::fileId).toList());
+        upsertFiles(records.stream().filter(r -> !existing.containsKey(r.fileId())).toList());
+    }
+
+    /**
+     * Apply many status transitions in one round trip, in list order. Trackers that can should
+     * apply all of them or, when any fails, none.
+     */
+    default void updateStatuses(List<StatusUpdate> updates) {
+        updates.forEach(u -> updateStatus(u.fileId(), u.status(), u.gcsUri()));
+    }
+
+    /**
+     * Number of files currently in the given status.
+     */
+    long countByStatus(FileStatus status);
+
+    /**
+     * When the most recently copied file was marked COPIED, or empty when none is.
+     */
+    Optional<Instant> lastCopiedAt();
+
+    /**
+     * Stream the ids of all files in the given status to action, without materialising them.
+     */
+    void forEachFileId(FileStatus status, Consumer<FileId> action);
+
+    /**
+     * Load the committed-offset journal entry for an interrupted transfer, if any.
+     */
+    Optional<ResumeState> loadResume(FileId fileId);
+
+    /**
+     * Record how far a transfer has durably progressed at the sink.
+     */
+    void saveResume(ResumeState state);
+
+    /**
+     * Load all journal entries for a feed, keyed by fileId. Used once per run so
+     * individual files need no extra round trip to find out whether they can resume.
+     */
+    Map<FileId, ResumeState> loadResumes(String feedId);
+
+    /**
+     * Drop the journal entry once a transfer has completed.
+     */
+    void clearResume(FileId fileId);
+
+    /**
+     * Content index entries for content of this size and sample hash, the candidates for a
+     * content-level dedupe. Trackers without a content index find none.
+     */
+    default List<ContentRef> findContent(long sizeBytes, String sampleHash) {
+        return List.of();
+    }
+
+    /**
+     * Record where content is stored. This replaces the entry for the same checksum and codec,
+     * and any other entry at the same location, since that object has just been overwritten.
+     */
+    default void saveContent(ContentRef ref) {
+    }
+
+    /**
+     * The most recently copied version of a file in an append-only feed, the one the sink
+     * holds. Trackers without lineage find none, so every version is copied whole.
+     */
+    default Optional<FileVersion> latestVersion(String feedId, String sourcePath) {
+        return Optional.empty();
+    }
+
+    /**
+     * Record a copied version of a file in an append-only feed.
+     */
+    default void saveVersion(FileVersion version) {
+    }
+
+    /**
+     * Create or update a run summary, keyed by runId. Saved when a run starts and when it ends.
+     */
+    void saveRun(Run run);
+
+    /**
+     * The most recent runs of a feed, newest first.
+     */
+    List<Run> recentRuns(String feedId, int limit);
 
     /**
      * Check if a file should be skipped (already successfully copied).
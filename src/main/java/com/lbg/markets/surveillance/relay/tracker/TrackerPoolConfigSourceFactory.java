@@ -0,0 +1,38 @@
+package com.lbg.markets.surveillance.relay.tracker;
+
+import io.smallrye.config.ConfigSourceContext;
+import io.smallrye.config.ConfigSourceFactory;
+import io.smallrye.config.ConfigValue;
+import io.smallrye.config.PropertiesConfigSource;
+import org.eclipse.microprofile.config.spi.ConfigSource;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Derives {@code tracker.pool.maxSize}, the size of the tracker's connection pool, as
+ * {@code transfer.parallelism + tracker.pool.headroom}: one connection per worker plus a few for
+ * the listing thread, the status batcher, run summaries and the HTTP endpoints, which would
+ * otherwise wait behind the workers. Config expressions cannot add, so the sum is worked out
+ * here. Setting {@code tracker.pool.maxSize} explicitly overrides it.
+ */
+public class TrackerPoolConfigSourceFactory implements ConfigSourceFactory {
+
+    static final String MAX_SIZE = "tracker.pool.maxSize";
+
+    /** Below the application's own config files, so an explicit value wins. */
+    private static final int ORDINAL = 200;
+
+    @Override
+    public Iterable<ConfigSource> getConfigSources(ConfigSourceContext context) {
+        int parallelism = intValue(context, "transfer.parallelism", 4);
+        int headroom = intValue(context, "tracker.pool.headroom", 4);
+        return List.of(new PropertiesConfigSource(Map.of(MAX_SIZE, String.valueOf(parallelism + headroom)),
+                "tracker-pool", ORDINAL));
+    }
+
+    private static int intValue(ConfigSourceContext context, String name, int defaultValue) {
+        ConfigValue value = context.getValue(name);
+        return value == null || value.getValue() == null ? defaultValue : Integer.parseInt(value.getValue().trim());
+    }
+}
@@ -0,0 +1,133 @@
+package com.lbg.markets.surveillance.relay.util;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Concurrency limit that adapts to the latency of the resource it protects (AIMD).
+ * <p>
+ * Callers report the latency of each operation. A fast moving average is compared with a
+ * slow baseline that leans towards the unloaded latency: while the recent latency stays
+ * within {@code tolerance} times the baseline the limit grows by about one per limit's worth
+ * of samples, and once it exceeds that (or an operation fails) the limit is cut by the
+ * backoff factor. Cuts are at most one per recent latency period, so one burst of slow
+ * samples from many concurrent callers counts as a single congestion signal.
+ */
+public final class AdaptiveLimiter {
+
+    private static final double FAST_ALPHA = 0.2;
+    private static final double SLOW_ALPHA = 0.01;
+    private static final double BACKOFF = 0.7;
+    private static final long MIN_COOLDOWN_NANOS = TimeUnit.MILLISECONDS.toNanos(10);
+
+    private final int min;
+    private final int max;
+    private final double tolerance;
+
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition released = lock.newCondition();
+    private double limit;
+    private int inFlight;
+    private double recent;
+    private double baseline;
+    private long lastDecrease;
+
+    public AdaptiveLimiter(int initial, int min, int max, double tolerance) {
+        if (min < 1 || max < min) {
+            throw new IllegalArgumentException("Need 1 <= min <= max, got " + min + ".." + max);
+        }
+        this.min = min;
+        this.max = max;
+        this.tolerance = tolerance;
+        this.limit = Math.clamp(initial, min, max);
+        this.lastDecrease = System.nanoTime() - MIN_COOLDOWN_NANOS;
+    }
+
+    /**
+     * Block until a slot is free under the current limit.
+     */
+    public void acquire() throws InterruptedException {
+        lock.lockInterruptibly();
+        try {
+            while (inFlight >= (int) limit) {
+                released.await();
+            }
+            inFlight++;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public void release() {
+        lock.lock();
+        try {
+            inFlight--;
+            released.signal();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Report the latency of one operation against the protected resource.
+     */
+    public void onSample(long nanos) {
+        lock.lock();
+        try {
+            if (baseline == 0) {
+                baseline = recent = nanos;
+                return;
+            }
+            recent += FAST_ALPHA * (nanos - recent);
+            // Follow improvements quickly and degradations slowly, so the baseline stays near the unloaded latency
+            baseline += (nanos < baseline ? FAST_ALPHA : SLOW_ALPHA) * (nanos - baseline);
+            if (recent > tolerance * baseline) {
+                decrease();
+            } else if (limit < max && inFlight >= (int) limit) {
+                // Only grow while the limit is what holds callers back
+                setLimit(limit + 1 / limit);
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Report a failed operation, which is treated as congestion.
+     */
+    public void onError() {
+        lock.lock();
+        try {
+            decrease();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public int limit() {
+        lock.lock();
+        try {
+            return (int) limit;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void decrease() {
+        long now = System.nanoTime();
+        if (now - lastDecrease < Math.max(MIN_COOLDOWN_NANOS, (long) recent)) {
+            return;
+        }
+        lastDecrease = now;
+        setLimit(limit * BACKOFF);
+    }
+
+    private void setLimit(double value) {
+        int before = (int) limit;
+        limit = Math.clamp(value, min, max);
+        if ((int) limit > before) {
+            released.signalAll();
+        }
+    }
+}
@@ -0,0 +1,40 @@
+package com.lbg.markets.surveillance.relay.util;
+
+import java.time.Duration;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Exponential backoff with jitter: retry {@code n} waits a random time in the upper half of
+ * {@code min(max, initial * 2^(n-1))}, so retries of files that failed together spread out
+ * instead of hitting a recovering source at the same instant.
+ */
+public final class Backoff {
+
+    private final long initialMs;
+    private final long maxMs;
+
+    public Backoff(Duration initial, Duration max) {
+        if (initial.isNegative() || max.compareTo(initial) < 0) {
+            throw new IllegalArgumentException("Backoff needs 0 <= initial <= max, got " + initial + " and " + max);
+        }
+        this.initialMs = initial.toMillis();
+        this.maxMs = max.toMillis();
+    }
+
+    /**
+     * Delay before the given retry, counting from 1.
+     */
+    public long delayMillis(int retry) {
+        int doublings = Math.min(Math.max(0, retry - 1), 62);
+        long ceiling = initialMs > maxMs >> doublings ? maxMs : initialMs << doublings;
+        long floor = ceiling / 2;
+        return floor + ThreadLocalRandom.current().nextLong(ceiling - floor + 1);
+    }
+
+    /**
+     * Sleep for the delay before the given retry.
+     */
+    public void sleep(int retry) throws InterruptedException {
+        Thread.sleep(delayMillis(retry));
+    }
+}
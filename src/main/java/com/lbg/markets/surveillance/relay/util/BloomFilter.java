@@ -0,0 +1,101 @@
+package com.lbg.markets.surveillance.relay.util;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Thread-safe Bloom filter over 128-bit keys supplied as two longs.
+ * Keys are expected to be well mixed already (e.g. slices of a SHA-256), so bit
+ * positions come straight from double hashing the two halves.
+ */
+public final class BloomFilter {
+
+    private final AtomicLongArray words;
+    private final long bitCount;
+    private final int hashCount;
+
+    private BloomFilter(long bitCount, int hashCount) {
+        this.words = new AtomicLongArray((int) ((bitCount + 63) / 64));
+        this.bitCount = (long) words.length() * 64;
+        this.hashCount = hashCount;
+    }
+
+    /**
+     * Size a filter for the expected number of keys and target false-positive rate.
+     */
+    public static BloomFilter create(long expectedKeys, double falsePositiveRate) {
+        long n = Math.max(1, expectedKeys);
+        long bits = (long) Math.ceil(-n * Math.log(falsePositiveRate) / (Math.log(2) * Math.log(2)));
+        int hashes = (int) Math.max(1, Math.round((double) bits / n * Math.log(2)));
+        return new BloomFilter(Math.max(64, bits), hashes);
+    }
+
+    public void put(long hi, long lo) {
+        for (int i = 0; i < hashCount; i++) {
+            long bit = bitIndex(hi, lo, i);
+            int word = (int) (bit >>> 6);
+            long mask = 1L << bit;
+            long current;
+            do {
+                current = words.get(word);
+                if ((current & mask) != 0) {
+                    break;
+                }
+            } while (!words.compareAndSet(word, current, current | mask));
+        }
+    }
+
+    /**
+     * False means the key was definitely never added; true means it probably was.
+     */
+    public boolean mightContain(long hi, long lo) {
+        for (int i = 0; i < hashCount; i++) {
+            long bit = bitIndex(hi, lo, i);
+            if ((words.get((int) (bit >>> 6)) & (1L << bit)) == 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    public long bitCount() {
+        return bitCount;
+    }
+
+    public int hashCount() {
+        return hashCount;
+    }
+
+    public void writeTo(DataOutput out) throws IOException {
+        out.writeLong(bitCount);
+        out.writeInt(hashCount);
+        for (int i = 0; i < words.length(); i++) {
+            out.writeLong(words.get(i));
+        }
+    }
+
+    /**
+     * Merge a snapshot written by {@link #writeTo} into this filter.
+     * Returns false, leaving this filter untouched, if the snapshot has a different shape.
+     */
+    public boolean mergeFrom(DataInput in) throws IOException {
+        if (in.readLong() != bitCount || in.readInt() != hashCount) {
+            return false;
+        }
+        long[] snapshot = new long[words.length()];
+        for (int i = 0; i < snapshot.length; i++) {
+            snapshot[i] = in.readLong();
+        }
+        for (int i = 0; i < snapshot.length; i++) {
+            long bits = snapshot[i];
+            words.getAndAccumulate(i, bits, (a, b) -> a | b);
+        }
+        return true;
+    }
+
+    private long bitIndex(long hi, long lo, int i) {
+        return Math.floorMod(hi + i * lo, bitCount);
+    }
+}
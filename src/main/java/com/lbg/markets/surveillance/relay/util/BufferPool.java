@@ -0,0 +1,209 @@
+package com.lbg.markets.surveillance.relay.util;
+
+import java.io.InterruptedIOException;
+import java.nio.ByteBuffer;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+
+/**
+ * I/O buffers shared by every transfer, under one budget of bytes.
+ * <p>
+ * Buffers are allocated on first use and kept once released, by size and by kind (heap or
+ * direct), so a steady workload stops allocating. Leased and idle buffers together never
+ * exceed the budget: idle buffers of other sizes are dropped to make room, and a request the
+ * budget cannot cover waits until enough is released, in arrival order. A request for
+ * several buffers is granted all at once, so callers that need a set never hold part of one
+ * while waiting for the rest.
+ */
+public final class BufferPool {
+
+    private final long budget;
+    private final boolean direct;
+    private final Map<Integer, ArrayDeque<ByteBuffer>> idleHeap = new HashMap<>();
+    private final Map<Integer, ArrayDeque<ByteBuffer>> idleDirect = new HashMap<>();
+    private final ArrayDeque<Request> waiting = new ArrayDeque<>();
+    private long leasedBytes;
+    private long idleBytes;
+    private long hits;
+    private long misses;
+    private long waits;
+
+    /**
+     * @param budgetBytes most bytes of buffers, leased or idle, at any time
+     * @param direct      whether {@link #acquire} hands out direct buffers
+     */
+    public BufferPool(long budgetBytes, boolean direct) {
+        if (budgetBytes < 1) {
+            throw new IllegalArgumentException("budgetBytes must be positive, got " + budgetBytes);
+        }
+        this.budget = budgetBytes;
+        this.direct = direct;
+    }
+
+    /**
+     * Block until a buffer of exactly size bytes is free, direct if the pool is. It must be
+     * released once the caller is done with it.
+     */
+    public ByteBuffer acquire(int size) throws InterruptedIOException {
+        CompletableFuture<ByteBuffer[]> request = request(1, size, direct);
+        try {
+            return request.get()[0];
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            if (!request.cancel(false)) {
+                // Granted while being interrupted: hand the buffer on rather than leak it
+                release(request.join());
+            }
+            throw new InterruptedIOException("Interrupted waiting for a " + size + " byte buffer");
+        } catch (ExecutionException e) {
+            throw new IllegalStateException(e.getCause());
+        }
+    }
+
+    /**
+     * count heap buffers of size bytes, for callers that need their backing arrays, once the
+     * budget allows all of them. Cancelling the future gives up the place in the queue; once it
+     * has completed the buffers must be released.
+     */
+    public CompletableFuture<ByteBuffer[]> acquireHeap(int count, int size) {
+        return request(count, size, false);
+    }
+
+    public void release(ByteBuffer... buffers) {
+        List<Request> granted = new ArrayList<>();
+        synchronized (this) {
+            for (ByteBuffer buffer : buffers) {
+                leasedBytes -= buffer.capacity();
+                idleFor(buffer.isDirect()).computeIfAbsent(buffer.capacity(), size -> new ArrayDeque<>())
+                        .push(buffer.clear());
+                idleBytes += buffer.capacity();
+            }
+            while (!waiting.isEmpty()) {
+                Request next = waiting.peek();
+                if (next.result.isDone()) {
+                    waiting.poll();
+                    continue;
+                }
+                if (!tryGrant(next)) {
+                    break;
+                }
+                granted.add(waiting.poll());
+            }
+        }
+        // Completed outside the lock: a waiter's continuation may start its transfer on this thread
+        for (Request request : granted) {
+            if (!request.result.complete(request.buffers)) {
+                release(request.buffers);
+            }
+        }
+    }
+
+    public long budgetBytes() {
+        return budget;
+    }
+
+    public synchronized long leasedBytes() {
+        return leasedBytes;
+    }
+
+    public synchronized long idleBytes() {
+        return idleBytes;
+    }
+
+    /** Buffers handed out again from the idle ones. */
+    public synchronized long hits() {
+        return hits;
+    }
+
+    /** Buffers that had to be allocated. */
+    public synchronized long misses() {
+        return misses;
+    }
+
+    /** Requests that had to wait for the budget. */
+    public synchronized long waits() {
+        return waits;
+    }
+
+    private CompletableFuture<ByteBuffer[]> request(int count, int size, boolean direct) {
+        if (count < 1 || size < 1) {
+            throw new IllegalArgumentException("count and size must be positive, got " + count + " x " + size);
+        }
+        if ((long) count * size > budget) {
+            throw new IllegalArgumentException(count + " x " + size + " bytes exceeds the buffer budget of "
+                    + budget + " bytes");
+        }
+        Request request = new Request(count, size, direct, new CompletableFuture<>());
+        synchronized (this) {
+            if (!waiting.isEmpty() || !tryGrant(request)) {
+                waiting.add(request);
+                waits++;
+                return request.result;
+            }
+        }
+        return CompletableFuture.completedFuture(request.buffers);
+    }
+
+    /**
+     * Fill the request's buffers if the budget allows, reusing idle buffers first. Caller holds the lock.
+     */
+    private boolean tryGrant(Request request) {
+        long bytes = (long) request.count * request.size;
+        if (leasedBytes + bytes > budget) {
+            return false;
+        }
+        ArrayDeque<ByteBuffer> free = idleFor(request.direct).get(request.size);
+        int reused = 0;
+        while (free != null && reused < request.count && !free.isEmpty()) {
+            request.buffers[reused++] = free.pop();
+        }
+        idleBytes -= (long) reused * request.size;
+        leasedBytes += bytes;
+        evict(leasedBytes + idleBytes - budget);
+        for (int i = reused; i < request.count; i++) {
+            request.buffers[i] = request.direct
+                    ? ByteBuffer.allocateDirect(request.size)
+                    : ByteBuffer.allocate(request.size);
+        }
+        hits += reused;
+        misses += request.count - reused;
+        return true;
+    }
+
+    /**
+     * Drop idle buffers until at least bytes are freed, leaving them to the garbage collector.
+     */
+    private void evict(long bytes) {
+        for (Map<Integer, ArrayDeque<ByteBuffer>> idle : List.of(idleHeap, idleDirect)) {
+            Iterator<ArrayDeque<ByteBuffer>> lists = idle.values().iterator();
+            while (bytes > 0 && lists.hasNext()) {
+                ArrayDeque<ByteBuffer> list = lists.next();
+                while (bytes > 0 && !list.isEmpty()) {
+                    int size = list.pop().capacity();
+                    idleBytes -= size;
+                    bytes -= size;
+                }
+                if (list.isEmpty()) {
+                    lists.remove();
+                }
+            }
+        }
+    }
+
+    private Map<Integer, ArrayDeque<ByteBuffer>> idleFor(boolean direct) {
+        return direct ? idleDirect : idleHeap;
+    }
+
+    private record Request(int count, int size, boolean direct, CompletableFuture<ByteBuffer[]> result,
+                           ByteBuffer[] buffers) {
+        Request(int count, int size, boolean direct, CompletableFuture<ByteBuffer[]> result) {
+            this(count, size, direct, result, new ByteBuffer[count]);
+        }
+    }
+}
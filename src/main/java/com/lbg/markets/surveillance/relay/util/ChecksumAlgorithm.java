@@ -0,0 +1,95 @@
+package com.lbg.markets.surveillance.relay.util;
+
+import java.nio.ByteBuffer;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+import java.util.Locale;
+import java.util.zip.CRC32C;
+
+/**
+ * Content checksum algorithms selectable with {@code transfer.checksum}.
+ * Checksums are stored and compared as {@code <label>:<lowercase hex>}, e.g. {@code md5:9e10...}.
+ */
+public enum ChecksumAlgorithm {
+    MD5("md5", "MD5"),
+    SHA256("sha256", "SHA-256"),
+    CRC32C("crc32c", null),
+    NONE("none", null);
+
+    private static final HexFormat HEX = HexFormat.of();
+
+    private final String label;
+    private final String jcaName;
+
+    ChecksumAlgorithm(String label, String jcaName) {
+        this.label = label;
+        this.jcaName = jcaName;
+    }
+
+    public static ChecksumAlgorithm parse(String value) {
+        for (ChecksumAlgorithm algorithm : values()) {
+            if (algorithm.label.equals(value.trim().toLowerCase(Locale.ROOT))) {
+                return algorithm;
+            }
+        }
+        throw new IllegalArgumentException("Unknown checksum algorithm: " + value + " (expected md5, sha256, crc32c or none)");
+    }
+
+    public String label() {
+        return label;
+    }
+
+    /**
+     * Format a raw checksum value for storage, e.g. {@code sha256:ab12...}.
+     */
+    public String format(byte[] value) {
+        return label + ":" + HEX.formatHex(value);
+    }
+
+    /**
+     * Incremental hasher for this algorithm.
+     */
+    Hasher newHasher() {
+        if (this == CRC32C) {
+            CRC32C crc = new CRC32C();
+            return new Hasher() {
+                @Override
+                public void update(ByteBuffer data) {
+                    crc.update(data);
+                }
+
+                @Override
+                public byte[] finish() {
+                    return ByteBuffer.allocate(Integer.BYTES).putInt((int) crc.getValue()).array();
+                }
+            };
+        }
+        if (jcaName == null) {
+            throw new IllegalStateException("No hasher for checksum algorithm " + label);
+        }
+        try {
+            MessageDigest digest = MessageDigest.getInstance(jcaName);
+            return new Hasher() {
+                @Override
+                public void update(ByteBuffer data) {
+                    digest.update(data);
+                }
+
+                @Override
+                public byte[] finish() {
+                    return digest.digest();
+                }
+            };
+        } catch (NoSuchAlgorithmException e) {
+            throw new RuntimeException(jcaName + " not available", e);
+        }
+    }
+
+    interface Hasher {
+        /** Consume the buffer's remaining bytes. */
+        void update(ByteBuffer data);
+
+        byte[] finish();
+    }
+}
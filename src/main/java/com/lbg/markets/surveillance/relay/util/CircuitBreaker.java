@@ -0,0 +1,80 @@
+package com.lbg.markets.surveillance.relay.util;
+
+import java.time.Duration;
+
+/**
+ * Consecutive-failure circuit breaker guarding one dependency, e.g. a feed's source.
+ * <p>
+ * The circuit opens after {@code failureThreshold} failures in a row and then refuses work
+ * for {@code openFor}. After that a single caller is let through as a probe (half open): its
+ * success closes the circuit, its failure opens it for another {@code openFor}. A probe that
+ * never reports back is replaced once {@code openFor} has passed again. Any success while
+ * closed resets the count. A threshold of zero or less disables the breaker.
+ */
+public final class CircuitBreaker {
+
+    public enum State {
+        CLOSED, OPEN, HALF_OPEN
+    }
+
+    private final int failureThreshold;
+    private final long openForNanos;
+
+    private State state = State.CLOSED;
+    private int failures;
+    private long changedAt;
+
+    public CircuitBreaker(int failureThreshold, Duration openFor) {
+        this.failureThreshold = failureThreshold;
+        this.openForNanos = openFor.toNanos();
+    }
+
+    /**
+     * Whether the caller may go ahead. A caller let through must report back with
+     * {@link #onSuccess} or {@link #onFailure}.
+     */
+    public synchronized boolean tryAcquire() {
+        if (state == State.CLOSED) {
+            return true;
+        }
+        long now = System.nanoTime();
+        if (now - changedAt < openForNanos) {
+            return false;
+        }
+        state = State.HALF_OPEN;
+        changedAt = now;
+        return true;
+    }
+
+    public synchronized void onSuccess() {
+        state = State.CLOSED;
+        failures = 0;
+    }
+
+    /**
+     * Count a failure.
+     *
+     * @return true if this failure opened the circuit
+     */
+    public synchronized boolean onFailure() {
+        if (failureThreshold <= 0) {
+            return false;
+        }
+        failures++;
+        if (state == State.HALF_OPEN || state == State.CLOSED && failures >= failureThreshold) {
+            state = State.OPEN;
+            changedAt = System.nanoTime();
+            return true;
+        }
+        return false;
+    }
+
+    public synchronized State state() {
+        return state;
+    }
+
+    /** Failures since the last success. */
+    public synchronized int failures() {
+        return failures;
+    }
+}
@@ -0,0 +1,124 @@
+package com.lbg.markets.surveillance.relay.util;
+
+import com.github.luben.zstd.Zstd;
+
+import java.io.ByteArrayOutputStream;
+import java.util.Arrays;
+import java.util.Locale;
+import java.util.zip.CRC32;
+import java.util.zip.Deflater;
+
+/**
+ * Compression codecs selectable per feed with the {@code compression} metadata key.
+ * <p>
+ * {@link #compress} turns one block into a self-contained gzip member or zstd frame. Both
+ * formats define a stream as its members (frames) one after another, so blocks compressed
+ * independently, and in parallel, still concatenate into one ordinary {@code .gz} or
+ * {@code .zst} file that stock tools decompress.
+ */
+public enum CompressionCodec {
+    NONE("none", "", 0),
+    GZIP("gzip", ".gz", 6),
+    ZSTD("zstd", ".zst", 3);
+
+    private static final byte[] GZIP_HEADER = {
+            0x1f, (byte) 0x8b, // magic
+            Deflater.DEFLATED, // method
+            0,                 // flags
+            0, 0, 0, 0,        // mtime: none
+            0,                 // extra flags
+            (byte) 0xff        // OS: unknown
+    };
+
+    private final String label;
+    private final String extension;
+    private final int defaultLevel;
+
+    CompressionCodec(String label, String extension, int defaultLevel) {
+        this.label = label;
+        this.extension = extension;
+        this.defaultLevel = defaultLevel;
+    }
+
+    /**
+     * The codec for a metadata value; null or blank means {@link #NONE}.
+     */
+    public static CompressionCodec parse(String value) {
+        if (value == null || value.isBlank()) {
+            return NONE;
+        }
+        String normalized = value.trim().toLowerCase(Locale.ROOT);
+        for (CompressionCodec codec : values()) {
+            if (codec.label.equals(normalized)) {
+                return codec;
+            }
+        }
+        if ("gz".equals(normalized)) {
+            return GZIP;
+        }
+        throw new IllegalArgumentException("Unknown compression codec: " + value + " (expected gzip, zstd or none)");
+    }
+
+    public String label() {
+        return label;
+    }
+
+    /**
+     * Suffix appended to the names of objects stored with this codec, e.g. {@code .gz}.
+     */
+    public String extension() {
+        return extension;
+    }
+
+    public int defaultLevel() {
+        return defaultLevel;
+    }
+
+    /**
+     * Compress {@code data[0, length)} into one complete gzip member or zstd frame.
+     */
+    public byte[] compress(byte[] data, int length, int level) {
+        return switch (this) {
+            case NONE -> Arrays.copyOf(data, length);
+            case GZIP -> gzipMember(data, length, level);
+            case ZSTD -> zstdFrame(data, length, level);
+        };
+    }
+
+    private static byte[] gzipMember(byte[] data, int length, int level) {
+        Deflater deflater = new Deflater(Math.max(0, Math.min(9, level)), true);
+        try {
+            deflater.setInput(data, 0, length);
+            deflater.finish();
+            ByteArrayOutputStream out = new ByteArrayOutputStream(length / 2 + 64);
+            out.writeBytes(GZIP_HEADER);
+            byte[] buffer = new byte[64 * 1024];
+            while (!deflater.finished()) {
+                out.write(buffer, 0, deflater.deflate(buffer));
+            }
+            CRC32 crc = new CRC32();
+            crc.update(data, 0, length);
+            writeIntLE(out, (int) crc.getValue());
+            writeIntLE(out, length);
+            return out.toByteArray();
+        } finally {
+            deflater.end();
+        }
+    }
+
+    private static byte[] zstdFrame(byte[] data, int length, int level) {
+        byte[] out = new byte[(int) Zstd.compressBound(length)];
+        long size = Zstd.compressByteArray(out, 0, out.length, data, 0, length, level);
+        if (Zstd.isError(size)) {
+            throw new IllegalStateException("zstd compression failed: " + Zstd.getErrorName(size));
+        }
+        return Arrays.copyOf(out, (int) size);
+    }
+
+    private static void writeIntLE(ByteArrayOutputStream out, int value) {
+        out.write(value);
+        out.write(value >>> 8);
+        out.write(value >>> 16);
+        out.write(value >>> 24);
+    }
+}
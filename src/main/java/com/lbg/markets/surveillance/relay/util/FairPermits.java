@@ -0,0 +1,149 @@
+package com.lbg.markets.surveillance.relay.util;
+
+import java.util.ArrayDeque;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Fixed pool of permits shared by many flows (feeds), handed out by priority and then by
+ * weighted fair share.
+ * <p>
+ * Waiting flows of a higher priority are always served first. Within a priority, each flow
+ * carries a virtual pass that advances by {@code 1 / weight} per permit granted, and the
+ * waiting flow with the lowest pass goes next (stride scheduling), so a flow of weight 2
+ * gets twice the permits of a flow of weight 1 while both are waiting. A flow that becomes
+ * active again starts from the current virtual time, so idling earns it no credit to burst
+ * with later.
+ */
+public final class FairPermits {
+
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Map<String, Flow> flows = new LinkedHashMap<>();
+    private int available;
+    private int waiting;
+    private double virtualTime;
+
+    public FairPermits(int permits) {
+        if (permits < 1) {
+            throw new IllegalArgumentException("permits must be positive, got " + permits);
+        }
+        this.available = permits;
+    }
+
+    /**
+     * Block until a permit is granted to the flow.
+     *
+     * @param key      the flow, e.g. a feed id
+     * @param priority higher is served first
+     * @param weight   share relative to other waiting flows of the same priority
+     */
+    public void acquire(String key, int priority, double weight) throws InterruptedException {
+        if (weight <= 0) {
+            throw new IllegalArgumentException("weight must be positive, got " + weight);
+        }
+        lock.lockInterruptibly();
+        try {
+            Flow flow = flows.computeIfAbsent(key, k -> new Flow());
+            flow.priority = priority;
+            flow.weight = weight;
+            if (flow.waiters.isEmpty()) {
+                flow.pass = Math.max(flow.pass, virtualTime);
+            }
+            if (waiting == 0 && available > 0) {
+                grant(flow);
+                return;
+            }
+
+            Waiter waiter = new Waiter(lock.newCondition());
+            flow.waiters.add(waiter);
+            waiting++;
+            try {
+                while (!waiter.granted) {
+                    waiter.condition.await();
+                }
+            } catch (InterruptedException e) {
+                if (waiter.granted) {
+                    // Granted while being interrupted: hand the permit on rather than leak it
+                    available++;
+                    dispatch();
+                } else {
+                    flow.waiters.remove(waiter);
+                    waiting--;
+                }
+                throw e;
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public void release() {
+        lock.lock();
+        try {
+            available++;
+            dispatch();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public int available() {
+        lock.lock();
+        try {
+            return available;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /** Callers currently blocked waiting for a permit. */
+    public int waiting() {
+        lock.lock();
+        try {
+            return waiting;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void dispatch() {
+        while (available > 0 && waiting > 0) {
+            Flow next = null;
+            for (Flow flow : flows.values()) {
+                if (!flow.waiters.isEmpty() && (next == null || flow.priority > next.priority
+                        || flow.priority == next.priority && flow.pass < next.pass)) {
+                    next = flow;
+                }
+            }
+            Waiter waiter = next.waiters.poll();
+            waiting--;
+            grant(next);
+            waiter.granted = true;
+            waiter.condition.signal();
+        }
+    }
+
+    private void grant(Flow flow) {
+        available--;
+        virtualTime = Math.max(virtualTime, flow.pass);
+        flow.pass += 1 / flow.weight;
+    }
+
+    private static final class Flow {
+        final ArrayDeque<Waiter> waiters = new ArrayDeque<>();
+        int priority;
+        double weight;
+        double pass;
+    }
+
+    private static final class Waiter {
+        final Condition condition;
+        boolean granted;
+
+        Waiter(Condition condition) {
+            this.condition = condition;
+        }
+    }
+}
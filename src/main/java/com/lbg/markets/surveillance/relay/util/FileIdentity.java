@@ -1,42 +1,216 @@
 package com.lbg.markets.surveillance.relay.util;
 
 import com.lbg.markets.surveillance.relay.domain.FileDescriptor;
+import com.lbg.markets.surveillance.relay.domain.FileId;
 
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.nio.ByteOrder;
 import java.nio.charset.StandardCharsets;
+import java.security.DigestException;
 import java.security.MessageDigest;
 import java.security.NoSuchAlgorithmException;
-import java.util.HexFormat;
+import java.util.Arrays;
+import java.util.Locale;
 
 /**
- * Utility for generating stable file identities.
+ * Stable file identities, selectable with {@code tracker.identityHash}.
  * Identity is based on (feedId, sourcePath, mtime, size) to detect changes.
+ * <p>
+ * Both hashes read the UTF-8 bytes of {@code feedId|sourcePath|mtime|size}, encoded into a
+ * per-thread buffer and hashed with a per-thread digest, so hashing a listed file allocates
+ * nothing but the resulting {@link FileId}. {@link #SHA256} is the default; {@link #MURMUR3}
+ * (MurmurHash3 x64 128-bit, zero-padded to 256 bits) is several times cheaper but not
+ * collision resistant against crafted paths. Switching between them changes every id, so the
+ * choice must not change for an existing tracker.
  */
-public final class FileIdentity {
+public enum FileIdentity {
+    SHA256("sha256"),
+    MURMUR3("murmur3");
 
-    private FileIdentity() {
-        // Utility class
+    private static final VarHandle LONGS_LE = MethodHandles.byteArrayViewVarHandle(long[].class, ByteOrder.LITTLE_ENDIAN);
+    private static final ThreadLocal<Scratch> SCRATCH = ThreadLocal.withInitial(Scratch::new);
+
+    private final String label;
+
+    FileIdentity(String label) {
+        this.label = label;
+    }
+
+    public static FileIdentity parse(String value) {
+        for (FileIdentity identity : values()) {
+            if (identity.label.equals(value.trim().toLowerCase(Locale.ROOT))) {
+                return identity;
+            }
+        }
+        throw new IllegalArgumentException("Unknown identity hash: " + value + " (expected sha256 or murmur3)");
+    }
+
+    public String label() {
+        return label;
     }
 
     /**
      * Generate a stable file ID from feed and file descriptor.
-     * Uses SHA-256 hash of the identity components.
      */
-    public static String generateFileId(String feedId, FileDescriptor descriptor) {
-        return generateFileId(feedId, descriptor.sourcePath(), descriptor.mtimeEpochMs(), descriptor.sizeBytes());
+    public FileId of(String feedId, FileDescriptor descriptor) {
+        return of(feedId, descriptor.sourcePath(), descriptor.mtimeEpochMs(), descriptor.sizeBytes());
     }
 
     /**
      * Generate a stable file ID from individual components.
      */
-    public static String generateFileId(String feedId, String sourcePath, long mtimeEpochMs, long sizeBytes) {
-        String identity = feedId + "|" + sourcePath + "|" + mtimeEpochMs + "|" + sizeBytes;
+    public FileId of(String feedId, String sourcePath, long mtimeEpochMs, long sizeBytes) {
+        Scratch scratch = SCRATCH.get();
+        scratch.length = 0;
+        scratch.putString(feedId);
+        scratch.put((byte) '|');
+        scratch.putString(sourcePath);
+        scratch.put((byte) '|');
+        scratch.putLong(mtimeEpochMs);
+        scratch.put((byte) '|');
+        scratch.putLong(sizeBytes);
+
+        return switch (this) {
+            case SHA256 -> scratch.sha256();
+            case MURMUR3 -> murmur3(scratch.buffer, scratch.length);
+        };
+    }
+
+    /**
+     * MurmurHash3 x64 128-bit with seed 0, as two longs in the high half of the id.
+     */
+    private static FileId murmur3(byte[] data, int length) {
+        final long c1 = 0x87c37b91114253d5L;
+        final long c2 = 0x4cf5ad432745937fL;
+        long h1 = 0;
+        long h2 = 0;
+
+        int blocks = length / 16;
+        for (int i = 0; i < blocks; i++) {
+            long k1 = (long) LONGS_LE.get(data, i * 16);
+            long k2 = (long) LONGS_LE.get(data, i * 16 + 8);
+
+            h1 ^= Long.rotateLeft(k1 * c1, 31) * c2;
+            h1 = Long.rotateLeft(h1, 27) + h2;
+            h1 = h1 * 5 + 0x52dce729;
+
+            h2 ^= Long.rotateLeft(k2 * c2, 33) * c1;
+            h2 = Long.rotateLeft(h2, 31) + h1;
+            h2 = h2 * 5 + 0x38495ab5;
+        }
+
+        long k1 = 0;
+        long k2 = 0;
+        int tail = blocks * 16;
+        for (int i = length - tail - 1; i >= 8; i--) {
+            k2 = (k2 << 8) | (data[tail + i] & 0xffL);
+        }
+        for (int i = Math.min(length - tail, 8) - 1; i >= 0; i--) {
+            k1 = (k1 << 8) | (data[tail + i] & 0xffL);
+        }
+        if (length - tail > 8) {
+            h2 ^= Long.rotateLeft(k2 * c2, 33) * c1;
+        }
+        if (length - tail > 0) {
+            h1 ^= Long.rotateLeft(k1 * c1, 31) * c2;
+        }
+
+        h1 ^= length;
+        h2 ^= length;
+        h1 += h2;
+        h2 += h1;
+        h1 = fmix(h1);
+        h2 = fmix(h2);
+        h1 += h2;
+        h2 += h1;
+        return new FileId(h1, h2, 0, 0);
+    }
+
+    private static long fmix(long k) {
+        k ^= k >>> 33;
+        k *= 0xff51afd7ed558ccdL;
+        k ^= k >>> 33;
+        k *= 0xc4ceb9fe1a85ec53L;
+        k ^= k >>> 33;
+        return k;
+    }
+
+    /**
+     * Per-thread encoding buffer and digest.
+     */
+    private static final class Scratch {
+        private final MessageDigest sha256;
+        private final byte[] digest = new byte[FileId.BYTES];
+        byte[] buffer = new byte[256];
+        int length;
+
+        Scratch() {
+            try {
+                sha256 = MessageDigest.getInstance("SHA-256");
+            } catch (NoSuchAlgorithmException e) {
+                throw new RuntimeException("SHA-256 not available", e);
+            }
+        }
+
+        FileId sha256() {
+            sha256.update(buffer, 0, length);
+            try {
+                sha256.digest(digest, 0, digest.length);
+            } catch (DigestException e) {
+                throw new IllegalStateException(e);
+            }
+            return FileId.fromBytes(digest);
+        }
+
+        void put(byte b) {
+            ensure(1);
+            buffer[length++] = b;
+        }
+
+        void putString(String s) {
+            int n = s.length();
+            ensure(n);
+            for (int i = 0; i < n; i++) {
+                char c = s.charAt(i);
+                if (c >= 0x80) {
+                    // Rare non-ASCII path: let the JDK encoder handle multi-byte sequences
+                    byte[] utf8 = s.getBytes(StandardCharsets.UTF_8);
+                    ensure(utf8.length);
+                    System.arraycopy(utf8, 0, buffer, length, utf8.length);
+                    length += utf8.length;
+                    return;
+                }
+                buffer[length + i] = (byte) c;
+            }
+            length += n;
+        }
+
+        /**
+         * Decimal digits of v, as {@link Long#toString(long)} would produce them.
+         */
+        void putLong(long v) {
+            ensure(20);
+            if (v < 0) {
+                buffer[length++] = '-';
+            } else {
+                v = -v; // Work with negatives so Long.MIN_VALUE needs no special case
+            }
+            int digits = 1;
+            for (long t = v / 10; t != 0; t /= 10) {
+                digits++;
+            }
+            for (int i = length + digits - 1; i >= length; i--) {
+                buffer[i] = (byte) ('0' - v % 10);
+                v /= 10;
+            }
+            length += digits;
+        }
 
-        try {
-            MessageDigest digest = MessageDigest.getInstance("SHA-256");
-            byte[] hash = digest.digest(identity.getBytes(StandardCharsets.UTF_8));
-            return HexFormat.of().formatHex(hash);
-        } catch (NoSuchAlgorithmException e) {
-            throw new RuntimeException("SHA-256 not available", e);
+        private void ensure(int extra) {
+            if (length + extra > buffer.length) {
+                buffer = Arrays.copyOf(buffer, Math.max(buffer.length * 2, length + extra));
+            }
         }
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,226 @@
+package com.lbg.markets.surveillance.relay.util;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.regex.Pattern;
+
+/**
+ * A set of glob patterns compiled once and matched against '/'-separated relative paths.
+ * <p>
+ * Syntax: {@code *} matches within one segment, {@code ?} matches one non-'/' character and a
+ * {@code **} segment matches zero or more whole segments (so {@code **}{@code /*.csv} also matches
+ * {@code a.csv}). Everything else is literal. The common shapes (literal path, {@code *.ext},
+ * {@code **}{@code /*.ext}, {@code dir/**}) are matched with string operations; the rest share a
+ * single alternation regex.
+ */
+public final class GlobMatcher {
+
+    private static final GlobMatcher EMPTY = new GlobMatcher(List.of());
+
+    private final List<Glob> globs;
+    private final List<String> literals = new ArrayList<>();
+    private final List<String> rootSuffixes = new ArrayList<>();
+    private final List<String> fileSuffixes = new ArrayList<>();
+    private final List<String> prefixes = new ArrayList<>();
+    private final Pattern combined;
+
+    private GlobMatcher(List<Glob> globs) {
+        this.globs = globs;
+        StringBuilder regex = new StringBuilder();
+        for (Glob glob : globs) {
+            switch (glob.kind) {
+                case LITERAL -> literals.add(glob.text);
+                case ROOT_SUFFIX -> rootSuffixes.add(glob.text);
+                case FILE_SUFFIX -> fileSuffixes.add(glob.text);
+                case PREFIX -> prefixes.add(glob.text);
+                case REGEX -> regex.append(regex.isEmpty() ? "" : "|").append("(?:").append(glob.regex.pattern()).append(')');
+            }
+        }
+        this.combined = regex.isEmpty() ? null : Pattern.compile(regex.toString());
+    }
+
+    public static GlobMatcher compile(Collection<String> patterns) {
+        if (patterns.isEmpty()) {
+            return EMPTY;
+        }
+        return new GlobMatcher(patterns.stream().map(Glob::parse).toList());
+    }
+
+    public boolean isEmpty() {
+        return globs.isEmpty();
+    }
+
+    /**
+     * Whether any pattern matches the relative path.
+     */
+    public boolean matches(String path) {
+        for (String literal : literals) {
+            if (path.equals(literal)) {
+                return true;
+            }
+        }
+        if (!rootSuffixes.isEmpty() && path.indexOf('/') < 0) {
+            for (String suffix : rootSuffixes) {
+                if (path.endsWith(suffix)) {
+                    return true;
+                }
+            }
+        }
+        for (String suffix : fileSuffixes) {
+            if (path.endsWith(suffix)) {
+                return true;
+            }
+        }
+        for (String prefix : prefixes) {
+            if (path.startsWith(prefix) && path.length() > prefix.length() && path.charAt(prefix.length()) == '/') {
+                return true;
+            }
+        }
+        return combined != null && combined.matcher(path).matches();
+    }
+
+    /**
+     * Whether some pattern could match a path below the relative directory.
+     * False means the directory can be skipped.
+     */
+    public boolean mayMatchBelow(String dir) {
+        String[] dirSegments = dir.split("/");
+        for (Glob glob : globs) {
+            if (glob.mayMatchBelow(dirSegments)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Whether some pattern matches every path below the relative directory.
+     */
+    public boolean matchesAllBelow(String dir) {
+        for (Glob glob : globs) {
+            if (glob.matchesAllBelow(dir)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private enum Kind {LITERAL, ROOT_SUFFIX, FILE_SUFFIX, PREFIX, REGEX}
+
+    private static final class Glob {
+
+        final Kind kind;
+        final String text;
+        final Pattern regex;
+        /**
+         * Per-segment patterns for directory pruning; null entries stand for segments containing
+         * "**", which match across directories.
+         */
+        final Pattern[] segments;
+        /** For patterns ending in "/**": the part before it, which decides a whole subtree. */
+        final Pattern subtree;
+
+        private Glob(Kind kind, String text, String pattern) {
+            this.kind = kind;
+            this.text = text;
+            this.regex = Pattern.compile(toRegex(pattern));
+
+            String[] parts = pattern.split("/");
+            this.segments = new Pattern[parts.length];
+            for (int i = 0; i < parts.length; i++) {
+                segments[i] = parts[i].contains("**") ? null : Pattern.compile(segmentRegex(parts[i]));
+            }
+            this.subtree = pattern.equals("**") ? Pattern.compile(".*")
+                    : pattern.endsWith("/**") ? Pattern.compile(toRegex(pattern.substring(0, pattern.length() - 3)))
+                    : null;
+        }
+
+        static Glob parse(String pattern) {
+            if (!hasWildcard(pattern)) {
+                return new Glob(Kind.LITERAL, pattern, pattern);
+            }
+            if (pattern.startsWith("**/*") && isPlain(pattern.substring(4))) {
+                return new Glob(Kind.FILE_SUFFIX, pattern.substring(4), pattern);
+            }
+            if (pattern.startsWith("*") && isPlain(pattern.substring(1))) {
+                return new Glob(Kind.ROOT_SUFFIX, pattern.substring(1), pattern);
+            }
+            if (pattern.endsWith("/**") && !hasWildcard(pattern.substring(0, pattern.length() - 3))) {
+                return new Glob(Kind.PREFIX, pattern.substring(0, pattern.length() - 3), pattern);
+            }
+            return new Glob(Kind.REGEX, null, pattern);
+        }
+
+        boolean mayMatchBelow(String[] dirSegments) {
+            for (int i = 0; i < dirSegments.length; i++) {
+                if (i < segments.length && segments[i] == null) {
+                    return true;
+                }
+                // The last pattern segment names files, so the directory must match an earlier one
+                if (i >= segments.length - 1 || !segments[i].matcher(dirSegments[i]).matches()) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        boolean matchesAllBelow(String dir) {
+            return subtree != null && subtree.matcher(dir).matches();
+        }
+
+        private static boolean hasWildcard(String s) {
+            return s.indexOf('*') >= 0 || s.indexOf('?') >= 0;
+        }
+
+        private static boolean isPlain(String s) {
+            return !hasWildcard(s) && s.indexOf('/') < 0;
+        }
+
+        private static String toRegex(String pattern) {
+            String[] parts = pattern.split("/", -1);
+            StringBuilder regex = new StringBuilder();
+            for (int i = 0; i < parts.length; i++) {
+                boolean last = i == parts.length - 1;
+                if (parts[i].equals("**")) {
+                    // Zero or more whole segments, including their trailing separator
+                    regex.append(last ? ".*" : "(?:[^/]*/)*");
+                    continue;
+                }
+                regex.append(segmentRegex(parts[i]));
+                if (!last) {
+                    regex.append('/');
+                }
+            }
+            return regex.toString();
+        }
+
+        private static String segmentRegex(String segment) {
+            StringBuilder regex = new StringBuilder();
+            StringBuilder literal = new StringBuilder();
+            for (int i = 0; i < segment.length(); i++) {
+                char c = segment.charAt(i);
+                if (c != '*' && c != '?') {
+                    literal.append(c);
+                    continue;
+                }
+                if (!literal.isEmpty()) {
+                    regex.append(Pattern.quote(literal.toString()));
+                    literal.setLength(0);
+                }
+                if (c == '?') {
+                    regex.append("[^/]");
+                } else if (i + 1 < segment.length() && segment.charAt(i + 1) == '*') {
+                    regex.append(".*");
+                    i++;
+                } else {
+                    regex.append("[^/]*");
+                }
+            }
+            if (!literal.isEmpty()) {
+                regex.append(Pattern.quote(literal.toString()));
+            }
+            return regex.toString();
+        }
+    }
+}
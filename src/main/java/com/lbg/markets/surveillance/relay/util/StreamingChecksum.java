@@ -0,0 +1,212 @@
+package com.lbg.markets.surveillance.relay.util;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+
+/**
+ * Checksum fed incrementally with the bytes of one file as they are copied.
+ * <p>
+ * The plain form hashes the whole stream on the calling thread. The tree form splits the
+ * stream into fixed-size leaves hashed in parallel on the common pool, and the result is the
+ * hash of the concatenated leaf hashes; it is labelled {@code <algorithm>-tree<leafBytes>} since
+ * it differs from the plain hash of the same bytes. At most one leaf per core is in flight.
+ * <p>
+ * Ranges of a file copied independently are hashed with {@link Leaves} and combined with
+ * {@link #tree(ChecksumAlgorithm, int, List)}, giving the same result as the tree form.
+ */
+public abstract class StreamingChecksum {
+
+    /**
+     * Consume the buffer's remaining bytes, leaving its position at the limit.
+     */
+    public abstract void update(ByteBuffer data);
+
+    /**
+     * Finish and return the formatted checksum, e.g. {@code md5:9e10...}.
+     */
+    public abstract String finish();
+
+    /**
+     * Whether {@link #finish()} is comparable with a plain checksum reported by a sink.
+     */
+    public abstract boolean isPlain();
+
+    public static StreamingChecksum of(ChecksumAlgorithm algorithm) {
+        return new Plain(algorithm);
+    }
+
+    public static StreamingChecksum tree(ChecksumAlgorithm algorithm, int leafBytes) {
+        return new Tree(algorithm, leafBytes);
+    }
+
+    /**
+     * A new checksum of the same form as a formatted one, e.g. a tree with the same leaves for
+     * {@code md5-tree1048576:...}, so that hashing the same bytes gives the same result.
+     */
+    public static StreamingChecksum like(String checksum) {
+        String label = checksum.substring(0, Math.max(0, checksum.indexOf(':')));
+        int tree = label.indexOf("-tree");
+        return tree < 0
+                ? of(ChecksumAlgorithm.parse(label))
+                : tree(ChecksumAlgorithm.parse(label.substring(0, tree)),
+                Integer.parseInt(label.substring(tree + "-tree".length())));
+    }
+
+    /**
+     * Combine the leaf digests of a whole file, in file order, into its tree checksum.
+     */
+    public static String tree(ChecksumAlgorithm algorithm, int leafBytes, List<byte[]> leaves) {
+        ChecksumAlgorithm.Hasher root = algorithm.newHasher();
+        for (byte[] leaf : leaves) {
+            root.update(ByteBuffer.wrap(leaf));
+        }
+        return treeLabel(algorithm, leafBytes, root.finish());
+    }
+
+    private static String treeLabel(ChecksumAlgorithm algorithm, int leafBytes, byte[] root) {
+        return algorithm.label() + "-tree" + leafBytes + ":" + HexFormat.of().formatHex(root);
+    }
+
+    /**
+     * Leaf digests of one range of a file, hashed on the calling thread. The range must start
+     * on a leaf boundary, and only the file's last range may end with a partial leaf.
+     */
+    public static final class Leaves {
+        private final ChecksumAlgorithm algorithm;
+        private final int leafBytes;
+        private final List<byte[]> digests = new ArrayList<>();
+        private ChecksumAlgorithm.Hasher leaf;
+        private int leafFill;
+
+        public Leaves(ChecksumAlgorithm algorithm, int leafBytes) {
+            this.algorithm = algorithm;
+            this.leafBytes = leafBytes;
+            this.leaf = algorithm.newHasher();
+        }
+
+        public void update(ByteBuffer data) {
+            while (data.hasRemaining()) {
+                int n = Math.min(leafBytes - leafFill, data.remaining());
+                leaf.update(data.slice(data.position(), n));
+                data.position(data.position() + n);
+                leafFill += n;
+                if (leafFill == leafBytes) {
+                    digests.add(leaf.finish());
+                    leaf = algorithm.newHasher();
+                    leafFill = 0;
+                }
+            }
+        }
+
+        public List<byte[]> finish() {
+            if (leafFill > 0) {
+                digests.add(leaf.finish());
+                leafFill = 0;
+            }
+            return List.copyOf(digests);
+        }
+    }
+
+    private static final class Plain extends StreamingChecksum {
+        private final ChecksumAlgorithm algorithm;
+        private final ChecksumAlgorithm.Hasher hasher;
+
+        Plain(ChecksumAlgorithm algorithm) {
+            this.algorithm = algorithm;
+            this.hasher = algorithm.newHasher();
+        }
+
+        @Override
+        public void update(ByteBuffer data) {
+            hasher.update(data);
+        }
+
+        @Override
+        public String finish() {
+            return algorithm.format(hasher.finish());
+        }
+
+        @Override
+        public boolean isPlain() {
+            return true;
+        }
+    }
+
+    private static final class Tree extends StreamingChecksum {
+        private static final int MAX_IN_FLIGHT = Math.max(2, Runtime.getRuntime().availableProcessors());
+
+        private final ChecksumAlgorithm algorithm;
+        private final int leafBytes;
+        private final ChecksumAlgorithm.Hasher root;
+        private final Deque<CompletableFuture<byte[]>> inFlight = new ArrayDeque<>();
+        private ByteBuffer leaf;
+
+        Tree(ChecksumAlgorithm algorithm, int leafBytes) {
+            this.algorithm = algorithm;
+            this.leafBytes = leafBytes;
+            this.root = algorithm.newHasher();
+            this.leaf = ByteBuffer.allocate(leafBytes);
+        }
+
+        @Override
+        public void update(ByteBuffer data) {
+            while (data.hasRemaining()) {
+                int n = Math.min(leaf.remaining(), data.remaining());
+                leaf.put(leaf.position(), data, data.position(), n);
+                leaf.position(leaf.position() + n);
+                data.position(data.position() + n);
+                if (!leaf.hasRemaining()) {
+                    submitLeaf();
+                }
+            }
+        }
+
+        @Override
+        public String finish() {
+            if (leaf.position() > 0 || inFlight.isEmpty()) {
+                submitLeaf();
+            }
+            while (!inFlight.isEmpty()) {
+                root.update(ByteBuffer.wrap(join(inFlight.removeFirst())));
+            }
+            return treeLabel(algorithm, leafBytes, root.finish());
+        }
+
+        @Override
+        public boolean isPlain() {
+            return false;
+        }
+
+        private void submitLeaf() {
+            // Fold finished leaves into the root in order, waiting for the oldest when at the limit
+            while (!inFlight.isEmpty() && (inFlight.size() >= MAX_IN_FLIGHT || inFlight.peekFirst().isDone())) {
+                root.update(ByteBuffer.wrap(join(inFlight.removeFirst())));
+            }
+            ByteBuffer full = leaf.flip();
+            inFlight.addLast(CompletableFuture.supplyAsync(() -> {
+                ChecksumAlgorithm.Hasher hasher = algorithm.newHasher();
+                hasher.update(full);
+                return hasher.finish();
+            }, ForkJoinPool.commonPool()));
+            leaf = ByteBuffer.allocate(leafBytes);
+        }
+
+        private static byte[] join(CompletableFuture<byte[]> future) {
+            try {
+                return future.get();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IllegalStateException("Interrupted while hashing", e);
+            } catch (ExecutionException e) {
+                throw new IllegalStateException("Leaf hash failed", e.getCause());
+            }
+        }
+    }
+}
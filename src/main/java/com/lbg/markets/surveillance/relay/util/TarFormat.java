@@ -0,0 +1,115 @@
+package com.lbg.markets.surveillance.relay.util;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Just enough of the POSIX ustar format to write regular files into an archive any
+ * {@code tar} can read. Names that do not fit the 100 byte name field get a PAX extended
+ * header carrying the full path.
+ */
+public final class TarFormat {
+
+    public static final int BLOCK = 512;
+
+    /** Largest entry size the 11 octal digit size field can hold (8 GiB - 1). */
+    public static final long MAX_ENTRY_SIZE = 077777777777L;
+
+    private static final int NAME_LENGTH = 100;
+    private static final int CHECKSUM_OFFSET = 148;
+
+    private TarFormat() {
+    }
+
+    /**
+     * The header block(s) for a regular file entry. Its data starts straight after them.
+     */
+    public static byte[] fileHeader(String name, long size, long mtimeEpochMs) {
+        if (size < 0 || size > MAX_ENTRY_SIZE) {
+            throw new IllegalArgumentException("Tar entry size out of range: " + size);
+        }
+        byte[] nameBytes = name.getBytes(StandardCharsets.UTF_8);
+        long mtime = mtimeEpochMs / 1000;
+        if (nameBytes.length <= NAME_LENGTH) {
+            return header(nameBytes, size, mtime, (byte) '0');
+        }
+
+        byte[] record = paxRecord("path", name);
+        byte[] shortName = new byte[NAME_LENGTH];
+        System.arraycopy(nameBytes, nameBytes.length - NAME_LENGTH, shortName, 0, NAME_LENGTH);
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        out.writeBytes(header("PaxHeaders/entry".getBytes(StandardCharsets.US_ASCII), record.length, mtime, (byte) 'x'));
+        out.writeBytes(record);
+        out.writeBytes(new byte[padding(record.length)]);
+        out.writeBytes(header(shortName, size, mtime, (byte) '0'));
+        return out.toByteArray();
+    }
+
+    /**
+     * Zero bytes needed after an entry's data to reach the next block boundary.
+     */
+    public static int padding(long size) {
+        return (int) ((BLOCK - size % BLOCK) % BLOCK);
+    }
+
+    /**
+     * The two zero blocks that end an archive.
+     */
+    public static byte[] endOfArchive() {
+        return new byte[2 * BLOCK];
+    }
+
+    private static byte[] header(byte[] name, long size, long mtime, byte type) {
+        byte[] header = new byte[BLOCK];
+        System.arraycopy(name, 0, header, 0, Math.min(name.length, NAME_LENGTH));
+        octal(header, 100, 8, 0644);
+        octal(header, 108, 8, 0);
+        octal(header, 116, 8, 0);
+        octal(header, 124, 12, size);
+        octal(header, 136, 12, mtime);
+        header[156] = type;
+        ascii(header, 257, "ustar\0");
+        ascii(header, 263, "00");
+
+        // The checksum is computed with its own field set to spaces
+        for (int i = 0; i < 8; i++) {
+            header[CHECKSUM_OFFSET + i] = ' ';
+        }
+        long sum = 0;
+        for (byte b : header) {
+            sum += b & 0xFF;
+        }
+        octal(header, CHECKSUM_OFFSET, 7, sum);
+        header[CHECKSUM_OFFSET + 7] = ' ';
+        return header;
+    }
+
+    /**
+     * Zero-padded octal digits followed by a NUL, filling {@code length} bytes.
+     */
+    private static void octal(byte[] header, int offset, int length, long value) {
+        int end = offset + length - 1;
+        header[end] = 0;
+        for (int i = end - 1; i >= offset; i--) {
+            header[i] = (byte) ('0' + (value & 7));
+            value >>>= 3;
+        }
+    }
+
+    private static void ascii(byte[] header, int offset, String value) {
+        byte[] bytes = value.getBytes(StandardCharsets.US_ASCII);
+        System.arraycopy(bytes, 0, header, offset, bytes.length);
+    }
+
+    /**
+     * A PAX record, {@code "<length> <key>=<value>\n"}, where the length counts itself.
+     */
+    private static byte[] paxRecord(String key, String value) {
+        int body = (" " + key + "=" + value + "\n").getBytes(StandardCharsets.UTF_8).length;
+        int length = body + 1;
+        while (String.valueOf(length).length() + body != length) {
+            length++;
+        }
+        return (length + " " + key + "=" + value + "\n").getBytes(StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,45 @@
+package com.lbg.markets.surveillance.relay.util;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Byte-rate limiter refilled continuously at a fixed rate, holding at most one second of burst.
+ * <p>
+ * A caller takes what it has just used and, if that overdraws the bucket, sleeps until the
+ * debt is repaid; later callers queue behind the debt. Requests larger than the burst are
+ * therefore allowed but paid for in full.
+ */
+public final class TokenBucket {
+
+    private final double bytesPerNano;
+    private final double capacity;
+    private double tokens;
+    private long refilledAt;
+
+    public TokenBucket(long bytesPerSecond) {
+        if (bytesPerSecond <= 0) {
+            throw new IllegalArgumentException("bytesPerSecond must be positive, got " + bytesPerSecond);
+        }
+        this.bytesPerNano = bytesPerSecond / 1e9;
+        this.capacity = bytesPerSecond;
+        this.tokens = capacity;
+        this.refilledAt = System.nanoTime();
+    }
+
+    /**
+     * Take the given number of bytes, sleeping for as long as the bucket is in debt.
+     */
+    public void acquire(long bytes) throws InterruptedException {
+        long waitNanos;
+        synchronized (this) {
+            long now = System.nanoTime();
+            tokens = Math.min(capacity, tokens + (now - refilledAt) * bytesPerNano);
+            refilledAt = now;
+            tokens -= bytes;
+            waitNanos = tokens < 0 ? (long) (-tokens / bytesPerNano) : 0;
+        }
+        if (waitNanos > 0) {
+            TimeUnit.NANOSECONDS.sleep(waitNanos);
+        }
+    }
+}
@@ -1,23 +1,75 @@
 package com.lbg.markets.surveillance.relay.orchestration;
 
+import com.lbg.markets.surveillance.relay.domain.ExpectedFeed;
 import com.lbg.markets.surveillance.relay.domain.Feed;
+import com.lbg.markets.surveillance.relay.domain.FileDescriptor;
+import com.lbg.markets.surveillance.relay.domain.FileId;
+import com.lbg.markets.surveillance.relay.domain.FileRecord;
+import com.lbg.markets.surveillance.relay.domain.FileRecord.FileStatus;
+import com.lbg.markets.surveillance.relay.domain.FileVersion;
+import com.lbg.markets.surveillance.relay.domain.ResumeState;
+import com.lbg.markets.surveillance.relay.domain.Run;
+import com.lbg.markets.surveillance.relay.domain.Run.RunStatus;
+import com.lbg.markets.surveillance.relay.domain.StatusUpdate;
 import com.lbg.markets.surveillance.relay.domain.TransferResult;
+import com.lbg.markets.surveillance.relay.service.FeedScheduler;
+import com.lbg.markets.surveillance.relay.service.RunListener;
+import com.lbg.markets.surveillance.relay.service.TransferCompression;
 import com.lbg.markets.surveillance.relay.service.TransferOrchestrationService;
+import com.lbg.markets.surveillance.relay.service.WatchDiscoveryService;
+import com.lbg.markets.surveillance.relay.sink.CommitListener;
 import com.lbg.markets.surveillance.relay.sink.LocalFsSink;
+import com.lbg.markets.surveillance.relay.source.SourceProvider;
+import com.lbg.markets.surveillance.relay.tracker.Tracker;
+import com.lbg.markets.surveillance.relay.util.Backoff;
+import com.lbg.markets.surveillance.relay.util.ChecksumAlgorithm;
+import com.lbg.markets.surveillance.relay.util.FairPermits;
+import com.lbg.markets.surveillance.relay.util.FileIdentity;
+import io.quarkus.arc.ClientProxy;
 import io.quarkus.test.junit.QuarkusTest;
 import jakarta.inject.Inject;
+import jakarta.json.Json;
+import jakarta.json.JsonObject;
+import jakarta.json.JsonReader;
 import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
 import java.lang.reflect.Field;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
 import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+import java.time.Duration;
+import java.util.HexFormat;
 import java.util.List;
 import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BiConsumer;
+import java.util.function.UnaryOperator;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import java.util.zip.GZIPInputStream;
 
+import static io.restassured.RestAssured.given;
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 
 @QuarkusTest
@@ -29,6 +81,15 @@ class TransferOrchestrationServiceTest {
     @Inject
     LocalFsSink localSink;
 
+    @Inject
+    Tracker tracker;
+
+    @Inject
+    WatchDiscoveryService watchDiscovery;
+
+    @Inject
+    FeedScheduler feedScheduler;
+
     private Path sourceDir;
     private Path sinkDir;
     private Path originalSinkPath;
@@ -39,11 +100,12 @@ class TransferOrchestrationServiceTest {
         sourceDir = Files.createTempDirectory("test-source-");
         sinkDir = Files.createTempDirectory("test-sink-");
 
-        // Store original sink path and update it via reflection for testing
+        // Store original sink path and update it via reflection for testing.
+        // The injected bean is a client proxy, so the field must be set on the underlying instance.
         Field basePathField = LocalFsSink.class.getDeclaredField("basePath");
         basePathField.setAccessible(true);
-        originalSinkPath = (Path) basePathField.get(localSink);
-        basePathField.set(localSink, sinkDir);
+        originalSinkPath = (Path) basePathField.get(sinkInstance());
+        basePathField.set(sinkInstance(), sinkDir);
     }
 
     @AfterEach
@@ -52,7 +114,7 @@ class TransferOrchestrationServiceTest {
         if (originalSinkPath != null) {
             Field basePathField = LocalFsSink.class.getDeclaredField("basePath");
             basePathField.setAccessible(true);
-            basePathField.set(localSink, originalSinkPath);
+            basePathField.set(sinkInstance(), originalSinkPath);
         }
 
         // Clean up temp directories
@@ -64,6 +126,32 @@ class TransferOrchestrationServiceTest {
         }
     }
 
+    private LocalFsSink sinkInstance() {
+        return ClientProxy.unwrap(localSink);
+    }
+
+    private List<TransferResult> transfer(Feed feed) {
+        RunListener.Collecting results = RunListener.collecting();
+        orchestrator.executeTransfer(feed, results);
+        return results.results();
+    }
+
+    /**
+     * Run the feed with the orchestrator's source replaced by a wrapper around it.
+     */
+    private List<TransferResult> transferThrough(Feed feed, UnaryOperator<SourceProvider> wrap) throws Exception {
+        TransferOrchestrationService target = ClientProxy.unwrap(orchestrator);
+        Field sourceField = TransferOrchestrationService.class.getDeclaredField("sourceProvider");
+        sourceField.setAccessible(true);
+        SourceProvider source = (SourceProvider) sourceField.get(target);
+        sourceField.set(target, wrap.apply(source));
+        try {
+            return transfer(feed);
+        } finally {
+            sourceField.set(target, source);
+        }
+    }
+
     private void deleteRecursively(Path path) throws IOException {
         if (Files.isDirectory(path)) {
             try (var stream = Files.list(path)) {
@@ -79,6 +167,233 @@ class TransferOrchestrationServiceTest {
         Files.deleteIfExists(path);
     }
 
+    @Test
+    void shouldExportPerFeedMetrics() throws IOException {
+        Files.writeString(sourceDir.resolve("a.txt"), "alpha");
+        Files.writeString(sourceDir.resolve("b.txt"), "bravo!");
+        Feed feed = new Feed("metrics-feed", sourceDir.toString(), List.of("*.txt"), List.of(), "metrics", true, Map.of());
+
+        orchestrator.executeTransfer(feed);
+
+        String metrics = given().get("/q/metrics").then().statusCode(200).extract().asString();
+        assertTrue(metrics.contains("transfer_files_total{feed=\"metrics-feed\",status=\"copied\"} 2.0"), metrics);
+        assertTrue(metrics.contains("transfer_bytes_total{feed=\"metrics-feed\"} 11.0"), metrics);
+        for (String stage : List.of("list", "dedupe", "open", "write", "tracker")) {
+            assertTrue(metrics.contains("transfer_stage_duration_seconds_count{feed=\"metrics-feed\",stage=\"" + stage + "\"}"),
+                    "missing stage " + stage);
+        }
+    }
+
+    @Test
+    void shouldSaveRunSummaries() throws IOException {
+        Files.writeString(sourceDir.resolve("a.txt"), "alpha");
+        Files.writeString(sourceDir.resolve("b.txt"), "bravo!");
+        Feed feed = new Feed("runs-feed", sourceDir.toString(), List.of("*.txt"), List.of(), "runs", true, Map.of());
+
+        Run first = orchestrator.executeTransfer(feed);
+        Run second = orchestrator.executeTransfer(feed);
+
+        assertEquals(RunStatus.SUCCEEDED, first.status());
+        assertEquals(2, first.filesDiscovered());
+        assertEquals(2, first.filesCopied());
+        assertEquals(11, first.bytesCopied());
+        assertEquals(2, second.filesSkipped());
+        List<Run> saved = tracker.recentRuns("runs-feed", 5);
+        assertEquals(List.of(second.runId(), first.runId()), saved.stream().map(Run::runId).toList());
+        assertEquals(RunStatus.SUCCEEDED, saved.getLast().status());
+        assertEquals(11, saved.getLast().bytesCopied());
+    }
+
+    @Test
+    void shouldBundleSmallFilesWithAManifest() throws IOException {
+        for (int i = 0; i < 3; i++) {
+            Files.writeString(sourceDir.resolve("small-" + i + ".csv"), "row " + i);
+        }
+        Files.write(sourceDir.resolve("large.csv"), new byte[1024 * 1024 + 1]);
+
+        Feed feed = new Feed(
+                "bundle-feed",
+                sourceDir.toString(),
+                List.of("*.csv"),
+                List.of(),
+                "bundled",
+                true,
+                Map.of(TransferOrchestrationService.BUNDLE_KEY, "true")
+        );
+
+        RunListener.Collecting results = RunListener.collecting();
+        Run run = orchestrator.executeTransfer(feed, results);
+        assertEquals(4, run.filesCopied());
+
+        // Files over transfer.bundle.maxFileBytes are still copied on their own
+        assertTrue(Files.exists(sinkDir.resolve("bundled/large.csv")));
+        String bundle = "bundled/bundles/" + run.runId() + "-00001.tar";
+        byte[] tar = Files.readAllBytes(sinkDir.resolve(bundle));
+        assertEquals(0, tar.length % 512);
+
+        JsonObject manifest;
+        try (JsonReader reader = Json.createReader(Files.newBufferedReader(sinkDir.resolve(bundle + ".manifest.json")))) {
+            manifest = reader.readObject();
+        }
+        assertEquals(3, manifest.getJsonArray("members").size());
+
+        for (TransferResult result : results.results()) {
+            FileRecord record = tracker.findByIdentities(List.of(result.fileId())).get(result.fileId());
+            if (result.sourcePath().endsWith("large.csv")) {
+                assertEquals(null, record.bundleOffset());
+                continue;
+            }
+            assertEquals(bundle, record.gcsUri());
+            int offset = record.bundleOffset().intValue();
+            String content = new String(tar, offset, (int) record.sizeBytes(), StandardCharsets.UTF_8);
+            assertEquals(Files.readString(Path.of(result.sourcePath())), content);
+        }
+    }
+
+    @Test
+    void shouldCopyLargeFilesAsConcurrentRanges() throws Exception {
+        // Over the test profile's transfer.ranged.thresholdBytes, in 1 MiB ranges
+        byte[] data = new byte[5 * 1024 * 1024 + 123];
+        new Random(7).nextBytes(data);
+        Files.write(sourceDir.resolve("extract.dat"), data);
+
+        Feed feed = new Feed("ranged-feed", sourceDir.toString(), List.of("*.dat"), List.of(), "ranged", true, Map.of());
+        List<TransferResult> results = transfer(feed);
+
+        assertEquals(TransferResult.Status.SUCCESS, results.getFirst().status());
+        assertArrayEquals(data, Files.readAllBytes(sinkDir.resolve("ranged/extract.dat")));
+        assertFalse(Files.exists(sinkDir.resolve("ranged/extract.dat.ranges.tmp")));
+
+        // Checksummed as a tree of the ranges, hashed independently
+        MessageDigest root = MessageDigest.getInstance("MD5");
+        for (int offset = 0; offset < data.length; offset += 1024 * 1024) {
+            MessageDigest leaf = MessageDigest.getInstance("MD5");
+            leaf.update(data, offset, Math.min(1024 * 1024, data.length - offset));
+            root.update(leaf.digest());
+        }
+        FileId fileId = results.getFirst().fileId();
+        assertEquals("md5-tree1048576:" + HexFormat.of().formatHex(root.digest()),
+                tracker.findByIdentities(List.of(fileId)).get(fileId).checksum());
+    }
+
+    @Test
+    void shouldCompressFeedsInParallelBlocks() throws Exception {
+        // Over the ranged threshold and several of the test profile's 1 MiB compression blocks
+        StringBuilder rows = new StringBuilder();
+        Random random = new Random(3);
+        while (rows.length() < 5 * 1024 * 1024) {
+            rows.append("trade,").append(random.nextInt(100_000)).append(",GBP,").append(random.nextInt(1000)).append('\n');
+        }
+        byte[] data = rows.toString().getBytes(StandardCharsets.UTF_8);
+        Files.write(sourceDir.resolve("trades.csv"), data);
+
+        Feed feed = new Feed("gzip-feed", sourceDir.toString(), List.of("*.csv"), List.of(), "compressed", true,
+                Map.of(TransferCompression.CODEC_KEY, "gzip"));
+        List<TransferResult> results = transfer(feed);
+
+        assertEquals(TransferResult.Status.SUCCESS, results.getFirst().status());
+        Path stored = sinkDir.resolve("compressed/trades.csv.gz");
+        assertFalse(Files.exists(sinkDir.resolve("compressed/trades.csv")));
+        // Stock gzip readers take the concatenated members as one stream
+        try (InputStream in = new GZIPInputStream(Files.newInputStream(stored))) {
+            assertArrayEquals(data, in.readAllBytes());
+        }
+
+        FileId fileId = results.getFirst().fileId();
+        FileRecord record = tracker.findByIdentities(List.of(fileId)).get(fileId);
+        assertEquals("gzip", record.codec());
+        assertEquals(data.length, record.sizeBytes());
+        assertEquals(Files.size(stored), record.compressedBytes());
+        assertTrue(record.compressedBytes() < data.length / 2);
+        assertEquals("md5:" + HexFormat.of().formatHex(MessageDigest.getInstance("MD5").digest(data)),
+                record.checksum());
+    }
+
+    @Test
+    void shouldReferenceContentTheSinkAlreadyHolds() throws Exception {
+        byte[] data = new byte[2 * 1024 * 1024];
+        new Random(11).nextBytes(data);
+        Files.write(sourceDir.resolve("day1.bin"), data);
+        Feed feed = new Feed("dedupe-feed", sourceDir.toString(), List.of("*.bin"), List.of(), "dedupe", true,
+                Map.of(TransferOrchestrationService.CONTENT_DEDUPE_KEY, "true"));
+        assertEquals(data.length, transfer(feed).getFirst().bytesTransferred());
+
+        // The same content dropped again under another name
+        Files.write(sourceDir.resolve("day2.bin"), data);
+        TransferResult result = successOf(transfer(feed));
+
+        assertTrue(result.sourcePath().endsWith("day2.bin"));
+        assertEquals(0, result.bytesTransferred());
+        Path original = sinkDir.resolve("dedupe/day1.bin");
+        Path referenced = sinkDir.resolve("dedupe/day2.bin");
+        assertArrayEquals(data, Files.readAllBytes(referenced));
+        assertTrue(Files.isSameFile(original, referenced));
+
+        FileId fileId = result.fileId();
+        assertEquals("md5:" + HexFormat.of().formatHex(MessageDigest.getInstance("MD5").digest(data)),
+                tracker.findByIdentities(List.of(fileId)).get(fileId).checksum());
+    }
+
+    @Test
+    void shouldAppendOnlyTheNewBytesOfAGrowingFile() throws IOException {
+        Path log = sourceDir.resolve("app.log");
+        byte[] day = new byte[300_000];
+        new Random(13).nextBytes(day);
+        Files.write(log, day);
+        Feed feed = new Feed("append-feed", sourceDir.toString(), List.of("*.log"), List.of(), "logs", true,
+                Map.of(TransferOrchestrationService.APPEND_ONLY_KEY, "true"));
+        TransferResult first = transfer(feed).getFirst();
+        assertEquals(day.length, first.bytesTransferred());
+
+        Files.write(log, "more rows\n".getBytes(StandardCharsets.UTF_8), StandardOpenOption.APPEND);
+        TransferResult grown = successOf(transfer(feed));
+
+        assertEquals(10, grown.bytesTransferred());
+        assertArrayEquals(Files.readAllBytes(log), Files.readAllBytes(sinkDir.resolve("logs/app.log")));
+        FileVersion version = tracker.latestVersion("append-feed", log.toString()).orElseThrow();
+        assertEquals(grown.fileId(), version.fileId());
+        assertEquals(first.fileId(), version.baseFileId());
+        assertEquals(day.length, version.baseBytes());
+
+        // Rewritten rather than grown, so copied whole
+        day[0]++;
+        Files.write(log, day);
+        Files.write(log, "longer than before\n".getBytes(StandardCharsets.UTF_8), StandardOpenOption.APPEND);
+        TransferResult rewritten = successOf(transfer(feed));
+
+        assertEquals(Files.size(log), rewritten.bytesTransferred());
+        assertArrayEquals(Files.readAllBytes(log), Files.readAllBytes(sinkDir.resolve("logs/app.log")));
+        assertNull(tracker.latestVersion("append-feed", log.toString()).orElseThrow().baseFileId());
+    }
+
+    @Test
+    void shouldFailACopyWhoseVersionCannotBeSaved() throws Exception {
+        Path log = sourceDir.resolve("unversioned.log");
+        Files.writeString(log, "first rows\n");
+        Feed feed = new Feed("unversioned-feed", sourceDir.toString(), List.of("*.log"), List.of(), "logs", true,
+                Map.of(TransferOrchestrationService.APPEND_ONLY_KEY, "true"));
+
+        List<TransferResult> results = transferWithTracker(feed, (method, args) -> {
+            if (method.getName().equals("saveVersion")) {
+                throw new IllegalStateException("tracker unavailable");
+            }
+        });
+
+        assertEquals(1, results.size());
+        assertEquals(TransferResult.Status.FAILED, results.getFirst().status());
+        FileRecord stored = tracker.findByIdentity("unversioned-feed", log.toString(),
+                Files.getLastModifiedTime(log).toMillis(), Files.size(log)).orElseThrow();
+        assertEquals(FileStatus.FAILED, stored.status());
+        // Never counted as copied, so the next run copies it again
+        assertEquals(TransferResult.Status.SUCCESS, transfer(feed).getFirst().status());
+    }
+
+    private static TransferResult successOf(List<TransferResult> results) {
+        return results.stream()
+                .filter(r -> r.status() == TransferResult.Status.SUCCESS)
+                .findFirst().orElseThrow();
+    }
+
     @Test
     void shouldTransferSimpleFile() throws IOException {
         // Create a test file
@@ -97,7 +412,7 @@ class TransferOrchestrationServiceTest {
         );
 
         // Execute transfer
-        List<TransferResult> results = orchestrator.executeTransfer(feed);
+        List<TransferResult> results = transfer(feed);
 
         // Verify
         assertEquals(1, results.size());
@@ -111,6 +426,106 @@ class TransferOrchestrationServiceTest {
         assertEquals("Hello, world!", Files.readString(expectedOutput));
     }
 
+    @Test
+    void shouldHandLocalFilesToTheSinkAsFileChannels() throws Exception {
+        Files.writeString(sourceDir.resolve("zero-copy.dat"), "kernel copy");
+        Feed feed = new Feed("zero-copy-feed", sourceDir.toString(), List.of("*.dat"), List.of(), "zero-copy", true,
+                Map.of());
+
+        // Everything but the checksum, which tees the stream by design, is the shipped config
+        TransferOrchestrationService target = ClientProxy.unwrap(orchestrator);
+        Field sinkField = TransferOrchestrationService.class.getDeclaredField("sink");
+        Field checksumField = TransferOrchestrationService.class.getDeclaredField("checksumAlgorithm");
+        sinkField.setAccessible(true);
+        checksumField.setAccessible(true);
+        Object sink = sinkField.get(target);
+        Object checksum = checksumField.get(target);
+        List<Class<?>> channels = new CopyOnWriteArrayList<>();
+        sinkField.set(target, new LocalFsSink(sinkDir.toString(), 8192, 1024 * 1024) {
+            @Override
+            public long write(String destPath, ReadableByteChannel in, ResumeState resume, long length,
+                              Map<String, String> metadata, CommitListener listener) throws IOException {
+                channels.add(in.getClass());
+                return super.write(destPath, in, resume, length, metadata, listener);
+            }
+        });
+        checksumField.set(target, ChecksumAlgorithm.NONE);
+        try {
+            assertEquals(TransferResult.Status.SUCCESS, transfer(feed).getFirst().status());
+        } finally {
+            sinkField.set(target, sink);
+            checksumField.set(target, checksum);
+        }
+
+        assertEquals(1, channels.size());
+        assertTrue(FileChannel.class.isAssignableFrom(channels.getFirst()),
+                "LocalFsSink only uses transferTo for FileChannel sources, got " + channels.getFirst());
+        assertEquals("kernel copy", Files.readString(sinkDir.resolve("zero-copy/zero-copy.dat")));
+    }
+
+    @Test
+    void shouldReportCopiesOnceTheirStatusIsSaved() throws Exception {
+        Files.writeString(sourceDir.resolve("flaky.csv"), "saved on retry");
+        Files.writeString(sourceDir.resolve("lost.csv"), "never saved");
+        Feed feed = new Feed("flaky-tracker-feed", sourceDir.toString(), List.of("*.csv"), List.of(), "flaky", true,
+                Map.of());
+
+        // The first batch with a COPIED status fails for both files; lost.csv keeps failing after that
+        AtomicInteger failures = new AtomicInteger();
+        List<TransferResult> results = transferWithTracker(feed, (method, args) -> {
+            if (method.getName().equals("updateStatuses")) {
+                List<?> updates = (List<?>) args[0];
+                boolean copied = updates.stream().anyMatch(u -> ((StatusUpdate) u).status() == FileStatus.COPIED);
+                boolean lost = updates.stream().anyMatch(u -> ((StatusUpdate) u).gcsUri() != null
+                        && ((StatusUpdate) u).gcsUri().endsWith("lost.csv"));
+                if (copied && (failures.getAndIncrement() == 0 || lost)) {
+                    throw new IllegalStateException("tracker unavailable");
+                }
+            }
+        });
+
+        assertEquals(2, results.size());
+        Map<String, TransferResult> byName = results.stream()
+                .collect(Collectors.toMap(r -> Path.of(r.sourcePath()).getFileName().toString(), r -> r));
+        assertEquals(TransferResult.Status.SUCCESS, byName.get("flaky.csv").status());
+        assertEquals(TransferResult.Status.FAILED, byName.get("lost.csv").status());
+        assertTrue(byName.get("lost.csv").errorMessage().contains("status could not be saved"));
+        Path flaky = sourceDir.resolve("flaky.csv");
+        assertTrue(tracker.shouldSkip("flaky-tracker-feed", byName.get("flaky.csv").sourcePath(),
+                Files.getLastModifiedTime(flaky).toMillis(), Files.size(flaky)));
+
+        // The metrics agree with the results
+        String metrics = given().get("/q/metrics").then().statusCode(200).extract().asString();
+        assertTrue(metrics.contains("transfer_files_total{feed=\"flaky-tracker-feed\",status=\"copied\"} 1.0"), metrics);
+        assertTrue(metrics.contains("transfer_files_total{feed=\"flaky-tracker-feed\",status=\"failed\"} 1.0"), metrics);
+    }
+
+    /**
+     * Run the feed with the orchestrator's tracker wrapped so the hook sees each call first. The
+     * hook throws to fail a call.
+     */
+    private List<TransferResult> transferWithTracker(Feed feed, BiConsumer<Method, Object[]> hook)
+            throws Exception {
+        TransferOrchestrationService target = ClientProxy.unwrap(orchestrator);
+        Field trackerField = TransferOrchestrationService.class.getDeclaredField("tracker");
+        trackerField.setAccessible(true);
+        Tracker real = (Tracker) trackerField.get(target);
+        trackerField.set(target, Proxy.newProxyInstance(Tracker.class.getClassLoader(), new Class<?>[]{Tracker.class},
+                (proxy, method, args) -> {
+                    hook.accept(method, args);
+                    try {
+                        return method.invoke(real, args);
+                    } catch (InvocationTargetException e) {
+                        throw e.getCause();
+                    }
+                }));
+        try {
+            return transfer(feed);
+        } finally {
+            trackerField.set(target, real);
+        }
+    }
+
     @Test
     void shouldSkipAlreadyCopiedFile() throws IOException {
         // Create test file
@@ -128,12 +543,12 @@ class TransferOrchestrationServiceTest {
         );
 
         // First transfer
-        List<TransferResult> firstRun = orchestrator.executeTransfer(feed);
+        List<TransferResult> firstRun = transfer(feed);
         assertEquals(1, firstRun.size());
         assertEquals(TransferResult.Status.SUCCESS, firstRun.getFirst().status());
 
         // Second transfer - should skip
-        List<TransferResult> secondRun = orchestrator.executeTransfer(feed);
+        List<TransferResult> secondRun = transfer(feed);
         assertEquals(1, secondRun.size());
         assertEquals(TransferResult.Status.SKIPPED, secondRun.getFirst().status());
     }
@@ -154,7 +569,7 @@ class TransferOrchestrationServiceTest {
                 Map.of()
         );
 
-        List<TransferResult> results = orchestrator.executeTransfer(feed);
+        List<TransferResult> results = transfer(feed);
 
         // Should only transfer the CSV
         assertEquals(1, results.size());
@@ -178,10 +593,319 @@ class TransferOrchestrationServiceTest {
                 Map.of()
         );
 
-        List<TransferResult> results = orchestrator.executeTransfer(feed);
+        List<TransferResult> results = transfer(feed);
 
         // Should only transfer good.txt
         assertEquals(1, results.size());
         assertTrue(results.getFirst().sourcePath().endsWith("good.txt"));
     }
-}
\ No newline at end of file
+
+    @Test
+    void shouldTransferManyFilesConcurrently() throws Exception {
+        // transfer.parallelism allows 4 copies at once across all feeds
+        int feedCapped = concurrentCopies(3, "a");
+        assertTrue(feedCapped > 1 && feedCapped <= 3, "Copies should overlap up to the feed's limit, saw " + feedCapped);
+        // A changed limit applies to the next run of the same feed
+        assertEquals(1, concurrentCopies(1, "b"));
+        int globallyCapped = concurrentCopies(8, "c");
+        assertTrue(globallyCapped > 1 && globallyCapped <= 4,
+                "Copies should be capped by the global limit, saw " + globallyCapped);
+    }
+
+    /**
+     * Copy a batch of new files for the same feed with the given parallelism and return the
+     * most source reads that were open at once.
+     */
+    private int concurrentCopies(int parallelism, String batch) throws Exception {
+        int fileCount = 12;
+        for (int i = 0; i < fileCount; i++) {
+            Files.writeString(sourceDir.resolve(batch + "-" + i + ".dat"), "payload-" + batch + i);
+        }
+        Feed feed = new Feed("parallel-feed", sourceDir.toString(), List.of(batch + "-*.dat"), List.of(),
+                "parallel", true, Map.of("parallelism", parallelism));
+
+        AtomicInteger open = new AtomicInteger();
+        AtomicInteger peak = new AtomicInteger();
+        List<TransferResult> results = transferThrough(feed, source -> new SourceProvider() {
+            @Override
+            public Stream<FileDescriptor> list(Feed f) throws IOException {
+                return source.list(f);
+            }
+
+            @Override
+            public InputStream open(FileDescriptor file, long offset) throws IOException {
+                return source.open(file, offset);
+            }
+
+            @Override
+            public ReadableByteChannel openChannel(FileDescriptor file, long offset) throws IOException {
+                peak.accumulateAndGet(open.incrementAndGet(), Math::max);
+                ReadableByteChannel in = source.openChannel(file, offset);
+                return new ReadableByteChannel() {
+                    @Override
+                    public int read(ByteBuffer dst) throws IOException {
+                        try {
+                            // Slow enough that copies overlap whenever they are allowed to
+                            Thread.sleep(20);
+                        } catch (InterruptedException e) {
+                            Thread.currentThread().interrupt();
+                            throw new InterruptedIOException();
+                        }
+                        return in.read(dst);
+                    }
+
+                    @Override
+                    public boolean isOpen() {
+                        return in.isOpen();
+                    }
+
+                    @Override
+                    public void close() throws IOException {
+                        open.decrementAndGet();
+                        in.close();
+                    }
+                };
+            }
+        });
+
+        assertEquals(fileCount, results.size());
+        assertTrue(results.stream().allMatch(r -> r.status() == TransferResult.Status.SUCCESS));
+        for (int i = 0; i < fileCount; i++) {
+            assertEquals("payload-" + batch + i, Files.readString(sinkDir.resolve("parallel/" + batch + "-" + i + ".dat")));
+        }
+        return peak.get();
+    }
+
+    @Test
+    void shouldResumeInterruptedCopyFromCommittedOffset() throws Exception {
+        Path testFile = sourceDir.resolve("large.dat");
+        Files.writeString(testFile, "0123456789abcdefghij");
+
+        // Simulate a crash after 10 bytes were committed to the sink's temp file
+        long size = Files.size(testFile);
+        long mtime = Files.getLastModifiedTime(testFile).toMillis();
+        FileId fileId = FileIdentity.SHA256.of("resume-feed", testFile.toString(), mtime, size);
+        tracker.upsertFile(new FileRecord(fileId, "resume-feed", testFile.toString(), size, mtime,
+                null, FileRecord.FileStatus.COPYING, null, null, 0));
+        Path partial = sinkDir.resolve("resumed/large.dat.tmp");
+        Files.createDirectories(partial.getParent());
+        Files.writeString(partial, "0123456789");
+        tracker.saveResume(ResumeState.fresh(fileId).withProgress(partial.toString(), 10));
+
+        Feed feed = new Feed(
+                "resume-feed",
+                sourceDir.toString(),
+                List.of("*.dat"),
+                List.of(),
+                "resumed",
+                true,
+                Map.of()
+        );
+
+        List<TransferResult> results = transfer(feed);
+
+        assertEquals(1, results.size());
+        assertEquals(TransferResult.Status.SUCCESS, results.getFirst().status());
+        assertEquals(10, results.getFirst().bytesTransferred(), "Only the remaining bytes should be copied");
+        assertEquals("0123456789abcdefghij", Files.readString(sinkDir.resolve("resumed/large.dat")));
+        assertTrue(tracker.loadResume(fileId).isEmpty(), "Journal entry should be cleared");
+        // The checksum still covers the whole file, including the prefix copied before the crash
+        assertEquals("md5:" + HexFormat.of().formatHex(MessageDigest.getInstance("MD5")
+                        .digest("0123456789abcdefghij".getBytes(StandardCharsets.UTF_8))),
+                tracker.findByIdentities(List.of(fileId)).get(fileId).checksum());
+    }
+
+    @Test
+    void shouldTransferWatchedFilesOnceTheySettle() throws Exception {
+        Files.writeString(sourceDir.resolve("before.csv"), "landed before the watch");
+
+        Feed feed = new Feed(
+                "watch-feed",
+                sourceDir.toString(),
+                List.of("**/*.csv"),
+                List.of(),
+                "watched",
+                true,
+                Map.of(WatchDiscoveryService.DISCOVERY_KEY, WatchDiscoveryService.DISCOVERY_WATCH)
+        );
+
+        watchDiscovery.watch(feed);
+        try {
+            awaitFile(sinkDir.resolve("watched/before.csv"));
+
+            Path nested = Files.createDirectories(sourceDir.resolve("2025/01"));
+            Files.writeString(nested.resolve("after.csv"), "landed during the watch");
+
+            awaitFile(sinkDir.resolve("watched/after.csv"));
+            assertEquals("landed during the watch", Files.readString(sinkDir.resolve("watched/after.csv")));
+        } finally {
+            watchDiscovery.unwatch(feed.id());
+        }
+    }
+
+    @Test
+    void shouldRunScheduledFeedsWithoutOverlap() throws Exception {
+        Files.writeString(sourceDir.resolve("first.csv"), "first");
+
+        Feed feed = new Feed(
+                "scheduled-feed",
+                sourceDir.toString(),
+                List.of("**/*.csv"),
+                List.of(),
+                "scheduled",
+                true,
+                Map.of(TransferOrchestrationService.PRIORITY_KEY, "1", TransferOrchestrationService.WEIGHT_KEY, "2")
+        );
+
+        feedScheduler.schedule(new ExpectedFeed(feed, "every 1s"));
+        try {
+            awaitFile(sinkDir.resolve("scheduled/first.csv"));
+
+            Files.writeString(sourceDir.resolve("second.csv"), "second");
+            awaitFile(sinkDir.resolve("scheduled/second.csv"));
+        } finally {
+            feedScheduler.unschedule(feed.id());
+        }
+        while (feedScheduler.isRunning(feed.id())) {
+            Thread.sleep(10);
+        }
+
+        // On demand only: a trigger while the feed is still running is refused rather than queued
+        feedScheduler.schedule(new ExpectedFeed(feed, ExpectedFeed.EXTERNAL));
+        try {
+            Files.writeString(sourceDir.resolve("third.csv"), "third");
+            assertTrue(feedScheduler.runNow(feed.id()));
+            assertFalse(feedScheduler.runNow(feed.id()));
+            awaitFile(sinkDir.resolve("scheduled/third.csv"));
+        } finally {
+            feedScheduler.unschedule(feed.id());
+        }
+    }
+
+    @Test
+    void shouldGiveUpGlobalPermitsWhileWaitingToRetry() throws Exception {
+        Files.writeString(sourceDir.resolve("reset.dat"), "second time lucky");
+        Feed feed = new Feed("waiting-feed", sourceDir.toString(), List.of("*.dat"), List.of(), "waiting", true,
+                Map.of());
+
+        // Waits of 200-400 ms, so a look at the permits 100 ms after the failure falls inside the wait
+        TransferOrchestrationService target = ClientProxy.unwrap(orchestrator);
+        Field backoffField = TransferOrchestrationService.class.getDeclaredField("backoff");
+        Field permitsField = TransferOrchestrationService.class.getDeclaredField("globalPermits");
+        Field parallelismField = TransferOrchestrationService.class.getDeclaredField("parallelism");
+        backoffField.setAccessible(true);
+        permitsField.setAccessible(true);
+        parallelismField.setAccessible(true);
+        Object backoff = backoffField.get(target);
+        FairPermits permits = (FairPermits) permitsField.get(target);
+        backoffField.set(target, new Backoff(Duration.ofMillis(400), Duration.ofMillis(400)));
+        AtomicInteger availableWhileWaiting = new AtomicInteger(-1);
+        AtomicBoolean failed = new AtomicBoolean();
+        List<TransferResult> results;
+        try {
+            results = transferThrough(feed, source -> new SourceProvider() {
+                @Override
+                public Stream<FileDescriptor> list(Feed f) throws IOException {
+                    return source.list(f);
+                }
+
+                @Override
+                public InputStream open(FileDescriptor file, long offset) throws IOException {
+                    return source.open(file, offset);
+                }
+
+                @Override
+                public ReadableByteChannel openChannel(FileDescriptor file, long offset) throws IOException {
+                    if (failed.getAndSet(true)) {
+                        return source.openChannel(file, offset);
+                    }
+                    Thread.ofVirtual().start(() -> {
+                        try {
+                            Thread.sleep(100);
+                            availableWhileWaiting.set(permits.available());
+                        } catch (InterruptedException e) {
+                            Thread.currentThread().interrupt();
+                        }
+                    });
+                    throw new IOException("Connection reset");
+                }
+            });
+        } finally {
+            backoffField.set(target, backoff);
+        }
+
+        assertEquals(TransferResult.Status.SUCCESS, results.getFirst().status());
+        assertEquals(Math.max(1, parallelismField.getInt(target)), availableWhileWaiting.get());
+    }
+
+    @Test
+    void shouldRetryTransientFailuresFromTheCommittedOffset() throws Exception {
+        byte[] content = new byte[3 * 1024 * 1024 + 512 * 1024];
+        new Random(11).nextBytes(content);
+        Files.write(sourceDir.resolve("flaky.dat"), content);
+        Feed feed = new Feed("retry-feed", sourceDir.toString(), List.of("*.dat"), List.of(), "retried", true, Map.of());
+
+        // The first read of the file drops after 2.5 MB; the test profile checkpoints every 1 MiB
+        List<Long> opened = new CopyOnWriteArrayList<>();
+        AtomicBoolean failed = new AtomicBoolean();
+        List<TransferResult> results = transferThrough(feed, source -> new SourceProvider() {
+            @Override
+            public Stream<FileDescriptor> list(Feed f) throws IOException {
+                return source.list(f);
+            }
+
+            @Override
+            public InputStream open(FileDescriptor file, long offset) throws IOException {
+                return source.open(file, offset);
+            }
+
+            @Override
+            public ReadableByteChannel openChannel(FileDescriptor file, long offset) throws IOException {
+                opened.add(offset);
+                ReadableByteChannel in = source.openChannel(file, offset);
+                if (failed.getAndSet(true)) {
+                    return in;
+                }
+                return new ReadableByteChannel() {
+                    long read;
+
+                    @Override
+                    public int read(ByteBuffer dst) throws IOException {
+                        int n = in.read(dst);
+                        read += Math.max(0, n);
+                        if (read > 2_500_000) {
+                            throw new IOException("Connection reset");
+                        }
+                        return n;
+                    }
+
+                    @Override
+                    public boolean isOpen() {
+                        return in.isOpen();
+                    }
+
+                    @Override
+                    public void close() throws IOException {
+                        in.close();
+                    }
+                };
+            }
+        });
+
+        assertEquals(1, results.size());
+        assertEquals(TransferResult.Status.SUCCESS, results.getFirst().status());
+        long committed = 2 * 1024 * 1024;
+        assertEquals(content.length - committed, results.getFirst().bytesTransferred(),
+                "The retry should only copy what the sink had not committed");
+        assertTrue(opened.contains(committed), "The source should be reopened at the committed offset: " + opened);
+        assertArrayEquals(content, Files.readAllBytes(sinkDir.resolve("retried/flaky.dat")));
+    }
+
+    private static void awaitFile(Path path) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+        while (!Files.exists(path)) {
+            assertTrue(System.nanoTime() < deadline, "Timed out waiting for " + path);
+            Thread.sleep(50);
+        }
+    }
+}
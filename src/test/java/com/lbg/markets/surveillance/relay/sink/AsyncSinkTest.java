@@ -0,0 +1,53 @@
+package com.lbg.markets.surveillance.relay.sink;
+
+import com.lbg.markets.surveillance.relay.domain.ResumeState;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.ByteArrayInputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.channels.Channels;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Map;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class AsyncSinkTest {
+
+    @TempDir
+    Path sinkDir;
+
+    @Test
+    void shouldAdaptABlockingSink() throws IOException {
+        byte[] data = new byte[300 * 1024 + 7];
+        new Random(3).nextBytes(data);
+        AsyncSink sink = AsyncSink.of(new LocalFsSink(sinkDir.toString(), 8192, 65536));
+
+        long written = AsyncSink.await(sink.writeAsync("adapted/file.dat", publisher(data, data.length),
+                ResumeState.untracked(), data.length, Map.of(), CommitListener.NONE));
+
+        assertEquals(data.length, written);
+        assertArrayEquals(data, Files.readAllBytes(sinkDir.resolve("adapted/file.dat")));
+    }
+
+    @Test
+    void shouldSurfaceSourceFailures() {
+        byte[] data = new byte[1000];
+        AsyncSink sink = AsyncSink.of(new LocalFsSink(sinkDir.toString(), 8192, 65536));
+
+        assertThrows(EOFException.class, () -> AsyncSink.await(sink.writeAsync("adapted/short.dat",
+                publisher(data, data.length + 1), ResumeState.untracked(), data.length + 1, Map.of(),
+                CommitListener.NONE)));
+        assertFalse(Files.exists(sinkDir.resolve("adapted/short.dat")));
+    }
+
+    private static ChannelPublisher publisher(byte[] data, long length) {
+        return new ChannelPublisher(Channels.newChannel(new ByteArrayInputStream(data)), length, 4096);
+    }
+}
@@ -0,0 +1,221 @@
+package com.lbg.markets.surveillance.relay.sink;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import jakarta.json.Json;
+import jakarta.json.JsonArray;
+import jakarta.json.JsonReader;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.URLDecoder;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Base64;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.zip.CRC32C;
+
+/**
+ * Minimal in-process stand-in for the GCS JSON API resumable upload protocol, object
+ * metadata (with generations), compose and delete, enough to exercise GcsSink without a bucket.
+ */
+class FakeGcsServer implements AutoCloseable {
+
+    private final HttpServer server;
+    private final Map<String, Session> sessions = new ConcurrentHashMap<>();
+    private final Map<String, byte[]> objects = new ConcurrentHashMap<>();
+    private final Map<String, Long> generations = new ConcurrentHashMap<>();
+    private final AtomicLong nextGeneration = new AtomicLong();
+    private final AtomicInteger sessionIds = new AtomicInteger();
+    private final AtomicInteger puts = new AtomicInteger();
+
+    private volatile int failOnPut = -1;
+    private volatile long maxPersistPerPut = Long.MAX_VALUE;
+
+    FakeGcsServer() throws IOException {
+        server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        server.createContext("/upload/storage/v1/b/", this::startSession);
+        server.createContext("/upload/session/", this::putChunk);
+        server.createContext("/storage/v1/b/", this::object);
+        server.start();
+    }
+
+    String endpoint() {
+        return "http://127.0.0.1:" + server.getAddress().getPort();
+    }
+
+    byte[] object(String name) {
+        return objects.get(name);
+    }
+
+    /** Answer the n-th PUT (1-based) with a 503. */
+    void failOnPut(int n) {
+        puts.set(0);
+        failOnPut = n;
+    }
+
+    /** Persist at most this many bytes per PUT, like GCS may under load. */
+    void maxPersistPerPut(long bytes) {
+        maxPersistPerPut = bytes;
+    }
+
+    private void startSession(HttpExchange exchange) throws IOException {
+        exchange.getRequestBody().readAllBytes();
+        String query = exchange.getRequestURI().getRawQuery();
+        String name = URLDecoder.decode(query.replaceAll(".*name=([^&]*).*", "$1"), StandardCharsets.UTF_8);
+
+        String id = String.valueOf(sessionIds.incrementAndGet());
+        sessions.put(id, new Session(name));
+        exchange.getResponseHeaders().add("Location", endpoint() + "/upload/session/" + id);
+        respond(exchange, 200);
+    }
+
+    private void putChunk(HttpExchange exchange) throws IOException {
+        byte[] body = exchange.getRequestBody().readAllBytes();
+        String id = exchange.getRequestURI().getPath().substring("/upload/session/".length());
+        Session session = sessions.get(id);
+        if (session == null) {
+            respond(exchange, 404);
+            return;
+        }
+        if (puts.incrementAndGet() == failOnPut) {
+            respond(exchange, 503);
+            return;
+        }
+
+        // Content-Range: "bytes a-b/total", "bytes */total" or "bytes */*"
+        String range = exchange.getRequestHeaders().getFirst("Content-Range").substring("bytes ".length());
+        String total = range.substring(range.indexOf('/') + 1);
+        if (!range.startsWith("*")) {
+            long start = Long.parseLong(range.substring(0, range.indexOf('-')));
+            session.append(start, body, maxPersistPerPut);
+        }
+
+        if (!"*".equals(total) && session.data.size() == Long.parseLong(total)) {
+            store(session.name, session.data.toByteArray());
+            // A finished session is not used again; dropping it keeps long runs (benchmarks) in bounds
+            sessions.remove(id);
+            respond(exchange, 200);
+            return;
+        }
+        if (session.data.size() > 0) {
+            exchange.getResponseHeaders().add("Range", "bytes=0-" + (session.data.size() - 1));
+        }
+        respond(exchange, 308);
+    }
+
+    boolean exists(String name) {
+        return objects.containsKey(name);
+    }
+
+    private void object(HttpExchange exchange) throws IOException {
+        String path = exchange.getRequestURI().getPath();
+        String name = path.substring(path.indexOf("/o/") + 3);
+        switch (exchange.getRequestMethod()) {
+            case "POST" -> compose(exchange, name.substring(0, name.length() - "/compose".length()));
+            case "DELETE" -> {
+                generations.remove(name);
+                respond(exchange, objects.remove(name) != null ? 204 : 404);
+            }
+            default -> objectMetadata(exchange, name);
+        }
+    }
+
+    /** Concatenate the source objects, at most 32 as in GCS. */
+    private void compose(HttpExchange exchange, String destination) throws IOException {
+        JsonArray sources;
+        try (JsonReader reader = Json.createReader(exchange.getRequestBody())) {
+            sources = reader.readObject().getJsonArray("sourceObjects");
+        }
+        if (sources.size() > 32) {
+            respond(exchange, 400);
+            return;
+        }
+        String query = exchange.getRequestURI().getRawQuery();
+        if (query != null && query.startsWith("ifGenerationMatch=")
+                && Long.parseLong(query.substring("ifGenerationMatch=".length())) != generations.getOrDefault(destination, 0L)) {
+            respond(exchange, 412);
+            return;
+        }
+        ByteArrayOutputStream composed = new ByteArrayOutputStream();
+        for (int i = 0; i < sources.size(); i++) {
+            byte[] source = objects.get(sources.getJsonObject(i).getString("name"));
+            if (source == null) {
+                respond(exchange, 404);
+                return;
+            }
+            composed.writeBytes(source);
+        }
+        store(destination, composed.toByteArray());
+        byte[] body = "{}".getBytes(StandardCharsets.UTF_8);
+        exchange.sendResponseHeaders(200, body.length);
+        exchange.getResponseBody().write(body);
+        exchange.close();
+    }
+
+    /** Object resource with the hashes GCS computes server-side. */
+    private void objectMetadata(HttpExchange exchange, String name) throws IOException {
+        byte[] data = objects.get(name);
+        if (data == null) {
+            respond(exchange, 404);
+            return;
+        }
+        CRC32C crc = new CRC32C();
+        crc.update(data);
+        String body = "{\"size\":\"" + data.length + "\",\"generation\":\"" + generations.get(name) + "\","
+                + "\"md5Hash\":\"" + Base64.getEncoder().encodeToString(md5(data)) + "\","
+                + "\"crc32c\":\"" + Base64.getEncoder().encodeToString(
+                ByteBuffer.allocate(4).putInt((int) crc.getValue()).array()) + "\"}";
+        byte[] bytes = body.getBytes(StandardCharsets.UTF_8);
+        exchange.sendResponseHeaders(200, bytes.length);
+        exchange.getResponseBody().write(bytes);
+        exchange.close();
+    }
+
+    private void store(String name, byte[] data) {
+        objects.put(name, data);
+        generations.put(name, nextGeneration.incrementAndGet());
+    }
+
+    private static byte[] md5(byte[] data) {
+        try {
+            return MessageDigest.getInstance("MD5").digest(data);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static void respond(HttpExchange exchange, int status) throws IOException {
+        exchange.sendResponseHeaders(status, -1);
+        exchange.close();
+    }
+
+    @Override
+    public void close() {
+        server.stop(0);
+    }
+
+    private static final class Session {
+        final String name;
+        final ByteArrayOutputStream data = new ByteArrayOutputStream();
+
+        Session(String name) {
+            this.name = name;
+        }
+
+        synchronized void append(long start, byte[] body, long maxPersist) {
+            // Ignore bytes already persisted, as GCS does for overlapping re-sends
+            int skip = (int) Math.max(0, data.size() - start);
+            int length = (int) Math.min(body.length - skip, maxPersist);
+            if (start <= data.size() && length > 0) {
+                data.write(body, skip, length);
+            }
+        }
+    }
+}
@@ -0,0 +1,215 @@
+package com.lbg.markets.surveillance.relay.sink;
+
+import com.lbg.markets.surveillance.relay.domain.ResumeState;
+import com.lbg.markets.surveillance.relay.util.ChecksumAlgorithm;
+import com.lbg.markets.surveillance.relay.util.StreamingChecksum;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.ReadableByteChannel;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Exercises the resumable upload engine against {@link FakeGcsServer}; no bucket required.
+ */
+class GcsSinkTest {
+
+    private static final int CHUNK = GcsSink.CHUNK_ALIGNMENT;
+
+    private FakeGcsServer gcs;
+
+    @BeforeEach
+    void setup() throws IOException {
+        gcs = new FakeGcsServer();
+    }
+
+    @AfterEach
+    void cleanup() {
+        gcs.close();
+    }
+
+    @Test
+    void shouldUploadInChunksAndReportCommittedOffsets() throws IOException {
+        byte[] data = randomBytes(3 * CHUNK + 1234);
+        List<ResumeState> commits = new ArrayList<>();
+
+        long written = sink(CHUNK).write("feed/file.dat", channel(data, 0), ResumeState.untracked(),
+                data.length, Map.of("source", "/src/file.dat"), commits::add);
+
+        assertEquals(data.length, written);
+        assertArrayEquals(data, gcs.object("ingest/feed/file.dat"));
+        assertEquals(List.of(0L, (long) CHUNK, 2L * CHUNK, 3L * CHUNK, (long) data.length),
+                commits.stream().map(ResumeState::bytesCommitted).toList());
+    }
+
+    @Test
+    void shouldReportServerSideChecksums() throws IOException {
+        byte[] data = randomBytes(CHUNK + 17);
+        GcsSink sink = sink(CHUNK);
+        sink.write("feed/hashed.dat", channel(data, 0), ResumeState.untracked(), data.length, Map.of(),
+                CommitListener.NONE);
+
+        StreamingChecksum md5 = StreamingChecksum.of(ChecksumAlgorithm.MD5);
+        md5.update(ByteBuffer.wrap(data));
+        StreamingChecksum crc = StreamingChecksum.of(ChecksumAlgorithm.CRC32C);
+        crc.update(ByteBuffer.wrap(data));
+
+        assertEquals(Optional.of(md5.finish()), sink.reportedChecksum("feed/hashed.dat", ChecksumAlgorithm.MD5));
+        assertEquals(Optional.of(crc.finish()), sink.reportedChecksum("feed/hashed.dat", ChecksumAlgorithm.CRC32C));
+        assertEquals(Optional.empty(), sink.reportedChecksum("feed/hashed.dat", ChecksumAlgorithm.SHA256));
+    }
+
+    @Test
+    void shouldResumeFromSessionAfterFailure() throws IOException {
+        byte[] data = randomBytes(4 * CHUNK);
+        GcsSink sink = sink(CHUNK);
+        List<ResumeState> commits = new ArrayList<>();
+        gcs.failOnPut(3);
+
+        assertThrows(IOException.class, () -> sink.write("resume.dat", channel(data, 0),
+                ResumeState.untracked(), data.length, Map.of(), commits::add));
+
+        ResumeState journal = commits.getLast();
+        long committed = sink.committedBytes("resume.dat", journal);
+        assertEquals(2L * CHUNK, committed);
+
+        long written = sink.write("resume.dat", channel(data, committed),
+                journal.withProgress(journal.sinkSessionId(), committed), data.length, Map.of(), commits::add);
+
+        assertEquals(data.length - committed, written);
+        assertArrayEquals(data, gcs.object("ingest/resume.dat"));
+    }
+
+    @Test
+    void shouldResendTailNotPersistedByServer() throws IOException {
+        byte[] data = randomBytes(4 * CHUNK + 17);
+        gcs.maxPersistPerPut(CHUNK);
+
+        sink(4 * CHUNK).write("partial.dat", channel(data, 0), ResumeState.untracked(),
+                data.length, Map.of(), CommitListener.NONE);
+
+        assertArrayEquals(data, gcs.object("ingest/partial.dat"));
+    }
+
+    @Test
+    void shouldUploadEmptyFile() throws IOException {
+        sink(CHUNK).write("empty.dat", channel(new byte[0], 0), ResumeState.untracked(),
+                0, Map.of(), CommitListener.NONE);
+
+        assertArrayEquals(new byte[0], gcs.object("ingest/empty.dat"));
+    }
+
+    @Test
+    void shouldUploadBodiesOfUnknownLength() throws IOException {
+        GcsSink sink = sink(CHUNK);
+        for (int size : new int[]{0, CHUNK / 2, 3 * CHUNK, 3 * CHUNK + 99}) {
+            byte[] data = randomBytes(size);
+            List<ResumeState> commits = new ArrayList<>();
+
+            long written = sink.write("unknown/" + size + ".dat", channel(data, 0), ResumeState.untracked(),
+                    -1, Map.of(), commits::add);
+
+            assertEquals(size, written);
+            assertArrayEquals(data, gcs.object("ingest/unknown/" + size + ".dat"));
+            assertEquals(size, commits.getLast().bytesCommitted());
+        }
+    }
+
+    @Test
+    void shouldComposeRangesBeyondTheComposeLimit() throws IOException {
+        byte[] data = randomBytes(40 * 1000 + 7);
+        GcsSink sink = sink(CHUNK);
+        List<Long> offsets = new ArrayList<>();
+        for (int offset = 0; offset < data.length; offset += 1000) {
+            offsets.add((long) offset);
+        }
+        // Ranges may land in any order
+        for (long offset : offsets.reversed()) {
+            long length = Math.min(1000, data.length - offset);
+            sink.writeRange("ranged.dat", data.length, offset, length, channel(data, offset));
+        }
+
+        assertEquals(Set.of(0L, 1000L), sink.heldRanges("ranged.dat", data.length, Set.of(0L, 1000L, 99_000L)));
+        sink.completeRanges("ranged.dat", data.length, offsets, Map.of("source", "/src/ranged.dat"));
+
+        assertArrayEquals(data, gcs.object("ingest/ranged.dat"));
+        assertFalse(gcs.exists("ingest/ranged.dat.part-0"));
+        assertFalse(gcs.exists("ingest/ranged.dat.compose-0-0"));
+    }
+
+    @Test
+    void shouldAppendByComposingOnlyTheNewBytes() throws IOException {
+        byte[] data = randomBytes(CHUNK + 500);
+        int base = CHUNK - 100;
+        GcsSink sink = sink(CHUNK);
+        sink.write("grow.log", Channels.newChannel(new ByteArrayInputStream(data, 0, base)), ResumeState.untracked(),
+                base, Map.of(), CommitListener.NONE);
+
+        // The object no longer holds the base the caller expects
+        assertFalse(sink.append("grow.log", base + 1, data.length - base - 1, channel(data, base + 1), Map.of()));
+        assertTrue(sink.append("grow.log", base, data.length - base, channel(data, base), Map.of()));
+
+        assertArrayEquals(data, gcs.object("ingest/grow.log"));
+        assertFalse(gcs.exists("ingest/grow.log.append-" + base));
+    }
+
+    @Test
+    void shouldDriveManyUploadsAsynchronously() {
+        GcsSink sink = sink(CHUNK);
+        List<byte[]> data = new ArrayList<>();
+        List<CompletableFuture<Long>> writes = new ArrayList<>();
+        // Far more uploads than the two buffer sets; the rest wait for a set without holding a thread
+        for (int i = 0; i < 100; i++) {
+            byte[] bytes = randomBytes(CHUNK / 4 + i * 1000);
+            data.add(bytes);
+            writes.add(sink.writeAsync("async/" + i + ".dat", new ChannelPublisher(channel(bytes, 0), bytes.length),
+                    ResumeState.untracked(), bytes.length, Map.of(), CommitListener.NONE).toCompletableFuture());
+        }
+
+        CompletableFuture.allOf(writes.toArray(CompletableFuture[]::new)).join();
+        for (int i = 0; i < data.size(); i++) {
+            assertEquals(data.get(i).length, writes.get(i).join());
+            assertArrayEquals(data.get(i), gcs.object("ingest/async/" + i + ".dat"));
+        }
+    }
+
+    @Test
+    void shouldFailAnUploadWhoseSourceEndsEarly() {
+        byte[] data = randomBytes(CHUNK + 10);
+
+        assertThrows(EOFException.class, () -> sink(CHUNK).write("short.dat", channel(data, 0),
+                ResumeState.untracked(), data.length + 1, Map.of(), CommitListener.NONE));
+    }
+
+    private GcsSink sink(int chunkSize) {
+        return new GcsSink(gcs.endpoint(), "test-bucket", "/ingest/", false, "none", chunkSize, 2);
+    }
+
+    private static ReadableByteChannel channel(byte[] data, long offset) {
+        return Channels.newChannel(new ByteArrayInputStream(data, (int) offset, data.length - (int) offset));
+    }
+
+    private static byte[] randomBytes(int size) {
+        byte[] data = new byte[size];
+        new Random(42).nextBytes(data);
+        return data;
+    }
+}
@@ -0,0 +1,55 @@
+package com.lbg.markets.surveillance.relay.sink;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.channels.Channels;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class LocalFsSinkTest {
+
+    @TempDir
+    Path sinkDir;
+
+    @Test
+    void shouldAppendWithoutExposingAPartialTail() throws IOException {
+        LocalFsSink sink = new LocalFsSink(sinkDir.toString(), 8192, 65536);
+        Path target = sinkDir.resolve("logs/app.log");
+        Files.createDirectories(target.getParent());
+        Files.writeString(target, "day one\n");
+
+        // The source drops after part of the new bytes
+        InputStream dropping = new InputStream() {
+            private final InputStream tail = new ByteArrayInputStream("day tw".getBytes(StandardCharsets.UTF_8));
+
+            @Override
+            public int read() throws IOException {
+                int b = tail.read();
+                if (b < 0) {
+                    throw new IOException("Connection reset");
+                }
+                return b;
+            }
+        };
+        assertThrows(IOException.class,
+                () -> sink.append("logs/app.log", 8, 8, Channels.newChannel(dropping), Map.of()));
+        assertEquals("day one\n", Files.readString(target));
+        assertFalse(Files.exists(sinkDir.resolve("logs/app.log.append.tmp")));
+
+        byte[] next = "day two\n".getBytes(StandardCharsets.UTF_8);
+        assertTrue(sink.append("logs/app.log", 8, next.length, Channels.newChannel(new ByteArrayInputStream(next)),
+                Map.of()));
+        assertEquals("day one\nday two\n", Files.readString(target));
+    }
+}
@@ -0,0 +1,125 @@
+package com.lbg.markets.surveillance.relay.source;
+
+import com.lbg.markets.surveillance.relay.domain.Feed;
+import com.lbg.markets.surveillance.relay.domain.FileDescriptor;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTimeoutPreemptively;
+
+class LocalFsSourceTest {
+
+    @TempDir
+    Path root;
+
+    private final LocalFsSource source = new LocalFsSource();
+
+    @Test
+    void shouldOnlyListFilesUnderDirectoriesIncludesCanMatch() throws IOException {
+        write("a/one.csv");
+        write("a/deep/two.csv");
+        write("b/three.csv");
+        write("top.csv");
+
+        Feed feed = feed(List.of("a/*.csv"), Map.of());
+
+        assertEquals(Set.of("a/one.csv"), listRelative(feed));
+    }
+
+    @Test
+    void shouldDescendForDoubleStarsInsideASegment() throws IOException {
+        write("top.csv");
+        write("a/b/deep.csv");
+        write("data/one.csv");
+        write("data/x/y/two.csv");
+        write("other/three.txt");
+
+        assertEquals(Set.of("top.csv", "a/b/deep.csv", "data/one.csv", "data/x/y/two.csv"),
+                listRelative(feed(List.of("**.csv"), Map.of())));
+        assertEquals(Set.of("data/one.csv", "data/x/y/two.csv"),
+                listRelative(feed(List.of("data/**.csv"), Map.of())));
+    }
+
+    @Test
+    void shouldSkipUnchangedDirectoriesAfterSuccessfulRun() throws IOException {
+        write("2025/01/one.csv");
+        write("2025/02/two.csv");
+        ageDirectories();
+
+        Feed feed = feed(List.of(), Map.of(LocalFsSource.SKIP_UNCHANGED_DIRS_KEY, "true"));
+        assertEquals(Set.of("2025/01/one.csv", "2025/02/two.csv"), listRelative(feed));
+        source.commitListing(feed);
+
+        write("2025/02/three.csv");
+
+        assertEquals(Set.of("2025/02/two.csv", "2025/02/three.csv"), listRelative(feed));
+    }
+
+    @Test
+    void shouldListEverythingAgainWhenPreviousRunWasNotCommitted() throws IOException {
+        write("2025/01/one.csv");
+        ageDirectories();
+
+        Feed feed = feed(List.of(), Map.of(LocalFsSource.SKIP_UNCHANGED_DIRS_KEY, "true"));
+        listRelative(feed);
+
+        assertEquals(Set.of("2025/01/one.csv"), listRelative(feed));
+    }
+
+    @Test
+    void shouldFailTheListingWhenTheWalkerThrows() throws IOException {
+        write("a/one.csv");
+        LocalFsWalker walker = new LocalFsWalker(root, dir -> {
+            throw new IllegalStateException("bad pattern");
+        }, (file, attrs) -> true, null);
+
+        assertTimeoutPreemptively(Duration.ofSeconds(10), () -> {
+            try (Stream<FileDescriptor> files = walker.stream()) {
+                IllegalStateException e = assertThrows(IllegalStateException.class, files::toList);
+                assertEquals("bad pattern", e.getMessage());
+            }
+        });
+    }
+
+    private Feed feed(List<String> includes, Map<String, Object> metadata) {
+        return new Feed("walk-test", root.toString(), includes, List.of(), "out", true, metadata);
+    }
+
+    private Set<String> listRelative(Feed feed) throws IOException {
+        try (Stream<FileDescriptor> files = source.list(feed)) {
+            return files.map(f -> root.relativize(Path.of(f.sourcePath())).toString().replace('\\', '/'))
+                    .collect(Collectors.toSet());
+        }
+    }
+
+    private void write(String relative) throws IOException {
+        Path file = root.resolve(relative);
+        Files.createDirectories(file.getParent());
+        Files.writeString(file, relative);
+    }
+
+    // Recently modified directories are never trusted, so backdate them past the settle window
+    private void ageDirectories() throws IOException {
+        FileTime past = FileTime.from(Instant.now().minus(1, ChronoUnit.HOURS));
+        try (Stream<Path> dirs = Files.walk(root)) {
+            for (Path dir : dirs.filter(Files::isDirectory).toList()) {
+                Files.setLastModifiedTime(dir, past);
+            }
+        }
+    }
+}
@@ -0,0 +1,52 @@
+package com.lbg.markets.surveillance.relay.tracker;
+
+import com.lbg.markets.surveillance.relay.domain.FileId;
+import com.lbg.markets.surveillance.relay.domain.FileRecord;
+import com.lbg.markets.surveillance.relay.domain.FileRecord.FileStatus;
+import com.lbg.markets.surveillance.relay.domain.StatusUpdate;
+import com.lbg.markets.surveillance.relay.util.FileIdentity;
+import io.quarkus.test.junit.QuarkusTest;
+import jakarta.inject.Inject;
+import org.junit.jupiter.api.Test;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+@QuarkusTest
+class CopiedIdentityIndexTest {
+
+    @Inject
+    CopiedIdentityIndex index;
+
+    @Inject
+    H2Tracker tracker;
+
+    @Test
+    void shouldIgnoreASnapshotOnceTheCopiedFilesHaveMoved() throws Exception {
+        FileId first = copied("/data/watermark/first.csv");
+        Path snapshot = Files.createTempDirectory("copied-index-").resolve("copied-filter.bin");
+        index.writeSnapshot(snapshot);
+        assertTrue(index.loadSnapshot(snapshot));
+
+        // The same number of COPIED files, but not the same files
+        Thread.sleep(5);
+        tracker.updateStatuses(List.of(new StatusUpdate(first, FileStatus.FAILED, null)));
+        copied("/data/watermark/second.csv");
+
+        assertFalse(index.loadSnapshot(snapshot));
+        Files.delete(snapshot);
+        Files.delete(snapshot.getParent());
+    }
+
+    private FileId copied(String path) {
+        FileId fileId = FileIdentity.SHA256.of("watermark-feed", path, 1000L, 42L);
+        tracker.upsertFile(new FileRecord(fileId, "watermark-feed", path, 42L, 1000L, null, FileStatus.DISCOVERED,
+                null, null, 0));
+        tracker.updateStatuses(List.of(new StatusUpdate(fileId, FileStatus.COPIED, "out" + path)));
+        return fileId;
+    }
+}
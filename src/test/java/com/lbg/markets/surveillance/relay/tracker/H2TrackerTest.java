@@ -0,0 +1,118 @@
+package com.lbg.markets.surveillance.relay.tracker;
+
+import com.lbg.markets.surveillance.relay.domain.FileId;
+import com.lbg.markets.surveillance.relay.domain.FileRecord;
+import com.lbg.markets.surveillance.relay.domain.FileRecord.FileStatus;
+import com.lbg.markets.surveillance.relay.domain.ResumeState;
+import com.lbg.markets.surveillance.relay.domain.StatusUpdate;
+import com.lbg.markets.surveillance.relay.util.FileIdentity;
+import io.quarkus.test.junit.QuarkusTest;
+import jakarta.inject.Inject;
+import org.eclipse.microprofile.config.Config;
+import org.eclipse.microprofile.config.ConfigProvider;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+@QuarkusTest
+class H2TrackerTest {
+
+    @Inject
+    H2Tracker tracker;
+
+    @Test
+    void shouldBulkUpsertAndFindByIdentities() {
+        List<FileRecord> records = IntStream.range(0, 1200)
+                .mapToObj(i -> record("bulk-feed", "/data/bulk/" + i + ".csv", FileStatus.DISCOVERED))
+                .toList();
+
+        tracker.upsertFiles(records);
+
+        List<FileId> ids = new ArrayList<>(records.stream().map(FileRecord::fileId).toList());
+        ids.add(FileIdentity.SHA256.of("bulk-feed", "/data/bulk/missing.csv", 1L, 1L));
+        Map<FileId, FileRecord> found = tracker.findByIdentities(ids);
+
+        assertEquals(records.size(), found.size());
+        assertEquals("/data/bulk/7.csv", found.get(records.get(7).fileId()).sourcePath());
+    }
+
+    @Test
+    void shouldApplyStatusTransitionsInOrder() {
+        FileRecord record = record("status-feed", "/data/status/a.csv", FileStatus.DISCOVERED);
+        tracker.upsertFile(record);
+
+        tracker.updateStatuses(List.of(
+                new StatusUpdate(record.fileId(), FileStatus.COPYING, null),
+                new StatusUpdate(record.fileId(), FileStatus.FAILED, null),
+                new StatusUpdate(record.fileId(), FileStatus.COPIED, "out/a.csv")
+        ));
+
+        FileRecord stored = tracker.findByIdentity("status-feed", "/data/status/a.csv", 1000L, 42L).orElseThrow();
+        assertEquals(FileStatus.COPIED, stored.status());
+        assertEquals("out/a.csv", stored.gcsUri());
+        assertEquals(1, stored.attempts());
+        assertNotNull(stored.copiedAt());
+        assertTrue(tracker.shouldSkip("status-feed", "/data/status/a.csv", 1000L, 42L));
+    }
+
+    @Test
+    void shouldRejectStatusUpdateForUnknownFile() {
+        FileId unknown = FileIdentity.SHA256.of("status-feed", "/nope", 0L, 0L);
+        assertThrows(IllegalArgumentException.class,
+                () -> tracker.updateStatus(unknown, FileStatus.COPYING, null));
+    }
+
+    @Test
+    void shouldApplyNoStatusOfAFailedBatch() {
+        FileRecord record = record("status-feed", "/data/status/atomic.csv", FileStatus.DISCOVERED);
+        tracker.upsertFile(record);
+        FileId unknown = FileIdentity.SHA256.of("status-feed", "/nope", 0L, 0L);
+
+        assertThrows(IllegalArgumentException.class, () -> tracker.updateStatuses(List.of(
+                new StatusUpdate(record.fileId(), FileStatus.COPIED, "out/atomic.csv"),
+                new StatusUpdate(unknown, FileStatus.COPIED, "out/nope")
+        )));
+
+        FileRecord stored = tracker.findByIdentity("status-feed", "/data/status/atomic.csv", 1000L, 42L).orElseThrow();
+        assertEquals(FileStatus.DISCOVERED, stored.status());
+    }
+
+    @Test
+    void shouldSizeThePoolForEveryWorkerPlusHeadroom() {
+        Config config = ConfigProvider.getConfig();
+        int parallelism = config.getValue("transfer.parallelism", Integer.class);
+        int headroom = config.getValue("tracker.pool.headroom", Integer.class);
+
+        assertEquals(parallelism + headroom, config.getValue("quarkus.datasource.jdbc.max-size", Integer.class));
+    }
+
+    @Test
+    void shouldKeepResumeJournalPerFeed() {
+        FileRecord record = record("resume-journal", "/data/big.dat", FileStatus.COPYING);
+        tracker.upsertFile(record);
+
+        tracker.saveResume(ResumeState.fresh(record.fileId()).withProgress("session-1", 1024));
+        tracker.saveResume(ResumeState.fresh(record.fileId()).withProgress("session-1", 4096));
+
+        Map<FileId, ResumeState> resumes = tracker.loadResumes("resume-journal");
+        assertEquals(1, resumes.size());
+        assertEquals(4096, resumes.get(record.fileId()).bytesCommitted());
+        assertTrue(tracker.loadResumes("other-feed").isEmpty());
+
+        tracker.clearResume(record.fileId());
+        assertTrue(tracker.loadResume(record.fileId()).isEmpty());
+    }
+
+    private static FileRecord record(String feedId, String path, FileStatus status) {
+        FileId fileId = FileIdentity.SHA256.of(feedId, path, 1000L, 42L);
+        return new FileRecord(fileId, feedId, path, 42L, 1000L, null, status, null, null, 0);
+    }
+}
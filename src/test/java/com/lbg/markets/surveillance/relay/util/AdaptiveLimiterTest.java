@@ -0,0 +1,51 @@
+package com.lbg.markets.surveillance.relay.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class AdaptiveLimiterTest {
+
+    private static final long MS = TimeUnit.MILLISECONDS.toNanos(1);
+
+    @Test
+    void shouldGrowWhileLatencyHoldsAndBackOffWhenItRises() throws InterruptedException {
+        AdaptiveLimiter limiter = new AdaptiveLimiter(2, 1, 16, 2.0);
+        int held = 0;
+        for (int i = 0; i < 200; i++) {
+            // Keep the limiter saturated, as a busy feed would
+            while (held < limiter.limit()) {
+                limiter.acquire();
+                held++;
+            }
+            limiter.onSample(MS);
+        }
+        int grown = limiter.limit();
+        assertTrue(grown > 8, "limit should grow under stable latency, was " + grown);
+
+        for (int i = 0; i < 20; i++) {
+            limiter.onSample(20 * MS);
+        }
+        int backedOff = limiter.limit();
+        assertTrue(backedOff < grown, "limit should drop when latency rises, was " + backedOff);
+
+        // One burst of slow samples is a single congestion signal
+        assertEquals((int) (grown * 0.7), backedOff, 1);
+    }
+
+    @Test
+    void shouldStayWithinBoundsOnErrors() throws InterruptedException {
+        AdaptiveLimiter limiter = new AdaptiveLimiter(4, 1, 4, 2.0);
+        for (int i = 0; i < 10; i++) {
+            limiter.onError();
+            Thread.sleep(15);
+        }
+        assertEquals(1, limiter.limit());
+
+        limiter.acquire();
+        limiter.release();
+    }
+}
@@ -0,0 +1,26 @@
+package com.lbg.markets.surveillance.relay.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class BackoffTest {
+
+    @Test
+    void shouldDoubleWithJitterUpToTheCap() {
+        Backoff backoff = new Backoff(Duration.ofMillis(100), Duration.ofMillis(1000));
+        for (int i = 0; i < 100; i++) {
+            assertBetween(50, 100, backoff.delayMillis(1));
+            assertBetween(100, 200, backoff.delayMillis(2));
+            assertBetween(400, 800, backoff.delayMillis(4));
+            assertBetween(500, 1000, backoff.delayMillis(5));
+            assertBetween(500, 1000, backoff.delayMillis(1000));
+        }
+    }
+
+    private static void assertBetween(long min, long max, long delay) {
+        assertTrue(delay >= min && delay <= max, "expected " + min + ".." + max + ", was " + delay);
+    }
+}
@@ -0,0 +1,55 @@
+package com.lbg.markets.surveillance.relay.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.SplittableRandom;
+
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class BloomFilterTest {
+
+    @Test
+    void shouldHaveNoFalseNegativesAndBoundedFalsePositives() {
+        BloomFilter filter = BloomFilter.create(100_000, 0.01);
+        SplittableRandom random = new SplittableRandom(7);
+        long[][] keys = new long[100_000][];
+        for (int i = 0; i < keys.length; i++) {
+            keys[i] = new long[]{random.nextLong(), random.nextLong()};
+            filter.put(keys[i][0], keys[i][1]);
+        }
+
+        for (long[] key : keys) {
+            assertTrue(filter.mightContain(key[0], key[1]));
+        }
+
+        int falsePositives = 0;
+        for (int i = 0; i < 100_000; i++) {
+            if (filter.mightContain(random.nextLong(), random.nextLong())) {
+                falsePositives++;
+            }
+        }
+        assertTrue(falsePositives < 2_000, "False positive rate too high: " + falsePositives);
+    }
+
+    @Test
+    void shouldRoundTripSnapshot() throws IOException {
+        BloomFilter original = BloomFilter.create(1_000, 0.01);
+        original.put(1L, 2L);
+
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        original.writeTo(new DataOutputStream(bytes));
+
+        BloomFilter restored = BloomFilter.create(1_000, 0.01);
+        assertTrue(restored.mergeFrom(new DataInputStream(new ByteArrayInputStream(bytes.toByteArray()))));
+        assertTrue(restored.mightContain(1L, 2L));
+
+        BloomFilter differentShape = BloomFilter.create(50_000, 0.01);
+        assertFalse(differentShape.mergeFrom(new DataInputStream(new ByteArrayInputStream(bytes.toByteArray()))));
+    }
+}
@@ -0,0 +1,62 @@
+package com.lbg.markets.surveillance.relay.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.nio.ByteBuffer;
+import java.util.concurrent.CompletableFuture;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class BufferPoolTest {
+
+    @Test
+    void shouldReuseReleasedBuffers() throws Exception {
+        BufferPool pool = new BufferPool(1024, false);
+        ByteBuffer first = pool.acquire(256);
+        first.put((byte) 1);
+        pool.release(first);
+
+        ByteBuffer second = pool.acquire(256);
+
+        assertSame(first, second);
+        assertEquals(0, second.position());
+        assertEquals(1, pool.hits());
+        assertEquals(1, pool.misses());
+        assertEquals(256, pool.leasedBytes());
+        assertEquals(0, pool.idleBytes());
+    }
+
+    @Test
+    void shouldMakeRequestsBeyondTheBudgetWaitInOrder() throws Exception {
+        BufferPool pool = new BufferPool(1024, false);
+        ByteBuffer held = pool.acquire(768);
+
+        CompletableFuture<ByteBuffer[]> set = pool.acquireHeap(2, 256);
+        CompletableFuture<ByteBuffer[]> cancelled = pool.acquireHeap(1, 256);
+        CompletableFuture<ByteBuffer[]> last = pool.acquireHeap(1, 128);
+        // A later request that would fit still queues behind the set
+        assertFalse(set.isDone());
+        assertFalse(last.isDone());
+        assertEquals(3, pool.waits());
+
+        cancelled.cancel(false);
+        pool.release(held);
+
+        assertEquals(2, set.join().length);
+        assertTrue(last.isDone());
+        // The idle 768 byte buffer was dropped to make room
+        assertEquals(640, pool.leasedBytes());
+        assertEquals(0, pool.idleBytes());
+    }
+
+    @Test
+    void shouldRejectRequestsLargerThanTheBudget() {
+        BufferPool pool = new BufferPool(1024, true);
+
+        assertThrows(IllegalArgumentException.class, () -> pool.acquireHeap(2, 1024));
+    }
+}
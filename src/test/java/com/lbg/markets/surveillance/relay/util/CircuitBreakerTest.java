@@ -0,0 +1,49 @@
+package com.lbg.markets.surveillance.relay.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class CircuitBreakerTest {
+
+    @Test
+    void shouldOpenAfterConsecutiveFailuresAndCloseOnASuccessfulProbe() throws InterruptedException {
+        CircuitBreaker breaker = new CircuitBreaker(3, Duration.ofMillis(50));
+        breaker.onFailure();
+        breaker.onFailure();
+        breaker.onSuccess();
+        assertFalse(breaker.onFailure(), "a success resets the count");
+        assertFalse(breaker.onFailure());
+        assertTrue(breaker.onFailure());
+        assertEquals(CircuitBreaker.State.OPEN, breaker.state());
+        assertFalse(breaker.tryAcquire());
+
+        Thread.sleep(60);
+        assertTrue(breaker.tryAcquire(), "one probe is let through once the circuit has been open long enough");
+        assertFalse(breaker.tryAcquire(), "only one probe at a time");
+        assertEquals(CircuitBreaker.State.HALF_OPEN, breaker.state());
+
+        // A failed probe opens it again straight away
+        assertTrue(breaker.onFailure());
+        assertFalse(breaker.tryAcquire());
+
+        Thread.sleep(60);
+        assertTrue(breaker.tryAcquire());
+        breaker.onSuccess();
+        assertEquals(CircuitBreaker.State.CLOSED, breaker.state());
+        assertTrue(breaker.tryAcquire());
+    }
+
+    @Test
+    void shouldNeverOpenWhenDisabled() {
+        CircuitBreaker breaker = new CircuitBreaker(0, Duration.ofMinutes(1));
+        for (int i = 0; i < 100; i++) {
+            assertFalse(breaker.onFailure());
+        }
+        assertTrue(breaker.tryAcquire());
+    }
+}
@@ -0,0 +1,74 @@
+package com.lbg.markets.surveillance.relay.util;
+
+import com.github.luben.zstd.ZstdInputStream;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Arrays;
+import java.util.Random;
+import java.util.zip.GZIPInputStream;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class CompressionCodecTest {
+
+    private final byte[] data = compressibleBytes(300_001);
+
+    @Test
+    void shouldConcatenateIndependentGzipMembersIntoOneStream() throws IOException {
+        byte[] stream = compressInBlocks(CompressionCodec.GZIP, 65_536);
+
+        try (InputStream in = new GZIPInputStream(new ByteArrayInputStream(stream))) {
+            assertArrayEquals(data, in.readAllBytes());
+        }
+    }
+
+    @Test
+    void shouldConcatenateIndependentZstdFramesIntoOneStream() throws IOException {
+        byte[] stream = compressInBlocks(CompressionCodec.ZSTD, 65_536);
+
+        try (InputStream in = new ZstdInputStream(new ByteArrayInputStream(stream))) {
+            assertArrayEquals(data, in.readAllBytes());
+        }
+    }
+
+    @Test
+    void shouldCompressAnEmptyBlockToAValidStream() throws IOException {
+        byte[] member = CompressionCodec.GZIP.compress(new byte[0], 0, 6);
+
+        try (InputStream in = new GZIPInputStream(new ByteArrayInputStream(member))) {
+            assertEquals(0, in.readAllBytes().length);
+        }
+    }
+
+    @Test
+    void shouldParseCodecNames() {
+        assertEquals(CompressionCodec.NONE, CompressionCodec.parse(null));
+        assertEquals(CompressionCodec.GZIP, CompressionCodec.parse(" GZ "));
+        assertEquals(CompressionCodec.ZSTD, CompressionCodec.parse("zstd"));
+        assertThrows(IllegalArgumentException.class, () -> CompressionCodec.parse("lz4"));
+    }
+
+    private byte[] compressInBlocks(CompressionCodec codec, int blockBytes) {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        for (int offset = 0; offset < data.length; offset += blockBytes) {
+            byte[] block = Arrays.copyOfRange(data, offset, Math.min(data.length, offset + blockBytes));
+            out.writeBytes(codec.compress(block, block.length, codec.defaultLevel()));
+        }
+        return out.toByteArray();
+    }
+
+    private static byte[] compressibleBytes(int size) {
+        byte[] data = new byte[size];
+        Random random = new Random(5);
+        for (int i = 0; i < size; i++) {
+            data[i] = (byte) ('a' + random.nextInt(4));
+        }
+        return data;
+    }
+}
@@ -0,0 +1,78 @@
+package com.lbg.markets.surveillance.relay.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class FairPermitsTest {
+
+    @Test
+    void shouldShareByWeightWithinAPriority() throws InterruptedException {
+        FairPermits permits = new FairPermits(1);
+        permits.acquire("holder", 0, 1);
+
+        List<String> order = Collections.synchronizedList(new ArrayList<>());
+        List<Thread> threads = new ArrayList<>();
+        for (int i = 0; i < 4; i++) {
+            threads.add(queue(permits, "big", 0, 1, order));
+            threads.add(queue(permits, "small", 0, 3, order));
+        }
+        awaitWaiting(permits, 8);
+
+        permits.release();
+        for (Thread thread : threads) {
+            thread.join();
+        }
+
+        // While both wait, the weight-3 flow gets three permits for each one of the weight-1 flow
+        assertEquals(List.of("big", "small", "small", "small"), order.subList(0, 4));
+        assertEquals(1, permits.available());
+    }
+
+    @Test
+    void shouldServeHigherPriorityFirstAndSurviveInterrupts() throws InterruptedException {
+        FairPermits permits = new FairPermits(1);
+        permits.acquire("holder", 0, 1);
+
+        List<String> order = Collections.synchronizedList(new ArrayList<>());
+        Thread low = queue(permits, "low", 0, 1, order);
+        awaitWaiting(permits, 1);
+        Thread cancelled = queue(permits, "cancelled", 5, 1, order);
+        awaitWaiting(permits, 2);
+        Thread high = queue(permits, "high", 5, 1, order);
+        awaitWaiting(permits, 3);
+
+        cancelled.interrupt();
+        cancelled.join();
+        awaitWaiting(permits, 2);
+
+        permits.release();
+        low.join();
+        high.join();
+
+        assertEquals(List.of("high", "low"), order);
+        assertEquals(1, permits.available());
+    }
+
+    private static Thread queue(FairPermits permits, String key, int priority, double weight, List<String> order) {
+        return Thread.ofVirtual().start(() -> {
+            try {
+                permits.acquire(key, priority, weight);
+            } catch (InterruptedException e) {
+                return;
+            }
+            order.add(key);
+            permits.release();
+        });
+    }
+
+    private static void awaitWaiting(FairPermits permits, int count) throws InterruptedException {
+        while (permits.waiting() != count) {
+            Thread.sleep(1);
+        }
+    }
+}
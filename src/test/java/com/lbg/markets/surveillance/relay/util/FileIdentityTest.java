@@ -0,0 +1,68 @@
+package com.lbg.markets.surveillance.relay.util;
+
+import com.lbg.markets.surveillance.relay.domain.FileId;
+import org.junit.jupiter.api.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.util.HexFormat;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+
+class FileIdentityTest {
+
+    @Test
+    void shouldKeepSha256IdsOfTheStringForm() throws Exception {
+        String[][] cases = {
+                {"daily_ops", "/data/in/trades_20240101.csv", "1704067200000", "1048576"},
+                {"fx", "/données/é/票据.csv", "-1", "0"},
+                {"f", "x".repeat(1000), String.valueOf(Long.MIN_VALUE), String.valueOf(Long.MAX_VALUE)},
+        };
+        for (String[] c : cases) {
+            String identity = c[0] + "|" + c[1] + "|" + c[2] + "|" + c[3];
+            byte[] expected = MessageDigest.getInstance("SHA-256").digest(identity.getBytes(StandardCharsets.UTF_8));
+
+            FileId id = FileIdentity.SHA256.of(c[0], c[1], Long.parseLong(c[2]), Long.parseLong(c[3]));
+
+            assertEquals(HexFormat.of().formatHex(expected), id.toString());
+            assertArrayEquals(expected, id.toBytes());
+            assertEquals(id, FileId.parse(id.toString()));
+            assertEquals(id, FileId.fromBytes(id.toBytes()));
+        }
+    }
+
+    @Test
+    void shouldMatchReferenceMurmur3() {
+        // Hashed string length 16, 17, 18, 24, 25, 31, 32, 38, 48: tails of 0, 1-8 and 9-15 bytes,
+        // with expected h1 and h2 from the reference MurmurHash3_x64_128 with seed 0
+        String[][] cases = {
+                {"/data/abcd", "97766309444e88db", "098833ee5ce84f94"},
+                {"/data/abcde", "073c933fcc0e3448", "2028de4155c78b75"},
+                {"/data/abcdef", "368f15a66a1d60e4", "4df208f30d7d91ac"},
+                {"/data/abcdefghijkl", "5fe17cd39e5cbc3e", "8dac25d4645f4320"},
+                {"/data/abcdefghijklm", "df6e29a0d4b5a601", "e7c599a283024661"},
+                {"/data/abcdefghijklmnopqrs", "077d65905704e15b", "e877d96611229626"},
+                {"/data/abcdefghijklmnopqrst", "5b073bb77c046215", "529188f14e497633"},
+                {"/data/abcdefghijklmnopqrstuvwxyz", "52a5275a817d0203", "b02a621fb1861d98"},
+                {"/data/abcdefghijklmnopqrstuvwxyz0123456789", "ee36466d34c075a4", "9c899007bb84082c"},
+        };
+        for (String[] c : cases) {
+            FileId id = FileIdentity.MURMUR3.of("f", c[0], 1L, 2L);
+
+            assertEquals(Long.parseUnsignedLong(c[1], 16), id.w0(), "h1 of f|" + c[0] + "|1|2");
+            assertEquals(Long.parseUnsignedLong(c[2], 16), id.w1(), "h2 of f|" + c[0] + "|1|2");
+        }
+    }
+
+    @Test
+    void shouldGiveStableDistinctMurmurIds() {
+        FileId a = FileIdentity.MURMUR3.of("feed", "/data/a.csv", 1000L, 42L);
+
+        assertEquals(a, FileIdentity.MURMUR3.of("feed", "/data/a.csv", 1000L, 42L));
+        assertNotEquals(a, FileIdentity.MURMUR3.of("feed", "/data/a.csv", 1001L, 42L));
+        assertNotEquals(a, FileIdentity.SHA256.of("feed", "/data/a.csv", 1000L, 42L));
+        assertEquals(0, a.w2() | a.w3());
+    }
+}
@@ -0,0 +1,82 @@
+package com.lbg.markets.surveillance.relay.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class GlobMatcherTest {
+
+    @Test
+    void shouldLetDoubleStarMatchZeroOrMoreDirectories() {
+        GlobMatcher matcher = GlobMatcher.compile(List.of("**/*.csv", "data/**/final/*.txt"));
+
+        assertTrue(matcher.matches("a.csv"));
+        assertTrue(matcher.matches("x/y/a.csv"));
+        assertTrue(matcher.matches("data/final/a.txt"));
+        assertTrue(matcher.matches("data/2025/01/final/a.txt"));
+        assertFalse(matcher.matches("data/final/sub/a.txt"));
+        assertFalse(matcher.matches("a.csv.bak"));
+    }
+
+    @Test
+    void shouldKeepSingleStarWithinOneSegment() {
+        GlobMatcher matcher = GlobMatcher.compile(List.of("*.dat", "in/?/*.dat"));
+
+        assertTrue(matcher.matches("x.dat"));
+        assertFalse(matcher.matches("sub/x.dat"));
+        assertTrue(matcher.matches("in/a/x.dat"));
+        assertFalse(matcher.matches("in/ab/x.dat"));
+    }
+
+    @Test
+    void shouldTreatRegexCharactersLiterally() {
+        GlobMatcher matcher = GlobMatcher.compile(List.of("trades(1)+[eod].csv", "**/v1.0$/*"));
+
+        assertTrue(matcher.matches("trades(1)+[eod].csv"));
+        assertFalse(matcher.matches("trades1[eod].csv"));
+        assertTrue(matcher.matches("x/v1.0$/file"));
+        assertFalse(matcher.matches("x/v100$/file"));
+    }
+
+    @Test
+    void shouldMatchDirectoryPrefixes() {
+        GlobMatcher matcher = GlobMatcher.compile(List.of("tmp/**", "**/archive/**"));
+
+        assertTrue(matcher.matches("tmp/a.txt"));
+        assertFalse(matcher.matches("tmpfile.txt"));
+        assertTrue(matcher.matches("archive/a.txt"));
+        assertTrue(matcher.matches("x/archive/y/a.txt"));
+
+        assertTrue(matcher.matchesAllBelow("tmp"));
+        assertTrue(matcher.matchesAllBelow("x/archive"));
+        assertFalse(matcher.matchesAllBelow("x"));
+    }
+
+    @Test
+    void shouldOnlyDescendWhereIncludesCanMatch() {
+        GlobMatcher matcher = GlobMatcher.compile(List.of("2025/*/trades.csv", "*.dat", "logs/**"));
+
+        assertTrue(matcher.mayMatchBelow("2025"));
+        assertTrue(matcher.mayMatchBelow("2025/01"));
+        assertFalse(matcher.mayMatchBelow("2025/01/extra"));
+        assertFalse(matcher.mayMatchBelow("2024"));
+        assertTrue(matcher.mayMatchBelow("logs/a/b"));
+    }
+
+    @Test
+    void shouldDescendForDoubleStarsInsideASegment() {
+        GlobMatcher anywhere = GlobMatcher.compile(List.of("**.csv"));
+        GlobMatcher underData = GlobMatcher.compile(List.of("data/**.csv"));
+
+        assertTrue(anywhere.matches("a/b/c.csv"));
+        assertTrue(anywhere.mayMatchBelow("a"));
+        assertTrue(anywhere.mayMatchBelow("a/b"));
+        assertTrue(underData.matches("data/x/y/c.csv"));
+        assertTrue(underData.mayMatchBelow("data"));
+        assertTrue(underData.mayMatchBelow("data/x/y"));
+        assertFalse(underData.mayMatchBelow("other"));
+    }
+}
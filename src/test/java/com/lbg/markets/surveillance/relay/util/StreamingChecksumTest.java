@@ -0,0 +1,62 @@
+package com.lbg.markets.surveillance.relay.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.nio.ByteBuffer;
+import java.security.MessageDigest;
+import java.util.Arrays;
+import java.util.HexFormat;
+import java.util.Random;
+import java.util.zip.CRC32C;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class StreamingChecksumTest {
+
+    private final byte[] data = randomBytes(100_003);
+
+    @Test
+    void shouldMatchOneShotDigestsWhenFedInPieces() throws Exception {
+        StreamingChecksum md5 = feed(StreamingChecksum.of(ChecksumAlgorithm.MD5), 777);
+        StreamingChecksum sha = feed(StreamingChecksum.of(ChecksumAlgorithm.SHA256), 4096);
+        StreamingChecksum crc = feed(StreamingChecksum.of(ChecksumAlgorithm.CRC32C), 1);
+
+        CRC32C expectedCrc = new CRC32C();
+        expectedCrc.update(data);
+
+        assertEquals("md5:" + hex(MessageDigest.getInstance("MD5").digest(data)), md5.finish());
+        assertEquals("sha256:" + hex(MessageDigest.getInstance("SHA-256").digest(data)), sha.finish());
+        assertEquals("crc32c:" + String.format("%08x", expectedCrc.getValue()), crc.finish());
+    }
+
+    @Test
+    void shouldHashTreeOfLeavesIndependentlyOfReadSizes() throws Exception {
+        int leaf = 10_000;
+        MessageDigest root = MessageDigest.getInstance("SHA-256");
+        for (int offset = 0; offset < data.length; offset += leaf) {
+            byte[] chunk = Arrays.copyOfRange(data, offset, Math.min(data.length, offset + leaf));
+            root.update(MessageDigest.getInstance("SHA-256").digest(chunk));
+        }
+        String expected = "sha256-tree10000:" + hex(root.digest());
+
+        assertEquals(expected, feed(StreamingChecksum.tree(ChecksumAlgorithm.SHA256, leaf), 3_333).finish());
+        assertEquals(expected, feed(StreamingChecksum.tree(ChecksumAlgorithm.SHA256, leaf), 65_536).finish());
+    }
+
+    private StreamingChecksum feed(StreamingChecksum checksum, int pieceSize) {
+        for (int offset = 0; offset < data.length; offset += pieceSize) {
+            checksum.update(ByteBuffer.wrap(data, offset, Math.min(pieceSize, data.length - offset)));
+        }
+        return checksum;
+    }
+
+    private static String hex(byte[] bytes) {
+        return HexFormat.of().formatHex(bytes);
+    }
+
+    private static byte[] randomBytes(int size) {
+        byte[] bytes = new byte[size];
+        new Random(11).nextBytes(bytes);
+        return bytes;
+    }
+}
@@ -0,0 +1,22 @@
+package com.lbg.markets.surveillance.relay.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class TokenBucketTest {
+
+    @Test
+    void shouldHoldTheRateAfterTheBurst() throws InterruptedException {
+        TokenBucket bucket = new TokenBucket(1_000_000);
+        long start = System.nanoTime();
+        for (int i = 0; i < 30; i++) {
+            bucket.acquire(100_000);
+        }
+        // One second of burst, then 2 MB at 1 MB/s
+        long elapsedMs = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+        assertTrue(elapsedMs >= 1900 && elapsedMs < 4000, "took " + elapsedMs + " ms");
+    }
+}